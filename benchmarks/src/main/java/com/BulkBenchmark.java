@@ -0,0 +1,67 @@
+package com;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coding of large payloads in one thread and by chunks in common ForkJoinPool.
+ * threshold 0 - every payload is divided, Integer.MAX_VALUE - one thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmark {
+    @Param({"Hemming", "CRC-32", "RS"})
+    public String coding;
+
+    @Param({"1048576", "8388608"})
+    public int size;
+
+    @Param({"0", "2147483647"})
+    public int threshold;
+
+    private BulkCoder bulk;
+    private byte[] payload;
+    private byte[] coded;
+    private byte[] decoded;
+
+    @Setup
+    public void setUp() {
+        final String name = coding;
+        bulk = new BulkCoder(new BulkCoder.Factory() {
+            public Coding create() {
+                return Coding.forName(name);
+            }
+        }, ForkJoinPool.commonPool(), BulkCoder.DEFAULT_CHUNK, threshold);
+        payload = Payloads.random(size);
+        coded = bulk.encode(payload);
+        decoded = new byte[bulk.payloadLength(coded.length)];
+    }
+
+    @Benchmark
+    public int encode(Throughput throughput) {
+        throughput.bytes += size;
+        return bulk.encode(payload, 0, payload.length, coded, 0);
+    }
+
+    @Benchmark
+    public int decode(Throughput throughput) {
+        throughput.bytes += size;
+        return bulk.decode(coded, 0, coded.length, decoded, 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRC codec with default block size of every CRC, decoding repairs single bit errors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrcBenchmark {
+    @Param({"CRC-8", "CRC-16", "CRC-32"})
+    public String crc;
+
+    @Param({"16", "256", "4096", "65536"})
+    public int size;
+
+    @Param({"0", "0.0001", "0.001"})
+    public double errorRate;
+
+    private CrcCodec codec;
+    private CrcEngine engine;
+    private byte[] payload;
+    private byte[] damaged;
+    private byte[] encodeOut;
+    private byte[] decodeOut;
+
+    @Setup
+    public void setUp() {
+        engine = CrcEngine.forName(crc);
+        codec = new CrcCodec(engine, CrcCodec.defaultBlockSize(engine));
+        payload = Payloads.random(size);
+        byte[] coded = codec.encode(payload);
+        // dropped or duplicated bytes are not added, so length of damaged is the same
+        damaged = Payloads.damage(coded, errorRate);
+        encodeOut = new byte[coded.length];
+        decodeOut = new byte[codec.decodedLength(damaged.length)];
+    }
+
+    @Benchmark
+    public int checksum(Throughput throughput) {
+        throughput.bytes += size;
+        return engine.compute(payload, 0, payload.length);
+    }
+
+    @Benchmark
+    public int encode(Throughput throughput) {
+        throughput.bytes += size;
+        return codec.encode(payload, 0, payload.length, encodeOut, 0);
+    }
+
+    @Benchmark
+    public int decode(Throughput throughput) {
+        throughput.bytes += size;
+        return codec.decode(damaged, 0, damaged.length, decodeOut, 0);
+    }
+}
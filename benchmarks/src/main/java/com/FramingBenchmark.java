@@ -0,0 +1,74 @@
+package com;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HDLC framing with bit stuffing and deframing of the stream from line.
+ * Payload of all 0xFF bytes is the worst case for stuffing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FramingBenchmark {
+    private static final byte[] ADDRESS = "COM2".getBytes();
+    private static final byte[] SOURCE = "COM1".getBytes();
+
+    @Param({"16", "256", "4096", "65536"})
+    public int size;
+
+    @Param({"random", "ones"})
+    public String content;
+
+    private final HdlcFramer framer = new HdlcFramer();
+    private HdlcDeframer deframer;
+    private Blackhole blackhole;
+    private byte[] payload;
+    private byte[] frame;
+    private int frameLength;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        payload = Payloads.random(size);
+        if (content.equals("ones")) {
+            Arrays.fill(payload, (byte) 0xff);
+        }
+        frame = new byte[HdlcFramer.maxFrameLength(ADDRESS.length, SOURCE.length, size)];
+        frameLength = framer.encode(ADDRESS, SOURCE, payload, 0, payload.length, frame, 0);
+        deframer = new HdlcDeframer(new HdlcFrame.FrameListener() {
+            public void frameReceived(HdlcFrame frame) {
+                FramingBenchmark.this.blackhole.consume(frame.getPayloadLength());
+            }
+        });
+    }
+
+    @Benchmark
+    public int incapsulate(Throughput throughput) {
+        throughput.bytes += size;
+        return framer.encode(ADDRESS, SOURCE, payload, 0, payload.length, frame, 0);
+    }
+
+    @Benchmark
+    public long decapsulate(Throughput throughput) {
+        throughput.bytes += size;
+        deframer.feed(frame, 0, frameLength);
+        return deframer.getFrames();
+    }
+}
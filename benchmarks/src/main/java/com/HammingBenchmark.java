@@ -0,0 +1,71 @@
+package com;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hamming(21,16) codec on payloads of different sizes with bit errors in coded bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HammingBenchmark {
+    @Param({"16", "256", "4096", "65536"})
+    public int size;
+
+    @Param({"0", "0.0001", "0.001"})
+    public double errorRate;
+
+    /** tables - syndromes of every block from tables, best - ParityKernels.best() for long inputs */
+    @Param({"tables", "best"})
+    public String kernel;
+
+    private HammingCodec codec;
+    private byte[] payload;
+    private byte[] coded;
+    private byte[] damaged;
+    private byte[] encodeOut;
+    private byte[] decodeOut;
+
+    @Setup
+    public void setUp() {
+        codec = kernel.equals("best") ? new HammingCodec(ParityKernels.best()) : new HammingCodec();
+        payload = Payloads.random(size);
+        coded = codec.encode(payload);
+        damaged = Payloads.damage(coded, errorRate);
+        encodeOut = new byte[coded.length];
+        decodeOut = new byte[HammingCodec.decodedLength(damaged.length)];
+    }
+
+    @Benchmark
+    public int encode(Throughput throughput) {
+        throughput.bytes += size;
+        return codec.encode(payload, 0, payload.length, encodeOut, 0);
+    }
+
+    @Benchmark
+    public int decode(Throughput throughput) {
+        throughput.bytes += size;
+        return codec.decode(damaged, 0, damaged.length, decodeOut, 0);
+    }
+
+    @Benchmark
+    public byte[] encodeAllocating(Throughput throughput) {
+        throughput.bytes += size;
+        return codec.encode(payload);
+    }
+}
@@ -0,0 +1,97 @@
+package com;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Old String-based coding of Serial, for comparison with table codecs.
+ * Hemming code is got for every 2 bytes and CRC for every byte, like it was done in the first version.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegacyBenchmark {
+    @Param({"16", "256", "4096"})
+    public int size;
+
+    private byte[] payload;
+    private byte[][] blocks;
+    private byte[][] hemming;
+    private byte[][] crc;
+    private String binary;
+
+    @Setup
+    public void setUp() {
+        payload = Payloads.random(size);
+        blocks = new byte[size / 2][];
+        hemming = new byte[size / 2][];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new byte[] {payload[2 * i], payload[2 * i + 1]};
+            hemming[i] = Serial.hemingCoding(blocks[i], -1);
+        }
+        crc = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            crc[i] = Serial.crcCoding(new byte[] {payload[i]});
+        }
+        binary = Serial.toBinary(payload);
+    }
+
+    @Benchmark
+    public void hemingCoding(Throughput throughput, Blackhole blackhole) {
+        throughput.bytes += size;
+        for (byte[] block : blocks) {
+            blackhole.consume(Serial.hemingCoding(block, -1));
+        }
+    }
+
+    @Benchmark
+    public void hemingDecode(Throughput throughput, Blackhole blackhole) {
+        throughput.bytes += size;
+        for (byte[] block : hemming) {
+            blackhole.consume(Serial.hemingDecode(block));
+        }
+    }
+
+    @Benchmark
+    public void crcCoding(Throughput throughput, Blackhole blackhole) {
+        throughput.bytes += size;
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(Serial.crcCoding(new byte[] {payload[i]}));
+        }
+    }
+
+    @Benchmark
+    public void crcDecoding(Throughput throughput, Blackhole blackhole) {
+        throughput.bytes += size;
+        for (byte[] block : crc) {
+            blackhole.consume(Serial.crcDecoding(block));
+        }
+    }
+
+    @Benchmark
+    public String toBinary(Throughput throughput) {
+        throughput.bytes += size;
+        return Serial.toBinary(payload);
+    }
+
+    @Benchmark
+    public byte[] fromBinary(Throughput throughput) {
+        throughput.bytes += size;
+        return Serial.fromBinary(binary);
+    }
+}
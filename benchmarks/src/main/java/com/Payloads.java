@@ -0,0 +1,38 @@
+package com;
+
+import java.util.Random;
+
+/**
+ * Data for benchmarks.
+ */
+final class Payloads {
+    private Payloads() {
+    }
+
+    /**
+     * creating random payload, the same for every run
+     * @param size - the count of bytes
+     * @return - the bytes
+     */
+    static byte[] random(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * adding bit errors into copy of coded bytes
+     * @param coded - the coded bytes
+     * @param errorRate - the probability of error in every bit
+     * @return - the bytes with errors
+     */
+    static byte[] damage(byte[] coded, double errorRate) {
+        FaultInjector faults = new FaultInjector(coded.length);
+        faults.setBitErrorRate(errorRate);
+        byte[] out = new byte[coded.length * 2];
+        int len = faults.apply(coded, 0, coded.length, out);
+        byte[] res = new byte[len];
+        System.arraycopy(out, 0, res, 0, len);
+        return res;
+    }
+}
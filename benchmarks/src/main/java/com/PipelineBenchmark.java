@@ -0,0 +1,88 @@
+package com;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole way of message: coding, framing, line with bit errors, deframing and decoding.
+ * The line is FaultInjector without time of sending, so only the cost of processing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final byte[] ADDRESS = "COM2".getBytes();
+    private static final byte[] SOURCE = "COM1".getBytes();
+
+    @Param({"Hemming", "CRC-8", "CRC-16", "CRC-32"})
+    public String coding;
+
+    @Param({"256", "4096"})
+    public int size;
+
+    @Param({"0", "0.0001", "0.001"})
+    public double errorRate;
+
+    private final HammingCodec hamming = new HammingCodec();
+    private CrcCodec crc;
+    private final HdlcFramer framer = new HdlcFramer();
+    private HdlcDeframer deframer;
+    private FaultInjector line;
+    private byte[] payload;
+    private byte[] coded;
+    private byte[] frame;
+    private byte[] received;
+    private byte[] decoded;
+    private int decodedLength;
+
+    @Setup
+    public void setUp() {
+        payload = Payloads.random(size);
+        if (!coding.equals("Hemming")) {
+            CrcEngine engine = CrcEngine.forName(coding);
+            crc = new CrcCodec(engine, CrcCodec.defaultBlockSize(engine));
+        }
+        int codedLength = crc == null ? HammingCodec.encodedLength(size) : crc.encodedLength(size);
+        coded = new byte[codedLength];
+        frame = new byte[HdlcFramer.maxFrameLength(ADDRESS.length, SOURCE.length, codedLength)];
+        received = new byte[frame.length * 2];
+        decoded = new byte[size];
+        line = new FaultInjector(size);
+        line.setBitErrorRate(errorRate);
+        deframer = new HdlcDeframer(new HdlcFrame.FrameListener() {
+            public void frameReceived(HdlcFrame frame) {
+                if (crc == null) {
+                    decodedLength = hamming.decode(frame.getBuffer(), frame.getPayloadOffset(), frame.getPayloadLength(), decoded, 0);
+                }
+                else {
+                    decodedLength = crc.decode(frame.getBuffer(), frame.getPayloadOffset(), frame.getPayloadLength(), decoded, 0);
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public int transfer(Throughput throughput) {
+        int codedLength = crc == null ? hamming.encode(payload, 0, size, coded, 0) : crc.encode(payload, 0, size, coded, 0);
+        int frameLength = framer.encode(ADDRESS, SOURCE, coded, 0, codedLength, frame, 0);
+        int receivedLength = line.apply(frame, 0, frameLength, received);
+        decodedLength = 0;
+        deframer.feed(received, 0, receivedLength);
+        throughput.bytes += decodedLength;
+        return decodedLength;
+    }
+}
@@ -0,0 +1,31 @@
+package com;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counter of payload bytes for benchmarks.
+ * JMH shows it as "megabytes" in ops/s next to the score, that is throughput in MB per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+    /** the count of processed payload bytes, it is not public, so JMH doesn't show it */
+    long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        bytes = 0;
+    }
+
+    /**
+     * the counter for JMH, it is divided by time of iteration
+     * @return - the count of processed payload bytes in MB (10^6 bytes)
+     */
+    public double megabytes() {
+        return bytes / 1e6;
+    }
+}
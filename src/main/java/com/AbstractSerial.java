@@ -0,0 +1,914 @@
+package com;
+import jssc.SerialPort;
+import jssc.SerialPortException;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Coding, framing, reassembly and pacing of messages over raw port.
+ * Subclasses give only reading and writing of raw bytes:
+ * Serial - with COM port, VirtualSerial - in memory.
+ */
+public abstract class AbstractSerial implements SerialInterface {
+    private static final int FRAME_PAYLOAD = 1024;
+    private int hemmingError = -1;
+    private final HammingCodec hammingCodec = new HammingCodec();
+    private CrcCodec crcCodec = new CrcCodec(CrcEngine.CRC3, 1);
+    private byte[] destination;
+    protected final TransmitPacer pacer = new TransmitPacer();
+    protected int flowControl = SerialPort.FLOWCONTROL_NONE;
+    private long flowTimeout = 5000;
+    // txLock guards coders and buffers of sending, lineLock keeps bytes of one writing together on line,
+    // only lineLock is held while paced writing waits for the line
+    private final Object txLock = new Object();
+    private final Object lineLock = new Object();
+    private final Object queueLock = new Object();
+    private volatile TransmitQueue transmitQueue;
+    private int queueCapacity = 256;
+    private TransmitQueue.OverflowPolicy overflowPolicy = TransmitQueue.OverflowPolicy.BLOCK;
+    private final HdlcFramer framer = new HdlcFramer();
+    private final HdlcDeframer deframer = new HdlcDeframer(new HdlcFrame.FrameListener() {
+        public void frameReceived(HdlcFrame frame) {
+            AbstractSerial.this.frameReceived(frame);
+        }
+    });
+    private final ReceiveBuffer receiveBuffer = new ReceiveBuffer(1024);
+    private byte[] batch;
+    private Coding bufferedCoding;
+    private byte[] received;
+    private int receivedLength;
+    private Coding receivedCoding;
+    private final LinkMetrics metrics = new LinkMetrics();
+    private byte[] source;
+    private final BufferPool pool = BufferPool.getDefault();
+    private byte[] txBuffer;
+    private byte[] txCoded;
+    private final Buffers txMessage = new Buffers();
+    private byte[] rxRaw;
+    private final ReceiveBuffer backlog = new ReceiveBuffer(256);
+    private volatile PayloadCompressor compressor;
+    private byte[] txCompressed;
+    private volatile HammingInterleaver txInterleaver;
+    private volatile HammingInterleaver rxInterleaver;
+    private byte[] txBlocks;
+    private byte[] rxBlocks;
+    private volatile CaptureLog capture;
+    private volatile int address = LinkAddress.NONE;
+    private final BitSet groups = new BitSet();
+    private volatile int lastSource = LinkAddress.NONE;
+
+    /**
+     * the name of port
+     * @return - the name of port
+     */
+    public abstract String getPortName();
+
+    /**
+     * reading raw bytes from port
+     * @param count - the count of bytes for reading
+     * @return - the bytes
+     * @throws SerialPortException - if port can't be read
+     */
+    protected abstract byte[] readRaw(int count) throws SerialPortException;
+
+    /**
+     * reading raw bytes from port into buffer
+     * subclasses, that can read without new array, override it
+     * @param dst - the buffer for bytes
+     * @param off - the offset in dst
+     * @param count - the max count of bytes for reading
+     * @return - the count of read bytes
+     * @throws SerialPortException - if port can't be read
+     */
+    protected int readRaw(byte[] dst, int off, int count) throws SerialPortException {
+        byte[] in = readRaw(count);
+        System.arraycopy(in, 0, dst, off, in.length);
+        return in.length;
+    }
+
+    /**
+     * writing raw bytes to port
+     * @param bytes - the buffer with bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes for writing
+     * @return - is writing finish successfully
+     * @throws SerialPortException - if port can't be written
+     */
+    protected abstract boolean writeRaw(byte[] bytes, int off, int len) throws SerialPortException;
+
+    /**
+     * the count of bytes in output queue of port
+     * @return - the count of bytes, that are not sent yet
+     * @throws SerialPortException - if port can't be asked
+     */
+    protected abstract int outputQueued() throws SerialPortException;
+
+    /**
+     * the state of CTS line for flow control
+     * @return - can bytes be sent now
+     * @throws SerialPortException - if port can't be asked
+     */
+    protected abstract boolean isClearToSend() throws SerialPortException;
+
+    /**
+     * writing all bytes to COM port
+     * @param bytes - the bytes for writing
+     * @return is writing finish successfully
+     */
+    public boolean write(byte[] bytes, Coding coding) {
+        try {
+            synchronized (lineLock) {
+                int len;
+                synchronized (txLock) {
+                    txBuffer = pool.grow(txBuffer, maxMessageLength(bytes.length, coding), 0);
+                    len = encodeMessage(bytes, 0, bytes.length, coding, txBuffer, 0);
+                }
+                return writeCounted(txBuffer, 0, len);
+            }
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+            return  false;
+        }
+    }
+
+    /**
+     * writing all bytes from position to limit of message to COM port
+     * bytes are coded into buffer of port, so heap and direct buffers can be reused by caller
+     * @param message - the bytes of message, the position is moved to the limit after writing
+     * @param coding - the coding of bytes on line
+     * @return - the count of written coded bytes (-1 - writing was not successful)
+     */
+    public int write(ByteBuffer message, Coding coding) {
+        try {
+            synchronized (lineLock) {
+                int coded;
+                synchronized (txLock) {
+                    int len = message.remaining();
+                    byte[] bytes = txMessage.input(message, len);
+                    txBuffer = pool.grow(txBuffer, maxMessageLength(len, coding), 0);
+                    coded = encodeMessage(bytes, Buffers.inputOffset(message), len, coding, txBuffer, 0);
+                }
+                if (!writeCounted(txBuffer, 0, coded)) {
+                    return -1;
+                }
+                message.position(message.limit());
+                return coded;
+            }
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * sending message in as few writings as possible
+     * the coded message is written by chunks with the speed of port and flow control
+     * @param message - the bytes of message
+     * @param coding - the coding of bytes on line
+     * @return is sending finish successfully
+     */
+    public boolean send(byte[] message, Coding coding) {
+        // txBuffer is written only under lineLock, so it is not changed till the end of writing
+        synchronized (lineLock) {
+            int len;
+            synchronized (txLock) {
+                txBuffer = pool.grow(txBuffer, maxMessageLength(message.length, coding), 0);
+                len = encodeMessage(message, 0, message.length, coding, txBuffer, 0);
+            }
+            return writePaced(txBuffer, 0, len);
+        }
+    }
+
+    /**
+     * adding message into queue of sending, the message is sent by the writer thread of port
+     * messages from queue are coded and written together in one paced writing
+     * @param message - the bytes of message
+     * @param coding - the coding of bytes on line
+     * @return - the future with result of sending
+     */
+    public CompletableFuture<Boolean> sendAsync(byte[] message, Coding coding) {
+        TransmitQueue queue = transmitQueue;
+        if (queue != null) {
+            return queue.submit(message, coding);
+        }
+        synchronized (queueLock) {
+            if (transmitQueue == null) {
+                transmitQueue = new TransmitQueue("serial-writer-" + getPortName(), new TransmitQueue.Sink() {
+                    public int maxEncodedLength(byte[] message, Coding coding) {
+                        synchronized (txLock) {
+                            return maxMessageLength(message.length, coding);
+                        }
+                    }
+
+                    public int encode(byte[] message, Coding coding, byte[] dst, int dstOff) {
+                        synchronized (txLock) {
+                            return encodeMessage(message, 0, message.length, coding, dst, dstOff);
+                        }
+                    }
+
+                    public boolean writeCoded(byte[] coded, int off, int len) {
+                        synchronized (lineLock) {
+                            return writePaced(coded, off, len);
+                        }
+                    }
+                }, queueCapacity, overflowPolicy);
+            }
+            queue = transmitQueue;
+        }
+        return queue.submit(message, coding);
+    }
+
+    /**
+     * setting parameters of sending queue, must be called before first sendAsync
+     * @param capacity - the max count of messages in queue
+     * @param policy - what to do with new message, when queue is full
+     */
+    public void setQueueParams(int capacity, TransmitQueue.OverflowPolicy policy) {
+        this.queueCapacity = capacity;
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * writing coded bytes to port without overflow of output queue
+     * must be called with lineLock
+     * @param out - the coded bytes
+     * @param start - the offset of bytes
+     * @param len - the count of bytes
+     * @return is writing finish successfully
+     */
+    private boolean writePaced(byte[] out, int start, int len) {
+        try {
+            long deadline = System.nanoTime() + pacer.nanosFor(len) * 2 + flowTimeout * 1000000L;
+            int off = start;
+            int end = start + len;
+            while (off < end) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                if ((flowControl & SerialPort.FLOWCONTROL_RTSCTS_OUT) != 0 && !isClearToSend()) {
+                    TransmitPacer.sleepNanos(pacer.nanosFor(1));
+                    continue;
+                }
+                int queued = outputQueued();
+                int room = pacer.room(queued);
+                if (room == 0) {
+                    TransmitPacer.sleepNanos(pacer.waitNanos(queued));
+                    continue;
+                }
+                int n = Math.min(room, end - off);
+                if (!writeCounted(out, off, n)) {
+                    return false;
+                }
+                off += n;
+            }
+            return true;
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * writing raw bytes to port with counting in metrics
+     * @param bytes - the buffer with bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes for writing
+     * @return - is writing finish successfully
+     * @throws SerialPortException - if port can't be written
+     */
+    private boolean writeCounted(byte[] bytes, int off, int len) throws SerialPortException {
+        long start = System.nanoTime();
+        boolean res = writeRaw(bytes, off, len);
+        metrics.wrote(res ? len : 0, System.nanoTime() - start);
+        CaptureLog log = capture;
+        if (res && log != null) {
+            log.record(CaptureLog.TX, getPortName(), bytes, off, len);
+        }
+        return res;
+    }
+
+    /**
+     * writing bytes for line without coding, for example frames forwarded by FrameBridge
+     * @param bytes - the bytes for line
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     * @return - is writing finish successfully
+     */
+    boolean writeUndecoded(byte[] bytes, int off, int len) {
+        try {
+            synchronized (lineLock) {
+                return writeCounted(bytes, off, len);
+            }
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * reading bytes from line without decoding, for example for FrameBridge
+     * @param byteCount - the count of bytes for reading
+     * @return - the bytes from line or null, if reading was not successful
+     */
+    byte[] readUndecoded(int byteCount) {
+        try {
+            byte[] in = readRaw(byteCount);
+            metrics.read(in.length);
+            captured(in, in.length);
+            return in;
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * getting the max count of bytes for line for message
+     * @param len - the count of bytes of message
+     * @param coding - the coding of bytes on line
+     * @return - the count of bytes
+     */
+    private int maxMessageLength(int len, Coding coding) {
+        PayloadCompressor current = compressor;
+        if (current != null) {
+            len = current.maxCompressedLength(len);
+        }
+        if (destination == null) {
+            return codedLength(len, coding);
+        }
+        int frames = Math.max(1, (len + FRAME_PAYLOAD - 1) / FRAME_PAYLOAD);
+        int maxCoded = codedLength(Math.min(len, FRAME_PAYLOAD), coding);
+        return frames * HdlcFramer.maxFrameLength(destination.length, portAddress().length, maxCoded);
+    }
+
+    /**
+     * coding message into code blocks (or frames in framed mode)
+     * must be called with txLock
+     * @param bytes - the buffer with message
+     * @param off - the offset of message
+     * @param len - the count of bytes of message
+     * @param coding - the coding of bytes on line
+     * @param dst - the buffer for bytes for line (maxMessageLength bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of bytes for line
+     */
+    private int encodeMessage(byte[] bytes, int off, int len, Coding coding, byte[] dst, int dstOff) {
+        long start = System.nanoTime();
+        int payload = len;
+        PayloadCompressor current = compressor;
+        if (current != null) {
+            txCompressed = pool.grow(txCompressed, current.maxCompressedLength(len), 0);
+            len = current.compress(bytes, off, len, txCompressed, 0);
+            bytes = txCompressed;
+            off = 0;
+        }
+        if (destination == null) {
+            checkUnframed(coding);
+            int coded = encode(bytes, off, len, coding, dst, dstOff);
+            metrics.encoded(payload, 0, System.nanoTime() - start);
+            return coded;
+        }
+        byte[] source = portAddress();
+        txCoded = pool.grow(txCoded, codedLength(Math.min(len, FRAME_PAYLOAD), coding), 0);
+        int pos = dstOff;
+        int frames = 0;
+        for (int i = 0; i == 0 || i < len; i += FRAME_PAYLOAD) {
+            int coded = encode(bytes, off + i, Math.min(FRAME_PAYLOAD, len - i), coding, txCoded, 0);
+            pos += incapsulate(txCoded, coded, destination, source, dst, pos);
+            frames++;
+        }
+        metrics.encoded(payload, frames, System.nanoTime() - start);
+        return pos - dstOff;
+    }
+
+    /**
+     * the address of port in frames (numeric address or name)
+     * @return - the bytes of address
+     */
+    private byte[] portAddress() {
+        if (source == null) {
+            source = getPortName().getBytes();
+        }
+        return source;
+    }
+
+    /**
+     * reading some bytes from port
+     * bytes of not full code blocks (or frames) are kept till the next reading
+     * @param byteCount - the count of bytes for reading
+     * @return the decoded bytes of all full blocks, that was readied
+     */
+    public byte[] read(int byteCount, Coding coding) {
+        try {
+            byte[] in = readRaw(byteCount);
+            metrics.read(in.length);
+            captured(in, in.length);
+            int len = receive(in, in.length, coding);
+            int kept = backlog.size();
+            if (destination != null && len == 0 && kept == 0) {
+                return null;
+            }
+            byte[] res = new byte[kept + len];
+            backlog.readBlocks(res, 0, 1, kept);
+            if (len > 0) {
+                System.arraycopy(received, 0, res, kept, len);
+            }
+            return res;
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * reading some bytes from port and decoding them into buffer of caller
+     * decoded bytes, that don't fit into dst, are kept and given first in the next reading,
+     * nothing is read from port, while they are not taken
+     * @param byteCount - the max count of bytes for reading from port
+     * @param dst - the buffer for decoded bytes (heap or direct), the position is moved over them
+     * @param coding - the coding of bytes on line
+     * @return - the count of decoded bytes in dst (-1 - reading was not successful)
+     */
+    public int read(int byteCount, ByteBuffer dst, Coding coding) {
+        int produced = backlog.read(dst);
+        if (!dst.hasRemaining() || byteCount <= 0) {
+            return produced;
+        }
+        try {
+            rxRaw = pool.grow(rxRaw, byteCount, 0);
+            int n = readRaw(rxRaw, 0, byteCount);
+            metrics.read(n);
+            captured(rxRaw, n);
+            int len = receive(rxRaw, n, coding);
+            if (len == 0) {
+                return produced;
+            }
+            int put = Math.min(len, dst.remaining());
+            dst.put(received, 0, put);
+            backlog.write(received, put, len - put);
+            return produced + put;
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+            return produced > 0 ? produced : -1;
+        }
+    }
+
+    /**
+     * decoding bytes from line into buffer of received bytes and decompressing them
+     * @param in - the bytes from line
+     * @param n - the count of bytes
+     * @param coding - the coding of bytes on line
+     * @return - the count of decoded bytes in received
+     */
+    private int receive(byte[] in, int n, Coding coding) {
+        int len = receiveCoded(in, n, coding);
+        PayloadCompressor current = compressor;
+        if (current == null || len == 0) {
+            return len;
+        }
+        int count = current.feed(received, 0, len);
+        received = pool.grow(received, count, 0);
+        System.arraycopy(current.output(), 0, received, 0, count);
+        return count;
+    }
+
+    /**
+     * decoding bytes from line into buffer of received bytes
+     * @param in - the bytes from line
+     * @param n - the count of bytes
+     * @param coding - the coding of bytes on line
+     * @return - the count of decoded bytes in received
+     */
+    private int receiveCoded(byte[] in, int n, Coding coding) {
+        if (destination != null) {
+            return decapsulate(in, n, coding);
+        }
+        if (coding != bufferedCoding) {
+            checkUnframed(coding);
+            receiveBuffer.clear();
+            bufferedCoding = coding;
+        }
+        receiveBuffer.write(in, 0, n);
+        batch = pool.grow(batch, receiveBuffer.size(), 0);
+        int blockLength = coding instanceof HammingCodec && rxInterleaver != null ? rxInterleaver.groupLength()
+                : coding.blockLength();
+        int len = receiveBuffer.readBlocks(batch, 0, blockLength, batch.length);
+        received = pool.grow(received, coding.payloadLength(len), 0);
+        return decodeCounted(batch, 0, len, received, 0, coding);
+    }
+
+    /**
+     * checking, that stream of coding can be cut into blocks without frames:
+     * short last block of CRC codec without padding would shift blocks of the next message
+     * @param coding - the coding of bytes on line
+     * @throws IllegalArgumentException - if coding needs frames
+     */
+    private static void checkUnframed(Coding coding) {
+        if (coding instanceof CrcCodec && !((CrcCodec) coding).isPadded() && ((CrcCodec) coding).getBlockSize() > 1) {
+            throw new IllegalArgumentException("blocks of " + coding.getName()
+                    + " without padding need framing, use padded CrcCodec or setFraming");
+        }
+    }
+
+    /**
+     * getting the count of coded bytes for message
+     * @param len - the count of bytes of message
+     * @param coding - the coding of bytes on line
+     * @return - the count of coded bytes
+     */
+    private int codedLength(int len, Coding coding) {
+        HammingInterleaver interleaver = coding instanceof HammingCodec ? txInterleaver : null;
+        return interleaver != null ? interleaver.interleavedLength(coding.codedLength(len)) : coding.codedLength(len);
+    }
+
+    /**
+     * coding bytes with the coding of line, Hemming blocks get demo error and interleaving
+     * @param bytes - the bytes for coding
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     * @param coding - the coding of bytes on line
+     * @param dst - the buffer for coded bytes
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    private int encode(byte[] bytes, int off, int len, Coding coding, byte[] dst, int dstOff) {
+        if (!(coding instanceof HammingCodec)) {
+            return coding.encode(bytes, off, len, dst, dstOff);
+        }
+        HammingInterleaver interleaver = txInterleaver;
+        byte[] blocks = dst;
+        int blocksOff = dstOff;
+        if (interleaver != null) {
+            txBlocks = pool.grow(txBlocks, coding.codedLength(len), 0);
+            blocks = txBlocks;
+            blocksOff = 0;
+        }
+        int coded = coding.encode(bytes, off, len, blocks, blocksOff);
+        if (hemmingError != -1) {
+            for (int i = blocksOff; i < blocksOff + coded; i += HammingCodec.BLOCK_SIZE) {
+                blocks[i + hemmingError / Byte.SIZE] ^= 0x80 >>> (hemmingError % Byte.SIZE);
+            }
+        }
+        return interleaver != null ? interleaver.interleave(blocks, 0, coded, dst, dstOff) : coded;
+    }
+
+    /**
+     * decoding blocks into buffer with counting of repaired and lost blocks in metrics
+     * @param src - the coded bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     * @param dst - the buffer for decoded bytes
+     * @param dstOff - the offset in dst
+     * @param coding - the coding of bytes on line
+     * @return - the count of decoded bytes
+     */
+    private int decodeCounted(byte[] src, int off, int len, byte[] dst, int dstOff, Coding coding) {
+        if (len == 0) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        HammingInterleaver interleaver = coding instanceof HammingCodec ? rxInterleaver : null;
+        if (interleaver != null) {
+            rxBlocks = pool.grow(rxBlocks, len, 0);
+            len = interleaver.deinterleave(src, off, len, rxBlocks, 0);
+            src = rxBlocks;
+            off = 0;
+        }
+        long corrected = coding.getCorrectedBits();
+        long uncorrectable = coding.getUncorrectableBlocks();
+        int count = coding.decode(src, off, len, dst, dstOff);
+        corrected = coding.getCorrectedBits() - corrected;
+        uncorrectable = coding.getUncorrectableBlocks() - uncorrectable;
+        int blockLength = coding.blockLength();
+        int codewords = (len + blockLength - 1) / blockLength;
+        metrics.decoded(count, codewords, blockLength * Byte.SIZE, corrected, uncorrectable, System.nanoTime() - start);
+        return count;
+    }
+
+    /**
+     * getting counters and latency histograms of port
+     * @return - the metrics
+     */
+    public LinkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * setting framed mode, where every message is sent in HDLC frame
+     * @param destination - the name of port for receiving (null - without frames)
+     */
+    public void setFraming(String destination) {
+        this.destination = destination == null ? null : destination.getBytes();
+    }
+
+    /**
+     * setting framed mode with numeric addresses, port must have numeric address (setAddress)
+     * @param destination - the address of port, group or LinkAddress.BROADCAST
+     */
+    public void setFraming(int destination) {
+        this.destination = LinkAddress.toBytes(destination);
+    }
+
+    /**
+     * setting numeric address of port, it is source of sent frames,
+     * received frames are taken only for this address, broadcast and joined groups
+     * @param address - the address (LinkAddress.NONE - the name of port is used)
+     */
+    public void setAddress(int address) {
+        if (address != LinkAddress.NONE) {
+            LinkAddress.checkUnicast(address);
+        }
+        synchronized (txLock) {
+            this.address = address;
+            source = address == LinkAddress.NONE ? getPortName().getBytes() : LinkAddress.toBytes(address);
+        }
+    }
+
+    /**
+     * getting numeric address of port
+     * @return - the address or LinkAddress.NONE
+     */
+    public int getAddress() {
+        return address;
+    }
+
+    /**
+     * receiving frames of group
+     * @param group - the address of group
+     */
+    public void joinGroup(int group) {
+        LinkAddress.checkGroup(group);
+        synchronized (groups) {
+            groups.set(group - LinkAddress.FIRST_GROUP);
+        }
+    }
+
+    /**
+     * stopping receiving frames of group
+     * @param group - the address of group
+     */
+    public void leaveGroup(int group) {
+        LinkAddress.checkGroup(group);
+        synchronized (groups) {
+            groups.clear(group - LinkAddress.FIRST_GROUP);
+        }
+    }
+
+    /**
+     * getting source of the last frame, that was taken by port
+     * @return - the numeric source or LinkAddress.NONE, if source is name
+     */
+    public int getLastSource() {
+        return lastSource;
+    }
+
+    /**
+     * setting the position of error bit, that is added into every Hemming block for demonstration
+     * only bits of Hamming code can be changed, the error in spare bits would change the type of block
+     * @param error - the position of error (-1) - without error
+     */
+    public void setHemmingError(int error) {
+        if (error < -1 || error >= HammingCodec.CODE_BITS) {
+            throw new IllegalArgumentException("error position out of Hamming code: " + error);
+        }
+        this.hemmingError = error;
+    }
+
+    /**
+     * setting interleaving of Hemming blocks, so bursts of errors on line are repaired
+     * the peer must use the same depth
+     * @param depth - the count of blocks in group, the max length of repaired burst in bits (0 - without interleaving)
+     */
+    public void setInterleaving(int depth) {
+        synchronized (txLock) {
+            txInterleaver = depth > 0 ? new HammingInterleaver(depth) : null;
+        }
+        rxInterleaver = depth > 0 ? new HammingInterleaver(depth) : null;
+        receiveBuffer.clear();
+    }
+
+    /**
+     * getting the depth of interleaving of Hemming blocks
+     * @return - the count of blocks in group (0 - without interleaving)
+     */
+    public int getInterleaving() {
+        HammingInterleaver interleaver = txInterleaver;
+        return interleaver != null ? interleaver.getDepth() : 0;
+    }
+
+    /**
+     * getting the coding of port for the old boolean methods
+     * @param hemming - is Hemming code used
+     * @return - Hemming codec or CRC codec of port
+     */
+    public Coding getCoding(boolean hemming) {
+        return hemming ? hammingCodec : crcCodec;
+    }
+
+    /**
+     * getting Hemming codec of port with counters of repaired errors
+     * @return - the Hemming codec
+     */
+    public HammingCodec getHammingCodec() {
+        return hammingCodec;
+    }
+
+    /**
+     * setting CRC codec, that is used instead of Hemming code
+     * @param codec - the CRC codec
+     */
+    public void setCrcCodec(CrcCodec codec) {
+        this.crcCodec = codec;
+        receiveBuffer.clear();
+    }
+
+    /**
+     * getting CRC codec of port with counters of repaired errors
+     * @return - the CRC codec
+     */
+    public CrcCodec getCrcCodec() {
+        return crcCodec;
+    }
+
+    /**
+     * setting compression of messages before coding, the peer must use compressor with the same dictionary
+     * the peer compresses only after the first message from this port (see announceCompression)
+     * @param compressor - the compressor (null - without compression)
+     */
+    public void setCompression(PayloadCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * setting compression of messages and telling peer about it, if port is open
+     * @param compressor - the compressor (null - without compression)
+     * @param coding - the coding of bytes on line
+     */
+    public void setCompression(PayloadCompressor compressor, Coding coding) {
+        this.compressor = compressor;
+        if (isOpen()) {
+            announceCompression(coding);
+        }
+    }
+
+    /**
+     * sending empty message, its header tells peer, that this port can decompress,
+     * so one-way link gets compression without messages from receiver
+     * @param coding - the coding of bytes on line
+     * @return - the future with result of writing (false - compression is not used)
+     */
+    public CompletableFuture<Boolean> announceCompression(Coding coding) {
+        if (compressor == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return sendAsync(new byte[0], coding);
+    }
+
+    /**
+     * getting compressor of port with counters
+     * @return - the compressor or null, if compression is not used
+     */
+    public PayloadCompressor getCompression() {
+        return compressor;
+    }
+
+    /**
+     * dropping decoded bytes and bytes of not full blocks, that are kept from previous readings,
+     * for example after change of speed, must be called from the thread of reading
+     */
+    public void clearReceived() {
+        receiveBuffer.clear();
+        backlog.clear();
+    }
+
+    /**
+     * setting log for raw bytes, that are written to port and read from it
+     * @param capture - the log (null - without capture), it can be shared by several ports
+     */
+    public void setCapture(CaptureLog capture) {
+        this.capture = capture;
+    }
+
+    /**
+     * getting log of raw bytes of port
+     * @return - the log or null, if bytes are not captured
+     */
+    public CaptureLog getCapture() {
+        return capture;
+    }
+
+    /**
+     * adding read bytes into log, if it is set
+     * @param raw - the read bytes
+     * @param len - the count of bytes
+     */
+    private void captured(byte[] raw, int len) {
+        CaptureLog log = capture;
+        if (log != null) {
+            log.record(CaptureLog.RX, getPortName(), raw, 0, len);
+        }
+    }
+
+    /**
+     * setting the max time of waiting for flow control in sending
+     * @param millis - the time in milliseconds
+     */
+    public void setFlowTimeout(long millis) {
+        this.flowTimeout = millis;
+    }
+
+    /**
+     * stopping writer thread of sending queue
+     */
+    protected void closeQueue() {
+        synchronized (queueLock) {
+            if (transmitQueue != null) {
+                transmitQueue.close();
+                transmitQueue = null;
+            }
+        }
+    }
+
+    /**
+     * incapsulate bytes into package for sending
+     * @param raw - raw bytes
+     * @param len - the count of raw bytes
+     * @param address - the address for sending
+     * @param source - the source of sending
+     * @param dst - the buffer for package
+     * @param dstOff - the offset of package in dst
+     * @return - the length of incapsulated package
+     */
+    private int incapsulate(byte[] raw, int len, byte[] address, byte[] source, byte[] dst, int dstOff) {
+        return framer.encode(address, source, raw, 0, len, dst, dstOff);
+    }
+
+    /**
+     * getting bytes from incapsulated packages into buffer of received bytes
+     * frames can be divided between calls, the rest of frame is kept till the next call
+     * @param complex - bytes with incapsulated packages
+     * @param len - the count of bytes
+     * @param coding - the coding of packages
+     * @return - the count of decoded bytes from packages for this port in received
+     */
+    private int decapsulate(byte[] complex, int len, Coding coding) {
+        receivedLength = 0;
+        receivedCoding = coding;
+        long bad = deframer.getBadFrames() + deframer.getAbortedFrames();
+        deframer.feed(complex, 0, len);
+        metrics.badFrames(deframer.getBadFrames() + deframer.getAbortedFrames() - bad);
+        return receivedLength;
+    }
+
+    /**
+     * checking address of frame
+     * @param frame - the received frame
+     * @return - is frame for this port
+     */
+    private boolean isAddressedHere(HdlcFrame frame) {
+        int own = address;
+        if (own == LinkAddress.NONE) {
+            return frame.isAddressedTo(portAddress());
+        }
+        int to = frame.getAddress();
+        if (to == own || to == LinkAddress.BROADCAST) {
+            return true;
+        }
+        if (!LinkAddress.isGroup(to)) {
+            return false;
+        }
+        synchronized (groups) {
+            return groups.get(to - LinkAddress.FIRST_GROUP);
+        }
+    }
+
+    /**
+     * decoding payload of frame for this port into buffer of received bytes
+     * @param frame - the received frame
+     */
+    private void frameReceived(HdlcFrame frame) {
+        if (!isAddressedHere(frame)) {
+            metrics.addressMismatch();
+            return;
+        }
+        lastSource = frame.getSource();
+        metrics.frameReceived();
+        int len = frame.getPayloadLength();
+        received = pool.grow(received, receivedLength + receivedCoding.payloadLength(len), receivedLength);
+        receivedLength += decodeCounted(frame.getBuffer(), frame.getPayloadOffset(), len, received, receivedLength,
+                receivedCoding);
+    }
+}
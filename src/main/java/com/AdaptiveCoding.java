@@ -0,0 +1,428 @@
+package com;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coding, that changes its strength by errors on line: none, CRC (only detecting), Hemming and Reed-Solomon RS(32,16).
+ * Every message is sent as segment with header of 4 bytes (type and level, length, CRC-8),
+ * header is always coded with Hemming code, so receiver knows the level of every segment
+ * and finds the next header after broken one byte by byte.
+ *
+ * Receiver counts repaired bits and broken blocks of headers and payloads in windows of coded bytes
+ * and asks the sender for other level with PROPOSE segment in its own stream,
+ * the sender changes level of the next messages and answers with ACCEPT segment.
+ * So every direction of link has its own level. Level goes up at once after broken block or too many
+ * repaired bits and goes down only after CLEAN_WINDOWS windows without errors.
+ * Without coding errors are seen only in headers, so after PROBE_WINDOWS windows CRC is asked again.
+ */
+public final class AdaptiveCoding implements Coding {
+    /** the name of coding */
+    public static final String NAME = "Adaptive";
+    /** level without coding */
+    public static final int NONE = 0;
+    /** level with detecting of errors by CRC-16 */
+    public static final int CRC = 1;
+    /** level with Hemming code */
+    public static final int HAMMING = 2;
+    /** level with Reed-Solomon code RS(32,16) */
+    public static final int STRONG = 3;
+
+    /** the max count of payload bytes in one segment, longer messages are divided */
+    public static final int MAX_SEGMENT = 0xFFFF;
+
+    private static final int DATA = 0;
+    private static final int PROPOSE = 1;
+    private static final int ACCEPT = 2;
+    private static final int HEADER_SIZE = 4;
+    /** CRC of header is changed, so line of zeros is not taken as header */
+    private static final int HEADER_CHECK = 0x5A;
+    private static final int CODED_HEADER = HammingCodec.encodedLength(HEADER_SIZE);
+    private static final int CLEAN_WINDOWS = 8;
+    private static final int PROBE_WINDOWS = 32;
+    /** the max rate of repaired bits for every level, where level is kept */
+    private static final double[] MAX_BER = {0, 0, 2e-3, 1};
+
+    private final SerialInterface port;
+    private final int windowBytes;
+    private final Coding[] levels = {new Plain(), new CrcCodec(CrcEngine.CRC16_CCITT, 64, false),
+            new HammingCodec(), new ReedSolomonCodec(32, 16)};
+    private final HammingCodec txHeaderCodec = new HammingCodec();
+    private final HammingCodec rxHeaderCodec = new HammingCodec();
+    private final byte[] txHeader = new byte[HEADER_SIZE];
+    private final byte[] rxHeader = new byte[HEADER_SIZE];
+    private final AtomicInteger pendingPropose = new AtomicInteger(-1);
+    private final AtomicInteger pendingAccept = new AtomicInteger(-1);
+    private final BufferPool pool = BufferPool.getDefault();
+    private volatile int txLevel = HAMMING;
+
+    private byte[] pending;
+    private int pendingLength;
+    private int segmentType = -1;
+    private int segmentLevel;
+    private int segmentLength;
+    private volatile int rxLevel = HAMMING;
+    private long windowBits;
+    private long windowCorrected;
+    private long windowUncorrectable;
+    private int cleanWindows;
+    private int idleWindows;
+    private int accepted = -1;
+    private volatile long switches;
+    private long badHeaders;
+
+    /**
+     * creating coding with windows of 4096 bytes
+     * @param port - the port, where proposals are sent (null - level is changed only by setLevel)
+     */
+    public AdaptiveCoding(SerialInterface port) {
+        this(port, 4096);
+    }
+
+    /**
+     * creating coding
+     * @param port - the port, where proposals are sent (null - level is changed only by setLevel)
+     * @param windowBytes - the count of received coded bytes, after which errors are estimated
+     */
+    public AdaptiveCoding(SerialInterface port, int windowBytes) {
+        if (windowBytes < 1) {
+            throw new IllegalArgumentException("window must be positive: " + windowBytes);
+        }
+        this.port = port;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * the name of coding
+     * @return - Adaptive
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * getting the name of coding of level
+     * @param level - the level (NONE..STRONG)
+     * @return - the name of coding
+     */
+    public String getLevelName(int level) {
+        return levels[level].getName();
+    }
+
+    /**
+     * setting the level of sent messages, the peer follows headers of segments
+     * @param level - the level (NONE..STRONG)
+     */
+    public void setLevel(int level) {
+        if (level < NONE || level > STRONG) {
+            throw new IllegalArgumentException("level out of range: " + level);
+        }
+        txLevel = level;
+    }
+
+    /**
+     * the level of sent messages
+     * @return - the level (NONE..STRONG)
+     */
+    public int getLevel() {
+        return txLevel;
+    }
+
+    /**
+     * the level of the last received message
+     * @return - the level (NONE..STRONG)
+     */
+    public int getReceivedLevel() {
+        return rxLevel;
+    }
+
+    /**
+     * the count of changes of level of sent messages by proposals of peer
+     * @return - the count of changes
+     */
+    public long getSwitches() {
+        return switches;
+    }
+
+    /**
+     * bytes are taken by any count, the rest of segment is kept till the next call
+     * @return - 1
+     */
+    public int blockLength() {
+        return 1;
+    }
+
+    /**
+     * getting the max count of coded bytes for payload on any level with control segments
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    public int codedLength(int length) {
+        int segments = Math.max(1, (length + MAX_SEGMENT - 1) / MAX_SEGMENT);
+        int max = 0;
+        for (Coding level : levels) {
+            max = Math.max(max, level.codedLength(length) + segments * level.blockLength());
+        }
+        return (segments + 2) * CODED_HEADER + max;
+    }
+
+    /**
+     * getting the max count of decoded bytes for coded bytes with bytes kept from previous calls
+     * @param codedLength - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    public int payloadLength(int codedLength) {
+        return codedLength + pendingLength;
+    }
+
+    /**
+     * coding message into segments with the current level, control segments are sent before them
+     * @param src - raw bytes
+     * @param off - the offset of payload in src
+     * @param len - the length of payload (0 - only control segments are sent)
+     * @param dst - the buffer for coded bytes (codedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int d = dstOff;
+        int propose = pendingPropose.getAndSet(-1);
+        if (propose >= 0) {
+            d += encodeHeader(PROPOSE, propose, 0, dst, d);
+        }
+        int accept = pendingAccept.getAndSet(-1);
+        if (accept >= 0) {
+            d += encodeHeader(ACCEPT, accept, 0, dst, d);
+        }
+        int level = txLevel;
+        for (int i = 0; i < len; i += MAX_SEGMENT) {
+            int count = Math.min(MAX_SEGMENT, len - i);
+            d += encodeHeader(DATA, level, count, dst, d);
+            d += levels[level].encode(src, off + i, count, dst, d);
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * coding header of segment
+     * @param type - DATA, PROPOSE or ACCEPT
+     * @param level - the level of payload or proposed level
+     * @param length - the count of payload bytes
+     * @param dst - the buffer for coded header
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    private int encodeHeader(int type, int level, int length, byte[] dst, int dstOff) {
+        txHeader[0] = (byte) (type << 4 | level);
+        txHeader[1] = (byte) (length >>> 8);
+        txHeader[2] = (byte) length;
+        txHeader[3] = (byte) (CrcEngine.CRC8.compute(txHeader, 0, 3) ^ HEADER_CHECK);
+        return txHeaderCodec.encode(txHeader, 0, HEADER_SIZE, dst, dstOff);
+    }
+
+    /**
+     * decoding all full segments, the rest of bytes is kept till the next call
+     * control segments change the level of sending and are not given to caller
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (payloadLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    public int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        pending = pool.grow(pending, pendingLength + len, pendingLength);
+        System.arraycopy(src, off, pending, pendingLength, len);
+        pendingLength += len;
+        int pos = 0;
+        int d = dstOff;
+        while (true) {
+            if (segmentType < 0) {
+                if (pendingLength - pos < CODED_HEADER) {
+                    break;
+                }
+                if (decodeHeader(pending, pos)) {
+                    pos += CODED_HEADER;
+                }
+                else {
+                    // looking for the next header from the next byte
+                    badHeaders++;
+                    windowUncorrectable++;
+                    pos++;
+                }
+                continue;
+            }
+            Coding coding = levels[segmentLevel];
+            int coded = coding.codedLength(segmentLength);
+            if (pendingLength - pos < coded) {
+                break;
+            }
+            long corrected = coding.getCorrectedBits();
+            long uncorrectable = coding.getUncorrectableBlocks();
+            d += coding.decode(pending, pos, coded, dst, d);
+            pos += coded;
+            segmentType = -1;
+            rxLevel = segmentLevel;
+            count(coded, coding.getCorrectedBits() - corrected, coding.getUncorrectableBlocks() - uncorrectable);
+        }
+        System.arraycopy(pending, pos, pending, 0, pendingLength - pos);
+        pendingLength -= pos;
+        return d - dstOff;
+    }
+
+    /**
+     * decoding header of segment, control segments are done at once
+     * @param src - the buffer with coded header
+     * @param off - the offset of header
+     * @return - is header right
+     */
+    private boolean decodeHeader(byte[] src, int off) {
+        long corrected = rxHeaderCodec.getCorrectedBits();
+        long uncorrectable = rxHeaderCodec.getUncorrectableBlocks();
+        rxHeaderCodec.decode(src, off, CODED_HEADER, rxHeader, 0);
+        if (rxHeaderCodec.getUncorrectableBlocks() != uncorrectable
+                || (rxHeader[3] & 0xff) != (CrcEngine.CRC8.compute(rxHeader, 0, 3) ^ HEADER_CHECK)) {
+            return false;
+        }
+        int type = (rxHeader[0] & 0xff) >>> 4;
+        int level = rxHeader[0] & 0xf;
+        int length = (rxHeader[1] & 0xff) << 8 | (rxHeader[2] & 0xff);
+        if (type > ACCEPT || level > STRONG || (type != DATA && length != 0)) {
+            return false;
+        }
+        count(CODED_HEADER, rxHeaderCodec.getCorrectedBits() - corrected, 0);
+        if (type == PROPOSE) {
+            if (txLevel != level) {
+                txLevel = level;
+                switches++;
+            }
+            pendingAccept.set(level);
+            flush();
+        }
+        else if (type == ACCEPT) {
+            accepted = level;
+        }
+        else if (type == DATA) {
+            segmentType = type;
+            segmentLevel = level;
+            segmentLength = length;
+        }
+        return true;
+    }
+
+    /**
+     * adding errors of decoded bytes into window and choosing level for peer at the end of window
+     * @param codedBytes - the count of decoded bytes
+     * @param corrected - the count of repaired bits
+     * @param uncorrectable - the count of broken blocks
+     */
+    private void count(int codedBytes, long corrected, long uncorrectable) {
+        windowBits += codedBytes * Byte.SIZE;
+        windowCorrected += corrected;
+        windowUncorrectable += uncorrectable;
+        if (windowBits < windowBytes * Byte.SIZE) {
+            return;
+        }
+        int level = rxLevel;
+        double ber = (double) windowCorrected / windowBits;
+        int wanted = level;
+        if (windowUncorrectable > 0 || ber > MAX_BER[level]) {
+            cleanWindows = 0;
+            wanted = Math.min(STRONG, level + 1);
+        }
+        else if (level > NONE && ber * 10 <= MAX_BER[level - 1]) {
+            if (++cleanWindows >= CLEAN_WINDOWS) {
+                cleanWindows = 0;
+                wanted = level - 1;
+            }
+        }
+        else {
+            cleanWindows = 0;
+        }
+        if (level == NONE && wanted == NONE && ++idleWindows >= PROBE_WINDOWS) {
+            // without coding errors of payload are not seen, so it is checked again with CRC
+            wanted = CRC;
+        }
+        if (wanted != level && wanted != accepted) {
+            // proposal is sent again every window, till peer accepts it
+            idleWindows = 0;
+            accepted = -1;
+            pendingPropose.set(wanted);
+            flush();
+        }
+        windowBits = 0;
+        windowCorrected = 0;
+        windowUncorrectable = 0;
+    }
+
+    /**
+     * sending control segments without waiting for the next message
+     */
+    private void flush() {
+        if (port != null) {
+            port.sendAsync(new byte[0], this);
+        }
+    }
+
+    /**
+     * the count of bits, that was repaired in received segments
+     * @return - the count of repaired bits
+     */
+    public long getCorrectedBits() {
+        long sum = rxHeaderCodec.getCorrectedBits();
+        for (Coding level : levels) {
+            sum += level.getCorrectedBits();
+        }
+        return sum;
+    }
+
+    /**
+     * the count of broken blocks and headers in received segments
+     * @return - the count of broken blocks
+     */
+    public long getUncorrectableBlocks() {
+        long sum = badHeaders;
+        for (Coding level : levels) {
+            sum += level.getUncorrectableBlocks();
+        }
+        return sum;
+    }
+
+    /**
+     * Coding without any check, bytes are sent as they are
+     */
+    private static final class Plain implements Coding {
+        public String getName() {
+            return "None";
+        }
+
+        public int blockLength() {
+            return 1;
+        }
+
+        public int codedLength(int length) {
+            return length;
+        }
+
+        public int payloadLength(int codedLength) {
+            return codedLength;
+        }
+
+        public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+            System.arraycopy(src, off, dst, dstOff, len);
+            return len;
+        }
+
+        public int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+            System.arraycopy(src, off, dst, dstOff, len);
+            return len;
+        }
+
+        public long getCorrectedBits() {
+            return 0;
+        }
+
+        public long getUncorrectableBlocks() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com;
+
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import jssc.SerialPortException;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Choosing of the highest speed, that the cable between two ports sustains.
+ * Both ports start on the base speed. Master asks slave to try every faster speed from the list (PROBE),
+ * both ports go to this speed, master sends burst of BURST_PACKETS packets with known bytes,
+ * both ports go back to the base speed and slave tells, how many packets was received right (REPORT).
+ * The highest speed, where the part of lost packets is not more than the target, is set on both ports (SET).
+ * Probing stops at the first speed, that fails, faster speeds are not better on the same cable.
+ *
+ * Every second errors of port (broken blocks and packets) are checked. If there are too many of them,
+ * the port tells peer about it (FALLBACK) and goes to the base speed, master probes speeds again.
+ * If FALLBACK is lost, peer gets garbage on the other speed and falls back by its own errors.
+ *
+ * Packet: MAGIC (2 bytes), type, value (4 bytes), length (2 bytes), payload, CRC-32 (4 bytes),
+ * messages of application are sent in DATA packets. Messages, that are sent during probing, can be lost.
+ * Negotiator takes the listener of port.
+ */
+public final class BaudNegotiator {
+    /** the speeds, that are tried by default */
+    public static final int[] DEFAULT_RATES = {SerialPort.BAUDRATE_9600, SerialPort.BAUDRATE_19200,
+            SerialPort.BAUDRATE_38400, SerialPort.BAUDRATE_57600, SerialPort.BAUDRATE_115200,
+            SerialPort.BAUDRATE_128000, SerialPort.BAUDRATE_256000};
+    /** the max count of bytes in one message */
+    public static final int MAX_PAYLOAD = 1024;
+    /** the count of packets in probe burst */
+    public static final int BURST_PACKETS = 16;
+
+    private static final int MAGIC = 0xB44B;
+    private static final int HEADER_SIZE = 9;
+    private static final int CRC_SIZE = 4;
+    private static final int BURST_PAYLOAD = 64;
+    private static final int DATA = 1;
+    private static final int PROBE = 2;
+    private static final int READY = 3;
+    private static final int BURST = 4;
+    private static final int REPORT = 5;
+    private static final int SET = 6;
+    private static final int FALLBACK = 7;
+    private static final long RESPONSE_TIMEOUT = 500;
+    private static final long GUARD = 30;
+    private static final int ATTEMPTS = 3;
+    private static final long CHECK_PERIOD = 1000;
+    private static final int FALLBACK_ERRORS = 4;
+
+    private final AbstractSerial port;
+    private final Coding coding;
+    private final boolean master;
+    private final int[] rates;
+    private final int baseRate;
+    private final double maxLoss;
+    private final ReliableLink.MessageListener listener;
+    private final ScheduledExecutorService executor;
+    private final BlockingQueue<int[]> responses = new LinkedBlockingQueue<int[]>();
+    private final AtomicInteger burstGood = new AtomicInteger();
+
+    private volatile int rate;
+    private volatile int burstRate = -1;
+    private volatile boolean negotiating;
+    private volatile boolean clearPending;
+    private volatile boolean unanswered;
+    private volatile long fallbacks;
+    private volatile long droppedPackets;
+    private long lastErrors;
+
+    private byte[] stream = new byte[2 * (HEADER_SIZE + MAX_PAYLOAD + CRC_SIZE)];
+    private int streamLength;
+
+    /**
+     * creating negotiator over opened port, the port is set to the base speed
+     * @param port - the port
+     * @param coding - the coding of bytes on line
+     * @param master - is this port the master of probing (the peer must be slave)
+     * @param rates - the speeds for trying, the lowest of them is the base speed, that works on any cable
+     * @param maxLoss - the max part of lost packets of burst on chosen speed (0 - all packets must be right)
+     * @param listener - the receiver of messages (null - messages are dropped)
+     */
+    public BaudNegotiator(AbstractSerial port, Coding coding, boolean master, int[] rates, double maxLoss,
+                          ReliableLink.MessageListener listener) {
+        if (rates.length == 0) {
+            throw new IllegalArgumentException("no speeds for probing");
+        }
+        this.port = port;
+        this.coding = coding;
+        this.master = master;
+        this.rates = rates.clone();
+        Arrays.sort(this.rates);
+        this.baseRate = this.rates[0];
+        this.maxLoss = maxLoss;
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "baud-" + BaudNegotiator.this.port.getPortName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        switchTo(baseRate);
+        port.addListener(new SerialPortEventListener() {
+            public void serialEvent(SerialPortEvent event) {
+                if (event.isRXCHAR() && event.getEventValue() > 0) {
+                    received(event.getEventValue());
+                }
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                check();
+            }
+        }, CHECK_PERIOD, CHECK_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * the current speed of port
+     * @return - the baud rate
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * the count of returns to the base speed because of errors
+     * @return - the count of fallbacks
+     */
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * the count of packets with wrong CRC
+     * @return - the count of packets
+     */
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    /**
+     * sending message in DATA packet on the current speed
+     * @param message - the bytes of message (not more than MAX_PAYLOAD)
+     * @return - is sending finish successfully
+     */
+    public boolean send(byte[] message) {
+        if (message.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("message is too long: " + message.length);
+        }
+        return sendPacket(DATA, 0, message);
+    }
+
+    /**
+     * probing speeds from the base speed and setting the best of them on both ports, only for master
+     * @return - the chosen speed
+     * @throws InterruptedException - if thread was interrupted
+     */
+    public synchronized int negotiate() throws InterruptedException {
+        if (!master) {
+            throw new IllegalStateException("only master probes speeds");
+        }
+        negotiating = true;
+        try {
+            if (rate != baseRate) {
+                sendPacket(FALLBACK, baseRate, null);
+                drain();
+                switchTo(baseRate);
+                Thread.sleep(GUARD);
+            }
+            responses.clear();
+            int best = baseRate;
+            unanswered = false;
+            for (int i = 1; i < rates.length; i++) {
+                int candidate = rates[i];
+                if (!request(PROBE, candidate)) {
+                    unanswered = best == baseRate;
+                    break;
+                }
+                switchTo(candidate);
+                Thread.sleep(GUARD);
+                byte[] pattern = pattern(candidate);
+                for (int p = 0; p < BURST_PACKETS; p++) {
+                    sendPacket(BURST, candidate, pattern);
+                }
+                drain();
+                switchTo(baseRate);
+                int[] report = await(REPORT, candidate, burstMillis(candidate) + RESPONSE_TIMEOUT);
+                if (report == null || 1 - (double) report[2] / BURST_PACKETS > maxLoss) {
+                    break;
+                }
+                best = candidate;
+            }
+            if (best != baseRate) {
+                if (request(SET, best)) {
+                    switchTo(best);
+                    Thread.sleep(GUARD);
+                }
+                else {
+                    best = baseRate;
+                }
+            }
+            return best;
+        }
+        finally {
+            lastErrors = errors();
+            negotiating = false;
+        }
+    }
+
+    /**
+     * stopping thread of negotiator, port is not closed
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * sending request and waiting for READY, request is repeated ATTEMPTS times
+     * @param type - PROBE or SET
+     * @param value - the speed
+     * @return - is request answered
+     * @throws InterruptedException - if thread was interrupted
+     */
+    private boolean request(int type, int value) throws InterruptedException {
+        for (int i = 0; i < ATTEMPTS; i++) {
+            sendPacket(type, value, null);
+            if (await(READY, value, RESPONSE_TIMEOUT) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * waiting for answer of slave
+     * @param type - the type of answer
+     * @param value - the speed in answer
+     * @param millis - the max time of waiting
+     * @return - type, value and count of right burst packets or null, if there is no answer
+     * @throws InterruptedException - if thread was interrupted
+     */
+    private int[] await(int type, int value, long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        long left;
+        while ((left = deadline - System.currentTimeMillis()) > 0) {
+            int[] response = responses.poll(left, TimeUnit.MILLISECONDS);
+            if (response != null && response[0] == type && response[1] == value) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * the time of burst on line with time for switching of speeds
+     * @param candidate - the speed of burst
+     * @return - the time in milliseconds
+     */
+    private long burstMillis(int candidate) {
+        long bytes = coding.codedLength(HEADER_SIZE + BURST_PAYLOAD + CRC_SIZE) * (long) BURST_PACKETS;
+        // 10 bits of every byte with start and stop bits, twice for slow pacing
+        return 2 * GUARD + 2 * bytes * 10 * 1000 / candidate;
+    }
+
+    /**
+     * the bytes of burst packets
+     * @param candidate - the speed of burst
+     * @return - the payload of burst packet
+     */
+    private static byte[] pattern(int candidate) {
+        byte[] bytes = new byte[BURST_PAYLOAD];
+        for (int i = 0; i < bytes.length; i++) {
+            // bytes with many changes of bits, like 0x55 and 0xAA, are the hardest for fast line
+            bytes[i] = (byte) ((i & 1) == 0 ? 0x55 ^ i ^ candidate : 0xAA ^ i);
+        }
+        return bytes;
+    }
+
+    /**
+     * answering PROBE: going to the speed, counting right burst packets and going back with REPORT
+     * @param candidate - the speed of burst
+     */
+    private void probe(int candidate) {
+        negotiating = true;
+        try {
+            sendPacket(READY, candidate, null);
+            drain();
+            burstGood.set(0);
+            burstRate = candidate;
+            switchTo(candidate);
+            long deadline = System.currentTimeMillis() + burstMillis(candidate);
+            while (burstGood.get() < BURST_PACKETS && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            burstRate = -1;
+            // master goes back after the last byte of burst, so answer is sent a bit later
+            Thread.sleep(GUARD);
+            switchTo(baseRate);
+            sendPacket(REPORT, candidate, new byte[] {(byte) burstGood.get()});
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            lastErrors = errors();
+            negotiating = false;
+        }
+    }
+
+    /**
+     * answering SET: going to the chosen speed
+     * @param chosen - the speed
+     */
+    private void set(int chosen) {
+        try {
+            sendPacket(READY, chosen, null);
+            drain();
+            switchTo(chosen);
+            lastErrors = errors();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * checking errors of the last period and falling back to the base speed, if there are too many of them
+     */
+    private void check() {
+        if (negotiating) {
+            return;
+        }
+        long errors = errors();
+        long count = errors - lastErrors;
+        lastErrors = errors;
+        try {
+            if (rate != baseRate && count >= FALLBACK_ERRORS) {
+                fallbacks++;
+                sendPacket(FALLBACK, baseRate, null);
+                drain();
+                switchTo(baseRate);
+                if (master) {
+                    Thread.sleep(GUARD);
+                    negotiate();
+                }
+            }
+            else if (master && rate == baseRate && unanswered) {
+                // slave was on other speed or was not started yet
+                negotiate();
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * going to the base speed by FALLBACK of peer, master probes speeds again
+     */
+    private void fallback() {
+        if (negotiating || rate == baseRate) {
+            return;
+        }
+        fallbacks++;
+        switchTo(baseRate);
+        if (master) {
+            try {
+                Thread.sleep(GUARD);
+                negotiate();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * the count of all errors of port and negotiator
+     * @return - the count of broken blocks, frames and packets
+     */
+    private long errors() {
+        LinkMetrics metrics = port.getMetrics();
+        return droppedPackets + metrics.getUncorrectableBlocks() + metrics.getBadFrames();
+    }
+
+    /**
+     * setting speed of port, bytes of not full blocks are dropped by the next reading
+     * @param baudRate - the speed
+     */
+    private void switchTo(int baudRate) {
+        port.setParams(baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+        rate = baudRate;
+        clearPending = true;
+    }
+
+    /**
+     * waiting, while all bytes are sent from output queue of port
+     * @throws InterruptedException - if thread was interrupted
+     */
+    private void drain() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + RESPONSE_TIMEOUT;
+        try {
+            while (port.outputQueued() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+        catch (SerialPortException ex) {
+            ex.printStackTrace();
+        }
+        // the last bytes can be in the shift register of port
+        TransmitPacer.sleepNanos(port.pacer.nanosFor(2));
+    }
+
+    /**
+     * building and sending packet
+     * @param type - the type of packet
+     * @param value - the speed or 0
+     * @param payload - the payload (null - without payload)
+     * @return - is sending finish successfully
+     */
+    private boolean sendPacket(int type, int value, byte[] payload) {
+        int len = payload == null ? 0 : payload.length;
+        byte[] packet = new byte[HEADER_SIZE + len + CRC_SIZE];
+        packet[0] = (byte) (MAGIC >>> 8);
+        packet[1] = (byte) MAGIC;
+        packet[2] = (byte) type;
+        for (int i = 0; i < 4; i++) {
+            packet[3 + i] = (byte) (value >>> (24 - 8 * i));
+        }
+        packet[7] = (byte) (len >>> 8);
+        packet[8] = (byte) len;
+        if (len > 0) {
+            System.arraycopy(payload, 0, packet, HEADER_SIZE, len);
+        }
+        int crc = CrcEngine.CRC32.compute(packet, 0, HEADER_SIZE + len);
+        for (int i = 0; i < CRC_SIZE; i++) {
+            packet[HEADER_SIZE + len + i] = (byte) (crc >>> (24 - 8 * i));
+        }
+        return port.send(packet, coding);
+    }
+
+    /**
+     * reading decoded bytes from port, it is called from the thread of port
+     * @param count - the count of bytes in input buffer
+     */
+    private void received(int count) {
+        if (clearPending) {
+            // bytes of other speed are garbage
+            clearPending = false;
+            port.clearReceived();
+            streamLength = 0;
+        }
+        byte[] bytes = port.read(count, coding);
+        if (bytes != null && bytes.length > 0) {
+            feed(bytes);
+        }
+    }
+
+    /**
+     * adding decoded bytes and processing all full packets
+     * @param bytes - the bytes from port
+     */
+    private void feed(byte[] bytes) {
+        if (streamLength + bytes.length > stream.length) {
+            byte[] bigger = new byte[Math.max(stream.length * 2, streamLength + bytes.length)];
+            System.arraycopy(stream, 0, bigger, 0, streamLength);
+            stream = bigger;
+        }
+        System.arraycopy(bytes, 0, stream, streamLength, bytes.length);
+        streamLength += bytes.length;
+        int pos = 0;
+        while (streamLength - pos >= HEADER_SIZE + CRC_SIZE) {
+            if (((stream[pos] & 0xff) << 8 | (stream[pos + 1] & 0xff)) != MAGIC) {
+                pos++;
+                continue;
+            }
+            int len = (stream[pos + 7] & 0xff) << 8 | (stream[pos + 8] & 0xff);
+            if (len > MAX_PAYLOAD) {
+                pos++;
+                continue;
+            }
+            int size = HEADER_SIZE + len + CRC_SIZE;
+            if (streamLength - pos < size) {
+                break;
+            }
+            int crc = CrcEngine.CRC32.compute(stream, pos, HEADER_SIZE + len);
+            int received = (stream[pos + size - 4] & 0xff) << 24 | (stream[pos + size - 3] & 0xff) << 16
+                    | (stream[pos + size - 2] & 0xff) << 8 | (stream[pos + size - 1] & 0xff);
+            if (crc != received) {
+                droppedPackets++;
+                pos++;
+                continue;
+            }
+            int value = (stream[pos + 3] & 0xff) << 24 | (stream[pos + 4] & 0xff) << 16
+                    | (stream[pos + 5] & 0xff) << 8 | (stream[pos + 6] & 0xff);
+            packetReceived(stream[pos + 2], value, pos + HEADER_SIZE, len);
+            pos += size;
+        }
+        System.arraycopy(stream, pos, stream, 0, streamLength - pos);
+        streamLength -= pos;
+    }
+
+    /**
+     * processing right packet, requests of master are done in the thread of negotiator
+     * @param type - the type of packet
+     * @param value - the speed or 0
+     * @param off - the offset of payload in stream
+     * @param len - the count of bytes of payload
+     */
+    private void packetReceived(int type, final int value, int off, int len) {
+        if (type == DATA) {
+            if (listener != null) {
+                listener.messageReceived(Arrays.copyOfRange(stream, off, off + len));
+            }
+        }
+        else if (type == BURST) {
+            if (value == burstRate && Arrays.equals(Arrays.copyOfRange(stream, off, off + len), pattern(value))) {
+                burstGood.incrementAndGet();
+            }
+        }
+        else if (type == READY) {
+            responses.offer(new int[] {type, value, 0});
+        }
+        else if (type == REPORT && len == 1) {
+            responses.offer(new int[] {type, value, stream[off] & 0xff});
+        }
+        else if (type == PROBE && !master) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    probe(value);
+                }
+            });
+        }
+        else if (type == SET && !master) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    set(value);
+                }
+            });
+        }
+        else if (type == FALLBACK) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    fallback();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,659 @@
+package com;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Monte-Carlo evaluation of codings on simulated lines for choosing of coding for class of link.
+ * Every coding is checked on every channel: random frames are coded, errors of channel are added
+ * by FaultInjector, frames are decoded and compared with sent ones. Frames are divided into batches,
+ * batches of all pairs of coding and channel are computed by tasks of ForkJoinPool.
+ * Payload and errors of batch are got from seed, index of channel and index of batch, so results
+ * don't depend on count of threads and every coding gets the same payloads on the same channel.
+ */
+public final class BerEvaluator {
+    /** the count of frames in one task */
+    public static final int BATCH_FRAMES = 64;
+    /** the codings of GUI without Adaptive, which changes its coding by the line */
+    public static final String[] DEFAULT_CODINGS = {HammingCodec.NAME, "CRC", "CRC-8", "CRC-16", "CRC-32",
+            "RS(255,223)", "RS(32,24)"};
+
+    private final List<String> codings = new ArrayList<String>();
+    private final List<Channel> channels = new ArrayList<Channel>();
+    private int frames = 10000;
+    private int frameLength = 64;
+    private long seed = 1;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * adding coding for evaluation
+     * @param name - the name of coding (see Coding.forName)
+     * @return - this evaluator
+     */
+    public BerEvaluator addCoding(String name) {
+        if (Coding.forName(name) == null) {
+            throw new IllegalArgumentException("unknown coding: " + name);
+        }
+        codings.add(name);
+        return this;
+    }
+
+    /**
+     * adding channel for evaluation
+     * @param channel - the channel
+     * @return - this evaluator
+     */
+    public BerEvaluator addChannel(Channel channel) {
+        channels.add(channel);
+        return this;
+    }
+
+    /**
+     * setting the count of frames for every coding and channel
+     * @param frames - the count of frames
+     * @return - this evaluator
+     */
+    public BerEvaluator setFrames(int frames) {
+        if (frames <= 0) {
+            throw new IllegalArgumentException("count of frames must be positive: " + frames);
+        }
+        this.frames = frames;
+        return this;
+    }
+
+    /**
+     * setting the length of payload of frame
+     * @param frameLength - the count of bytes
+     * @return - this evaluator
+     */
+    public BerEvaluator setFrameLength(int frameLength) {
+        if (frameLength <= 0) {
+            throw new IllegalArgumentException("length of frame must be positive: " + frameLength);
+        }
+        this.frameLength = frameLength;
+        return this;
+    }
+
+    /**
+     * setting the seed of payloads and errors
+     * @param seed - the seed
+     * @return - this evaluator
+     */
+    public BerEvaluator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * setting the pool for tasks (common pool by default)
+     * @param pool - the pool
+     * @return - this evaluator
+     */
+    public BerEvaluator setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * evaluating every coding on every channel
+     * @return - the results in order of codings and then channels
+     */
+    public List<Result> evaluate() {
+        final int batches = (frames + BATCH_FRAMES - 1) / BATCH_FRAMES;
+        List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+        for (final String coding : codings) {
+            for (int c = 0; c < channels.size(); c++) {
+                final int channelIndex = c;
+                for (int b = 0; b < batches; b++) {
+                    final int batch = b;
+                    tasks.add(new Callable<Result>() {
+                        public Result call() {
+                            int count = Math.min(BATCH_FRAMES, frames - batch * BATCH_FRAMES);
+                            return runBatch(coding, channelIndex, count, mix(seed, channelIndex, batch));
+                        }
+                    });
+                }
+            }
+        }
+        List<Future<Result>> futures = pool.invokeAll(tasks);
+        List<Result> results = new ArrayList<Result>();
+        int t = 0;
+        for (String coding : codings) {
+            for (Channel channel : channels) {
+                Result result = new Result(coding, channel.getName());
+                for (int b = 0; b < batches; b++) {
+                    try {
+                        result.add(futures.get(t++).get());
+                    }
+                    catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("evaluation is interrupted", ex);
+                    }
+                    catch (ExecutionException ex) {
+                        throw new IllegalStateException("evaluation failed: " + coding + " " + channel.getName(),
+                                ex.getCause());
+                    }
+                }
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * sending frames of batch through one channel, frames go one after another on the line,
+     * so state of channel (bad state of Gilbert-Elliott) goes on into the next frame
+     * @param name - the name of coding
+     * @param channelIndex - the index of channel
+     * @param count - the count of frames
+     * @param batchSeed - the seed of batch
+     * @return - the counters of batch
+     */
+    private Result runBatch(String name, int channelIndex, int count, long batchSeed) {
+        Channel channel = channels.get(channelIndex);
+        Coding coding = Coding.forName(name);
+        FaultInjector injector = channel.create(~batchSeed);
+        Random random = new Random(batchSeed);
+        byte[] payload = new byte[frameLength];
+        byte[] coded = new byte[coding.codedLength(frameLength)];
+        byte[] line = new byte[2 * coded.length];
+        byte[] decoded = new byte[coding.payloadLength(line.length)];
+        Result result = new Result(name, channel.getName());
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(payload);
+            int codedLength = coding.encode(payload, 0, frameLength, coded, 0);
+            int lineLength = injector.apply(coded, 0, codedLength, line);
+            int full = lineLength - lineLength % coding.blockLength();
+            int decodedLength = coding.decode(line, 0, full, decoded, 0);
+            long wrongBits = wrongBits(payload, frameLength, decoded, decodedLength);
+            result.frames++;
+            result.payloadBytes += frameLength;
+            result.codedBytes += codedLength;
+            result.residualBits += wrongBits;
+            if (wrongBits > 0) {
+                result.frameErrors++;
+            }
+        }
+        result.injectedBits = injector.getInjectedBits();
+        result.slippedBytes = injector.getDroppedBytes() + injector.getDuplicatedBytes() + injector.getInsertedBytes();
+        result.correctedBits = coding.getCorrectedBits();
+        result.uncorrectableBlocks = coding.getUncorrectableBlocks();
+        return result;
+    }
+
+    /**
+     * the count of wrong bits in decoded frame, missing and extra bytes are counted as 8 wrong bits
+     * @param sent - the sent payload
+     * @param sentLength - the length of sent payload
+     * @param got - the decoded payload
+     * @param gotLength - the length of decoded payload
+     * @return - the count of bits
+     */
+    static long wrongBits(byte[] sent, int sentLength, byte[] got, int gotLength) {
+        int common = Math.min(sentLength, gotLength);
+        long res = (long) Byte.SIZE * Math.abs(sentLength - gotLength);
+        for (int i = 0; i < common; i++) {
+            res += Integer.bitCount((sent[i] ^ got[i]) & 0xff);
+        }
+        return res;
+    }
+
+    /**
+     * getting seed of batch, near seeds give not related streams (finalizer of SplitMix64)
+     * @param seed - the seed of evaluation
+     * @param channel - the index of channel
+     * @param batch - the index of batch
+     * @return - the seed of batch
+     */
+    static long mix(long seed, int channel, int batch) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) channel << 32 | batch & 0xffffffffL) + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * the header of table of results
+     * @return - the line of header
+     */
+    public static String header() {
+        return String.format(Locale.ROOT, "%-12s %-28s %8s %10s %10s %10s %8s %8s %8s",
+                "coding", "channel", "frames", "line BER", "resid BER", "FER", "fixed", "overhead", "goodput");
+    }
+
+    /**
+     * getting settings from arguments of command line
+     * @param args - the arguments (the first is --evaluate)
+     * @return - the evaluator
+     * @throws IllegalArgumentException - if arguments are wrong
+     */
+    public static BerEvaluator parse(String[] args) {
+        BerEvaluator evaluator = new BerEvaluator();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--evaluate")) {
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("no value for " + arg);
+            }
+            String value = args[++i];
+            try {
+                if (arg.equals("--coding")) {
+                    for (String name : value.split(";")) {
+                        evaluator.addCoding(name.trim());
+                    }
+                }
+                else if (arg.equals("--channel")) {
+                    evaluator.addChannel(Channel.parse(value));
+                }
+                else if (arg.equals("--frames")) {
+                    evaluator.setFrames(Integer.parseInt(value));
+                }
+                else if (arg.equals("--size")) {
+                    evaluator.setFrameLength(Integer.parseInt(value));
+                }
+                else if (arg.equals("--seed")) {
+                    evaluator.setSeed(Long.parseLong(value));
+                }
+                else if (arg.equals("--threads")) {
+                    evaluator.setPool(new ForkJoinPool(Integer.parseInt(value)));
+                }
+                else {
+                    throw new IllegalArgumentException("unknown option: " + arg);
+                }
+            }
+            catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("wrong value of " + arg + ": " + value);
+            }
+        }
+        if (evaluator.codings.isEmpty()) {
+            for (String name : DEFAULT_CODINGS) {
+                evaluator.addCoding(name);
+            }
+        }
+        if (evaluator.channels.isEmpty()) {
+            evaluator.addChannel(Channel.binarySymmetric(1e-4));
+            evaluator.addChannel(Channel.binarySymmetric(1e-3));
+            evaluator.addChannel(Channel.binarySymmetric(1e-2));
+            evaluator.addChannel(Channel.gilbertElliott(1e-4, 0.1, 0, 0.2));
+            evaluator.addChannel(Channel.slip(1e-4, 1e-4, 0));
+        }
+        return evaluator;
+    }
+
+    /**
+     * the text about arguments
+     * @return - the usage text
+     */
+    public static String usage() {
+        return "usage: ComPortSendReceive --evaluate [options]\n"
+                + "  --coding A;B    codings for evaluation (codings of GUI without Adaptive)\n"
+                + "  --channel SPEC  channel, can be repeated (bsc:1e-4, bsc:1e-3, bsc:1e-2, ge:1e-4,0.1,0,0.2, slip:1e-4,1e-4)\n"
+                + "                  bsc:BER - independent bit errors\n"
+                + "                  ge:TOBAD,TOGOOD,GOODBER,BADBER - Gilbert-Elliott bursts\n"
+                + "                  slip:DROP,INSERT[,BER] - dropped and inserted bytes\n"
+                + "  --frames N      frames for every coding and channel (10000)\n"
+                + "  --size N        bytes of payload in frame (64)\n"
+                + "  --seed N        seed of payloads and errors (1)\n"
+                + "  --threads N     threads of evaluation (all processors)";
+    }
+
+    /**
+     * evaluating and printing table of results
+     * @param out - the stream for table
+     */
+    public void run(PrintStream out) {
+        out.println(header());
+        for (Result result : evaluate()) {
+            out.println(result);
+        }
+    }
+
+    /**
+     * Model of line, it gives new FaultInjector with own seed for every batch
+     */
+    public static final class Channel {
+        private static final int BSC = 0;
+        private static final int GILBERT_ELLIOTT = 1;
+        private static final int SLIP = 2;
+
+        private final int kind;
+        private final double[] params;
+
+        private Channel(int kind, double... params) {
+            for (double p : params) {
+                if (!(p >= 0 && p <= 1)) {
+                    throw new IllegalArgumentException("probability must be in 0..1: " + p);
+                }
+            }
+            this.kind = kind;
+            this.params = params;
+        }
+
+        /**
+         * binary symmetric channel, every bit is wrong with the same probability
+         * @param bitErrorRate - the probability of bit error
+         * @return - the channel
+         */
+        public static Channel binarySymmetric(double bitErrorRate) {
+            return new Channel(BSC, bitErrorRate);
+        }
+
+        /**
+         * Gilbert-Elliott channel, errors come in bursts of bad state
+         * @param toBad - the probability of going into bad state after bit
+         * @param toGood - the probability of going into good state after bit
+         * @param goodErrorRate - the probability of bit error in good state
+         * @param badErrorRate - the probability of bit error in bad state
+         * @return - the channel
+         */
+        public static Channel gilbertElliott(double toBad, double toGood, double goodErrorRate, double badErrorRate) {
+            if (toGood == 0) {
+                throw new IllegalArgumentException("bad state can't be left, when probability to good state is 0");
+            }
+            return new Channel(GILBERT_ELLIOTT, toBad, toGood, goodErrorRate, badErrorRate);
+        }
+
+        /**
+         * channel with lost and extra bytes (broken start or stop bits)
+         * @param dropRate - the probability of lost byte
+         * @param insertRate - the probability of random byte after byte
+         * @param bitErrorRate - the probability of bit error
+         * @return - the channel
+         */
+        public static Channel slip(double dropRate, double insertRate, double bitErrorRate) {
+            return new Channel(SLIP, dropRate, insertRate, bitErrorRate);
+        }
+
+        /**
+         * getting channel from text like bsc:1e-3, ge:1e-4,0.1,0,0.2 or slip:1e-4,1e-4
+         * @param spec - the text
+         * @return - the channel
+         * @throws IllegalArgumentException - if text is wrong
+         */
+        public static Channel parse(String spec) {
+            int colon = spec.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("wrong channel: " + spec);
+            }
+            String kind = spec.substring(0, colon);
+            String[] values = spec.substring(colon + 1).split(",");
+            double[] p = new double[values.length];
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    p[i] = Double.parseDouble(values[i].trim());
+                }
+            }
+            catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("wrong channel: " + spec);
+            }
+            if (kind.equals("bsc") && p.length == 1) {
+                return binarySymmetric(p[0]);
+            }
+            if (kind.equals("ge") && p.length == 4) {
+                return gilbertElliott(p[0], p[1], p[2], p[3]);
+            }
+            if (kind.equals("slip") && (p.length == 2 || p.length == 3)) {
+                return slip(p[0], p[1], p.length == 3 ? p[2] : 0);
+            }
+            throw new IllegalArgumentException("wrong channel: " + spec);
+        }
+
+        /**
+         * creating errors of line
+         * @param seed - the seed of errors
+         * @return - the injector
+         */
+        public FaultInjector create(long seed) {
+            FaultInjector injector = new FaultInjector(seed);
+            if (kind == BSC) {
+                injector.setBitErrorRate(params[0]);
+            }
+            else if (kind == GILBERT_ELLIOTT) {
+                injector.setBitErrorRate(params[2]);
+                injector.setGilbertElliott(params[0], params[1], params[3]);
+            }
+            else {
+                injector.setDropRate(params[0]);
+                injector.setInsertRate(params[1]);
+                injector.setBitErrorRate(params[2]);
+            }
+            return injector;
+        }
+
+        /**
+         * the mean probability of bit error (without lost and extra bytes)
+         * @return - the probability
+         */
+        public double getBitErrorRate() {
+            if (kind == GILBERT_ELLIOTT) {
+                double bad = params[0] / (params[0] + params[1]);
+                return (1 - bad) * params[2] + bad * params[3];
+            }
+            return kind == BSC ? params[0] : params[2];
+        }
+
+        /**
+         * the name of channel with parameters (the same text as for parse)
+         * @return - the name
+         */
+        public String getName() {
+            StringBuilder name = new StringBuilder(kind == BSC ? "bsc" : kind == GILBERT_ELLIOTT ? "ge" : "slip");
+            for (int i = 0; i < params.length; i++) {
+                name.append(i == 0 ? ':' : ',').append(format(params[i]));
+            }
+            return name.toString();
+        }
+
+        private static String format(double value) {
+            String text = Double.toString(value);
+            return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+        }
+
+        public String toString() {
+            return getName();
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof Channel && ((Channel) obj).kind == kind && Arrays.equals(((Channel) obj).params, params);
+        }
+
+        public int hashCode() {
+            return kind * 31 + Arrays.hashCode(params);
+        }
+    }
+
+    /**
+     * Counters of one coding on one channel
+     */
+    public static final class Result {
+        private final String coding;
+        private final String channel;
+        private long frames;
+        private long frameErrors;
+        private long payloadBytes;
+        private long codedBytes;
+        private long injectedBits;
+        private long slippedBytes;
+        private long residualBits;
+        private long correctedBits;
+        private long uncorrectableBlocks;
+
+        Result(String coding, String channel) {
+            this.coding = coding;
+            this.channel = channel;
+        }
+
+        private void add(Result other) {
+            frames += other.frames;
+            frameErrors += other.frameErrors;
+            payloadBytes += other.payloadBytes;
+            codedBytes += other.codedBytes;
+            injectedBits += other.injectedBits;
+            slippedBytes += other.slippedBytes;
+            residualBits += other.residualBits;
+            correctedBits += other.correctedBits;
+            uncorrectableBlocks += other.uncorrectableBlocks;
+        }
+
+        /**
+         * the name of coding
+         * @return - the name
+         */
+        public String getCoding() {
+            return coding;
+        }
+
+        /**
+         * the name of channel
+         * @return - the name
+         */
+        public String getChannel() {
+            return channel;
+        }
+
+        /**
+         * the count of sent frames
+         * @return - the count of frames
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * the count of frames, which was received with errors, shorter or longer
+         * @return - the count of frames
+         */
+        public long getFrameErrors() {
+            return frameErrors;
+        }
+
+        /**
+         * the count of wrong bits, which was added by channel
+         * @return - the count of bits
+         */
+        public long getInjectedBits() {
+            return injectedBits;
+        }
+
+        /**
+         * the count of lost, duplicated and inserted bytes
+         * @return - the count of bytes
+         */
+        public long getSlippedBytes() {
+            return slippedBytes;
+        }
+
+        /**
+         * the count of wrong bits of payload after decoding
+         * @return - the count of bits
+         */
+        public long getResidualBits() {
+            return residualBits;
+        }
+
+        /**
+         * the count of bits, which was repaired by coding
+         * @return - the count of bits
+         */
+        public long getCorrectedBits() {
+            return correctedBits;
+        }
+
+        /**
+         * the count of blocks, which was dropped or given wrong by coding
+         * @return - the count of blocks
+         */
+        public long getUncorrectableBlocks() {
+            return uncorrectableBlocks;
+        }
+
+        /**
+         * the part of wrong bits on line
+         * @return - the bit error rate of line
+         */
+        public double getLineBitErrorRate() {
+            return codedBytes == 0 ? 0 : (double) injectedBits / (codedBytes * Byte.SIZE);
+        }
+
+        /**
+         * the part of wrong bits of payload after decoding
+         * @return - the residual bit error rate
+         */
+        public double getResidualBitErrorRate() {
+            return payloadBytes == 0 ? 0 : (double) residualBits / (payloadBytes * Byte.SIZE);
+        }
+
+        /**
+         * the part of wrong frames
+         * @return - the frame error rate
+         */
+        public double getFrameErrorRate() {
+            return frames == 0 ? 0 : (double) frameErrors / frames;
+        }
+
+        /**
+         * the part of wrong bits of line, which was repaired
+         * @return - the correction rate
+         */
+        public double getCorrectionRate() {
+            return injectedBits == 0 ? 0 : Math.min(1, (double) correctedBits / injectedBits);
+        }
+
+        /**
+         * the count of coded bytes for one byte of payload
+         * @return - the overhead (1 - without coding)
+         */
+        public double getOverhead() {
+            return payloadBytes == 0 ? 0 : (double) codedBytes / payloadBytes;
+        }
+
+        /**
+         * the part of line bytes, which gave right frames
+         * @return - the goodput (0..1)
+         */
+        public double getGoodput() {
+            return codedBytes == 0 ? 0 : (double) (frames - frameErrors) * (payloadBytes / frames) / codedBytes;
+        }
+
+        /**
+         * the count of bytes of right frames per second on line with 8N1 bytes
+         * @param baudRate - the speed of line
+         * @return - the bytes per second
+         */
+        public double getGoodput(int baudRate) {
+            return getGoodput() * baudRate / 10;
+        }
+
+        public String toString() {
+            return String.format(Locale.ROOT, "%-12s %-28s %8d %10.3e %10.3e %10.3e %7.1f%% %8.3f %7.1f%%",
+                    coding, channel, frames, getLineBitErrorRate(), getResidualBitErrorRate(), getFrameErrorRate(),
+                    getCorrectionRate() * 100, getOverhead(), getGoodput() * 100);
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Result)) {
+                return false;
+            }
+            Result other = (Result) obj;
+            return coding.equals(other.coding) && channel.equals(other.channel) && frames == other.frames
+                    && frameErrors == other.frameErrors && payloadBytes == other.payloadBytes
+                    && codedBytes == other.codedBytes && injectedBits == other.injectedBits
+                    && slippedBytes == other.slippedBytes && residualBits == other.residualBits
+                    && correctedBits == other.correctedBits && uncorrectableBlocks == other.uncorrectableBlocks;
+        }
+
+        public int hashCode() {
+            return (int) (coding.hashCode() * 31 + channel.hashCode() + residualBits * 17 + injectedBits);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of byte arrays for scratch space of coding, framing and reading.
+ * Arrays have sizes of powers of two from MIN_SIZE to MAX_SIZE (size classes).
+ * Every thread keeps some free arrays of every class without locks, the rest are kept
+ * in shared lock-free queues, and new arrays are made by slabs of several arrays at once.
+ * Bigger arrays are not pooled.
+ *
+ * In debug mode (system property com.BufferPool.debug=true for default pool) pool remembers,
+ * where every array was taken, throws IllegalStateException, when array is returned twice
+ * or was not taken from pool, and fills returned arrays with garbage, so using after returning
+ * is seen at once. leaks() shows arrays, that were not returned.
+ */
+public final class BufferPool {
+    /** the size of the smallest array */
+    public static final int MIN_SIZE = 64;
+    /** the size of the biggest pooled array */
+    public static final int MAX_SIZE = 1 << 20;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+    private static final int LOCAL_CAPACITY = 8;
+    private static final int SHARED_CAPACITY = 256;
+    private static final int SLAB_BYTES = 64 * 1024;
+    private static final int MAX_SLAB = 16;
+    private static final byte POISON = (byte) 0xDB;
+
+    private static final BufferPool DEFAULT = new BufferPool(Boolean.getBoolean("com.BufferPool.debug"));
+
+    private final boolean debug;
+    private final ThreadLocal<LocalCache> local = new ThreadLocal<LocalCache>() {
+        protected LocalCache initialValue() {
+            return new LocalCache();
+        }
+    };
+    private final ConcurrentLinkedQueue<byte[]>[] shared;
+    private final AtomicInteger[] sharedCounts;
+    private final Map<byte[], Throwable> outstanding;
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder acquired = new LongAdder();
+
+    /**
+     * creating pool
+     * @param debug - is checking of leaks and double returning used
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(boolean debug) {
+        this.debug = debug;
+        this.shared = new ConcurrentLinkedQueue[CLASSES];
+        this.sharedCounts = new AtomicInteger[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            shared[i] = new ConcurrentLinkedQueue<byte[]>();
+            sharedCounts[i] = new AtomicInteger();
+        }
+        this.outstanding = debug ? Collections.synchronizedMap(new IdentityHashMap<byte[], Throwable>()) : null;
+    }
+
+    /**
+     * the pool, that is used by ports and codecs
+     * @return - the default pool
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * getting index of size class for size
+     * @param size - the needed size
+     * @return - the index of class (-1 - too big for pooling)
+     */
+    private static int sizeClass(int size) {
+        if (size > MAX_SIZE) {
+            return -1;
+        }
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return Integer.SIZE - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * taking array from pool
+     * @param size - the min size of array
+     * @return - the array with length not less than size (content is not cleared)
+     */
+    public byte[] acquire(int size) {
+        int index = sizeClass(size);
+        byte[] buffer;
+        if (index < 0) {
+            buffer = new byte[size];
+            allocated.increment();
+        }
+        else {
+            buffer = local.get().pop(index);
+            if (buffer == null) {
+                buffer = shared[index].poll();
+                if (buffer != null) {
+                    sharedCounts[index].decrementAndGet();
+                }
+                else {
+                    buffer = allocateSlab(index);
+                }
+            }
+        }
+        acquired.increment();
+        if (debug) {
+            outstanding.put(buffer, new Throwable("buffer of " + buffer.length + " bytes was taken here"));
+        }
+        return buffer;
+    }
+
+    /**
+     * making several arrays of class at once, one is returned and others are put into shared queue
+     * @param index - the index of class
+     * @return - the new array
+     */
+    private byte[] allocateSlab(int index) {
+        int size = MIN_SIZE << index;
+        int count = Math.max(1, Math.min(MAX_SLAB, SLAB_BYTES / size));
+        for (int i = 1; i < count; i++) {
+            shared[index].offer(new byte[size]);
+            sharedCounts[index].incrementAndGet();
+        }
+        allocated.add(count);
+        return new byte[size];
+    }
+
+    /**
+     * returning array into pool, it must not be used after that
+     * @param buffer - the array from acquire (null is ignored)
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (debug) {
+            if (outstanding.remove(buffer) == null) {
+                throw new IllegalStateException("buffer of " + buffer.length
+                        + " bytes was released twice or was not taken from pool");
+            }
+            Arrays.fill(buffer, POISON);
+        }
+        int index = sizeClass(buffer.length);
+        if (index < 0 || buffer.length != MIN_SIZE << index) {
+            return;
+        }
+        if (local.get().push(index, buffer)) {
+            return;
+        }
+        if (sharedCounts[index].incrementAndGet() <= SHARED_CAPACITY) {
+            shared[index].offer(buffer);
+        }
+        else {
+            sharedCounts[index].decrementAndGet();
+        }
+    }
+
+    /**
+     * getting bigger array instead of current one
+     * @param buffer - the current array from pool (null - there is no array yet)
+     * @param size - the needed size
+     * @param keep - the count of bytes from start of current array, that are copied
+     * @return - the current array, if it is big enough, or new array from pool
+     */
+    public byte[] grow(byte[] buffer, int size, int keep) {
+        if (buffer != null && buffer.length >= size) {
+            return buffer;
+        }
+        byte[] bigger = acquire(buffer == null ? size : Math.max(size, buffer.length * 2));
+        if (buffer != null) {
+            System.arraycopy(buffer, 0, bigger, 0, keep);
+            release(buffer);
+        }
+        return bigger;
+    }
+
+    /**
+     * is pool in debug mode
+     * @return - is checking used
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * the count of arrays, that were made by pool
+     * @return - the count of arrays
+     */
+    public long getAllocated() {
+        return allocated.sum();
+    }
+
+    /**
+     * the count of taken arrays
+     * @return - the count of acquire calls
+     */
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    /**
+     * getting places, where not returned arrays were taken (only in debug mode)
+     * @return - the stack traces of taking
+     */
+    public List<Throwable> leaks() {
+        if (!debug) {
+            return Collections.emptyList();
+        }
+        synchronized (outstanding) {
+            return new ArrayList<Throwable>(outstanding.values());
+        }
+    }
+
+    /**
+     * Free arrays of one thread
+     */
+    private static final class LocalCache {
+        final byte[][][] stacks = new byte[CLASSES][LOCAL_CAPACITY][];
+        final int[] counts = new int[CLASSES];
+
+        byte[] pop(int index) {
+            if (counts[index] == 0) {
+                return null;
+            }
+            byte[] buffer = stacks[index][--counts[index]];
+            stacks[index][counts[index]] = null;
+            return buffer;
+        }
+
+        boolean push(int index, byte[] buffer) {
+            if (counts[index] == LOCAL_CAPACITY) {
+                return false;
+            }
+            stacks[index][counts[index]++] = buffer;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Access to bytes of heap and direct ByteBuffers for codecs, that work with arrays.
+ * Bytes of heap buffer are used in place, bytes of direct buffer are copied through
+ * scratch arrays of codec, that are kept between calls. They are usual arrays, not from BufferPool,
+ * because codecs have no closing, where arrays could be returned.
+ */
+final class Buffers {
+    private byte[] in;
+    private byte[] out;
+
+    /**
+     * getting array with bytes from position of buffer
+     * @param src - the buffer
+     * @param len - the count of needed bytes
+     * @return - the array of heap buffer or scratch array with copy of bytes
+     */
+    byte[] input(ByteBuffer src, int len) {
+        if (src.hasArray()) {
+            return src.array();
+        }
+        in = grow(in, len);
+        src.duplicate().get(in, 0, len);
+        return in;
+    }
+
+    /**
+     * getting offset of bytes in array from input()
+     * @param src - the buffer
+     * @return - the offset
+     */
+    static int inputOffset(ByteBuffer src) {
+        return src.hasArray() ? src.arrayOffset() + src.position() : 0;
+    }
+
+    /**
+     * getting array for writing bytes from position of buffer
+     * @param dst - the buffer
+     * @param len - the max count of bytes for writing
+     * @return - the array of heap buffer or scratch array
+     */
+    byte[] output(ByteBuffer dst, int len) {
+        if (dst.hasArray()) {
+            return dst.array();
+        }
+        out = grow(out, len);
+        return out;
+    }
+
+    /**
+     * getting scratch array of needed size, the array is doubled, so it grows only few times
+     * @param buffer - the current array (can be null)
+     * @param size - the min size of array
+     * @return - the same or new array, its content is not kept
+     */
+    private static byte[] grow(byte[] buffer, int size) {
+        if (buffer != null && buffer.length >= size) {
+            return buffer;
+        }
+        return new byte[buffer == null ? size : Math.max(size, buffer.length * 2)];
+    }
+
+    /**
+     * getting offset for writing in array from output()
+     * @param dst - the buffer
+     * @return - the offset
+     */
+    static int outputOffset(ByteBuffer dst) {
+        return dst.hasArray() ? dst.arrayOffset() + dst.position() : 0;
+    }
+
+    /**
+     * moving positions of buffers after coding
+     * @param src - the buffer with input bytes
+     * @param consumed - the count of taken bytes
+     * @param dst - the buffer for output bytes
+     * @param produced - the count of written bytes
+     */
+    void finish(ByteBuffer src, int consumed, ByteBuffer dst, int produced) {
+        src.position(src.position() + consumed);
+        if (dst.hasArray()) {
+            dst.position(dst.position() + produced);
+        }
+        else {
+            dst.put(out, 0, produced);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coding of large payloads by chunks in parallel.
+ * Blocks of block codes are independent, so payload is divided into chunks of full blocks,
+ * chunks are coded by tasks of ForkJoinPool into their places in the output and decoded bytes
+ * are moved together in the original order. Payloads shorter than threshold are coded
+ * in the calling thread without tasks.
+ * Every thread has own coding from factory, counters are sums of counters of all these codings.
+ * BulkCoder is Coding itself, so it can be given to port instead of the usual coding.
+ * Codings with state between calls (AdaptiveCoding) can't be divided.
+ */
+public final class BulkCoder implements Coding {
+    /** the count of payload bytes in one task by default */
+    public static final int DEFAULT_CHUNK = 64 * 1024;
+    /** the length of payload, from which it is coded in parallel, by default */
+    public static final int DEFAULT_THRESHOLD = 256 * 1024;
+
+    private final Factory factory;
+    private final ForkJoinPool pool;
+    private final Coding prototype;
+    private final int payloadChunk;
+    private final int codedChunk;
+    private final int threshold;
+    private final List<Coding> codings = new CopyOnWriteArrayList<Coding>();
+    private final ThreadLocal<Coding> local = new ThreadLocal<Coding>() {
+        protected Coding initialValue() {
+            Coding coding = factory.create();
+            codings.add(coding);
+            return coding;
+        }
+    };
+    private final AtomicLong parallelCalls = new AtomicLong();
+
+    /**
+     * creating coder with common pool and default sizes
+     * @param factory - the factory of codings for threads
+     */
+    public BulkCoder(Factory factory) {
+        this(factory, ForkJoinPool.commonPool(), DEFAULT_CHUNK, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * creating coder
+     * @param factory - the factory of codings for threads
+     * @param pool - the pool for tasks
+     * @param chunk - the count of payload bytes in one task (it is rounded down to full blocks)
+     * @param threshold - the length of payload, from which it is coded in parallel
+     */
+    public BulkCoder(Factory factory, ForkJoinPool pool, int chunk, int threshold) {
+        this.factory = factory;
+        this.pool = pool;
+        this.prototype = factory.create();
+        if (prototype instanceof AdaptiveCoding || prototype instanceof BulkCoder) {
+            throw new IllegalArgumentException("coding can't be divided: " + prototype.getName());
+        }
+        int blockPayload = prototype.payloadLength(prototype.blockLength());
+        this.payloadChunk = Math.max(1, chunk / blockPayload) * blockPayload;
+        this.codedChunk = prototype.codedLength(payloadChunk);
+        this.threshold = threshold;
+    }
+
+    /**
+     * creating coder with common pool and default sizes for coding by the name
+     * @param name - the name of coding (see Coding.forName)
+     * @return - the coder or null, if name is unknown
+     */
+    public static BulkCoder forName(final String name) {
+        if (Coding.forName(name) == null) {
+            return null;
+        }
+        return new BulkCoder(new Factory() {
+            public Coding create() {
+                return Coding.forName(name);
+            }
+        });
+    }
+
+    /**
+     * the name of coding
+     * @return - the name of coding of factory
+     */
+    public String getName() {
+        return prototype.getName();
+    }
+
+    /**
+     * the count of coded bytes of one block
+     * @return - the length of block of coding
+     */
+    public int blockLength() {
+        return prototype.blockLength();
+    }
+
+    /**
+     * getting the count of coded bytes for payload
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    public int codedLength(int length) {
+        return prototype.codedLength(length);
+    }
+
+    /**
+     * getting the max count of decoded bytes for coded bytes
+     * @param codedLength - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    public int payloadLength(int codedLength) {
+        return prototype.payloadLength(codedLength);
+    }
+
+    /**
+     * coding payload of any length
+     * @param raw - raw bytes
+     * @return - the coded bytes
+     */
+    public byte[] encode(byte[] raw) {
+        byte[] out = new byte[codedLength(raw.length)];
+        encode(raw, 0, raw.length, out, 0);
+        return out;
+    }
+
+    /**
+     * coding payload into buffer of caller, long payload is coded by chunks in parallel
+     * @param src - raw bytes
+     * @param off - the offset of payload in src
+     * @param len - the length of payload
+     * @param dst - the buffer for coded bytes (codedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    public int encode(final byte[] src, final int off, final int len, final byte[] dst, final int dstOff) {
+        if (len < threshold || len <= payloadChunk) {
+            return local.get().encode(src, off, len, dst, dstOff);
+        }
+        parallelCalls.incrementAndGet();
+        final int chunks = (len + payloadChunk - 1) / payloadChunk;
+        pool.invoke(new Chunks(new Chunk() {
+            public void process(int chunk) {
+                int from = chunk * payloadChunk;
+                local.get().encode(src, off + from, Math.min(payloadChunk, len - from), dst,
+                        dstOff + chunk * codedChunk);
+            }
+        }, 0, chunks));
+        return codedLength(len);
+    }
+
+    /**
+     * decoding coded bytes of any length
+     * @param coded - the coded bytes
+     * @return - the decoded bytes
+     */
+    public byte[] decode(byte[] coded) {
+        byte[] out = new byte[payloadLength(coded.length)];
+        int len = decode(coded, 0, coded.length, out, 0);
+        if (len == out.length) {
+            return out;
+        }
+        byte[] res = new byte[len];
+        System.arraycopy(out, 0, res, 0, len);
+        return res;
+    }
+
+    /**
+     * decoding full blocks into buffer of caller, long input is decoded by chunks in parallel
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (payloadLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    public int decode(final byte[] src, final int off, final int len, final byte[] dst, final int dstOff) {
+        if (payloadLength(len) < threshold || len <= codedChunk) {
+            return local.get().decode(src, off, len, dst, dstOff);
+        }
+        parallelCalls.incrementAndGet();
+        final int chunks = (len + codedChunk - 1) / codedChunk;
+        final int[] counts = new int[chunks];
+        pool.invoke(new Chunks(new Chunk() {
+            public void process(int chunk) {
+                int from = chunk * codedChunk;
+                counts[chunk] = local.get().decode(src, off + from, Math.min(codedChunk, len - from), dst,
+                        dstOff + chunk * payloadChunk);
+            }
+        }, 0, chunks));
+        // blocks, that can't be repaired, are dropped, so the next chunks are moved back
+        int pos = dstOff + counts[0];
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            int from = dstOff + chunk * payloadChunk;
+            if (from != pos) {
+                System.arraycopy(dst, from, dst, pos, counts[chunk]);
+            }
+            pos += counts[chunk];
+        }
+        return pos - dstOff;
+    }
+
+    /**
+     * the count of bits, that was repaired by codings of all threads
+     * @return - the count of repaired bits
+     */
+    public long getCorrectedBits() {
+        long res = 0;
+        for (Coding coding : codings) {
+            res += coding.getCorrectedBits();
+        }
+        return res;
+    }
+
+    /**
+     * the count of blocks with errors, that can't be repaired, in codings of all threads
+     * @return - the count of broken blocks
+     */
+    public long getUncorrectableBlocks() {
+        long res = 0;
+        for (Coding coding : codings) {
+            res += coding.getUncorrectableBlocks();
+        }
+        return res;
+    }
+
+    /**
+     * the count of payloads, that was divided into tasks
+     * @return - the count of calls
+     */
+    public long getParallelCalls() {
+        return parallelCalls.get();
+    }
+
+    /**
+     * the count of payload bytes in one task
+     * @return - the length of chunk
+     */
+    public int getChunk() {
+        return payloadChunk;
+    }
+
+    /**
+     * Factory of codings with the same format, every thread gets own coding
+     */
+    public interface Factory {
+        /**
+         * creating new coding
+         * @return - the coding
+         */
+        Coding create();
+    }
+
+    /**
+     * Coding of one chunk
+     */
+    private interface Chunk {
+        /**
+         * coding of chunk
+         * @param chunk - the index of chunk
+         */
+        void process(int chunk);
+    }
+
+    /**
+     * Task for range of chunks, it is divided in halves till one chunk
+     */
+    private static final class Chunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Chunk work;
+        private final int from;
+        private final int to;
+
+        Chunks(Chunk work, int from, int to) {
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from == 1) {
+                work.process(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunks(work, from, middle), new Chunks(work, middle, to));
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of raw bytes of ports with time, for analysis and replay of problems of line.
+ * File is written by regions, that are mapped into memory, so writing of record is only copying
+ * of bytes under lock, and written records stay in file even if the process is killed.
+ *
+ * File: MAGIC, version, the size of region, the time of start (epoch millis), then records.
+ * Record: direction (TX, RX or NAME), varint id of port, varint nanoseconds after the previous record,
+ * varint length, bytes. NAME record gives the name of port id before its first bytes.
+ * Record doesn't cross the border of region, the rest of region is zeros (direction 0 - go to the next region).
+ */
+public final class CaptureLog implements Closeable {
+    /** the direction of bytes, that was written to port */
+    public static final int TX = 1;
+    /** the direction of bytes, that was read from port */
+    public static final int RX = 2;
+    /** the size of mapped region by default */
+    public static final int DEFAULT_REGION = 16 << 20;
+    /** the min size of mapped region */
+    public static final int MIN_REGION = 4096;
+
+    private static final int MAGIC = 0x43415054;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 17;
+    private static final int NAME = 3;
+    private static final int MAX_RECORD_HEADER = 1 + 5 + 10 + 5;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int regionSize;
+    private final int maxChunk;
+    private final Map<String, Integer> ports = new HashMap<String, Integer>();
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long lastNanos;
+    private long records;
+    private long bytes;
+    private boolean closed;
+
+    /**
+     * creating new log with regions of DEFAULT_REGION bytes, old file is overwritten
+     * @param path - the file of log
+     * @throws IOException - if file can't be written
+     */
+    public CaptureLog(File path) throws IOException {
+        this(path, DEFAULT_REGION);
+    }
+
+    /**
+     * creating new log, old file is overwritten
+     * @param path - the file of log
+     * @param regionSize - the count of bytes, that are mapped at once (not less than MIN_REGION)
+     * @throws IOException - if file can't be written
+     */
+    public CaptureLog(File path, int regionSize) throws IOException {
+        if (regionSize < MIN_REGION) {
+            throw new IllegalArgumentException("region is too small: " + regionSize);
+        }
+        this.regionSize = regionSize;
+        this.maxChunk = regionSize / 4;
+        this.file = new RandomAccessFile(path, "rw");
+        this.file.setLength(0);
+        this.channel = file.getChannel();
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+        region.putInt(MAGIC);
+        region.put((byte) VERSION);
+        region.putInt(regionSize);
+        region.putLong(System.currentTimeMillis());
+        lastNanos = System.nanoTime();
+    }
+
+    /**
+     * adding bytes of port, long chunks are written in several records
+     * @param direction - TX or RX
+     * @param port - the name of port
+     * @param src - the buffer with bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     */
+    public synchronized void record(int direction, String port, byte[] src, int off, int len) {
+        if (closed || len <= 0) {
+            return;
+        }
+        try {
+            Integer id = ports.get(port);
+            if (id == null) {
+                id = ports.size();
+                ports.put(port, id);
+                byte[] name = port.getBytes(StandardCharsets.UTF_8);
+                append(NAME, id, name, 0, name.length);
+            }
+            for (int i = 0; i < len; i += maxChunk) {
+                append(direction, id, src, off + i, Math.min(maxChunk, len - i));
+            }
+            bytes += len;
+        }
+        catch (IOException ex) {
+            ex.printStackTrace();
+            closed = true;
+        }
+    }
+
+    /**
+     * writing one record, the next region is mapped, if record doesn't fit
+     * @param direction - TX, RX or NAME
+     * @param id - the id of port
+     * @param src - the buffer with bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes (not more than maxChunk)
+     * @throws IOException - if region can't be mapped
+     */
+    private void append(int direction, int id, byte[] src, int off, int len) throws IOException {
+        if (region.remaining() < MAX_RECORD_HEADER + len) {
+            regionStart += regionSize;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+        }
+        long now = System.nanoTime();
+        region.put((byte) direction);
+        putVarint(id);
+        putVarint(now - lastNanos);
+        putVarint(len);
+        region.put(src, off, len);
+        lastNanos = now;
+        if (direction != NAME) {
+            records++;
+        }
+    }
+
+    /**
+     * writing number with 7 bits in every byte, the high bit means, that there are more bytes
+     * @param value - the not negative number
+     */
+    private void putVarint(long value) {
+        while (value >= 0x80) {
+            region.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        region.put((byte) value);
+    }
+
+    /**
+     * the count of written records with bytes of ports
+     * @return - the count of records
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * the count of written bytes of ports
+     * @return - the count of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * writing mapped bytes to disk and closing file, records after closing are ignored
+     * @throws IOException - if file can't be closed
+     */
+    public synchronized void close() throws IOException {
+        if (closed && !channel.isOpen()) {
+            return;
+        }
+        closed = true;
+        region.force();
+        channel.close();
+        file.close();
+    }
+
+    /**
+     * reading all records of log
+     * @param path - the file of log
+     * @return - the records in the order of writing
+     * @throws IOException - if file can't be read or it is not log
+     */
+    public static List<Record> read(File path) throws IOException {
+        List<Record> res = new ArrayList<Record>();
+        Reader reader = new Reader(path);
+        try {
+            Record record;
+            while ((record = reader.next()) != null) {
+                res.add(record);
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return res;
+    }
+
+    /**
+     * Bytes of port from log
+     */
+    public static final class Record {
+        /** TX or RX */
+        public final int direction;
+        /** the name of port */
+        public final String port;
+        /** the time from the start of log in nanoseconds */
+        public final long nanos;
+        /** the bytes */
+        public final byte[] bytes;
+
+        Record(int direction, String port, long nanos, byte[] bytes) {
+            this.direction = direction;
+            this.port = port;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Reading of records by regions, that are mapped into memory
+     */
+    public static final class Reader implements Closeable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final int regionSize;
+        private final long startMillis;
+        private final Map<Integer, String> ports = new HashMap<Integer, String>();
+        private MappedByteBuffer region;
+        private long regionStart;
+        private long nanos;
+
+        /**
+         * opening log
+         * @param path - the file of log
+         * @throws IOException - if file can't be read or it is not log
+         */
+        public Reader(File path) throws IOException {
+            this.file = new RandomAccessFile(path, "r");
+            this.channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                close();
+                throw new IOException("not a capture log: " + path);
+            }
+            this.region = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+            if (region.getInt() != MAGIC || region.get() != VERSION) {
+                close();
+                throw new IOException("not a capture log: " + path);
+            }
+            this.regionSize = region.getInt();
+            this.startMillis = region.getLong();
+            region.limit((int) Math.min(regionSize, channel.size()));
+        }
+
+        /**
+         * the time of start of log
+         * @return - the time in epoch milliseconds
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * reading the next record with bytes
+         * @return - the record or null at the end of log
+         * @throws IOException - if region can't be mapped
+         */
+        public Record next() throws IOException {
+            while (true) {
+                int direction = region.hasRemaining() ? region.get() : 0;
+                if (direction == 0) {
+                    regionStart += regionSize;
+                    if (regionStart >= channel.size()) {
+                        return null;
+                    }
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                            Math.min(regionSize, channel.size() - regionStart));
+                    continue;
+                }
+                int id = (int) getVarint();
+                nanos += getVarint();
+                byte[] bytes = new byte[(int) getVarint()];
+                region.get(bytes);
+                if (direction == NAME) {
+                    ports.put(id, new String(bytes, StandardCharsets.UTF_8));
+                    continue;
+                }
+                return new Record(direction, ports.get(id), nanos, bytes);
+            }
+        }
+
+        /**
+         * reading number with 7 bits in every byte
+         * @return - the number
+         */
+        private long getVarint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = region.get();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * closing file
+         * @throws IOException - if file can't be closed
+         */
+        public void close() throws IOException {
+            channel.close();
+            file.close();
+        }
+    }
+}
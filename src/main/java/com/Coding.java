@@ -0,0 +1,100 @@
+package com;
+
+/**
+ * Block code, that is used by port for bytes on line (Hemming, CRC, Reed-Solomon).
+ * Payload is coded into blocks of the same length, so receiver decodes stream by full blocks.
+ * Coding can be used by one thread for coding and one thread for decoding at the same time,
+ * counters are changed only by decoding.
+ */
+public interface Coding {
+
+    /**
+     * the name of coding for GUI and command line
+     * @return - the name
+     */
+    String getName();
+
+    /**
+     * the count of coded bytes of one block
+     * @return - the length of block
+     */
+    int blockLength();
+
+    /**
+     * getting the count of coded bytes for payload
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    int codedLength(int length);
+
+    /**
+     * getting the max count of decoded bytes for coded bytes
+     * @param codedLength - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    int payloadLength(int codedLength);
+
+    /**
+     * coding payload into buffer of caller
+     * @param src - raw bytes
+     * @param off - the offset of payload in src
+     * @param len - the length of payload
+     * @param dst - the buffer for coded bytes (codedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    int encode(byte[] src, int off, int len, byte[] dst, int dstOff);
+
+    /**
+     * decoding full blocks into buffer of caller with repairing of errors
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (payloadLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    int decode(byte[] src, int off, int len, byte[] dst, int dstOff);
+
+    /**
+     * the count of bits, that was repaired by this coding
+     * @return - the count of repaired bits
+     */
+    long getCorrectedBits();
+
+    /**
+     * the count of blocks with errors, that can't be repaired
+     * @return - the count of broken blocks
+     */
+    long getUncorrectableBlocks();
+
+    /**
+     * getting new coding by the name
+     * @param name - Hemming, CRC, CRC-3, CRC-8, CRC-16, CRC-32, RS (the same as RS(255,223)) or RS(n,k)
+     * @return - the coding or null, if name is unknown
+     */
+    static Coding forName(String name) {
+        if (name.equals(HammingCodec.NAME)) {
+            return new HammingCodec();
+        }
+        if (name.equals("RS")) {
+            return new ReedSolomonCodec(255, 223);
+        }
+        if (name.startsWith("RS(") && name.endsWith(")")) {
+            String[] nk = name.substring(3, name.length() - 1).split(",");
+            try {
+                return nk.length == 2 ? new ReedSolomonCodec(Integer.parseInt(nk[0].trim()), Integer.parseInt(nk[1].trim())) : null;
+            }
+            catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+        CrcEngine crc = CrcEngine.forName(name);
+        if (crc == null) {
+            return null;
+        }
+        // blocks of stream without frames must have the same length, so long blocks are padded
+        int blockSize = CrcCodec.defaultBlockSize(crc);
+        return blockSize == 1 ? new CrcCodec(crc, 1) : new CrcCodec(crc, blockSize, true, true);
+    }
+}
@@ -1,11 +1,48 @@
 package com;
 
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+
 public class ComPortSendReceive {
 
 
-    public static void main(String[] args) {
-        GUI window = new GUI();
-        window.init();
+    /**
+     * starting GUI or, with arguments, headless sending of messages (see LoadGenerator.usage)
+     * or evaluation of codings on simulated lines (see BerEvaluator.usage)
+     * @param args - the arguments of command line
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 && !GraphicsEnvironment.isHeadless()) {
+            GUI window = new GUI();
+            window.init();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--evaluate")) {
+            BerEvaluator evaluator;
+            try {
+                evaluator = BerEvaluator.parse(args);
+            }
+            catch (IllegalArgumentException ex) {
+                System.err.println(ex.getMessage());
+                System.err.println(BerEvaluator.usage());
+                System.exit(2);
+                return;
+            }
+            evaluator.run(System.out);
+            System.exit(0);
+            return;
+        }
+        LoadGenerator generator;
+        try {
+            generator = LoadGenerator.parse(args);
+        }
+        catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(LoadGenerator.usage());
+            System.exit(2);
+            return;
+        }
+        System.exit(generator.run(System.out) ? 0 : 1);
     }
 
 }
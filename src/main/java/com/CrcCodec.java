@@ -0,0 +1,518 @@
+package com;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Block codec with CRC code.
+ * Payload is divided into blocks of blockSize bytes (the last block can be shorter),
+ * every block is followed by CRC value in checkBytes() bytes (left aligned, high byte first).
+ * For CRC-3 and blocks of 1 byte the format is the same as in Serial.crcCoding.
+ * In padded mode every block is full: the first data byte is the count of payload bytes in block
+ * (0..blockSize-1) and the rest is filled with zeros, like in ReedSolomonCodec, so the stream without
+ * frames can be cut into blocks of fixed length. Without padding the short last block of message
+ * shifts the next blocks, so blocks longer than 1 byte need frames.
+ * The single wrong bit of block is repaired with the table from syndrome to position of bit,
+ * blocks with other errors are counted and dropped.
+ * CRC of width w has only 2^w - 1 syndromes, so single errors are repaired only in blocks
+ * not longer than 2^w - 1 bits, in longer blocks (CRC-3 with 1 byte) errors are only detected.
+ */
+public final class CrcCodec implements Coding {
+    private final CrcEngine crc;
+    private final int blockSize;
+    private final int blockPayload;
+    private final boolean padded;
+    private final int checkBytes;
+    private final int checkShift;
+    private final boolean correcting;
+    private final SyndromeTable[] syndromes;
+    private byte[] block;
+    private long correctedBits;
+    private long uncorrectableBlocks;
+    // coding and decoding can run in different threads, so every direction has own scratch arrays
+    private final Buffers encodeBuffers = new Buffers();
+    private final Buffers decodeBuffers = new Buffers();
+
+    /**
+     * creating CRC codec with repairing of single errors
+     * @param crc - the CRC engine
+     * @param blockSize - the count of data bytes in one block
+     */
+    public CrcCodec(CrcEngine crc, int blockSize) {
+        this(crc, blockSize, true);
+    }
+
+    /**
+     * creating CRC codec
+     * @param crc - the CRC engine
+     * @param blockSize - the count of data bytes in one block
+     * @param correcting - is single errors repaired (false - only detecting), it is ignored for blocks,
+     *                   which are too long for repairing with this CRC
+     */
+    public CrcCodec(CrcEngine crc, int blockSize, boolean correcting) {
+        this(crc, blockSize, correcting, false);
+    }
+
+    /**
+     * creating CRC codec
+     * @param crc - the CRC engine
+     * @param blockSize - the count of data bytes in one block (with the count byte in padded mode)
+     * @param correcting - is single errors repaired (false - only detecting), it is ignored for blocks,
+     *                   which are too long for repairing with this CRC
+     * @param padded - is every block full with the count of payload bytes in the first byte
+     */
+    public CrcCodec(CrcEngine crc, int blockSize, boolean correcting, boolean padded) {
+        if (blockSize < (padded ? 2 : 1)) {
+            throw new IllegalArgumentException("block size is too small: " + blockSize);
+        }
+        this.crc = crc;
+        this.blockSize = blockSize;
+        this.padded = padded;
+        this.blockPayload = padded ? blockSize - 1 : blockSize;
+        this.checkBytes = crc.checkBytes();
+        this.checkShift = checkBytes * Byte.SIZE - crc.getWidth();
+        this.correcting = correcting && canRepair(crc, blockSize);
+        this.syndromes = new SyndromeTable[blockSize + 1];
+    }
+
+    /**
+     * can every single error of block be repaired with CRC, the block with CRC value
+     * must not be longer than count of not zero syndromes
+     * @param crc - the CRC engine
+     * @param blockSize - the count of data bytes in block
+     * @return - is repairing possible
+     */
+    public static boolean canRepair(CrcEngine crc, int blockSize) {
+        return (long) blockSize * Byte.SIZE + crc.getWidth() <= (1L << crc.getWidth()) - 1;
+    }
+
+    /**
+     * getting the size of block for CRC, blocks of CRC from 8 bits are short enough
+     * for repairing of every single error (see canRepair), blocks of narrower CRC are 1 byte
+     * and their errors are only detected
+     * @param crc - the CRC engine
+     * @return - the count of data bytes in block
+     */
+    public static int defaultBlockSize(CrcEngine crc) {
+        if (crc.getWidth() < Byte.SIZE) {
+            return 1;
+        }
+        if (crc.getWidth() < 16) {
+            return 8;
+        }
+        if (crc.getWidth() < 32) {
+            return 64;
+        }
+        return 256;
+    }
+
+    /**
+     * getting the count of coded bytes for payload
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    public int encodedLength(int length) {
+        if (padded) {
+            return (length + blockPayload - 1) / blockPayload * blockLength();
+        }
+        return length + (length + blockSize - 1) / blockSize * checkBytes;
+    }
+
+    /**
+     * getting the max count of decoded bytes for coded bytes
+     * @param length - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    public int decodedLength(int length) {
+        if (padded) {
+            return length / blockLength() * blockPayload;
+        }
+        int full = length / (blockSize + checkBytes);
+        int rest = length % (blockSize + checkBytes);
+        return full * blockSize + Math.max(0, rest - checkBytes);
+    }
+
+    /**
+     * coding payload of any length
+     * @param raw - raw bytes
+     * @return - the coded bytes
+     */
+    public byte[] encode(byte[] raw) {
+        byte[] out = new byte[encodedLength(raw.length)];
+        encode(raw, 0, raw.length, out, 0);
+        return out;
+    }
+
+    /**
+     * coding payload into buffer of caller
+     * @param src - raw bytes
+     * @param off - the offset of payload in src
+     * @param len - the length of payload
+     * @param dst - the buffer for coded bytes (encodedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        if (padded) {
+            return encodePadded(src, off, len, dst, dstOff);
+        }
+        int d = dstOff;
+        int end = off + len;
+        for (int i = off; i < end; i += blockSize) {
+            int n = Math.min(blockSize, end - i);
+            System.arraycopy(src, i, dst, d, n);
+            d += n;
+            int value = crc.compute(src, i, n) << checkShift;
+            for (int k = checkBytes - 1; k >= 0; k--) {
+                dst[d + k] = (byte) value;
+                value >>>= 8;
+            }
+            d += checkBytes;
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * coding payload into full blocks with the count of payload bytes
+     * @param src - raw bytes
+     * @param off - the offset of payload in src
+     * @param len - the length of payload
+     * @param dst - the buffer for coded bytes (encodedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    private int encodePadded(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int d = dstOff;
+        int end = off + len;
+        for (int i = off; i < end; i += blockPayload) {
+            int n = Math.min(blockPayload, end - i);
+            dst[d] = (byte) n;
+            System.arraycopy(src, i, dst, d + 1, n);
+            Arrays.fill(dst, d + 1 + n, d + blockSize, (byte) 0);
+            int value = crc.compute(dst, d, blockSize) << checkShift;
+            d += blockSize;
+            for (int k = checkBytes - 1; k >= 0; k--) {
+                dst[d + k] = (byte) value;
+                value >>>= 8;
+            }
+            d += checkBytes;
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * coding bytes from position to limit of src into dst
+     * if dst has not enough place, only so many full blocks are coded, as there is place for
+     * @param src - the raw bytes (heap or direct), the position is moved over consumed bytes
+     * @param dst - the buffer for coded bytes, the position is moved over produced bytes
+     * @return - the count of produced bytes
+     */
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        int len = src.remaining();
+        if (encodedLength(len) > dst.remaining()) {
+            len = dst.remaining() / blockLength() * blockPayload;
+        }
+        byte[] in = encodeBuffers.input(src, len);
+        byte[] out = encodeBuffers.output(dst, encodedLength(len));
+        int produced = encode(in, Buffers.inputOffset(src), len, out, Buffers.outputOffset(dst));
+        encodeBuffers.finish(src, len, dst, produced);
+        return produced;
+    }
+
+    /**
+     * decoding coded bytes with repairing of errors
+     * @param coded - coded bytes
+     * @return - the decoded bytes
+     */
+    public byte[] decode(byte[] coded) {
+        byte[] out = new byte[decodedLength(coded.length)];
+        int count = decode(coded, 0, coded.length, out, 0);
+        if (count == out.length) {
+            return out;
+        }
+        byte[] res = new byte[count];
+        System.arraycopy(out, 0, res, 0, count);
+        return res;
+    }
+
+    /**
+     * decoding coded bytes into buffer of caller
+     * the bytes after the last full block are decoded as the short block
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (decodedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    public int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        if (padded) {
+            return decodePadded(src, off, len, dst, dstOff);
+        }
+        int d = dstOff;
+        int end = off + len;
+        for (int i = off; i < end; i += blockSize + checkBytes) {
+            int n = Math.min(blockSize, end - i - checkBytes);
+            if (n <= 0) {
+                break;
+            }
+            int received = 0;
+            for (int k = 0; k < checkBytes; k++) {
+                received = received << 8 | (src[i + n + k] & 0xff);
+            }
+            received >>>= checkShift;
+            int syndrome = crc.compute(src, i, n) ^ received;
+            System.arraycopy(src, i, dst, d, n);
+            if (syndrome != 0) {
+                int position = correcting ? syndromeTable(n).position(syndrome) : -1;
+                if (position < 0) {
+                    uncorrectableBlocks++;
+                    continue;
+                }
+                if (position < n * Byte.SIZE) {
+                    dst[d + position / Byte.SIZE] ^= 0x80 >>> (position % Byte.SIZE);
+                }
+                correctedBits++;
+            }
+            d += n;
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * decoding full blocks with the count of payload bytes, bytes after the last full block are ignored
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (decodedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    private int decodePadded(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        if (block == null) {
+            block = new byte[blockSize];
+        }
+        int d = dstOff;
+        int end = off + len - blockLength();
+        for (int i = off; i <= end; i += blockLength()) {
+            int received = 0;
+            for (int k = 0; k < checkBytes; k++) {
+                received = received << 8 | (src[i + blockSize + k] & 0xff);
+            }
+            received >>>= checkShift;
+            int syndrome = crc.compute(src, i, blockSize) ^ received;
+            System.arraycopy(src, i, block, 0, blockSize);
+            if (syndrome != 0) {
+                int position = correcting ? syndromeTable(blockSize).position(syndrome) : -1;
+                if (position < 0) {
+                    uncorrectableBlocks++;
+                    continue;
+                }
+                if (position < blockSize * Byte.SIZE) {
+                    block[position / Byte.SIZE] ^= 0x80 >>> (position % Byte.SIZE);
+                }
+                correctedBits++;
+            }
+            int n = block[0] & 0xff;
+            if (n > blockPayload) {
+                uncorrectableBlocks++;
+                continue;
+            }
+            System.arraycopy(block, 1, dst, d, n);
+            d += n;
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * decoding coded bytes from position to limit of src into dst
+     * all bytes are decoded (the rest after full blocks as the short block), when they fit into dst,
+     * else only full blocks, that fit into dst, are decoded and the rest is left in src
+     * @param src - the coded bytes (heap or direct), the position is moved over consumed bytes
+     * @param dst - the buffer for decoded bytes, the position is moved over produced bytes
+     * @return - the count of produced bytes
+     */
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        int len = src.remaining();
+        if (decodedLength(len) > dst.remaining()) {
+            len = Math.min(len / blockLength(), dst.remaining() / blockPayload) * blockLength();
+        }
+        byte[] in = decodeBuffers.input(src, len);
+        byte[] out = decodeBuffers.output(dst, decodedLength(len));
+        int produced = decode(in, Buffers.inputOffset(src), len, out, Buffers.outputOffset(dst));
+        decodeBuffers.finish(src, len, dst, produced);
+        return produced;
+    }
+
+    /**
+     * getting table of syndromes for block with length
+     * @param length - the count of data bytes in block
+     * @return - the table of syndromes
+     */
+    private SyndromeTable syndromeTable(int length) {
+        SyndromeTable table = syndromes[length];
+        if (table == null) {
+            table = new SyndromeTable(crc, length);
+            syndromes[length] = table;
+        }
+        return table;
+    }
+
+    /**
+     * the name of coding
+     * @return - the name of CRC
+     */
+    public String getName() {
+        return crc.getName();
+    }
+
+    /**
+     * getting the count of coded bytes for payload
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    public int codedLength(int length) {
+        return encodedLength(length);
+    }
+
+    /**
+     * getting the max count of decoded bytes for coded bytes
+     * @param codedLength - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    public int payloadLength(int codedLength) {
+        return decodedLength(codedLength);
+    }
+
+    /**
+     * the CRC engine of codec
+     * @return - the CRC engine
+     */
+    public CrcEngine getCrc() {
+        return crc;
+    }
+
+    /**
+     * the count of data bytes in one block
+     * @return - the size of block
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * is every block full with the count of payload bytes in the first byte
+     * @return - is codec padded
+     */
+    public boolean isPadded() {
+        return padded;
+    }
+
+    /**
+     * the count of bytes in full coded block
+     * @return - the size of block with CRC value
+     */
+    public int blockLength() {
+        return blockSize + checkBytes;
+    }
+
+    /**
+     * is single errors repaired by this codec
+     * @return - false, if errors are only detected
+     */
+    public boolean isCorrecting() {
+        return correcting;
+    }
+
+    /**
+     * the count of bits, that was repaired by this codec
+     * @return - the count of repaired bits
+     */
+    public long getCorrectedBits() {
+        return correctedBits;
+    }
+
+    /**
+     * the count of blocks with errors, that can't be repaired
+     * @return - the count of dropped blocks
+     */
+    public long getUncorrectableBlocks() {
+        return uncorrectableBlocks;
+    }
+
+    /**
+     * Hash table from syndrome of single error to position of wrong bit in block.
+     * Syndromes of several positions are marked as ambiguous.
+     */
+    private static final class SyndromeTable {
+        private static final int AMBIGUOUS = -2;
+        private final int[] keys;
+        private final int[] positions;
+        private final int tableMask;
+
+        /**
+         * building table for block with length
+         * @param crc - the CRC engine
+         * @param length - the count of data bytes in block
+         */
+        SyndromeTable(CrcEngine crc, int length) {
+            int bits = length * Byte.SIZE + crc.getWidth();
+            int capacity = Integer.highestOneBit(bits * 2) * 2;
+            keys = new int[capacity];
+            positions = new int[capacity];
+            tableMask = capacity - 1;
+            byte[] block = new byte[length];
+            int zero = crc.compute(block, 0, length);
+            for (int bit = 0; bit < length * Byte.SIZE; bit++) {
+                block[bit / Byte.SIZE] ^= 0x80 >>> (bit % Byte.SIZE);
+                int syndrome = crc.compute(block, 0, length) ^ zero;
+                if (syndrome != 0) {
+                    put(syndrome, bit);
+                }
+                block[bit / Byte.SIZE] ^= 0x80 >>> (bit % Byte.SIZE);
+            }
+            for (int j = 0; j < crc.getWidth(); j++) {
+                put(1 << j, length * Byte.SIZE + crc.getWidth() - 1 - j);
+            }
+        }
+
+        /**
+         * adding position of syndrome
+         * @param syndrome - the syndrome (not 0)
+         * @param position - the position of bit in block
+         */
+        private void put(int syndrome, int position) {
+            int i = hash(syndrome);
+            while (keys[i] != 0) {
+                if (keys[i] == syndrome) {
+                    positions[i] = AMBIGUOUS;
+                    return;
+                }
+                i = (i + 1) & tableMask;
+            }
+            keys[i] = syndrome;
+            positions[i] = position;
+        }
+
+        /**
+         * getting position of wrong bit
+         * @param syndrome - the syndrome of block
+         * @return - the position of bit or -1, if error can't be repaired
+         */
+        int position(int syndrome) {
+            int i = hash(syndrome);
+            while (keys[i] != 0) {
+                if (keys[i] == syndrome) {
+                    return positions[i] < 0 ? -1 : positions[i];
+                }
+                i = (i + 1) & tableMask;
+            }
+            return -1;
+        }
+
+        private int hash(int syndrome) {
+            int h = syndrome * 0x9E3779B9;
+            return (h ^ h >>> 16) & tableMask;
+        }
+    }
+}
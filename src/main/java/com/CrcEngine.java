@@ -0,0 +1,233 @@
+package com;
+
+/**
+ * Table-driven CRC with configurable polynomial.
+ * The polynomials of 16 bits and wider are computed with slicing-by-8,
+ * the narrow ones (CRC-3 of Serial.crcCoding, CRC-8) byte by byte with one table.
+ */
+public final class CrcEngine {
+    /** CRC-3 with divider "1101", the same as in Serial.crcCoding */
+    public static final CrcEngine CRC3 = new CrcEngine("CRC-3", 3, 0x5, 0, false, 0);
+    /** CRC-8 (polynomial 0x07) */
+    public static final CrcEngine CRC8 = new CrcEngine("CRC-8", 8, 0x07, 0, false, 0);
+    /** CRC-16-CCITT (polynomial 0x1021, initial value 0xFFFF) */
+    public static final CrcEngine CRC16_CCITT = new CrcEngine("CRC-16", 16, 0x1021, 0xFFFF, false, 0);
+    /** CRC-32 of Ethernet and zip */
+    public static final CrcEngine CRC32 = new CrcEngine("CRC-32", 32, 0x04C11DB7, 0xFFFFFFFF, true, 0xFFFFFFFF);
+
+    private static final int SLICES = 8;
+
+    private final String name;
+    private final int width;
+    private final int poly;
+    private final int init;
+    private final boolean reflected;
+    private final int xorOut;
+    private final int mask;
+    private final int initRegister;
+    private final boolean sliced;
+    private final int[][] table;
+
+    /**
+     * creating CRC engine with parameters
+     * @param name - the name of CRC
+     * @param width - the count of bits in CRC (1..32)
+     * @param poly - the polynomial without the high bit
+     * @param init - the initial value of register
+     * @param reflected - are bytes and result processed from the low bit
+     * @param xorOut - the value for xor with result
+     */
+    public CrcEngine(String name, int width, int poly, int init, boolean reflected, int xorOut) {
+        if (width < 1 || width > 32) {
+            throw new IllegalArgumentException("width of CRC must be in 1..32: " + width);
+        }
+        this.name = name;
+        this.width = width;
+        this.mask = width == 32 ? -1 : (1 << width) - 1;
+        this.poly = poly & mask;
+        this.init = init & mask;
+        this.reflected = reflected;
+        this.xorOut = xorOut & mask;
+        this.sliced = width >= 16;
+        this.table = new int[sliced ? SLICES : 1][256];
+        if (reflected) {
+            int polyReflected = Integer.reverse(this.poly) >>> (32 - width);
+            for (int i = 0; i < 256; i++) {
+                int reg = i;
+                for (int bit = 0; bit < Byte.SIZE; bit++) {
+                    reg = (reg & 1) != 0 ? (reg >>> 1) ^ polyReflected : reg >>> 1;
+                }
+                table[0][i] = reg;
+            }
+            for (int k = 1; k < table.length; k++) {
+                for (int i = 0; i < 256; i++) {
+                    int prev = table[k - 1][i];
+                    table[k][i] = (prev >>> 8) ^ table[0][prev & 0xff];
+                }
+            }
+            this.initRegister = Integer.reverse(this.init) >>> (32 - width);
+        }
+        else {
+            int polyAligned = this.poly << (32 - width);
+            for (int i = 0; i < 256; i++) {
+                int reg = i << 24;
+                for (int bit = 0; bit < Byte.SIZE; bit++) {
+                    reg = reg < 0 ? (reg << 1) ^ polyAligned : reg << 1;
+                }
+                table[0][i] = reg;
+            }
+            for (int k = 1; k < table.length; k++) {
+                for (int i = 0; i < 256; i++) {
+                    int prev = table[k - 1][i];
+                    table[k][i] = (prev << 8) ^ table[0][prev >>> 24];
+                }
+            }
+            this.initRegister = this.init << (32 - width);
+        }
+    }
+
+    /**
+     * getting the CRC of bytes
+     * @param bytes - the bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     * @return - the CRC value (width low bits)
+     */
+    public int compute(byte[] bytes, int off, int len) {
+        return finish(update(start(), bytes, off, len));
+    }
+
+    /**
+     * getting the CRC of bytes
+     * @param bytes - the bytes
+     * @return - the CRC value (width low bits)
+     */
+    public int compute(byte[] bytes) {
+        return compute(bytes, 0, bytes.length);
+    }
+
+    /**
+     * the register before first byte
+     * @return - the initial register
+     */
+    public int start() {
+        return initRegister;
+    }
+
+    /**
+     * getting CRC value from register after last byte
+     * @param register - the register
+     * @return - the CRC value (width low bits)
+     */
+    public int finish(int register) {
+        int crc = reflected ? register : register >>> (32 - width);
+        return (crc ^ xorOut) & mask;
+    }
+
+    /**
+     * adding bytes into CRC register
+     * @param register - the current register (start() for first bytes)
+     * @param bytes - the bytes for adding
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     * @return - the new register
+     */
+    public int update(int register, byte[] bytes, int off, int len) {
+        int i = off;
+        int end = off + len;
+        int reg = register;
+        if (reflected) {
+            if (sliced) {
+                int[] t0 = table[0], t1 = table[1], t2 = table[2], t3 = table[3];
+                int[] t4 = table[4], t5 = table[5], t6 = table[6], t7 = table[7];
+                for (; i + SLICES <= end; i += SLICES) {
+                    int lo = reg ^ ((bytes[i] & 0xff) | (bytes[i + 1] & 0xff) << 8
+                            | (bytes[i + 2] & 0xff) << 16 | (bytes[i + 3] & 0xff) << 24);
+                    reg = t7[lo & 0xff] ^ t6[lo >>> 8 & 0xff] ^ t5[lo >>> 16 & 0xff] ^ t4[lo >>> 24]
+                            ^ t3[bytes[i + 4] & 0xff] ^ t2[bytes[i + 5] & 0xff]
+                            ^ t1[bytes[i + 6] & 0xff] ^ t0[bytes[i + 7] & 0xff];
+                }
+            }
+            int[] t0 = table[0];
+            for (; i < end; i++) {
+                reg = (reg >>> 8) ^ t0[(reg ^ bytes[i]) & 0xff];
+            }
+        }
+        else {
+            if (sliced) {
+                int[] t0 = table[0], t1 = table[1], t2 = table[2], t3 = table[3];
+                int[] t4 = table[4], t5 = table[5], t6 = table[6], t7 = table[7];
+                for (; i + SLICES <= end; i += SLICES) {
+                    int hi = reg ^ ((bytes[i] & 0xff) << 24 | (bytes[i + 1] & 0xff) << 16
+                            | (bytes[i + 2] & 0xff) << 8 | (bytes[i + 3] & 0xff));
+                    reg = t7[hi >>> 24] ^ t6[hi >>> 16 & 0xff] ^ t5[hi >>> 8 & 0xff] ^ t4[hi & 0xff]
+                            ^ t3[bytes[i + 4] & 0xff] ^ t2[bytes[i + 5] & 0xff]
+                            ^ t1[bytes[i + 6] & 0xff] ^ t0[bytes[i + 7] & 0xff];
+                }
+            }
+            int[] t0 = table[0];
+            for (; i < end; i++) {
+                reg = (reg << 8) ^ t0[((reg >>> 24) ^ bytes[i]) & 0xff];
+            }
+        }
+        return reg;
+    }
+
+    /**
+     * adding one byte into CRC register
+     * @param register - the current register
+     * @param b - the byte for adding
+     * @return - the new register
+     */
+    public int update(int register, int b) {
+        if (reflected) {
+            return (register >>> 8) ^ table[0][(register ^ b) & 0xff];
+        }
+        return (register << 8) ^ table[0][((register >>> 24) ^ b) & 0xff];
+    }
+
+    /**
+     * the count of bytes for storing CRC value
+     * @return - the count of bytes
+     */
+    public int checkBytes() {
+        return (width + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    /**
+     * the name of CRC
+     * @return - the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * the count of bits in CRC
+     * @return - the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * getting CRC engine by the name
+     * @param name - the name (CRC, CRC-3, CRC-8, CRC-16, CRC-32)
+     * @return - the engine or null, if name is unknown
+     */
+    public static CrcEngine forName(String name) {
+        if (name.equals("CRC") || name.equals(CRC3.name)) {
+            return CRC3;
+        }
+        if (name.equals(CRC8.name)) {
+            return CRC8;
+        }
+        if (name.equals(CRC16_CCITT.name)) {
+            return CRC16_CCITT;
+        }
+        if (name.equals(CRC32.name)) {
+            return CRC32;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,225 @@
+package com;
+
+import java.util.Random;
+
+/**
+ * Errors of line for virtual port: single bit errors, bursts of errors,
+ * Gilbert-Elliott channel (good and bad states with own probabilities of bit errors),
+ * dropped, duplicated and inserted bytes. All errors are got from Random with seed,
+ * so the same seed gives the same errors.
+ */
+public final class FaultInjector {
+    private final Random random;
+    private double bitErrorRate;
+    private double burstRate;
+    private int burstLength;
+    private double dropRate;
+    private double duplicateRate;
+    private double insertRate;
+    private boolean gilbert;
+    private double toBad;
+    private double toGood;
+    private double badErrorRate;
+    private boolean bad;
+    private long stateEnd = Long.MAX_VALUE;
+    private long nextBitError = -1;
+    private long bitPosition;
+    private int burstLeft;
+    private long injectedBits;
+    private long droppedBytes;
+    private long duplicatedBytes;
+    private long insertedBytes;
+
+    /**
+     * creating injector without errors
+     * @param seed - the seed of random errors
+     */
+    public FaultInjector(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * setting probability of error in every bit
+     * @param rate - the probability (0 - without errors)
+     */
+    public synchronized void setBitErrorRate(double rate) {
+        this.bitErrorRate = rate;
+        this.nextBitError = -1;
+    }
+
+    /**
+     * setting bursts of errors, where every bit of burst is wrong with probability 1/2
+     * @param rate - the probability of burst start on every byte
+     * @param length - the count of bits in burst
+     */
+    public synchronized void setBurst(double rate, int length) {
+        this.burstRate = rate;
+        this.burstLength = length;
+    }
+
+    /**
+     * setting probability of dropping of byte
+     * @param rate - the probability
+     */
+    public synchronized void setDropRate(double rate) {
+        this.dropRate = rate;
+    }
+
+    /**
+     * setting probability of duplicating of byte
+     * @param rate - the probability
+     */
+    public synchronized void setDuplicateRate(double rate) {
+        this.duplicateRate = rate;
+    }
+
+    /**
+     * setting probability of random byte after byte (noise on idle line), it is not added after duplicated byte
+     * @param rate - the probability
+     */
+    public synchronized void setInsertRate(double rate) {
+        this.insertRate = rate;
+    }
+
+    /**
+     * setting Gilbert-Elliott channel, line goes between good and bad states after every bit,
+     * bit errors of good state have the rate of setBitErrorRate
+     * @param toBad - the probability of going from good state to bad state
+     * @param toGood - the probability of going from bad state to good state
+     * @param badErrorRate - the probability of error in every bit in bad state
+     */
+    public synchronized void setGilbertElliott(double toBad, double toGood, double badErrorRate) {
+        this.gilbert = true;
+        this.toBad = toBad;
+        this.toGood = toGood;
+        this.badErrorRate = badErrorRate;
+        this.bad = false;
+        this.stateEnd = bitPosition + 1 + geometric(toBad);
+        this.nextBitError = -1;
+    }
+
+    /**
+     * adding errors into bytes
+     * @param src - the bytes from sender
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     * @param dst - the buffer for bytes on receiver (2 * len bytes)
+     * @return - the count of bytes in dst
+     */
+    public synchronized int apply(byte[] src, int off, int len, byte[] dst) {
+        int d = 0;
+        for (int i = off; i < off + len; i++) {
+            if (dropRate > 0 && random.nextDouble() < dropRate) {
+                droppedBytes++;
+                bitPosition += Byte.SIZE;
+                continue;
+            }
+            int b = src[i] & 0xff;
+            if (bitErrorRate > 0 || gilbert) {
+                b = addBitErrors(b);
+            }
+            bitPosition += Byte.SIZE;
+            int start = 0;
+            if (burstLeft == 0 && burstRate > 0 && random.nextDouble() < burstRate) {
+                burstLeft = burstLength;
+                start = random.nextInt(Byte.SIZE);
+            }
+            for (int bit = start; bit < Byte.SIZE && burstLeft > 0; bit++, burstLeft--) {
+                if (random.nextBoolean()) {
+                    b ^= 0x80 >>> bit;
+                    injectedBits++;
+                }
+            }
+            dst[d++] = (byte) b;
+            if (duplicateRate > 0 && random.nextDouble() < duplicateRate) {
+                duplicatedBytes++;
+                dst[d++] = (byte) b;
+            }
+            else if (insertRate > 0 && random.nextDouble() < insertRate) {
+                insertedBytes++;
+                dst[d++] = (byte) random.nextInt(256);
+            }
+        }
+        return d;
+    }
+
+    /**
+     * adding single bit errors into byte on bitPosition, state of Gilbert-Elliott channel
+     * can be changed inside of byte
+     * @param b - the byte
+     * @return - the byte with errors
+     */
+    private int addBitErrors(int b) {
+        long end = bitPosition + Byte.SIZE;
+        long pos = bitPosition;
+        while (pos < end) {
+            if (stateEnd <= pos) {
+                bad = !bad;
+                stateEnd = pos + 1 + geometric(bad ? toGood : toBad);
+                nextBitError = -1;
+            }
+            double rate = bad ? badErrorRate : bitErrorRate;
+            if (nextBitError < pos) {
+                nextBitError = pos + geometric(rate);
+            }
+            long limit = Math.min(end, stateEnd);
+            if (nextBitError >= limit) {
+                pos = limit;
+                continue;
+            }
+            b ^= 0x80 >>> (int) (nextBitError - bitPosition);
+            injectedBits++;
+            pos = nextBitError + 1;
+            nextBitError = pos + geometric(rate);
+        }
+        return b;
+    }
+
+    /**
+     * getting distance to the next event
+     * @param rate - the probability of event in every bit
+     * @return - the count of bits without event before event
+     */
+    private long geometric(double rate) {
+        if (rate >= 1) {
+            return 0;
+        }
+        if (rate <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        double u = 1 - random.nextDouble();
+        return (long) (Math.log(u) / Math.log(1 - rate));
+    }
+
+    /**
+     * the count of wrong bits, that was added
+     * @return - the count of bits
+     */
+    public synchronized long getInjectedBits() {
+        return injectedBits;
+    }
+
+    /**
+     * the count of dropped bytes
+     * @return - the count of bytes
+     */
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /**
+     * the count of duplicated bytes
+     * @return - the count of bytes
+     */
+    public synchronized long getDuplicatedBytes() {
+        return duplicatedBytes;
+    }
+
+    /**
+     * the count of inserted random bytes
+     * @return - the count of bytes
+     */
+    public synchronized long getInsertedBytes() {
+        return insertedBytes;
+    }
+}
@@ -0,0 +1,242 @@
+package com;
+
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bridge between segments of line, every segment is connected to own port of bridge.
+ * Frames with numeric addresses are taken from line, their CRC is checked and they are sent
+ * on the port of destination from RoutingTable. Payload is not decoded, it is sent with the same coding,
+ * so the cost of hop doesn't depend on coding of peers.
+ * Learning bridge adds source of every frame as address on the port, where frame came from.
+ * Frames for unknown addresses and broadcast are sent on all other ports,
+ * frames for groups are sent on ports of members of group (or on all ports, if group is unknown).
+ * Segments must not make loop. Bridge takes the listener of every port.
+ */
+public final class FrameBridge {
+    private final RoutingTable table = new RoutingTable();
+    private final List<Segment> segments = new CopyOnWriteArrayList<Segment>();
+    private final boolean learning;
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong flooded = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * creating learning bridge
+     */
+    public FrameBridge() {
+        this(true);
+    }
+
+    /**
+     * creating bridge
+     * @param learning - are sources of frames added into routing table
+     */
+    public FrameBridge(boolean learning) {
+        this.learning = learning;
+    }
+
+    /**
+     * connecting opened port to bridge
+     * @param port - the port of segment
+     */
+    public void addPort(AbstractSerial port) {
+        final Segment segment = new Segment(port);
+        segments.add(segment);
+        port.addListener(new SerialPortEventListener() {
+            public void serialEvent(SerialPortEvent event) {
+                if (!closed && event.isRXCHAR() && event.getEventValue() > 0) {
+                    segment.receive(event.getEventValue());
+                }
+            }
+        });
+    }
+
+    /**
+     * disconnecting port from bridge, its addresses are removed from routing table
+     * @param port - the port of segment
+     */
+    public void removePort(AbstractSerial port) {
+        for (Segment segment : segments) {
+            if (segment.port == port) {
+                segments.remove(segment);
+                segment.removed = true;
+            }
+        }
+        table.removePort(port);
+    }
+
+    /**
+     * getting routing table, addresses and groups can be added there manually
+     * @return - the table
+     */
+    public RoutingTable getRoutingTable() {
+        return table;
+    }
+
+    /**
+     * sending frame from segment
+     * @param from - the segment, where frame came from
+     * @param frame - the received frame
+     */
+    private void forward(Segment from, HdlcFrame frame) {
+        int to = frame.getAddress();
+        int source = frame.getSource();
+        if (to == LinkAddress.NONE || source == LinkAddress.NONE) {
+            // names of ports can't be routed
+            dropped.incrementAndGet();
+            return;
+        }
+        if (learning && !LinkAddress.isGroup(source)) {
+            table.put(source, from.port);
+        }
+        if (LinkAddress.isGroup(to)) {
+            AbstractSerial[] members = to == LinkAddress.BROADCAST ? null : table.getMembers(to);
+            if (members == null) {
+                flood(from, frame);
+                return;
+            }
+            forwarded.incrementAndGet();
+            from.encode(frame);
+            for (AbstractSerial member : members) {
+                if (member != from.port) {
+                    from.sendTo(member);
+                }
+            }
+            return;
+        }
+        AbstractSerial port = table.get(to);
+        if (port == null) {
+            flood(from, frame);
+        }
+        else if (port == from.port) {
+            // destination is on the same segment, it has got frame already
+            filtered.incrementAndGet();
+        }
+        else {
+            forwarded.incrementAndGet();
+            from.encode(frame);
+            from.sendTo(port);
+        }
+    }
+
+    /**
+     * sending frame on all ports except the port, where it came from
+     * @param from - the segment, where frame came from
+     * @param frame - the received frame
+     */
+    private void flood(Segment from, HdlcFrame frame) {
+        flooded.incrementAndGet();
+        from.encode(frame);
+        for (Segment segment : segments) {
+            if (segment != from) {
+                from.sendTo(segment.port);
+            }
+        }
+    }
+
+    /**
+     * the count of frames, that was sent to known port or group
+     * @return - the count of frames
+     */
+    public long getForwarded() {
+        return forwarded.get();
+    }
+
+    /**
+     * the count of frames, that was sent on all ports (unknown address or broadcast)
+     * @return - the count of frames
+     */
+    public long getFlooded() {
+        return flooded.get();
+    }
+
+    /**
+     * the count of frames, that was not sent, because destination is on the segment of sender
+     * @return - the count of frames
+     */
+    public long getFiltered() {
+        return filtered.get();
+    }
+
+    /**
+     * the count of right frames without numeric addresses
+     * @return - the count of frames
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * stopping forwarding, ports are not closed
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Port of bridge with its deframer and buffer for frames, it is used only by the thread of port
+     */
+    private final class Segment implements HdlcFrame.FrameListener {
+        private final AbstractSerial port;
+        private final HdlcDeframer deframer = new HdlcDeframer(this);
+        private final HdlcFramer framer = new HdlcFramer();
+        private final BufferPool pool = BufferPool.getDefault();
+        private final byte[] address = new byte[LinkAddress.LENGTH];
+        private final byte[] source = new byte[LinkAddress.LENGTH];
+        private byte[] out;
+        private int outLength;
+        private volatile boolean removed;
+
+        Segment(AbstractSerial port) {
+            this.port = port;
+        }
+
+        /**
+         * reading bytes from line and giving them to deframer
+         * @param count - the count of bytes in port
+         */
+        void receive(int count) {
+            byte[] bytes = port.readUndecoded(count);
+            if (bytes == null || removed) {
+                return;
+            }
+            long bad = deframer.getBadFrames() + deframer.getAbortedFrames();
+            deframer.feed(bytes, 0, bytes.length);
+            port.getMetrics().badFrames(deframer.getBadFrames() + deframer.getAbortedFrames() - bad);
+        }
+
+        public void frameReceived(HdlcFrame frame) {
+            port.getMetrics().frameReceived();
+            forward(this, frame);
+        }
+
+        /**
+         * building frame for line again with the same fields
+         * @param frame - the received frame
+         */
+        void encode(HdlcFrame frame) {
+            byte[] buffer = frame.getBuffer();
+            System.arraycopy(buffer, frame.getAddressOffset(), address, 0, LinkAddress.LENGTH);
+            System.arraycopy(buffer, frame.getSourceOffset(), source, 0, LinkAddress.LENGTH);
+            out = pool.grow(out, HdlcFramer.maxFrameLength(LinkAddress.LENGTH, LinkAddress.LENGTH,
+                    frame.getPayloadLength()), 0);
+            outLength = framer.encode(address, source, buffer, frame.getPayloadOffset(), frame.getPayloadLength(),
+                    out, 0);
+        }
+
+        /**
+         * writing the last built frame
+         * @param port - the port for sending
+         */
+        void sendTo(AbstractSerial port) {
+            port.writeUndecoded(out, 0, outLength);
+        }
+    }
+}
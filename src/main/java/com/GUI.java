@@ -1,8 +1,6 @@
 package com;
 
 import jssc.SerialPort;
-import jssc.SerialPortEvent;
-import jssc.SerialPortEventListener;
 import jssc.SerialPortList;
 
 import javax.swing.*;
@@ -11,8 +9,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
-
-import static java.lang.Thread.sleep;
+import java.util.function.BiConsumer;
 
 public class GUI {
 
@@ -23,15 +20,31 @@ public class GUI {
     private static JButton refreshButton;
     private static JTextArea textField;
     private static Serial serialPort;
+    private static PortManager portManager;
     private static JComboBox<String> speedBox;
     private static JComboBox<String> portsBox;
     private static JComboBox<String> codingsBox;
+    private static String portCoding;
+    private static JTextArea consoleArea;
+    private static JLabel statsLabel;
+    private static final ReceiveConsole console = new ReceiveConsole();
+    private static final int FRAME_MILLIS = 100;
+    /** the bit, that is wrong in every Hemming block for demonstration of repairing */
+    private static final int DEMO_HEMMING_ERROR = 5;
+    /** the label of CRC-3 on 1-byte blocks, its codeword is too long for repairing, so it only finds errors */
+    private static final String CRC_DETECT = "CRC (detects only)";
+    private static final int STATS_FRAMES = 10;
+    private static int frames;
+    private static long lastBytes;
+    private static long lastStatsTime;
+    private static long lastShownReceived;
 
 
     /**
      * init GUI elements and Listeners
      */
     public void init() {
+        portManager = new PortManager(new PortReader());
         responseLabel = new JLabel("Response: ");
         infoLabel = new JLabel("Info: ");
         sendButton = new JButton("SEND");
@@ -39,17 +52,21 @@ public class GUI {
         refreshButton = new JButton("refresh");
         textField = new JTextArea();
         textField.setLineWrap(true);
+        consoleArea = new JTextArea();
+        consoleArea.setEditable(false);
+        statsLabel = new JLabel("Stats: ");
 
         JFrame frame = new JFrame("hello");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(400, 200);
+        frame.setSize(500, 400);
 
 
 
         String[] ports = SerialPortList.getPortNames();
         JPanel allPanel = new JPanel();
 
-        String[] codings = {"Hemming", "CRC"};
+        String[] codings = {HammingCodec.NAME, CRC_DETECT, "CRC-8", "CRC-16", "CRC-32", "RS(255,223)", "RS(32,24)",
+                AdaptiveCoding.NAME};
         codingsBox = new JComboBox<String>(codings);
 
         allPanel.setLayout(new BorderLayout());
@@ -67,7 +84,7 @@ public class GUI {
         allPanel.add(speedBox, BorderLayout.EAST);
 
         JPanel southPanel = new JPanel();
-        southPanel.setLayout(new GridLayout(2,1));
+        southPanel.setLayout(new GridLayout(3,1));
 
         JPanel downPanel = new JPanel();
         downPanel.setLayout(new GridLayout(1,3));
@@ -78,8 +95,14 @@ public class GUI {
 
         southPanel.add(downPanel);
         southPanel.add(infoLabel);
+        southPanel.add(statsLabel);
+
+        JPanel centerPanel = new JPanel();
+        centerPanel.setLayout(new GridLayout(2,1));
+        centerPanel.add(textField);
+        centerPanel.add(new JScrollPane(consoleArea));
 
-        allPanel.add(textField, BorderLayout.CENTER);
+        allPanel.add(centerPanel, BorderLayout.CENTER);
         allPanel.add(southPanel, BorderLayout.SOUTH);
         allPanel.add(responseLabel, BorderLayout.NORTH);
 
@@ -90,6 +113,13 @@ public class GUI {
             sendButton.setEnabled(false);
         }
 
+        // received text is shown not more often than every FRAME_MILLIS, whatever the speed of port
+        new Timer(FRAME_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                refreshConsole();
+            }
+        }).start();
+
         sendButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 sendActionPerformed();
@@ -110,22 +140,50 @@ public class GUI {
 
     }
 
-    private static class PortReader implements SerialPortEventListener {
+    private static class PortReader implements PortManager.PortListener {
         /**
-         * Listener for reading from SerialPort how fast, such information was write
-         * @param event - the event of writing
+         * Listener for decoded messages, it is called from worker of PortManager,
+         * message is only added into console, Swing takes it by timer
+         * @param port - the port of message
+         * @param message - the decoded bytes
+         * @param length - the count of bytes
          */
-        public void serialEvent(SerialPortEvent event) {
-            if(event.isRXCHAR() && event.getEventValue() > 0) {
-                byte[] readBytes = serialPort.read(event.getEventValue(), codingsBox.getSelectedItem().toString().equals("Hemming"));
-                if (readBytes != null) {
-                    String result = new String(readBytes);
-                    responseLabel.setText(responseLabel.getText() + result);
-                    Calendar calendar = new GregorianCalendar();
-                    infoLabel.setText("Info: " + Long.toString(calendar.getTimeInMillis()) + " - reading");
-                }
-            }
+        public void messageReceived(AbstractSerial port, byte[] message, int length) {
+            console.append(message, length);
+        }
+    }
+
+    /**
+     * showing new received text and counters, it is called by timer in the thread of Swing
+     */
+    private void refreshConsole() {
+        if (console.takeChanges()) {
+            consoleArea.setText(console.getText());
+            consoleArea.setCaretPosition(consoleArea.getDocument().getLength());
+        }
+        long last = console.getLastReceived();
+        if (last != lastShownReceived) {
+            lastShownReceived = last;
+            infoLabel.setText("Info: " + Long.toString(last) + " - reading");
         }
+        if (++frames < STATS_FRAMES) {
+            return;
+        }
+        frames = 0;
+        long now = System.currentTimeMillis();
+        long bytes = console.getReceivedBytes();
+        double speed = lastStatsTime == 0 ? 0 : (bytes - lastBytes) * 1000.0 / (now - lastStatsTime);
+        lastBytes = bytes;
+        lastStatsTime = now;
+        StringBuilder stats = new StringBuilder("Stats: ");
+        stats.append(String.format("%.0f B/s, %d messages", speed, console.getMessages()));
+        Serial port = serialPort;
+        if (port != null) {
+            LinkMetrics metrics = port.getMetrics();
+            stats.append(String.format(", repaired %d bits, lost %d blocks, bad %d frames",
+                    metrics.getCorrectedBits(), metrics.getUncorrectableBlocks(), metrics.getBadFrames()));
+        }
+        statsLabel.setText(stats.toString());
     }
 
     /**
@@ -147,42 +205,31 @@ public class GUI {
     }
 
     /**
-     * send text of textArea to COM port
+     * send text of textArea to COM port, the port is connected only if it isn't open yet
+     * (reconnecting would close the queue with the previous messages, which are still being written),
+     * the coding, that was selected after connecting, is given to the open port
      */
     private void sendActionPerformed() {
-        connectActionPerformed();
-        String text = textField.getText();
-        int  i;
-        if (codingsBox.getSelectedItem().toString().equals("Hemming")) {
-            for (i = 0; i < text.length() - 2; ) {
-                StringBuilder builder = new StringBuilder();
-                builder.append(text.charAt(i));
-                i++;
-                builder.append(text.charAt(i));
-                i++;
-                try {
-                    sleep(20);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                serialPort.write(builder.toString().getBytes(), true);
-            }
-            if (i + 1 >= text.length()) {
-                serialPort.write((text.substring(i) + " ").getBytes(), true);
-            } else {
-                serialPort.write(text.substring(i).getBytes(), codingsBox.getSelectedItem().toString().equals("Hemming"));
-            }
+        if (serialPort == null || portManager.getPort(serialPort.getPortName()) == null) {
+            connectActionPerformed();
         }
-        else {
-            for (i = 0; i < text.length(); i++) {
-                try {
-                    sleep(20);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                serialPort.write(String.valueOf(text.charAt(i)).getBytes(), false);
-            }
+        else if (!selectedCodingName().equals(portCoding)) {
+            portCoding = selectedCodingName();
+            portManager.setCoding(serialPort.getPortName(), selectedCoding());
         }
+        String text = textField.getText();
+        portManager.send(serialPort.getPortName(), text.getBytes())
+                .whenComplete(new BiConsumer<Boolean, Throwable>() {
+                    public void accept(final Boolean sent, Throwable ex) {
+                        SwingUtilities.invokeLater(new Runnable() {
+                            public void run() {
+                                Calendar calendar = new GregorianCalendar();
+                                infoLog(Long.toString(calendar.getTimeInMillis())
+                                        + (Boolean.TRUE.equals(sent) ? " - sent" : " - can't send"));
+                            }
+                        });
+                    }
+                });
         Calendar calendar = new GregorianCalendar();
         infoLog(Long.toString(calendar.getTimeInMillis()) + " - sending");
     }
@@ -192,19 +239,21 @@ public class GUI {
      */
     private void connectActionPerformed() {
         if (serialPort != null) {
-            serialPort.close();
+            portManager.close(serialPort.getPortName());
         }
 
         serialPort = new Serial(portsBox.getSelectedItem().toString());
-        boolean flag = serialPort.open();
-        serialPort.setParams(Integer.valueOf(speedBox.getSelectedItem().toString()),
-                SerialPort.DATABITS_8,
-                SerialPort.STOPBITS_1,
-                SerialPort.PARITY_NONE);
+        serialPort.setHemmingError(DEMO_HEMMING_ERROR);
         //serialPort.setFlowControl(SerialPort.FLOWCONTROL_RTSCTS_IN |
         //        SerialPort.FLOWCONTROL_RTSCTS_OUT);
 
-        serialPort.addListener(new PortReader());
+        portCoding = selectedCodingName();
+        Coding coding = selectedCoding();
+        boolean flag = portManager.open(serialPort, Integer.valueOf(speedBox.getSelectedItem().toString()),
+                SerialPort.DATABITS_8,
+                SerialPort.STOPBITS_1,
+                SerialPort.PARITY_NONE,
+                coding);
         if (flag) {
             infoLog("was connected");
             responseLabel.setBackground(Color.GREEN);
@@ -217,6 +266,24 @@ public class GUI {
         }
     }
 
+    /**
+     * the name of coding, that is selected in box
+     * @return - the name for Coding.forName
+     */
+    private String selectedCodingName() {
+        String name = codingsBox.getSelectedItem().toString();
+        return name.equals(CRC_DETECT) ? "CRC" : name;
+    }
+
+    /**
+     * making new coding, that is selected in box, for the current port
+     * @return - the coding
+     */
+    private Coding selectedCoding() {
+        String name = selectedCodingName();
+        return name.equals(AdaptiveCoding.NAME) ? new AdaptiveCoding(serialPort) : Coding.forName(name);
+    }
+
     /**
      * logging message to information label on GUI and console
      * @param message - the message for logging
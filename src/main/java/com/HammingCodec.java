@@ -0,0 +1,395 @@
+package com;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Table-driven Hamming(21,16) codec working on packed bits.
+ * Every block of 2 data bytes is coded into 3 bytes: 21 bits of Hamming code
+ * (parity bits on positions 1, 2, 4, 8, 16 like in Serial.hemingCoding)
+ * and 3 spare bits at the end of the block.
+ * Spare bits are '000' for the full block and '111' for the block,
+ * that carries only 1 data byte (the last byte of the payload with odd length),
+ * so payloads of any length can be coded.
+ * The block with '111' and the second data byte 0xFF is filler, that carries no data
+ * (the block of odd byte always has 0 there), it is used by HammingInterleaver.
+ */
+public final class HammingCodec implements Coding {
+    /** the name of coding */
+    public static final String NAME = "Hemming";
+    /** the count of data bytes in one block */
+    public static final int DATA_SIZE = 2;
+    /** the count of bytes in one coded block */
+    public static final int BLOCK_SIZE = 3;
+
+    /** the count of bits of Hamming code in block, the spare bits after them are not protected */
+    public static final int CODE_BITS = 21;
+    private static final int WORD_BITS = 24;
+    private static final int SPARE_MASK = 0x7;
+
+    private static final int[] ENCODE_HI = new int[256];
+    private static final int[] ENCODE_LO = new int[256];
+    private static final int[][] SYNDROME = new int[BLOCK_SIZE][256];
+    private static final int[][] GATHER = new int[BLOCK_SIZE][256];
+    private static final int[] CORRECTION = new int[32];
+
+    /** the filler block as 24 bits word, it is decoded into nothing */
+    static final int FILLER;
+
+    /**
+     * PARITY_MASKS[k] - bits of 24 bits word on positions with bit k,
+     * bit k of syndrome is parity of word and PARITY_MASKS[k]
+     */
+    static final int[] PARITY_MASKS = new int[5];
+
+    /** the min count of blocks, that are decoded with ParityKernel */
+    private static final int KERNEL_MIN_BLOCKS = 16;
+    /** the count of blocks in one call of ParityKernel */
+    private static final int KERNEL_BATCH = 256;
+
+    static {
+        int[] dataPositions = new int[16];
+        int j = 0;
+        for (int p = 1; p <= CODE_BITS; p++) {
+            if ((p & (p - 1)) != 0) {
+                dataPositions[j++] = p;
+            }
+        }
+        for (int b = 0; b < 256; b++) {
+            ENCODE_HI[b] = encodeBits(b << 8, dataPositions);
+            ENCODE_LO[b] = encodeBits(b, dataPositions);
+        }
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            for (int b = 0; b < 256; b++) {
+                int syndrome = 0;
+                int data = 0;
+                for (int bit = 0; bit < Byte.SIZE; bit++) {
+                    if ((b & (0x80 >>> bit)) != 0) {
+                        int p = i * Byte.SIZE + bit + 1;
+                        if (p <= CODE_BITS) {
+                            syndrome ^= p;
+                            for (int k = 0; k < dataPositions.length; k++) {
+                                if (dataPositions[k] == p) {
+                                    data |= 0x8000 >>> k;
+                                }
+                            }
+                        }
+                    }
+                }
+                SYNDROME[i][b] = syndrome;
+                GATHER[i][b] = data;
+            }
+        }
+        for (int s = 1; s <= CODE_BITS; s++) {
+            CORRECTION[s] = 1 << (WORD_BITS - s);
+        }
+        FILLER = ENCODE_HI[0] ^ ENCODE_LO[0xff] | SPARE_MASK;
+        for (int p = 1; p <= CODE_BITS; p++) {
+            for (int k = 0; k < PARITY_MASKS.length; k++) {
+                if ((p >>> k & 1) != 0) {
+                    PARITY_MASKS[k] |= 1 << (WORD_BITS - p);
+                }
+            }
+        }
+    }
+
+    private long correctedBits;
+    private long uncorrectableBlocks;
+    // coding and decoding can run in different threads, so every direction has own scratch arrays
+    private final Buffers encodeBuffers = new Buffers();
+    private final Buffers decodeBuffers = new Buffers();
+    private final ParityKernel kernel;
+    private int[] words;
+    private int[] syndromes;
+
+    /**
+     * creating codec with syndromes from tables
+     */
+    public HammingCodec() {
+        this(null);
+    }
+
+    /**
+     * creating codec, that computes syndromes of long inputs by batches with kernel
+     * @param kernel - the kernel for syndromes (null - tables for every block), see ParityKernels.best()
+     */
+    public HammingCodec(ParityKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * getting syndrome of 24 bits word with tables
+     * @param word - the coded block
+     * @return - the syndrome (0 - no errors, otherwise the position of wrong bit)
+     */
+    static int syndrome(int word) {
+        return SYNDROME[0][word >>> 16 & 0xff] ^ SYNDROME[1][word >>> 8 & 0xff] ^ SYNDROME[2][word & 0xff];
+    }
+
+    /**
+     * building 24 bits word with data bits and parity bits
+     * @param data - 16 bits of data
+     * @param dataPositions - the positions of data bits in code
+     * @return - the coded word
+     */
+    private static int encodeBits(int data, int[] dataPositions) {
+        int word = 0;
+        int syndrome = 0;
+        for (int k = 0; k < dataPositions.length; k++) {
+            if ((data & (0x8000 >>> k)) != 0) {
+                word |= 1 << (WORD_BITS - dataPositions[k]);
+                syndrome ^= dataPositions[k];
+            }
+        }
+        for (int pow = 1; pow <= CODE_BITS; pow <<= 1) {
+            if ((syndrome & pow) != 0) {
+                word |= 1 << (WORD_BITS - pow);
+            }
+        }
+        return word;
+    }
+
+    /**
+     * getting the count of coded bytes for payload
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    public static int encodedLength(int length) {
+        return (length + DATA_SIZE - 1) / DATA_SIZE * BLOCK_SIZE;
+    }
+
+    /**
+     * getting the max count of decoded bytes for coded bytes
+     * @param length - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    public static int decodedLength(int length) {
+        return length / BLOCK_SIZE * DATA_SIZE;
+    }
+
+    /**
+     * the name of coding
+     * @return - Hemming
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * the count of bytes of one block
+     * @return - BLOCK_SIZE
+     */
+    public int blockLength() {
+        return BLOCK_SIZE;
+    }
+
+    /**
+     * getting the count of coded bytes for payload
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    public int codedLength(int length) {
+        return encodedLength(length);
+    }
+
+    /**
+     * getting the max count of decoded bytes for coded bytes
+     * @param codedLength - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    public int payloadLength(int codedLength) {
+        return decodedLength(codedLength);
+    }
+
+    /**
+     * coding payload of any length
+     * @param raw - raw bytes
+     * @return - the coded bytes
+     */
+    public byte[] encode(byte[] raw) {
+        byte[] out = new byte[encodedLength(raw.length)];
+        encode(raw, 0, raw.length, out, 0);
+        return out;
+    }
+
+    /**
+     * coding payload into buffer of caller
+     * @param src - raw bytes
+     * @param off - the offset of payload in src
+     * @param len - the length of payload
+     * @param dst - the buffer for coded bytes (encodedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int end = off + len;
+        int d = dstOff;
+        int i = off;
+        for (; i + 1 < end; i += DATA_SIZE) {
+            int word = ENCODE_HI[src[i] & 0xff] ^ ENCODE_LO[src[i + 1] & 0xff];
+            dst[d] = (byte) (word >>> 16);
+            dst[d + 1] = (byte) (word >>> 8);
+            dst[d + 2] = (byte) word;
+            d += BLOCK_SIZE;
+        }
+        if (i < end) {
+            int word = ENCODE_HI[src[i] & 0xff] | SPARE_MASK;
+            dst[d] = (byte) (word >>> 16);
+            dst[d + 1] = (byte) (word >>> 8);
+            dst[d + 2] = (byte) word;
+            d += BLOCK_SIZE;
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * coding bytes from position to limit of src into dst
+     * if dst has not enough place, only so many full blocks are coded, as there is place for
+     * @param src - the raw bytes (heap or direct), the position is moved over consumed bytes
+     * @param dst - the buffer for coded bytes, the position is moved over produced bytes
+     * @return - the count of produced bytes
+     */
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        int len = src.remaining();
+        if (encodedLength(len) > dst.remaining()) {
+            len = dst.remaining() / BLOCK_SIZE * DATA_SIZE;
+        }
+        byte[] in = encodeBuffers.input(src, len);
+        byte[] out = encodeBuffers.output(dst, encodedLength(len));
+        int produced = encode(in, Buffers.inputOffset(src), len, out, Buffers.outputOffset(dst));
+        encodeBuffers.finish(src, len, dst, produced);
+        return produced;
+    }
+
+    /**
+     * decoding all full blocks of coded bytes with repairing of one bit in every block
+     * @param coded - coded bytes
+     * @return - the decoded bytes
+     */
+    public byte[] decode(byte[] coded) {
+        byte[] out = new byte[decodedLength(coded.length)];
+        int count = decode(coded, 0, coded.length, out, 0);
+        if (count == out.length) {
+            return out;
+        }
+        byte[] res = new byte[count];
+        System.arraycopy(out, 0, res, 0, count);
+        return res;
+    }
+
+    /**
+     * decoding full blocks of coded bytes into buffer of caller
+     * bytes of the last not full block are ignored
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (decodedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    public int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        if (kernel != null && len / BLOCK_SIZE >= KERNEL_MIN_BLOCKS) {
+            return decodeWithKernel(src, off, len, dst, dstOff);
+        }
+        int end = off + len - BLOCK_SIZE;
+        int d = dstOff;
+        for (int i = off; i <= end; i += BLOCK_SIZE) {
+            int b0 = src[i] & 0xff;
+            int b1 = src[i + 1] & 0xff;
+            int b2 = src[i + 2] & 0xff;
+            d = decodeBlock(b0 << 16 | b1 << 8 | b2, SYNDROME[0][b0] ^ SYNDROME[1][b1] ^ SYNDROME[2][b2], dst, d);
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * decoding full blocks with syndromes, that are computed by kernel for batches of blocks
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (decodedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    private int decodeWithKernel(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        if (words == null) {
+            words = new int[KERNEL_BATCH];
+            syndromes = new int[KERNEL_BATCH];
+        }
+        int blocks = len / BLOCK_SIZE;
+        int d = dstOff;
+        for (int first = 0; first < blocks; first += KERNEL_BATCH) {
+            int count = Math.min(KERNEL_BATCH, blocks - first);
+            for (int j = 0, i = off + first * BLOCK_SIZE; j < count; j++, i += BLOCK_SIZE) {
+                words[j] = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+            }
+            kernel.syndromes(words, count, syndromes);
+            for (int j = 0; j < count; j++) {
+                d = decodeBlock(words[j], syndromes[j], dst, d);
+            }
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * repairing one block and putting its data bytes into dst
+     * @param word - the coded block as 24 bits word
+     * @param syndrome - the syndrome of block
+     * @param dst - the buffer for decoded bytes
+     * @param d - the position in dst
+     * @return - the position after decoded bytes
+     */
+    private int decodeBlock(int word, int syndrome, byte[] dst, int d) {
+        if (syndrome != 0) {
+            int mask = CORRECTION[syndrome];
+            if (mask != 0) {
+                word ^= mask;
+                correctedBits++;
+            }
+            else {
+                uncorrectableBlocks++;
+            }
+        }
+        int b2 = word & 0xff;
+        int data = GATHER[0][word >>> 16] | GATHER[1][word >>> 8 & 0xff] | GATHER[2][b2];
+        if (Integer.bitCount(b2 & SPARE_MASK) < 2) {
+            dst[d++] = (byte) (data >>> 8);
+            dst[d++] = (byte) data;
+        }
+        else if ((data & 0xff) != 0xff) {
+            dst[d++] = (byte) (data >>> 8);
+        }
+        return d;
+    }
+
+    /**
+     * decoding full blocks from position to limit of src into dst
+     * bytes of not full block and blocks, that don't fit into dst, are left in src
+     * @param src - the coded bytes (heap or direct), the position is moved over consumed bytes
+     * @param dst - the buffer for decoded bytes, the position is moved over produced bytes
+     * @return - the count of produced bytes
+     */
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        int len = Math.min(src.remaining() / BLOCK_SIZE, dst.remaining() / DATA_SIZE) * BLOCK_SIZE;
+        byte[] in = decodeBuffers.input(src, len);
+        byte[] out = decodeBuffers.output(dst, decodedLength(len));
+        int produced = decode(in, Buffers.inputOffset(src), len, out, Buffers.outputOffset(dst));
+        decodeBuffers.finish(src, len, dst, produced);
+        return produced;
+    }
+
+    /**
+     * the count of bits, that was repaired by this codec
+     * @return - the count of repaired bits
+     */
+    public long getCorrectedBits() {
+        return correctedBits;
+    }
+
+    /**
+     * the count of blocks with errors, that can't be repaired
+     * @return - the count of broken blocks
+     */
+    public long getUncorrectableBlocks() {
+        return uncorrectableBlocks;
+    }
+}
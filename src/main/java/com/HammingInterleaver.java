@@ -0,0 +1,133 @@
+package com;
+
+/**
+ * Bit interleaver for blocks of HammingCodec.
+ * Blocks are taken by groups of depth blocks, and bits of group are sent by columns:
+ * the first bit of every block, then the second bit of every block and so on.
+ * So the burst of not more than depth wrong bits on line gives not more than one wrong bit
+ * in every block, and Hamming code repairs all of them.
+ *
+ * Every message is finished with filler blocks up to the full group (they are skipped by decoder),
+ * so nothing waits for the next message and delay is not more than one group of depth blocks.
+ * Interleaver keeps the group between calls, so sending and receiving need different interleavers.
+ */
+public final class HammingInterleaver {
+    /** the max depth of interleaving */
+    public static final int MAX_DEPTH = 64;
+
+    private static final int WORD_BITS = HammingCodec.BLOCK_SIZE * Byte.SIZE;
+
+    private final int depth;
+    private final int[] words;
+
+    /**
+     * creating interleaver
+     * @param depth - the count of blocks in group (the max length of burst, that is repaired)
+     */
+    public HammingInterleaver(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth out of range: " + depth);
+        }
+        this.depth = depth;
+        this.words = new int[depth];
+    }
+
+    /**
+     * the count of blocks in group
+     * @return - the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * the count of bytes of one group on line
+     * @return - the length of group
+     */
+    public int groupLength() {
+        return depth * HammingCodec.BLOCK_SIZE;
+    }
+
+    /**
+     * getting the count of bytes on line for coded bytes
+     * @param codedLength - the count of bytes from HammingCodec
+     * @return - the length with filler blocks of the last group
+     */
+    public int interleavedLength(int codedLength) {
+        int blocks = codedLength / HammingCodec.BLOCK_SIZE;
+        return (blocks + depth - 1) / depth * groupLength();
+    }
+
+    /**
+     * mixing bits of coded blocks, the last group is finished with filler blocks
+     * @param src - the coded bytes from HammingCodec
+     * @param off - the offset of bytes
+     * @param len - the count of bytes (full blocks)
+     * @param dst - the buffer for bytes for line (interleavedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of bytes in dst
+     */
+    public int interleave(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int blocks = len / HammingCodec.BLOCK_SIZE;
+        int d = dstOff;
+        for (int first = 0; first < blocks; first += depth) {
+            for (int row = 0; row < depth; row++) {
+                int i = off + (first + row) * HammingCodec.BLOCK_SIZE;
+                words[row] = first + row < blocks
+                        ? (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff)
+                        : HammingCodec.FILLER;
+            }
+            int acc = 0;
+            int bits = 0;
+            for (int column = WORD_BITS - 1; column >= 0; column--) {
+                for (int row = 0; row < depth; row++) {
+                    acc = acc << 1 | (words[row] >>> column & 1);
+                    if (++bits == Byte.SIZE) {
+                        dst[d++] = (byte) acc;
+                        acc = 0;
+                        bits = 0;
+                    }
+                }
+            }
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * getting coded blocks back from bytes of line
+     * @param src - the bytes from line
+     * @param off - the offset of bytes
+     * @param len - the count of bytes (full groups)
+     * @param dst - the buffer for coded blocks (len bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of bytes in dst
+     */
+    public int deinterleave(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int groups = len / groupLength();
+        int d = dstOff;
+        int s = off;
+        for (int g = 0; g < groups; g++) {
+            for (int row = 0; row < depth; row++) {
+                words[row] = 0;
+            }
+            int bits = 0;
+            int b = 0;
+            for (int column = 0; column < WORD_BITS; column++) {
+                for (int row = 0; row < depth; row++) {
+                    if (bits == 0) {
+                        b = src[s++] & 0xff;
+                        bits = Byte.SIZE;
+                    }
+                    bits--;
+                    words[row] = words[row] << 1 | (b >>> bits & 1);
+                }
+            }
+            for (int row = 0; row < depth; row++) {
+                dst[d++] = (byte) (words[row] >>> 16);
+                dst[d++] = (byte) (words[row] >>> 8);
+                dst[d++] = (byte) words[row];
+            }
+        }
+        return d - dstOff;
+    }
+}
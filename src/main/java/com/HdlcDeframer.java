@@ -0,0 +1,234 @@
+package com;
+
+/**
+ * Incremental receiver of frames from HdlcFramer.
+ * Bytes from line can be given in chunks of any size, flags are found between calls.
+ * Bit unstuffing is done byte by byte with the table of states,
+ * bits are processed one by one only in bytes with flag or abort (six '1' bits).
+ */
+public final class HdlcDeframer {
+    /** the default max length of frame body */
+    public static final int DEFAULT_MAX_FRAME = 65536;
+
+    private static final int SPECIAL = 1 << 16;
+    private static final int MIN_BODY = 2 + HdlcFramer.FCS_SIZE;
+
+    /**
+     * UNSTUFF[ones][byte] - bits of byte without stuffed '0', when ones '1' bits were before it
+     * bits 0..7 - data bits, bits 8..11 - count of bits, bits 12..14 - count of '1' after byte,
+     * bit 16 - sixth '1' was found in byte (flag or abort)
+     */
+    private static final int[][] UNSTUFF = new int[6][256];
+
+    static {
+        for (int ones = 0; ones < 6; ones++) {
+            for (int b = 0; b < 256; b++) {
+                int out = 0;
+                int count = 0;
+                int state = ones;
+                boolean special = false;
+                for (int bit = 7; bit >= 0 && !special; bit--) {
+                    if ((b >>> bit & 1) == 1) {
+                        state++;
+                        if (state == 6) {
+                            special = true;
+                        }
+                        else {
+                            out = out << 1 | 1;
+                            count++;
+                        }
+                    }
+                    else {
+                        if (state != 5) {
+                            out <<= 1;
+                            count++;
+                        }
+                        state = 0;
+                    }
+                }
+                UNSTUFF[ones][b] = special ? SPECIAL : out | count << 8 | state << 12;
+            }
+        }
+    }
+
+    private final HdlcFrame.FrameListener listener;
+    private final HdlcFrame frame = new HdlcFrame();
+    private final int maxFrame;
+    private final BufferPool pool = BufferPool.getDefault();
+    private byte[] buffer;
+    private int length;
+    private int acc;
+    private int accBits;
+    private int ones;
+    private boolean inFrame;
+    private long frames;
+    private long badFrames;
+    private long abortedFrames;
+
+    /**
+     * creating deframer
+     * @param listener - the listener of received frames
+     */
+    public HdlcDeframer(HdlcFrame.FrameListener listener) {
+        this(listener, DEFAULT_MAX_FRAME);
+    }
+
+    /**
+     * creating deframer
+     * @param listener - the listener of received frames
+     * @param maxFrame - the max length of frame body, longer frames are dropped
+     */
+    public HdlcDeframer(HdlcFrame.FrameListener listener, int maxFrame) {
+        this.listener = listener;
+        this.maxFrame = maxFrame;
+        this.buffer = pool.acquire(Math.min(maxFrame, 256) + 1);
+    }
+
+    /**
+     * giving bytes from line to deframer
+     * @param bytes - the bytes from line
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     */
+    public void feed(byte[] bytes, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            int b = bytes[i] & 0xff;
+            if (ones < 6) {
+                int t = UNSTUFF[ones][b];
+                if ((t & SPECIAL) == 0) {
+                    ones = t >>> 12;
+                    if (inFrame) {
+                        putBits(t & 0xff, t >>> 8 & 0xf);
+                    }
+                    continue;
+                }
+            }
+            feedBits(b);
+        }
+    }
+
+    /**
+     * processing byte bit by bit
+     * @param b - the byte
+     */
+    private void feedBits(int b) {
+        for (int bit = 7; bit >= 0; bit--) {
+            if ((b >>> bit & 1) == 1) {
+                if (ones < 7) {
+                    ones++;
+                }
+                if (ones < 6) {
+                    if (inFrame) {
+                        putBits(1, 1);
+                    }
+                }
+                else if (ones == 7 && inFrame) {
+                    inFrame = false;
+                    // '1' bits after closing flag are padding of byte or idle line, not abort of frame
+                    if (length * Byte.SIZE + accBits - 5 >= Byte.SIZE) {
+                        abortedFrames++;
+                    }
+                }
+            }
+            else {
+                if (ones == 6) {
+                    if (inFrame) {
+                        endFrame();
+                    }
+                    inFrame = true;
+                    length = 0;
+                    accBits = 0;
+                }
+                else if (ones < 5 && inFrame) {
+                    putBits(0, 1);
+                }
+                ones = 0;
+            }
+        }
+    }
+
+    /**
+     * adding bits into body of frame
+     * @param bits - the bits (low count bits)
+     * @param count - the count of bits
+     */
+    private void putBits(int bits, int count) {
+        acc = acc << count | bits;
+        accBits += count;
+        if (accBits >= Byte.SIZE) {
+            accBits -= Byte.SIZE;
+            if (length > maxFrame) {
+                inFrame = false;
+                badFrames++;
+                return;
+            }
+            if (length == buffer.length) {
+                buffer = pool.grow(buffer, Math.min(buffer.length * 2, maxFrame + 1), length);
+            }
+            buffer[length++] = (byte) (acc >>> accBits);
+        }
+    }
+
+    /**
+     * checking frame after closing flag and giving it to listener,
+     * bits shorter than byte are padding of the previous frame before the next flag
+     */
+    private void endFrame() {
+        int bits = length * Byte.SIZE + accBits - 6;
+        if (bits < Byte.SIZE) {
+            return;
+        }
+        if (bits % Byte.SIZE != 0 || bits / Byte.SIZE < MIN_BODY) {
+            badFrames++;
+            return;
+        }
+        int n = bits / Byte.SIZE;
+        int fcs = CrcEngine.CRC16_CCITT.compute(buffer, 0, n - HdlcFramer.FCS_SIZE);
+        int received = (buffer[n - 2] & 0xff) << 8 | (buffer[n - 1] & 0xff);
+        int addressLength = buffer[0] & 0xff;
+        int sourceOffset = 1 + addressLength;
+        if (fcs != received || sourceOffset >= n - HdlcFramer.FCS_SIZE) {
+            badFrames++;
+            return;
+        }
+        int sourceLength = buffer[sourceOffset] & 0xff;
+        int payloadOffset = sourceOffset + 1 + sourceLength;
+        if (payloadOffset > n - HdlcFramer.FCS_SIZE) {
+            badFrames++;
+            return;
+        }
+        frame.buffer = buffer;
+        frame.addressOffset = 1;
+        frame.addressLength = addressLength;
+        frame.sourceOffset = sourceOffset + 1;
+        frame.sourceLength = sourceLength;
+        frame.payloadOffset = payloadOffset;
+        frame.payloadLength = n - HdlcFramer.FCS_SIZE - payloadOffset;
+        frames++;
+        listener.frameReceived(frame);
+    }
+
+    /**
+     * the count of right frames
+     * @return - the count of frames
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * the count of frames with wrong CRC, length or format
+     * @return - the count of dropped frames
+     */
+    public long getBadFrames() {
+        return badFrames;
+    }
+
+    /**
+     * the count of frames, that was aborted by seven '1' bits
+     * @return - the count of aborted frames
+     */
+    public long getAbortedFrames() {
+        return abortedFrames;
+    }
+}
@@ -0,0 +1,126 @@
+package com;
+
+/**
+ * Received frame as offsets of fields in the buffer of deframer.
+ * The frame is valid only while FrameListener.frameReceived is running,
+ * fields must be copied for keeping.
+ */
+public final class HdlcFrame {
+    byte[] buffer;
+    int addressOffset;
+    int addressLength;
+    int sourceOffset;
+    int sourceLength;
+    int payloadOffset;
+    int payloadLength;
+
+    /**
+     * the buffer with all fields of frame
+     * @return - the buffer
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * the offset of address in buffer
+     * @return - the offset of address in buffer
+     */
+    public int getAddressOffset() {
+        return addressOffset;
+    }
+
+    /**
+     * the length of address
+     * @return - the length of address
+     */
+    public int getAddressLength() {
+        return addressLength;
+    }
+
+    /**
+     * the offset of source in buffer
+     * @return - the offset of source in buffer
+     */
+    public int getSourceOffset() {
+        return sourceOffset;
+    }
+
+    /**
+     * the length of source
+     * @return - the length of source
+     */
+    public int getSourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * the offset of payload in buffer
+     * @return - the offset of payload in buffer
+     */
+    public int getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    /**
+     * the length of payload
+     * @return - the length of payload
+     */
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * comparing address of frame with bytes without copying
+     * @param address - the bytes of address
+     * @return - is address of frame the same
+     */
+    public boolean isAddressedTo(byte[] address) {
+        if (address.length != addressLength) {
+            return false;
+        }
+        for (int i = 0; i < addressLength; i++) {
+            if (buffer[addressOffset + i] != address[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * getting numeric address of frame
+     * @return - the address or LinkAddress.NONE, if address is not numeric
+     */
+    public int getAddress() {
+        return LinkAddress.fromBytes(buffer, addressOffset, addressLength);
+    }
+
+    /**
+     * getting numeric source of frame
+     * @return - the source or LinkAddress.NONE, if source is not numeric
+     */
+    public int getSource() {
+        return LinkAddress.fromBytes(buffer, sourceOffset, sourceLength);
+    }
+
+    /**
+     * copying payload of frame
+     * @return - the new array with payload
+     */
+    public byte[] copyPayload() {
+        byte[] res = new byte[payloadLength];
+        System.arraycopy(buffer, payloadOffset, res, 0, payloadLength);
+        return res;
+    }
+
+    /**
+     * Listener of frames from deframer
+     */
+    public interface FrameListener {
+        /**
+         * processing of received frame
+         * @param frame - the frame, valid only till the end of method
+         */
+        void frameReceived(HdlcFrame frame);
+    }
+}
@@ -0,0 +1,162 @@
+package com;
+
+/**
+ * Building of HDLC like frames on packed bits.
+ * Frame on line: flag 01111110, bit stuffed body, flag 01111110 and '1' bits till the end of byte.
+ * Body: length of address, address, length of source, source, payload, CRC-16-CCITT of all previous bytes.
+ * Bit stuffing ('0' after every five '1') is done byte by byte with the table of states.
+ */
+public final class HdlcFramer {
+    /** the flag between frames */
+    public static final int FLAG = 0x7E;
+    /** the count of CRC bytes in the end of body */
+    public static final int FCS_SIZE = 2;
+    /** the max length of address and source */
+    public static final int MAX_ADDRESS = 255;
+
+    /**
+     * STUFF[ones][byte] - stuffed bits of byte, when ones '1' bits were before it
+     * bits 0..9 - stuffed bits, bits 16..19 - count of bits, bits 20..23 - count of '1' after byte
+     */
+    private static final int[][] STUFF = new int[5][256];
+
+    static {
+        for (int ones = 0; ones < 5; ones++) {
+            for (int b = 0; b < 256; b++) {
+                int out = 0;
+                int count = 0;
+                int state = ones;
+                for (int bit = 7; bit >= 0; bit--) {
+                    int value = b >>> bit & 1;
+                    out = out << 1 | value;
+                    count++;
+                    if (value == 1) {
+                        state++;
+                        if (state == 5) {
+                            out <<= 1;
+                            count++;
+                            state = 0;
+                        }
+                    }
+                    else {
+                        state = 0;
+                    }
+                }
+                STUFF[ones][b] = out | count << 16 | state << 20;
+            }
+        }
+    }
+
+    private long acc;
+    private int accBits;
+    private int ones;
+    private byte[] dst;
+    private int pos;
+
+    /**
+     * getting max length of frame on line
+     * @param addressLength - the length of address
+     * @param sourceLength - the length of source
+     * @param payloadLength - the length of payload
+     * @return - the max count of bytes of frame
+     */
+    public static int maxFrameLength(int addressLength, int sourceLength, int payloadLength) {
+        int body = 2 + addressLength + sourceLength + payloadLength + FCS_SIZE;
+        return 2 + (body * Byte.SIZE + body * Byte.SIZE / 5 + Byte.SIZE - 1) / Byte.SIZE + 1;
+    }
+
+    /**
+     * building frame
+     * @param address - the address for sending
+     * @param source - the source of sending
+     * @param payload - the payload
+     * @return - the frame for line
+     */
+    public byte[] encode(byte[] address, byte[] source, byte[] payload) {
+        byte[] out = new byte[maxFrameLength(address.length, source.length, payload.length)];
+        int len = encode(address, source, payload, 0, payload.length, out, 0);
+        byte[] res = new byte[len];
+        System.arraycopy(out, 0, res, 0, len);
+        return res;
+    }
+
+    /**
+     * building frame into buffer of caller
+     * @param address - the address for sending
+     * @param source - the source of sending
+     * @param payload - the bytes of payload
+     * @param off - the offset of payload
+     * @param len - the length of payload
+     * @param dst - the buffer for frame (maxFrameLength bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of bytes of frame
+     */
+    public int encode(byte[] address, byte[] source, byte[] payload, int off, int len, byte[] dst, int dstOff) {
+        if (address.length > MAX_ADDRESS || source.length > MAX_ADDRESS) {
+            throw new IllegalArgumentException("address is too long");
+        }
+        this.dst = dst;
+        this.pos = dstOff;
+        acc = 0;
+        accBits = 0;
+        ones = 0;
+        CrcEngine fcs = CrcEngine.CRC16_CCITT;
+        int register = fcs.start();
+        putBits(FLAG, Byte.SIZE);
+        putByte(address.length);
+        putBytes(address, 0, address.length);
+        putByte(source.length);
+        putBytes(source, 0, source.length);
+        putBytes(payload, off, len);
+        register = fcs.update(register, address.length);
+        register = fcs.update(register, address, 0, address.length);
+        register = fcs.update(register, source.length);
+        register = fcs.update(register, source, 0, source.length);
+        register = fcs.update(register, payload, off, len);
+        int crc = fcs.finish(register);
+        putByte(crc >>> 8);
+        putByte(crc);
+        putBits(FLAG, Byte.SIZE);
+        if (accBits > 0) {
+            putBits((1 << (Byte.SIZE - accBits)) - 1, Byte.SIZE - accBits);
+        }
+        this.dst = null;
+        return pos - dstOff;
+    }
+
+    /**
+     * adding bytes with stuffing
+     * @param bytes - the bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     */
+    private void putBytes(byte[] bytes, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            putByte(bytes[i]);
+        }
+    }
+
+    /**
+     * adding byte with stuffing
+     * @param b - the byte
+     */
+    private void putByte(int b) {
+        int stuffed = STUFF[ones][b & 0xff];
+        ones = stuffed >>> 20;
+        putBits(stuffed & 0xffff, stuffed >>> 16 & 0xf);
+    }
+
+    /**
+     * adding bits without stuffing
+     * @param bits - the bits (low count bits)
+     * @param count - the count of bits
+     */
+    private void putBits(int bits, int count) {
+        acc = acc << count | bits;
+        accBits += count;
+        while (accBits >= Byte.SIZE) {
+            accBits -= Byte.SIZE;
+            dst[pos++] = (byte) (acc >>> accBits);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of times with log-linear buckets like HdrHistogram.
+ * Values below 64 ns have own buckets, bigger values are grouped by powers of two,
+ * and every power of two is divided into 32 buckets, so error of percentile is not more than 3%.
+ * Recording is lock-free and does not allocate.
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR = 2 * SUB_COUNT;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * adding time into histogram
+     * @param nanos - the time in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * getting index of bucket for value
+     * @param value - the value
+     * @return - the index of bucket
+     */
+    static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exp = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return exp * SUB_COUNT + (int) (value >>> exp);
+    }
+
+    /**
+     * getting the biggest value of bucket
+     * @param index - the index of bucket
+     * @return - the value
+     */
+    static long highestValue(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exp = index / SUB_COUNT - 1;
+        long mantissa = index % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << exp) - 1;
+    }
+
+    /**
+     * getting time, that is not less than part of recorded times
+     * @param percentile - the part of times in percents (0..100)
+     * @return - the time in nanoseconds (0 - nothing was recorded)
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long getP50Nanos() {
+        return getPercentile(50);
+    }
+
+    public long getP99Nanos() {
+        return getPercentile(99);
+    }
+
+    public long getP999Nanos() {
+        return getPercentile(99.9);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
@@ -0,0 +1,47 @@
+package com;
+
+/**
+ * JMX view of LatencyHistogram
+ */
+public interface LatencyHistogramMBean {
+    /**
+     * the count of recorded times
+     * @return - the count
+     */
+    long getCount();
+
+    /**
+     * the average time
+     * @return - the time in nanoseconds
+     */
+    double getMeanNanos();
+
+    /**
+     * the biggest time
+     * @return - the time in nanoseconds
+     */
+    long getMaxNanos();
+
+    /**
+     * the median time
+     * @return - the time in nanoseconds
+     */
+    long getP50Nanos();
+
+    /**
+     * the time of 99th percentile
+     * @return - the time in nanoseconds
+     */
+    long getP99Nanos();
+
+    /**
+     * the time of 99.9th percentile
+     * @return - the time in nanoseconds
+     */
+    long getP999Nanos();
+
+    /**
+     * removing all recorded times
+     */
+    void reset();
+}
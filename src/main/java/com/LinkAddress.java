@@ -0,0 +1,78 @@
+package com;
+
+/**
+ * Numeric addresses of ports in frames.
+ * Address is 16 bits in the address and source fields of frame (two bytes, high byte first).
+ * Addresses from FIRST_GROUP are multicast groups, BROADCAST is received by all ports,
+ * other addresses belong to one port.
+ */
+public final class LinkAddress {
+    /** the length of numeric address in frame */
+    public static final int LENGTH = 2;
+    /** the address of all ports */
+    public static final int BROADCAST = 0xFFFF;
+    /** the first address of multicast group */
+    public static final int FIRST_GROUP = 0xF000;
+    /** no numeric address (address is the name of port) */
+    public static final int NONE = -1;
+
+    private LinkAddress() {
+    }
+
+    /**
+     * checking, that address is group or broadcast
+     * @param address - the address
+     * @return - is address not the address of one port
+     */
+    public static boolean isGroup(int address) {
+        return address >= FIRST_GROUP;
+    }
+
+    /**
+     * checking, that address can be given to port
+     * @param address - the address
+     * @throws IllegalArgumentException - if address is out of range or it is group
+     */
+    public static void checkUnicast(int address) {
+        if (address < 0 || address >= FIRST_GROUP) {
+            throw new IllegalArgumentException("not an address of port: " + address);
+        }
+    }
+
+    /**
+     * checking, that address is multicast group
+     * @param group - the address
+     * @throws IllegalArgumentException - if address is not group or it is broadcast
+     */
+    public static void checkGroup(int group) {
+        if (group < FIRST_GROUP || group >= BROADCAST) {
+            throw new IllegalArgumentException("not a group: " + group);
+        }
+    }
+
+    /**
+     * getting bytes of address for frame
+     * @param address - the address
+     * @return - the bytes of address
+     */
+    public static byte[] toBytes(int address) {
+        if (address < 0 || address > BROADCAST) {
+            throw new IllegalArgumentException("address out of range: " + address);
+        }
+        return new byte[] {(byte) (address >>> 8), (byte) address};
+    }
+
+    /**
+     * getting numeric address from field of frame
+     * @param bytes - the buffer with field
+     * @param off - the offset of field
+     * @param len - the length of field
+     * @return - the address or NONE, if field is not numeric address
+     */
+    public static int fromBytes(byte[] bytes, int off, int len) {
+        if (len != LENGTH) {
+            return NONE;
+        }
+        return (bytes[off] & 0xff) << 8 | (bytes[off + 1] & 0xff);
+    }
+}
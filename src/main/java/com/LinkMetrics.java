@@ -0,0 +1,260 @@
+package com;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of one port.
+ * Counters are LongAdder, so they can be increased from reading, writing and writer threads
+ * without locks. Metrics are registered in platform MBean server as
+ * com:type=Serial,port=NAME and histograms as com:type=Serial,port=NAME,latency=encode|decode|write.
+ */
+public final class LinkMetrics implements LinkMetricsMBean {
+    private static final String[] LATENCIES = {"encode", "decode", "write"};
+
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder payloadBytesSent = new LongAdder();
+    private final LongAdder payloadBytesReceived = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder badFrames = new LongAdder();
+    private final LongAdder addressMismatches = new LongAdder();
+    private final LongAdder codewordsDecoded = new LongAdder();
+    private final LongAdder codewordBits = new LongAdder();
+    private final LongAdder correctedBits = new LongAdder();
+    private final LongAdder uncorrectableBlocks = new LongAdder();
+    private final LongAdder writeCalls = new LongAdder();
+    private final LongAdder readCalls = new LongAdder();
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private ObjectName[] registered;
+
+    /**
+     * counting writing to port
+     * @param bytes - the count of written bytes
+     * @param nanos - the time of writing
+     */
+    public void wrote(int bytes, long nanos) {
+        writeCalls.increment();
+        bytesSent.add(bytes);
+        writeLatency.record(nanos);
+    }
+
+    /**
+     * counting reading from port
+     * @param bytes - the count of read bytes
+     */
+    public void read(int bytes) {
+        readCalls.increment();
+        bytesReceived.add(bytes);
+    }
+
+    /**
+     * counting coding of message
+     * @param payload - the count of bytes in message
+     * @param frames - the count of frames (0 - without frames)
+     * @param nanos - the time of coding
+     */
+    public void encoded(int payload, int frames, long nanos) {
+        payloadBytesSent.add(payload);
+        framesSent.add(frames);
+        encodeLatency.record(nanos);
+    }
+
+    /**
+     * counting decoding of blocks
+     * @param payload - the count of decoded bytes
+     * @param codewords - the count of decoded blocks
+     * @param blockBits - the count of bits in one block
+     * @param corrected - the count of repaired bits
+     * @param uncorrectable - the count of lost blocks
+     * @param nanos - the time of decoding
+     */
+    public void decoded(int payload, int codewords, int blockBits, long corrected, long uncorrectable, long nanos) {
+        payloadBytesReceived.add(payload);
+        codewordsDecoded.add(codewords);
+        codewordBits.add((long) codewords * blockBits);
+        correctedBits.add(corrected);
+        uncorrectableBlocks.add(uncorrectable);
+        decodeLatency.record(nanos);
+    }
+
+    /**
+     * counting right frame for this port
+     */
+    public void frameReceived() {
+        framesReceived.increment();
+    }
+
+    /**
+     * counting dropped frames
+     * @param count - the count of bad or aborted frames
+     */
+    public void badFrames(long count) {
+        badFrames.add(count);
+    }
+
+    /**
+     * counting right frame for other port
+     */
+    public void addressMismatch() {
+        addressMismatches.increment();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getPayloadBytesSent() {
+        return payloadBytesSent.sum();
+    }
+
+    public long getPayloadBytesReceived() {
+        return payloadBytesReceived.sum();
+    }
+
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    public long getBadFrames() {
+        return badFrames.sum();
+    }
+
+    public long getAddressMismatches() {
+        return addressMismatches.sum();
+    }
+
+    public long getCodewordsDecoded() {
+        return codewordsDecoded.sum();
+    }
+
+    public long getCorrectedBits() {
+        return correctedBits.sum();
+    }
+
+    public long getUncorrectableBlocks() {
+        return uncorrectableBlocks.sum();
+    }
+
+    public long getWriteCalls() {
+        return writeCalls.sum();
+    }
+
+    public long getReadCalls() {
+        return readCalls.sum();
+    }
+
+    /**
+     * lost block is counted as two wrong bits, the least count, that can't be repaired
+     */
+    public double getBitErrorRate() {
+        long bits = codewordBits.sum();
+        return bits == 0 ? 0 : (correctedBits.sum() + 2.0 * uncorrectableBlocks.sum()) / bits;
+    }
+
+    /**
+     * the times of coding of messages
+     * @return - the histogram
+     */
+    public LatencyHistogram getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    /**
+     * the times of decoding of read bytes
+     * @return - the histogram
+     */
+    public LatencyHistogram getDecodeLatency() {
+        return decodeLatency;
+    }
+
+    /**
+     * the times of writing to port
+     * @return - the histogram
+     */
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    public void reset() {
+        LongAdder[] counters = {bytesSent, bytesReceived, payloadBytesSent, payloadBytesReceived, framesSent,
+                framesReceived, badFrames, addressMismatches, codewordsDecoded, codewordBits, correctedBits,
+                uncorrectableBlocks, writeCalls, readCalls};
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+        encodeLatency.reset();
+        decodeLatency.reset();
+        writeLatency.reset();
+    }
+
+    /**
+     * registering metrics and histograms in platform MBean server
+     * metrics of previous port with the same name are replaced
+     * @param port - the name of port
+     */
+    public synchronized void register(String port) {
+        unregister();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object[] beans = {this, encodeLatency, decodeLatency, writeLatency};
+        ObjectName[] names = new ObjectName[beans.length];
+        try {
+            String base = "com:type=Serial,port=" + ObjectName.quote(port);
+            names[0] = new ObjectName(base);
+            for (int i = 0; i < LATENCIES.length; i++) {
+                names[i + 1] = new ObjectName(base + ",latency=" + LATENCIES[i]);
+            }
+            for (int i = 0; i < beans.length; i++) {
+                try {
+                    server.registerMBean(beans[i], names[i]);
+                }
+                catch (InstanceAlreadyExistsException ex) {
+                    server.unregisterMBean(names[i]);
+                    server.registerMBean(beans[i], names[i]);
+                }
+            }
+            registered = names;
+        }
+        catch (JMException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * removing metrics from platform MBean server
+     */
+    public synchronized void unregister() {
+        if (registered == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            }
+            catch (InstanceNotFoundException ex) {
+                // was replaced by other port with the same name
+            }
+            catch (JMException ex) {
+                ex.printStackTrace();
+            }
+        }
+        registered = null;
+    }
+}
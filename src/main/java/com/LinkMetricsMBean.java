@@ -0,0 +1,95 @@
+package com;
+
+/**
+ * JMX view of LinkMetrics of one port
+ */
+public interface LinkMetricsMBean {
+    /**
+     * the count of bytes, that were written to line
+     * @return - the count of bytes
+     */
+    long getBytesSent();
+
+    /**
+     * the count of bytes, that were read from line
+     * @return - the count of bytes
+     */
+    long getBytesReceived();
+
+    /**
+     * the count of message bytes, that were given for sending
+     * @return - the count of bytes
+     */
+    long getPayloadBytesSent();
+
+    /**
+     * the count of message bytes after decoding (goodput)
+     * @return - the count of bytes
+     */
+    long getPayloadBytesReceived();
+
+    /**
+     * the count of sent frames
+     * @return - the count of frames
+     */
+    long getFramesSent();
+
+    /**
+     * the count of right frames for this port
+     * @return - the count of frames
+     */
+    long getFramesReceived();
+
+    /**
+     * the count of frames with wrong FCS or format, and aborted frames
+     * @return - the count of frames
+     */
+    long getBadFrames();
+
+    /**
+     * the count of right frames for other ports
+     * @return - the count of frames
+     */
+    long getAddressMismatches();
+
+    /**
+     * the count of decoded Hamming or CRC blocks
+     * @return - the count of blocks
+     */
+    long getCodewordsDecoded();
+
+    /**
+     * the count of repaired bits
+     * @return - the count of bits
+     */
+    long getCorrectedBits();
+
+    /**
+     * the count of blocks, that can't be repaired
+     * @return - the count of blocks
+     */
+    long getUncorrectableBlocks();
+
+    /**
+     * the count of calls of writing to port
+     * @return - the count of calls
+     */
+    long getWriteCalls();
+
+    /**
+     * the count of calls of reading from port
+     * @return - the count of calls
+     */
+    long getReadCalls();
+
+    /**
+     * the part of wrong bits on line by repaired and lost blocks
+     * @return - the rate of bit errors
+     */
+    double getBitErrorRate();
+
+    /**
+     * setting all counters and histograms to zero
+     */
+    void reset();
+}
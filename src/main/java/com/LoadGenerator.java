@@ -0,0 +1,492 @@
+package com;
+
+import jssc.SerialPort;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless sending of messages with the given rate for soak testing of port settings.
+ * Messages go from one port to other port (or to the same port with loopback plug, or to virtual port),
+ * every message has number, time of sending and CRC-32, so receiver counts lost and wrong messages
+ * and latency from adding into queue of sending to receiving.
+ * Summaries of throughput, latency and errors are printed periodically and at the end.
+ */
+public final class LoadGenerator {
+    private static final int MAGIC = 0x5AA5;
+    private static final int HEADER_SIZE = 14;
+    private static final int CRC_SIZE = 4;
+    private static final long DRAIN_MILLIS = 3000;
+
+    private String txName;
+    private String rxName;
+    private boolean virtual;
+    private int baudRate = SerialPort.BAUDRATE_115200;
+    private String coding = HammingCodec.NAME;
+    private double rate = 100;
+    private int size = 64;
+    private long durationMillis = 10000;
+    private long intervalMillis = 1000;
+    private double bitErrorRate;
+    private long seed = 1;
+    private String file;
+    private boolean compress;
+    private int interleave;
+    private String capture;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong badMessages = new AtomicLong();
+    private final AtomicLong lostMessages = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private byte[] stream = new byte[4096];
+    private int streamLength;
+    private long expectedSeq;
+    private boolean skipping;
+    private long startTime;
+    private long lastReport;
+    private long lastReceived;
+    private long lastBytes;
+    private long lastBad;
+
+    /**
+     * getting settings from arguments of command line
+     * @param args - the arguments
+     * @return - the generator
+     * @throws IllegalArgumentException - if arguments are wrong
+     */
+    public static LoadGenerator parse(String[] args) {
+        LoadGenerator generator = new LoadGenerator();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--headless")) {
+                continue;
+            }
+            if (arg.equals("--virtual")) {
+                generator.virtual = true;
+                continue;
+            }
+            if (arg.equals("--compress")) {
+                generator.compress = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("no value for " + arg);
+            }
+            String value = args[++i];
+            try {
+                if (arg.equals("--tx")) {
+                    generator.txName = value;
+                }
+                else if (arg.equals("--rx")) {
+                    generator.rxName = value;
+                }
+                else if (arg.equals("--baud")) {
+                    generator.baudRate = Integer.parseInt(value);
+                }
+                else if (arg.equals("--coding")) {
+                    if (!value.equals(AdaptiveCoding.NAME) && Coding.forName(value) == null) {
+                        throw new IllegalArgumentException("unknown coding: " + value);
+                    }
+                    generator.coding = value;
+                }
+                else if (arg.equals("--rate")) {
+                    generator.rate = Double.parseDouble(value);
+                }
+                else if (arg.equals("--size")) {
+                    generator.size = Integer.parseInt(value);
+                }
+                else if (arg.equals("--duration")) {
+                    generator.durationMillis = (long) (Double.parseDouble(value) * 1000);
+                }
+                else if (arg.equals("--interval")) {
+                    generator.intervalMillis = (long) (Double.parseDouble(value) * 1000);
+                }
+                else if (arg.equals("--ber")) {
+                    generator.bitErrorRate = Double.parseDouble(value);
+                }
+                else if (arg.equals("--seed")) {
+                    generator.seed = Long.parseLong(value);
+                }
+                else if (arg.equals("--interleave")) {
+                    generator.interleave = Integer.parseInt(value);
+                    if (generator.interleave < 0 || generator.interleave > HammingInterleaver.MAX_DEPTH) {
+                        throw new IllegalArgumentException("depth of interleaving out of range: " + value);
+                    }
+                }
+                else if (arg.equals("--file")) {
+                    generator.file = value;
+                }
+                else if (arg.equals("--capture")) {
+                    generator.capture = value;
+                }
+                else {
+                    throw new IllegalArgumentException("unknown option: " + arg);
+                }
+            }
+            catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("wrong value of " + arg + ": " + value);
+            }
+        }
+        if (!generator.virtual && generator.txName == null) {
+            throw new IllegalArgumentException("--tx or --virtual is needed");
+        }
+        if (generator.rate <= 0 || generator.size < 0 || generator.durationMillis <= 0 || generator.intervalMillis <= 0) {
+            throw new IllegalArgumentException("rate, duration and interval must be positive");
+        }
+        return generator;
+    }
+
+    /**
+     * the text about arguments
+     * @return - the usage text
+     */
+    public static String usage() {
+        return "usage: ComPortSendReceive --headless (--virtual | --tx PORT [--rx PORT]) [options]\n"
+                + "  --baud N        speed of ports (115200)\n"
+                + "  --coding NAME   Hemming, CRC, CRC-8, CRC-16, CRC-32, RS, RS(n,k) or Adaptive (Hemming)\n"
+                + "  --rate N        messages per second (100)\n"
+                + "  --size N        bytes of payload in message (64)\n"
+                + "  --duration S    seconds of sending (10)\n"
+                + "  --interval S    seconds between summaries (1)\n"
+                + "  --file PATH     payload is taken from file instead of random bytes\n"
+                + "  --compress      messages are compressed with default dictionary\n"
+                + "  --interleave D  Hemming blocks are interleaved with depth D (0)\n"
+                + "  --ber P         probability of bit error on virtual line (0)\n"
+                + "  --seed N        seed of random payload and errors (1)\n"
+                + "  --capture PATH  raw bytes of ports are written into capture log for replay\n"
+                + "without --rx messages are received on --tx port (loopback plug)";
+    }
+
+    /**
+     * sending and receiving messages for the given time
+     * @param out - the stream for summaries
+     * @return - is every sent message received without errors
+     * @throws IOException - if file of payload can't be read or capture log can't be written
+     */
+    public boolean run(PrintStream out) throws IOException {
+        byte[] source = file != null ? Files.readAllBytes(Paths.get(file)) : null;
+        CaptureLog log = capture != null ? new CaptureLog(new File(capture)) : null;
+        AbstractSerial tx;
+        AbstractSerial rx;
+        if (virtual) {
+            VirtualSerial[] pair = VirtualSerial.pair("VCOM1", "VCOM2");
+            if (bitErrorRate > 0) {
+                FaultInjector faults = new FaultInjector(seed);
+                faults.setBitErrorRate(bitErrorRate);
+                pair[0].setFaults(faults);
+            }
+            tx = pair[0];
+            rx = pair[1];
+        }
+        else {
+            tx = new Serial(txName);
+            rx = rxName == null || rxName.equals(txName) ? tx : new Serial(rxName);
+        }
+        final String rxPort = rx.getPortName();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "load-reporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        PortManager manager = new PortManager(new PortManager.PortListener() {
+            public void messageReceived(AbstractSerial port, byte[] message, int length) {
+                if (port.getPortName().equals(rxPort)) {
+                    feed(message, length);
+                }
+            }
+        });
+        try {
+            for (AbstractSerial port : rx == tx ? new AbstractSerial[] {tx} : new AbstractSerial[] {tx, rx}) {
+                port.setCapture(log);
+                port.setInterleaving(interleave);
+                if (compress) {
+                    port.setCompression(new PayloadCompressor());
+                }
+                // every port has own codec, decoders of ports work in different threads
+                Coding portCoding = coding.equals(AdaptiveCoding.NAME) ? new AdaptiveCoding(port) : Coding.forName(coding);
+                if (!manager.open(port, baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE, portCoding)) {
+                    out.println("can't open " + port.getPortName());
+                    return false;
+                }
+            }
+            out.println(String.format(Locale.ROOT, "%s -> %s, %d baud, %s, %.1f messages/s of %d bytes for %.1f s",
+                    tx.getPortName(), rx.getPortName(), baudRate, coding, rate, size, durationMillis / 1000.0));
+            if (compress && rx != tx) {
+                // ports tell each other about compression after opening
+                long deadline = System.currentTimeMillis() + DRAIN_MILLIS;
+                while (!tx.getCompression().isPeerCapable() && System.currentTimeMillis() < deadline) {
+                    sleep(10);
+                }
+            }
+            startTime = System.nanoTime();
+            lastReport = startTime;
+            final PrintStream summaries = out;
+            reporter.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    report(summaries);
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            sendAll(manager, tx.getPortName(), source);
+            long deadline = System.currentTimeMillis() + DRAIN_MILLIS;
+            while (received.get() + lostMessages.get() < sent.get() && System.currentTimeMillis() < deadline) {
+                sleep(10);
+            }
+            reporter.shutdown();
+            try {
+                reporter.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            LinkMetrics metrics = rx.getMetrics();
+            long missing = Math.max(0, sent.get() - received.get());
+            out.println(String.format(Locale.ROOT,
+                    "total: sent %d received %d bad %d missing %d, latency p50 %.2f ms p99 %.2f ms p99.9 %.2f ms max %.2f ms,"
+                            + " corrected bits %d, uncorrectable blocks %d, bit error rate %.2e",
+                    sent.get(), received.get(), badMessages.get(), missing,
+                    latency.getP50Nanos() / 1e6, latency.getP99Nanos() / 1e6, latency.getP999Nanos() / 1e6,
+                    latency.getMaxNanos() / 1e6, metrics.getCorrectedBits(), metrics.getUncorrectableBlocks(),
+                    metrics.getBitErrorRate()));
+            if (compress) {
+                out.println(String.format(Locale.ROOT, "compression: %.3f of payload, %d messages compressed, %d stored",
+                        tx.getCompression().getRatio(), tx.getCompression().getCompressedMessages(),
+                        tx.getCompression().getStoredMessages()));
+            }
+            return missing == 0 && badMessages.get() == 0;
+        }
+        finally {
+            reporter.shutdownNow();
+            manager.close();
+            if (log != null) {
+                log.close();
+                out.println(String.format(Locale.ROOT, "capture: %d records, %d bytes in %s",
+                        log.getRecords(), log.getBytes(), capture));
+            }
+        }
+    }
+
+    /**
+     * sending messages with the given rate
+     * @param manager - the manager of ports
+     * @param txPort - the name of port for sending
+     * @param source - the bytes for payload (null - random bytes)
+     */
+    private void sendAll(PortManager manager, String txPort, byte[] source) {
+        Random random = new Random(seed);
+        long period = (long) (1e9 / rate);
+        long start = System.nanoTime();
+        long end = start + durationMillis * 1000000L;
+        int sourceOffset = 0;
+        byte[] payload = new byte[size];
+        long seq = 0;
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                return;
+            }
+            long due = start + seq * period;
+            if (now < due) {
+                LockSupport.parkNanos(Math.min(due, end) - now);
+                continue;
+            }
+            if (source != null && source.length > 0) {
+                for (int i = 0; i < size; i++) {
+                    payload[i] = source[sourceOffset];
+                    sourceOffset = sourceOffset + 1 == source.length ? 0 : sourceOffset + 1;
+                }
+            }
+            else {
+                random.nextBytes(payload);
+            }
+            // sending waits, when queue of port is full, so the rate is not more than line can send
+            manager.send(txPort, message(seq, payload));
+            sent.incrementAndGet();
+            seq++;
+        }
+    }
+
+    /**
+     * printing summary of the last interval
+     * @param out - the stream for summaries
+     */
+    private void report(PrintStream out) {
+        long now = System.nanoTime();
+        long count = received.get();
+        long bytes = payloadBytes.get();
+        long bad = badMessages.get();
+        double seconds = (now - lastReport) / 1e9;
+        out.println(String.format(Locale.ROOT,
+                "%7.1f s: sent %d received %d (%.1f msg/s, %.1f kB/s), bad %d, lost %d, latency p50 %.2f ms p99 %.2f ms max %.2f ms",
+                (now - startTime) / 1e9, sent.get(), count, (count - lastReceived) / seconds,
+                (bytes - lastBytes) / seconds / 1024, bad - lastBad, lostMessages.get(),
+                intervalLatency.getP50Nanos() / 1e6, intervalLatency.getP99Nanos() / 1e6,
+                intervalLatency.getMaxNanos() / 1e6));
+        intervalLatency.reset();
+        lastReport = now;
+        lastReceived = count;
+        lastBytes = bytes;
+        lastBad = bad;
+    }
+
+    /**
+     * making message: MAGIC (2 bytes), number (4 bytes), time of sending (8 bytes), payload, CRC-32 (4 bytes)
+     * @param seq - the number of message
+     * @param payload - the payload
+     * @return - the message
+     */
+    private static byte[] message(long seq, byte[] payload) {
+        byte[] message = new byte[HEADER_SIZE + payload.length + CRC_SIZE];
+        putLong(message, 0, MAGIC, 2);
+        putLong(message, 2, seq, 4);
+        putLong(message, 6, System.nanoTime(), 8);
+        System.arraycopy(payload, 0, message, HEADER_SIZE, payload.length);
+        putLong(message, HEADER_SIZE + payload.length,
+                CrcEngine.CRC32.compute(message, 0, HEADER_SIZE + payload.length), CRC_SIZE);
+        return message;
+    }
+
+    /**
+     * finding messages in the stream of received bytes, it is called from worker of port one by one
+     * @param bytes - the received bytes
+     * @param count - the count of bytes
+     */
+    private void feed(byte[] bytes, int count) {
+        long now = System.nanoTime();
+        if (streamLength + count > stream.length) {
+            byte[] bigger = new byte[Math.max(stream.length * 2, streamLength + count)];
+            System.arraycopy(stream, 0, bigger, 0, streamLength);
+            stream = bigger;
+        }
+        System.arraycopy(bytes, 0, stream, streamLength, count);
+        streamLength += count;
+        int length = HEADER_SIZE + size + CRC_SIZE;
+        int pos = 0;
+        while (streamLength - pos >= length) {
+            boolean right = getLong(stream, pos, 2) == MAGIC
+                    && (int) getLong(stream, pos + HEADER_SIZE + size, CRC_SIZE)
+                    == CrcEngine.CRC32.compute(stream, pos, HEADER_SIZE + size);
+            if (!right) {
+                if (!skipping) {
+                    badMessages.incrementAndGet();
+                    skipping = true;
+                }
+                pos++;
+                continue;
+            }
+            skipping = false;
+            long seq = getLong(stream, pos + 2, 4);
+            if (seq > expectedSeq) {
+                lostMessages.addAndGet(seq - expectedSeq);
+            }
+            if (seq >= expectedSeq) {
+                expectedSeq = seq + 1;
+            }
+            long nanos = now - getLong(stream, pos + 6, 8);
+            latency.record(nanos);
+            intervalLatency.record(nanos);
+            received.incrementAndGet();
+            payloadBytes.addAndGet(size);
+            pos += length;
+        }
+        System.arraycopy(stream, pos, stream, 0, streamLength - pos);
+        streamLength -= pos;
+    }
+
+    /**
+     * writing number into bytes, the high byte is the first
+     * @param bytes - the buffer
+     * @param off - the offset of number
+     * @param value - the number
+     * @param count - the count of bytes
+     */
+    private static void putLong(byte[] bytes, int off, long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            bytes[off + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * reading number from bytes, the high byte is the first
+     * @param bytes - the buffer
+     * @param off - the offset of number
+     * @param count - the count of bytes
+     * @return - the number
+     */
+    private static long getLong(byte[] bytes, int off, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = value << 8 | bytes[off + i] & 0xff;
+        }
+        return value;
+    }
+
+    /**
+     * waiting without exception
+     * @param millis - the time in milliseconds
+     */
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * the count of sent messages
+     * @return - the count of messages
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * the count of right received messages
+     * @return - the count of messages
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * the count of places in the stream, where bytes were not right message
+     * @return - the count of bad places
+     */
+    public long getBadMessages() {
+        return badMessages.get();
+    }
+
+    /**
+     * the count of messages, that were skipped in numbering
+     * @return - the count of messages
+     */
+    public long getLostMessages() {
+        return lostMessages.get();
+    }
+
+    /**
+     * the latency from sending to receiving of all messages
+     * @return - the histogram of latency
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
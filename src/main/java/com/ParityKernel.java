@@ -0,0 +1,23 @@
+package com;
+
+/**
+ * Computing of syndromes of Hamming(21,16) blocks by batches.
+ * Implementations can process many blocks at once (for example with SIMD instructions),
+ * HammingCodec gives them words of one batch and repairs blocks with the result.
+ */
+public interface ParityKernel {
+
+    /**
+     * the name of kernel for logs and benchmarks
+     * @return - the name
+     */
+    String getName();
+
+    /**
+     * computing syndromes of coded blocks
+     * @param words - the coded blocks as 24 bits words (the first byte of block in high bits)
+     * @param count - the count of blocks
+     * @param syndromes - the buffer for syndromes (0 - no errors, otherwise the position of wrong bit)
+     */
+    void syndromes(int[] words, int count, int[] syndromes);
+}
@@ -0,0 +1,92 @@
+package com;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Choosing of ParityKernel for the current JVM.
+ * Kernel with Vector API (jdk.incubator.vector) is compiled only by the profile "vector" on JDK 17+
+ * and works only if the module is added to JVM (--add-modules jdk.incubator.vector).
+ * In all other cases, or when -Dcom.vector=false is set, the scalar kernel with tables is used.
+ */
+public final class ParityKernels {
+    /** the name of class of kernel with Vector API */
+    private static final String VECTOR_KERNEL = "com.VectorParityKernel";
+
+    private static final ParityKernel SCALAR = new ParityKernel() {
+        public String getName() {
+            return "scalar";
+        }
+
+        public void syndromes(int[] words, int count, int[] syndromes) {
+            for (int i = 0; i < count; i++) {
+                syndromes[i] = HammingCodec.syndrome(words[i]);
+            }
+        }
+    };
+
+    private static volatile ParityKernel best;
+
+    private ParityKernels() {
+    }
+
+    /**
+     * getting kernel with tables, that works everywhere
+     * @return - the scalar kernel
+     */
+    public static ParityKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * getting the fastest kernel, that works in this JVM, it is chosen once
+     * @return - the kernel with Vector API or the scalar kernel
+     */
+    public static ParityKernel best() {
+        ParityKernel res = best;
+        if (res == null) {
+            res = Boolean.parseBoolean(System.getProperty("com.vector", "true")) ? load(VECTOR_KERNEL) : null;
+            best = res = res != null ? res : SCALAR;
+        }
+        return res;
+    }
+
+    /**
+     * loading kernel by reflection and comparing it with the scalar kernel
+     * @param className - the name of class of kernel
+     * @return - the kernel or null, if it can't be loaded or gives wrong syndromes
+     */
+    static ParityKernel load(String className) {
+        try {
+            ParityKernel kernel = (ParityKernel) Class.forName(className).getDeclaredConstructor().newInstance();
+            return check(kernel) ? kernel : null;
+        }
+        catch (Exception ex) {
+            // class was not compiled for this JDK
+            return null;
+        }
+        catch (LinkageError err) {
+            // old class file version or module of Vector API is not added
+            return null;
+        }
+    }
+
+    /**
+     * comparing syndromes of kernel with syndromes of tables on random words
+     * @param kernel - the kernel
+     * @return - are all syndromes the same
+     */
+    private static boolean check(ParityKernel kernel) {
+        Random random = new Random(1);
+        int count = 1001;
+        int[] words = new int[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = random.nextInt(1 << 24);
+        }
+        int[] expected = new int[count];
+        int[] syndromes = new int[count];
+        SCALAR.syndromes(words, count, expected);
+        kernel.syndromes(words, count, syndromes);
+        return Arrays.equals(syndromes, expected);
+    }
+}
@@ -0,0 +1,421 @@
+package com;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of messages before coding with Deflate and preset dictionary, that is known by both ports.
+ * Every message is compressed alone (raw Deflate without zlib header), so lost message doesn't break others,
+ * and the dictionary gives matches for short messages from the first byte.
+ *
+ * Message: header (magic and format, id of dictionary, length of body in 2 bytes, CRC-8 of header) and body.
+ * Header with wrong CRC-8 is skipped byte by byte, so broken length doesn't stop the stream.
+ * Body is stored without compression, when compression doesn't make it shorter, and after several
+ * incompressible messages compression is not tried for some next messages (the count grows up to MAX_SKIP).
+ * Every header says, that sender can decompress with its dictionary, and messages are compressed only
+ * after the header from peer with the same dictionary was received, so link starts with stored messages
+ * and compression is switched on, when both ports have it. Empty message (only header) tells it
+ * to peer, when port has nothing to send (see AbstractSerial.setCompression).
+ *
+ * Received bytes can come in any chunks, messages are found in the stream by headers.
+ */
+public final class PayloadCompressor {
+    /** the count of bytes of header */
+    public static final int HEADER_SIZE = 5;
+    /** the max count of bytes of one message */
+    public static final int MAX_MESSAGE = 0xFFFF;
+    /** the max count of messages, that are stored without trying of compression */
+    public static final int MAX_SKIP = 64;
+    /** messages shorter than it are always stored */
+    public static final int MIN_COMPRESSED = 8;
+
+    /** the dictionary for text and telemetry messages */
+    public static final byte[] DEFAULT_DICTIONARY = ("0123456789ABCDEF abcdefghijklmnopqrstuvwxyz "
+            + "null false true ERROR WARNING INFO DEBUG status=OK status=FAIL "
+            + "{\"id\":\"time\":\"value\":\"type\":\"name\":\"data\":[], "
+            + "temperature=voltage=current=pressure=humidity=speed=position=count=level=battery=signal=rssi=\r\n"
+            + "Test String with the and of to in is for that on was it from this are be ").getBytes(StandardCharsets.US_ASCII);
+
+    private static final int MAGIC = 0xC0;
+    private static final int MAGIC_MASK = 0xF0;
+    private static final int CAPABLE = 0x04;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 1;
+    private static final int FORMAT_MASK = 0x03;
+    private static final int HEADER_CHECK = 0xA5;
+
+    private final byte[] dictionary;
+    private final int dictionaryId;
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater(true);
+    private volatile boolean peerCapable;
+    private int skip;
+    private int skipLeft;
+
+    private byte[] pending = new byte[256];
+    private int pendingLength;
+    private byte[] output = new byte[256];
+
+    private volatile long bytesIn;
+    private volatile long bytesOut;
+    private volatile long compressedMessages;
+    private volatile long storedMessages;
+    private volatile long badMessages;
+
+    /**
+     * creating compressor with default dictionary
+     */
+    public PayloadCompressor() {
+        this(DEFAULT_DICTIONARY, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * creating compressor
+     * @param dictionary - the preset dictionary, it must be the same in both ports
+     * @param level - the level of compression (Deflater.BEST_SPEED .. Deflater.BEST_COMPRESSION)
+     */
+    public PayloadCompressor(byte[] dictionary, int level) {
+        this.dictionary = dictionary.clone();
+        this.deflater = new Deflater(level, true);
+        Adler32 adler = new Adler32();
+        adler.update(dictionary, 0, dictionary.length);
+        this.dictionaryId = (int) adler.getValue() & 0xff;
+    }
+
+    /**
+     * making dictionary from examples of messages
+     * pieces of examples with the most frequent strings of 8 bytes are taken one by one,
+     * strings of taken pieces are not counted again, the best pieces are put at the end,
+     * where Deflate finds them with the shortest distance
+     * @param samples - the examples of messages
+     * @param size - the max size of dictionary
+     * @return - the dictionary
+     */
+    public static byte[] train(List<byte[]> samples, int size) {
+        final int gram = 8;
+        final int segment = 32;
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        List<String> texts = new ArrayList<String>();
+        for (byte[] sample : samples) {
+            String text = new String(sample, StandardCharsets.ISO_8859_1);
+            texts.add(text);
+            for (int i = 0; i + gram <= text.length(); i++) {
+                String key = text.substring(i, i + gram);
+                Integer count = counts.get(key);
+                counts.put(key, count == null ? 1 : count + 1);
+            }
+        }
+        List<String> pieces = new ArrayList<String>();
+        int length = 0;
+        while (length < size) {
+            String best = null;
+            long bestScore = 0;
+            for (String text : texts) {
+                int n = Math.min(segment, Math.min(text.length(), size - length));
+                for (int i = 0; i + n <= text.length() && n >= gram; i++) {
+                    long score = 0;
+                    for (int k = i; k + gram <= i + n; k++) {
+                        Integer count = counts.get(text.substring(k, k + gram));
+                        if (count > 1) {
+                            score += count;
+                        }
+                    }
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = text.substring(i, i + n);
+                    }
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            for (int k = 0; k + gram <= best.length(); k++) {
+                counts.put(best.substring(k, k + gram), 0);
+            }
+            pieces.add(best);
+            length += best.length();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = pieces.size() - 1; i >= 0; i--) {
+            sb.append(pieces.get(i));
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * getting the max count of bytes of message with headers
+     * @param length - the length of message
+     * @return - the max length of compressed message
+     */
+    public int maxCompressedLength(int length) {
+        return length + HEADER_SIZE * Math.max(1, (length + MAX_MESSAGE - 1) / MAX_MESSAGE);
+    }
+
+    /**
+     * compressing message into buffer of caller, message is stored, if it can't be compressed
+     * messages longer than MAX_MESSAGE are divided into several messages
+     * @param src - the bytes of message
+     * @param off - the offset of message
+     * @param len - the length of message
+     * @param dst - the buffer for compressed message (maxCompressedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of bytes in dst
+     */
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int pos = dstOff;
+        for (int i = 0; i == 0 || i < len; i += MAX_MESSAGE) {
+            pos += compressOne(src, off + i, Math.min(MAX_MESSAGE, len - i), dst, pos);
+        }
+        return pos - dstOff;
+    }
+
+    /**
+     * compressing one message of not more than MAX_MESSAGE bytes
+     * @return - the count of bytes in dst
+     */
+    private int compressOne(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        bytesIn += len;
+        int body = -1;
+        if (peerCapable && len >= MIN_COMPRESSED) {
+            if (skipLeft > 0) {
+                skipLeft--;
+            }
+            else {
+                body = deflate(src, off, len, dst, dstOff + HEADER_SIZE);
+                if (body < 0) {
+                    skip = Math.min(MAX_SKIP, Math.max(1, skip * 2));
+                    skipLeft = skip;
+                }
+                else {
+                    skip = 0;
+                }
+            }
+        }
+        int format = DEFLATED;
+        if (body < 0) {
+            System.arraycopy(src, off, dst, dstOff + HEADER_SIZE, len);
+            body = len;
+            format = STORED;
+            storedMessages++;
+        }
+        else {
+            compressedMessages++;
+        }
+        dst[dstOff] = (byte) (MAGIC | CAPABLE | format);
+        dst[dstOff + 1] = (byte) dictionaryId;
+        dst[dstOff + 2] = (byte) (body >>> 8);
+        dst[dstOff + 3] = (byte) body;
+        dst[dstOff + 4] = (byte) (CrcEngine.CRC8.compute(dst, dstOff, HEADER_SIZE - 1) ^ HEADER_CHECK);
+        bytesOut += HEADER_SIZE + body;
+        return HEADER_SIZE + body;
+    }
+
+    /**
+     * compressing with Deflate into the place of stored body
+     * @return - the count of compressed bytes (-1 - compressed message is not shorter)
+     */
+    private int deflate(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        deflater.reset();
+        deflater.setDictionary(dictionary);
+        deflater.setInput(src, off, len);
+        deflater.finish();
+        // the body must be shorter than stored, so deflater gets len - 1 bytes of place
+        int n = 0;
+        while (!deflater.finished() && n < len - 1) {
+            int count = deflater.deflate(dst, dstOff + n, len - 1 - n);
+            if (count == 0 && deflater.needsInput()) {
+                break;
+            }
+            n += count;
+        }
+        return deflater.finished() ? n : -1;
+    }
+
+    /**
+     * adding bytes of decoded stream and decompressing full messages
+     * @param src - the decoded bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     * @return - the count of decompressed bytes in output()
+     */
+    public int feed(byte[] src, int off, int len) {
+        if (pendingLength + len > pending.length) {
+            byte[] bigger = new byte[Math.max(pending.length * 2, pendingLength + len)];
+            System.arraycopy(pending, 0, bigger, 0, pendingLength);
+            pending = bigger;
+        }
+        System.arraycopy(src, off, pending, pendingLength, len);
+        pendingLength += len;
+        int produced = 0;
+        int pos = 0;
+        while (pendingLength - pos >= HEADER_SIZE) {
+            int header = pending[pos] & 0xff;
+            int format = header & FORMAT_MASK;
+            if ((header & MAGIC_MASK) != MAGIC || format > DEFLATED
+                    || (pending[pos + 4] & 0xff) != (CrcEngine.CRC8.compute(pending, pos, HEADER_SIZE - 1) ^ HEADER_CHECK)) {
+                // the stream is broken, searching for the next header
+                badMessages++;
+                pos++;
+                continue;
+            }
+            int body = (pending[pos + 2] & 0xff) << 8 | (pending[pos + 3] & 0xff);
+            if (pendingLength - pos < HEADER_SIZE + body) {
+                break;
+            }
+            boolean sameDictionary = (pending[pos + 1] & 0xff) == dictionaryId;
+            if ((header & CAPABLE) != 0 && sameDictionary) {
+                peerCapable = true;
+            }
+            if (format == STORED) {
+                produced = put(pending, pos + HEADER_SIZE, body, produced);
+            }
+            else if (!sameDictionary) {
+                badMessages++;
+            }
+            else {
+                produced = inflate(pos + HEADER_SIZE, body, produced);
+            }
+            pos += HEADER_SIZE + body;
+        }
+        System.arraycopy(pending, pos, pending, 0, pendingLength - pos);
+        pendingLength -= pos;
+        return produced;
+    }
+
+    /**
+     * decompressing body of message into output
+     * @param off - the offset of body in pending
+     * @param len - the length of body
+     * @param produced - the count of bytes in output
+     * @return - the new count of bytes in output
+     */
+    private int inflate(int off, int len, int produced) {
+        inflater.reset();
+        inflater.setInput(pending, off, len);
+        try {
+            inflater.setDictionary(dictionary);
+            int start = produced;
+            while (!inflater.finished()) {
+                if (produced == output.length) {
+                    output = grow(output, produced, output.length * 2);
+                }
+                int n = inflater.inflate(output, produced, output.length - produced);
+                if (n == 0) {
+                    break;
+                }
+                produced += n;
+                if (produced - start > MAX_MESSAGE) {
+                    break;
+                }
+            }
+            if (!inflater.finished()) {
+                badMessages++;
+                return start;
+            }
+            return produced;
+        }
+        catch (DataFormatException ex) {
+            badMessages++;
+            return produced;
+        }
+    }
+
+    /**
+     * copying stored body into output
+     * @return - the new count of bytes in output
+     */
+    private int put(byte[] src, int off, int len, int produced) {
+        if (produced + len > output.length) {
+            output = grow(output, produced, Math.max(output.length * 2, produced + len));
+        }
+        System.arraycopy(src, off, output, produced, len);
+        return produced + len;
+    }
+
+    private static byte[] grow(byte[] buffer, int keep, int size) {
+        byte[] bigger = new byte[size];
+        System.arraycopy(buffer, 0, bigger, 0, keep);
+        return bigger;
+    }
+
+    /**
+     * the buffer with decompressed bytes of the last feed
+     * @return - the buffer (the count of bytes is returned by feed)
+     */
+    public byte[] output() {
+        return output;
+    }
+
+    /**
+     * forgetting, that peer can decompress, and not full message (for example, after reconnecting)
+     */
+    public void reset() {
+        peerCapable = false;
+        pendingLength = 0;
+        skip = 0;
+        skipLeft = 0;
+    }
+
+    /**
+     * is peer has the same dictionary, so messages are compressed
+     * @return - true, if compression is used for sending
+     */
+    public boolean isPeerCapable() {
+        return peerCapable;
+    }
+
+    /**
+     * the count of bytes of messages before compression
+     * @return - the count of bytes
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * the count of bytes of messages after compression with headers
+     * @return - the count of bytes
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * the ratio of sent bytes to bytes of messages
+     * @return - the ratio (1 - without gain)
+     */
+    public double getRatio() {
+        return bytesIn == 0 ? 1 : (double) bytesOut / bytesIn;
+    }
+
+    /**
+     * the count of compressed messages
+     * @return - the count of messages
+     */
+    public long getCompressedMessages() {
+        return compressedMessages;
+    }
+
+    /**
+     * the count of messages, that were sent without compression
+     * @return - the count of messages
+     */
+    public long getStoredMessages() {
+        return storedMessages;
+    }
+
+    /**
+     * the count of received messages, that could not be decompressed, and broken places in the stream
+     * @return - the count of bad messages
+     */
+    public long getBadMessages() {
+        return badMessages;
+    }
+}
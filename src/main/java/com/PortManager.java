@@ -0,0 +1,407 @@
+package com;
+
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Many ports, that work at the same time.
+ * Reading and decoding of received bytes is done in the shared pool of workers
+ * (virtual threads, if Java has them, or fixed count of threads), not in the thread of port events.
+ * Tasks of one port are done one by one in the order of events, tasks of different ports are done in parallel.
+ * Every port sends from its own TransmitQueue, so queues of ports are written in parallel too.
+ * Supervisor opens again ports, that were closed not by manager, with the same parameters.
+ */
+public final class PortManager {
+    /** the period of checking of ports by supervisor in milliseconds */
+    public static final long SUPERVISE_PERIOD = 1000;
+    /** the max count of events of one port, that worker takes before giving place to other ports */
+    public static final int EVENTS_PER_TURN = 64;
+    /** the size of buffer for decoded bytes of every port */
+    public static final int RECEIVE_BUFFER = 4096;
+
+    /**
+     * Receiver of messages from all ports, it is called from workers,
+     * for every port messages come one by one in the order of receiving.
+     * The buffer of message is taken from pool once for port and is used again after the call,
+     * so listener must copy bytes, that it keeps.
+     */
+    public interface PortListener {
+        void messageReceived(AbstractSerial port, byte[] message, int length);
+    }
+
+    private final PortListener listener;
+    private final BufferPool pool;
+    private final ExecutorService workers;
+    private final boolean virtualThreads;
+    private final ScheduledExecutorService supervisor;
+    private final Map<String, ManagedPort> ports = new ConcurrentHashMap<String, ManagedPort>();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder reopens = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * creating manager with worker for every core
+     * @param listener - the receiver of messages
+     */
+    public PortManager(PortListener listener) {
+        this(Runtime.getRuntime().availableProcessors(), listener);
+    }
+
+    /**
+     * creating manager
+     * @param threads - the count of workers, if Java has no virtual threads
+     * @param listener - the receiver of messages
+     */
+    public PortManager(int threads, PortListener listener) {
+        this(threads, listener, BufferPool.getDefault());
+    }
+
+    /**
+     * creating manager with own pool of receive buffers, for example pool with checking of leaks
+     * @param threads - the count of workers, if Java has no virtual threads
+     * @param listener - the receiver of messages
+     * @param pool - the pool of receive buffers of ports
+     */
+    PortManager(int threads, PortListener listener, BufferPool pool) {
+        this.listener = listener;
+        this.pool = pool;
+        ExecutorService virtual = newVirtualExecutor();
+        this.virtualThreads = virtual != null;
+        this.workers = virtual != null ? virtual : Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "port-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.supervisor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "port-supervisor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        supervisor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                supervise();
+            }
+        }, SUPERVISE_PERIOD, SUPERVISE_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * getting executor with virtual thread for every task (Java 21 and newer)
+     * @return - the executor or null, if Java has no virtual threads
+     */
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        }
+        catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * opening COM port with 8 data bits, 1 stop bit and without parity
+     * @param name - the name of COM port
+     * @param baudRate - the speed of port in bauds
+     * @param coding - the coding of bytes on line
+     * @return - is opening was successfully
+     */
+    public boolean open(String name, int baudRate, Coding coding) {
+        return open(new Serial(name), baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE, coding);
+    }
+
+    /**
+     * opening port and taking it under control of manager,
+     * coding and framing of port must be set before
+     * @param port - the port
+     * @param baudRate - the speed of port in bauds
+     * @param dataBits - the count of bits for data
+     * @param stopBits - the count of stop bits
+     * @param parity - the settings of the parity bit
+     * @param coding - the coding of bytes on line
+     * @return - is opening was successfully
+     */
+    public boolean open(AbstractSerial port, int baudRate, int dataBits, int stopBits, int parity, Coding coding) {
+        if (closed) {
+            throw new IllegalStateException("manager is closed");
+        }
+        ManagedPort managed = new ManagedPort(port, baudRate, dataBits, stopBits, parity, coding);
+        if (ports.putIfAbsent(port.getPortName(), managed) != null) {
+            throw new IllegalArgumentException("port is opened already: " + port.getPortName());
+        }
+        if (!managed.start()) {
+            ports.remove(port.getPortName());
+            managed.stop();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * sending message to port by its queue
+     * @param name - the name of port
+     * @param message - the bytes of message
+     * @return - the future with result of writing
+     */
+    public CompletableFuture<Boolean> send(String name, byte[] message) {
+        ManagedPort managed = ports.get(name);
+        if (managed == null) {
+            CompletableFuture<Boolean> res = new CompletableFuture<Boolean>();
+            res.completeExceptionally(new IllegalArgumentException("unknown port: " + name));
+            return res;
+        }
+        return managed.port.sendAsync(message, managed.coding);
+    }
+
+    /**
+     * changing coding of port for sending and receiving without reopening,
+     * messages, that are in queue already, are sent with the previous coding
+     * @param name - the name of port
+     * @param coding - the new coding of bytes on line
+     * @return - false, if manager has no such port
+     */
+    public boolean setCoding(String name, Coding coding) {
+        ManagedPort managed = ports.get(name);
+        if (managed == null) {
+            return false;
+        }
+        managed.coding = coding;
+        return true;
+    }
+
+    /**
+     * getting port by name
+     * @param name - the name of port
+     * @return - the port or null, if manager has no such port
+     */
+    public AbstractSerial getPort(String name) {
+        ManagedPort managed = ports.get(name);
+        return managed == null ? null : managed.port;
+    }
+
+    /**
+     * the names of ports of manager
+     * @return - the names of ports
+     */
+    public List<String> getPortNames() {
+        return new ArrayList<String>(ports.keySet());
+    }
+
+    /**
+     * closing port and removing it from manager
+     * @param name - the name of port
+     * @return - is port was closed
+     */
+    public boolean close(String name) {
+        ManagedPort managed = ports.remove(name);
+        if (managed == null) {
+            return false;
+        }
+        boolean res = managed.port.close();
+        managed.stop();
+        return res;
+    }
+
+    /**
+     * closing all ports and stopping workers
+     */
+    public void close() {
+        closed = true;
+        supervisor.shutdownNow();
+        for (String name : getPortNames()) {
+            close(name);
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * is workers are virtual threads
+     * @return - true, if virtual threads are used
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * the count of messages, that were given to listener from all ports
+     * @return - the count of messages
+     */
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    /**
+     * the count of openings again by supervisor
+     * @return - the count of openings
+     */
+    public long getReopens() {
+        return reopens.sum();
+    }
+
+    /**
+     * opening again ports, that were closed not by manager
+     */
+    private void supervise() {
+        for (ManagedPort managed : ports.values()) {
+            if (!managed.port.isOpen() && ports.get(managed.port.getPortName()) == managed) {
+                reopens.increment();
+                managed.start();
+            }
+        }
+    }
+
+    /**
+     * Port with its parameters and queue of tasks, that are done one by one in workers
+     */
+    private final class ManagedPort implements SerialPortEventListener, Runnable {
+        final AbstractSerial port;
+        final int baudRate;
+        final int dataBits;
+        final int stopBits;
+        final int parity;
+        volatile Coding coding;
+        private final Queue<Integer> events = new ConcurrentLinkedQueue<Integer>();
+        // only one worker takes port at once (the owner of this flag), so buffer is not shared
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private ByteBuffer received;
+        private volatile boolean stopped;
+
+        ManagedPort(AbstractSerial port, int baudRate, int dataBits, int stopBits, int parity, Coding coding) {
+            this.port = port;
+            this.baudRate = baudRate;
+            this.dataBits = dataBits;
+            this.stopBits = stopBits;
+            this.parity = parity;
+            this.coding = coding;
+        }
+
+        /**
+         * opening and setting of port
+         * @return - is opening was successfully
+         */
+        boolean start() {
+            if (!port.open()) {
+                return false;
+            }
+            port.setParams(baudRate, dataBits, stopBits, parity);
+            port.addListener(this);
+            // peer can be opened before, so it waits for the header of this port for compression
+            port.announceCompression(coding);
+            return true;
+        }
+
+        /**
+         * event of port, it only adds the task of reading
+         * @param event - the event of port
+         */
+        public void serialEvent(SerialPortEvent event) {
+            if (event.isRXCHAR() && event.getEventValue() > 0) {
+                events.add(event.getEventValue());
+                schedule();
+            }
+        }
+
+        /**
+         * giving port to worker, if it is not given yet
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this);
+                }
+                catch (RejectedExecutionException ex) {
+                    giveBack();
+                }
+            }
+        }
+
+        /**
+         * stopping reading, receive buffer is returned into pool by the current owner of port
+         */
+        void stop() {
+            stopped = true;
+            if (scheduled.compareAndSet(false, true)) {
+                releaseBuffer();
+            }
+        }
+
+        /**
+         * giving up port by its owner, if port is stopped, buffer is returned and port is never taken again
+         */
+        private void giveBack() {
+            scheduled.set(false);
+            // stop could see the flag set and leave buffer to owner
+            if (stopped && scheduled.compareAndSet(false, true)) {
+                releaseBuffer();
+            }
+        }
+
+        /**
+         * returning receive buffer into pool, it is called once by owner of stopped port
+         */
+        private void releaseBuffer() {
+            if (received != null) {
+                pool.release(received.array());
+                received = null;
+            }
+        }
+
+        /**
+         * reading and decoding in worker for all events, that are in queue
+         */
+        public void run() {
+            Integer count;
+            for (int i = 0; i < EVENTS_PER_TURN && !stopped && (count = events.poll()) != null; i++) {
+                if (received == null) {
+                    received = ByteBuffer.wrap(pool.acquire(RECEIVE_BUFFER));
+                }
+                try {
+                    // bytes, that don't fit into buffer, are kept by port and taken without reading
+                    int n;
+                    do {
+                        received.clear();
+                        n = port.read(count, received, coding);
+                        count = 0;
+                        if (n > 0) {
+                            dispatched.increment();
+                            listener.messageReceived(port, received.array(), n);
+                        }
+                    } while (n > 0 && !received.hasRemaining());
+                }
+                catch (RuntimeException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            giveBack();
+            // events could come after the last poll and before reset of flag
+            if (!stopped && !events.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ring buffer of bytes from line.
+ * Chunks from RXCHAR events are added as they come,
+ * only full code blocks are taken for decoding, the rest waits for the next chunk.
+ */
+public final class ReceiveBuffer {
+    private byte[] ring;
+    private int mask;
+    private long head;
+    private long tail;
+
+    /**
+     * creating buffer
+     * @param capacity - the initial capacity (it grows, when it is not enough)
+     */
+    public ReceiveBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        ring = new byte[size];
+        mask = size - 1;
+    }
+
+    /**
+     * adding bytes to the end of buffer
+     * @param src - the bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes
+     */
+    public void write(byte[] src, int off, int len) {
+        if (size() + len > ring.length) {
+            grow(size() + len);
+        }
+        int start = (int) (tail & mask);
+        int first = Math.min(len, ring.length - start);
+        System.arraycopy(src, off, ring, start, first);
+        System.arraycopy(src, off + first, ring, 0, len - first);
+        tail += len;
+    }
+
+    /**
+     * taking full blocks from the start of buffer
+     * @param dst - the buffer for blocks
+     * @param dstOff - the offset in dst
+     * @param blockSize - the size of one block
+     * @param max - the max count of bytes for taking
+     * @return - the count of taken bytes (multiple of blockSize)
+     */
+    public int readBlocks(byte[] dst, int dstOff, int blockSize, int max) {
+        int len = Math.min(size(), max) / blockSize * blockSize;
+        int start = (int) (head & mask);
+        int first = Math.min(len, ring.length - start);
+        System.arraycopy(ring, start, dst, dstOff, first);
+        System.arraycopy(ring, 0, dst, dstOff + first, len - first);
+        head += len;
+        return len;
+    }
+
+    /**
+     * taking bytes from the start of buffer into ByteBuffer
+     * @param dst - the buffer for bytes, the position is moved over taken bytes
+     * @return - the count of taken bytes
+     */
+    public int read(ByteBuffer dst) {
+        int len = Math.min(size(), dst.remaining());
+        int start = (int) (head & mask);
+        int first = Math.min(len, ring.length - start);
+        dst.put(ring, start, first);
+        dst.put(ring, 0, len - first);
+        head += len;
+        return len;
+    }
+
+    /**
+     * the count of bytes in buffer
+     * @return - the count of bytes
+     */
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * removing all bytes from buffer
+     */
+    public void clear() {
+        head = tail;
+    }
+
+    /**
+     * increasing of buffer capacity
+     * @param needed - the needed count of bytes
+     */
+    private void grow(int needed) {
+        int size = Integer.highestOneBit(needed - 1) << 1;
+        byte[] bigger = new byte[size];
+        int len = size();
+        readBlocks(bigger, 0, 1, len);
+        ring = bigger;
+        mask = size - 1;
+        head = 0;
+        tail = len;
+    }
+}
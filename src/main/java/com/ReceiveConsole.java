@@ -0,0 +1,164 @@
+package com;
+
+import java.util.Arrays;
+
+/**
+ * Received text for GUI in ring buffer of the last lines.
+ * Messages are added from threads of ports without any work of Swing,
+ * timer of GUI takes the text only when it was changed, so the cost of one update
+ * doesn't depend on the length of session. Too long lines are broken into several lines.
+ */
+public final class ReceiveConsole {
+    /** the count of lines, that are kept by default */
+    public static final int DEFAULT_LINES = 1000;
+    /** the max count of chars in one line */
+    public static final int MAX_LINE = 256;
+
+    private final String[] lines;
+    private int first;
+    private int count;
+    private final StringBuilder current = new StringBuilder();
+    private boolean changed;
+    private long droppedLines;
+    private long receivedBytes;
+    private long messages;
+    private long lastReceived;
+
+    /**
+     * creating console with DEFAULT_LINES lines
+     */
+    public ReceiveConsole() {
+        this(DEFAULT_LINES);
+    }
+
+    /**
+     * creating console
+     * @param maxLines - the count of the last lines, that are kept
+     */
+    public ReceiveConsole(int maxLines) {
+        if (maxLines < 1) {
+            throw new IllegalArgumentException("console must have lines: " + maxLines);
+        }
+        this.lines = new String[maxLines];
+    }
+
+    /**
+     * adding received message
+     * @param message - the bytes of message
+     */
+    public void append(byte[] message) {
+        append(message, message.length);
+    }
+
+    /**
+     * adding received message from the start of buffer
+     * @param message - the buffer with bytes of message
+     * @param length - the count of bytes
+     */
+    public synchronized void append(byte[] message, int length) {
+        String text = new String(message, 0, length);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                finishLine();
+            }
+            else if (c != '\r') {
+                current.append(c);
+                if (current.length() == MAX_LINE) {
+                    finishLine();
+                }
+            }
+        }
+        receivedBytes += length;
+        messages++;
+        lastReceived = System.currentTimeMillis();
+        changed = true;
+    }
+
+    /**
+     * moving the current line into ring, the oldest line is dropped, when ring is full
+     */
+    private void finishLine() {
+        if (count == lines.length) {
+            first = (first + 1) % lines.length;
+            count--;
+            droppedLines++;
+        }
+        lines[(first + count) % lines.length] = current.toString();
+        count++;
+        current.setLength(0);
+    }
+
+    /**
+     * checking, if text was changed after the last call, and resetting this flag
+     * @return - is there new text
+     */
+    public synchronized boolean takeChanges() {
+        boolean res = changed;
+        changed = false;
+        return res;
+    }
+
+    /**
+     * getting text of all kept lines and not finished line
+     * @return - the text
+     */
+    public synchronized String getText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(lines[(first + i) % lines.length]).append('\n');
+        }
+        return text.append(current).toString();
+    }
+
+    /**
+     * the count of finished lines in ring
+     * @return - the count of lines
+     */
+    public synchronized int getLineCount() {
+        return count;
+    }
+
+    /**
+     * the count of old lines, that was dropped from ring
+     * @return - the count of lines
+     */
+    public synchronized long getDroppedLines() {
+        return droppedLines;
+    }
+
+    /**
+     * the count of received bytes of messages
+     * @return - the count of bytes
+     */
+    public synchronized long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * the count of received messages
+     * @return - the count of messages
+     */
+    public synchronized long getMessages() {
+        return messages;
+    }
+
+    /**
+     * the time of the last message
+     * @return - the time in milliseconds (0 - nothing was received)
+     */
+    public synchronized long getLastReceived() {
+        return lastReceived;
+    }
+
+    /**
+     * removing all text, counters are kept
+     */
+    public synchronized void clear() {
+        Arrays.fill(lines, null);
+        first = 0;
+        count = 0;
+        current.setLength(0);
+        changed = true;
+    }
+}
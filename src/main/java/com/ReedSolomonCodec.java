@@ -0,0 +1,358 @@
+package com;
+
+/**
+ * Reed-Solomon codec RS(n,k) over GF(2^8) (polynomial x^8 + x^4 + x^3 + x^2 + 1) with tables of logarithms.
+ * Every block has k data symbols and n - k parity symbols, so up to (n - k) / 2 wrong bytes
+ * in any places of block are repaired, and a burst of errors costs only so many symbols, how many bytes it hits.
+ * The first data symbol of block is the count of payload bytes in it (0..k-1),
+ * so blocks have the same length n and payload of any length can be coded.
+ * Blocks with n < 255 are shortened codes (the first 255 - n symbols are zero and not sent).
+ *
+ * Decoding: syndromes, Berlekamp-Massey for the error locator, Chien search for places
+ * and Forney for values of errors. Blocks without errors are checked only by syndromes.
+ */
+public final class ReedSolomonCodec implements Coding {
+    private static final int FIELD = 255;
+    private static final int PRIMITIVE = 0x11D;
+    private static final int[] EXP = new int[2 * FIELD];
+    private static final int[] LOG = new int[FIELD + 1];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < FIELD; i++) {
+            EXP[i] = x;
+            EXP[i + FIELD] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x > FIELD) {
+                x ^= PRIMITIVE;
+            }
+        }
+    }
+
+    private final int n;
+    private final int k;
+    private final int roots;
+    private final int[] generatorLog;
+    private final int[] parity;
+    private final int[] syndromes;
+    private final int[] lambda;
+    private final int[] previous;
+    private final int[] temp;
+    private final int[] omega;
+    private final int[] positions;
+    private final byte[] block;
+    private long correctedBits;
+    private long uncorrectableBlocks;
+
+    /**
+     * creating codec
+     * @param n - the count of symbols in block (k < n <= 255)
+     * @param k - the count of data symbols in block (2 <= k), n - k wrong symbols are found and half of them repaired
+     */
+    public ReedSolomonCodec(int n, int k) {
+        if (n > FIELD || k < 2 || k >= n) {
+            throw new IllegalArgumentException("wrong RS(" + n + "," + k + ")");
+        }
+        this.n = n;
+        this.k = k;
+        this.roots = n - k;
+        // g(x) = (x - a^0)(x - a^1)...(x - a^(roots-1)), coefficients from x^0
+        int[] g = new int[roots + 1];
+        g[0] = 1;
+        for (int i = 0; i < roots; i++) {
+            for (int j = i + 1; j > 0; j--) {
+                g[j] = g[j - 1] ^ mul(g[j], EXP[i]);
+            }
+            g[0] = mul(g[0], EXP[i]);
+        }
+        this.generatorLog = new int[roots];
+        for (int i = 0; i < roots; i++) {
+            generatorLog[i] = g[i] == 0 ? -1 : LOG[g[i]];
+        }
+        this.parity = new int[roots];
+        this.syndromes = new int[roots];
+        this.lambda = new int[roots + 1];
+        this.previous = new int[roots + 1];
+        this.temp = new int[roots + 1];
+        this.omega = new int[roots];
+        this.positions = new int[roots];
+        this.block = new byte[n];
+    }
+
+    private static int mul(int a, int b) {
+        return a == 0 || b == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+    }
+
+    private static int div(int a, int b) {
+        return a == 0 ? 0 : EXP[LOG[a] + FIELD - LOG[b]];
+    }
+
+    /**
+     * the name of coding
+     * @return - RS(n,k)
+     */
+    public String getName() {
+        return "RS(" + n + "," + k + ")";
+    }
+
+    /**
+     * the count of bytes of one block
+     * @return - n
+     */
+    public int blockLength() {
+        return n;
+    }
+
+    /**
+     * getting the count of coded bytes for payload
+     * @param length - the length of payload
+     * @return - the length of coded payload
+     */
+    public int codedLength(int length) {
+        return (length + k - 2) / (k - 1) * n;
+    }
+
+    /**
+     * getting the max count of decoded bytes for coded bytes
+     * @param codedLength - the length of coded bytes
+     * @return - the max length of decoded payload
+     */
+    public int payloadLength(int codedLength) {
+        return codedLength / n * (k - 1);
+    }
+
+    /**
+     * coding payload of any length
+     * @param raw - raw bytes
+     * @return - the coded bytes
+     */
+    public byte[] encode(byte[] raw) {
+        byte[] out = new byte[codedLength(raw.length)];
+        encode(raw, 0, raw.length, out, 0);
+        return out;
+    }
+
+    /**
+     * coding payload into buffer of caller
+     * @param src - raw bytes
+     * @param off - the offset of payload in src
+     * @param len - the length of payload
+     * @param dst - the buffer for coded bytes (codedLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of coded bytes
+     */
+    public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int d = dstOff;
+        int end = off + len;
+        for (int i = off; i < end; i += k - 1) {
+            int count = Math.min(k - 1, end - i);
+            for (int j = 0; j < roots; j++) {
+                parity[j] = 0;
+            }
+            dst[d] = (byte) count;
+            feed(count);
+            for (int j = 0; j < k - 1; j++) {
+                int symbol = j < count ? src[i + j] & 0xff : 0;
+                dst[d + 1 + j] = (byte) symbol;
+                feed(symbol);
+            }
+            for (int j = 0; j < roots; j++) {
+                dst[d + k + j] = (byte) parity[j];
+            }
+            d += n;
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * dividing by generator with shift register, parity[0] is the highest coefficient of remainder
+     * @param symbol - the next data symbol
+     */
+    private void feed(int symbol) {
+        int feedback = symbol ^ parity[0];
+        System.arraycopy(parity, 1, parity, 0, roots - 1);
+        parity[roots - 1] = 0;
+        if (feedback != 0) {
+            int logFeedback = LOG[feedback];
+            for (int j = 0; j < roots; j++) {
+                int g = generatorLog[roots - 1 - j];
+                if (g >= 0) {
+                    parity[j] ^= EXP[logFeedback + g];
+                }
+            }
+        }
+    }
+
+    /**
+     * decoding all full blocks of coded bytes
+     * @param coded - coded bytes
+     * @return - the decoded bytes
+     */
+    public byte[] decode(byte[] coded) {
+        byte[] out = new byte[payloadLength(coded.length)];
+        int count = decode(coded, 0, coded.length, out, 0);
+        byte[] res = new byte[count];
+        System.arraycopy(out, 0, res, 0, count);
+        return res;
+    }
+
+    /**
+     * decoding full blocks into buffer of caller with repairing of errors
+     * bytes of the last not full block are ignored
+     * @param src - coded bytes
+     * @param off - the offset of coded bytes in src
+     * @param len - the count of coded bytes
+     * @param dst - the buffer for decoded bytes (payloadLength(len) bytes)
+     * @param dstOff - the offset in dst
+     * @return - the count of decoded bytes
+     */
+    public int decode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        int d = dstOff;
+        for (int i = off; i + n <= off + len; i += n) {
+            byte[] data = src;
+            int start = i;
+            if (computeSyndromes(src, i)) {
+                System.arraycopy(src, i, block, 0, n);
+                if (!repair()) {
+                    uncorrectableBlocks++;
+                }
+                data = block;
+                start = 0;
+            }
+            int count = Math.min(data[start] & 0xff, k - 1);
+            System.arraycopy(data, start + 1, dst, d, count);
+            d += count;
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * computing syndromes S(i) = r(a^i) of block
+     * @param src - the buffer with block
+     * @param off - the offset of block
+     * @return - is there any error
+     */
+    private boolean computeSyndromes(byte[] src, int off) {
+        boolean errors = false;
+        for (int i = 0; i < roots; i++) {
+            int s = 0;
+            for (int j = off; j < off + n; j++) {
+                s = (s == 0 ? 0 : EXP[LOG[s] + i]) ^ (src[j] & 0xff);
+            }
+            syndromes[i] = s;
+            errors |= s != 0;
+        }
+        return errors;
+    }
+
+    /**
+     * repairing errors in block by syndromes
+     * @return - is block repaired
+     */
+    private boolean repair() {
+        // Berlekamp-Massey
+        for (int i = 0; i <= roots; i++) {
+            lambda[i] = 0;
+            previous[i] = 0;
+        }
+        lambda[0] = 1;
+        previous[0] = 1;
+        int degree = 0;
+        int shift = 1;
+        int lastDiscrepancy = 1;
+        for (int r = 0; r < roots; r++) {
+            int discrepancy = syndromes[r];
+            for (int i = 1; i <= degree; i++) {
+                discrepancy ^= mul(lambda[i], syndromes[r - i]);
+            }
+            if (discrepancy == 0) {
+                shift++;
+                continue;
+            }
+            int coefficient = div(discrepancy, lastDiscrepancy);
+            if (2 * degree <= r) {
+                System.arraycopy(lambda, 0, temp, 0, roots + 1);
+                for (int i = 0; i + shift <= roots; i++) {
+                    lambda[i + shift] ^= mul(coefficient, previous[i]);
+                }
+                degree = r + 1 - degree;
+                System.arraycopy(temp, 0, previous, 0, roots + 1);
+                lastDiscrepancy = discrepancy;
+                shift = 1;
+            }
+            else {
+                for (int i = 0; i + shift <= roots; i++) {
+                    lambda[i + shift] ^= mul(coefficient, previous[i]);
+                }
+                shift++;
+            }
+        }
+        if (2 * degree > roots) {
+            return false;
+        }
+        // Chien search: symbol j has the power n - 1 - j, error is there, if lambda(a^-(n-1-j)) = 0
+        int found = 0;
+        for (int j = 0; j < n && found <= degree; j++) {
+            int inverse = (FIELD - (n - 1 - j)) % FIELD;
+            int value = 0;
+            for (int i = degree; i >= 0; i--) {
+                value = (value == 0 ? 0 : EXP[LOG[value] + inverse]) ^ lambda[i];
+            }
+            if (value == 0) {
+                if (found == degree) {
+                    return false;
+                }
+                positions[found++] = j;
+            }
+        }
+        if (found != degree) {
+            return false;
+        }
+        // Forney: omega(x) = S(x) lambda(x) mod x^roots, e = X omega(X^-1) / lambda'(X^-1)
+        for (int i = 0; i < roots; i++) {
+            int value = 0;
+            for (int j = 0; j <= i && j <= degree; j++) {
+                value ^= mul(syndromes[i - j], lambda[j]);
+            }
+            omega[i] = value;
+        }
+        for (int e = 0; e < found; e++) {
+            int power = n - 1 - positions[e];
+            int inverse = (FIELD - power) % FIELD;
+            int numerator = 0;
+            for (int i = roots - 1; i >= 0; i--) {
+                numerator = (numerator == 0 ? 0 : EXP[LOG[numerator] + inverse]) ^ omega[i];
+            }
+            int denominator = 0;
+            for (int i = 1; i <= degree; i += 2) {
+                if (lambda[i] != 0) {
+                    denominator ^= EXP[(LOG[lambda[i]] + inverse * (i - 1)) % FIELD];
+                }
+            }
+            if (denominator == 0) {
+                return false;
+            }
+            int value = mul(div(numerator, denominator), EXP[power]);
+            block[positions[e]] ^= value;
+            correctedBits += Integer.bitCount(value);
+        }
+        return true;
+    }
+
+    /**
+     * the count of bits, that was repaired by this codec
+     * @return - the count of repaired bits
+     */
+    public long getCorrectedBits() {
+        return correctedBits;
+    }
+
+    /**
+     * the count of blocks with errors, that can't be repaired
+     * @return - the count of broken blocks
+     */
+    public long getUncorrectableBlocks() {
+        return uncorrectableBlocks;
+    }
+}
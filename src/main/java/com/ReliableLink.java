@@ -0,0 +1,629 @@
+package com;
+
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Reliable delivery of messages over port with sliding window.
+ * Every message is sent in packet with sequence number, receiver answers with cumulative ACK
+ * (and bitmap of packets after the gap in Selective Repeat mode) and with NAK, when it sees the gap.
+ * Lost packets are sent again after retransmit timeout, that is got from measured round trip time
+ * (SRTT + 4 * RTTVAR, like in TCP) and doubled after every timeout.
+ *
+ * Packet: MAGIC (2 bytes), type, seq (2 bytes), ack (2 bytes), length (2 bytes), payload, CRC-32 (4 bytes).
+ * Packets are found in the stream of decoded bytes by MAGIC and CRC, so the link works in framed
+ * and unframed modes of port, packets with errors are just dropped and sent again.
+ *
+ * All work of protocol is done in one thread of link, so state has no locks.
+ * Packets are written by the transmit queue of port, so the thread of link processes acknowledgments,
+ * while the window is on the line, timers of packets are started after their writing.
+ * Link takes the listener of port.
+ */
+public final class ReliableLink {
+    /** the max count of bytes in one message */
+    public static final int MAX_PAYLOAD = 1024;
+    /** the max count of packets, that are sent and not acknowledged */
+    public static final int MAX_WINDOW = 64;
+
+    private static final int MAGIC = 0xA55A;
+    private static final int HEADER_SIZE = 9;
+    private static final int CRC_SIZE = 4;
+    private static final int DATA = 1;
+    private static final int ACK = 2;
+    private static final int NAK = 3;
+    private static final long MIN_RTO = 200000000L;
+    private static final long MAX_RTO = 60000000000L;
+    private static final long INITIAL_RTO = 1000000000L;
+
+    /**
+     * What to send again after loss
+     */
+    public enum Mode {
+        /** receiver takes only the next packet, sender repeats all packets from the lost one */
+        GO_BACK_N,
+        /** receiver keeps packets after the gap, sender repeats only lost packets */
+        SELECTIVE_REPEAT
+    }
+
+    /**
+     * Receiver of messages, it is called from the thread of link in the order of sending
+     */
+    public interface MessageListener {
+        void messageReceived(byte[] message);
+    }
+
+    private final SerialInterface port;
+    private final Coding coding;
+    private final Mode mode;
+    private final int window;
+    private final MessageListener listener;
+    private final ScheduledExecutorService executor;
+
+    private final Queue<Outstanding> waiting = new ConcurrentLinkedQueue<Outstanding>();
+    private final Outstanding[] sent;
+    private int base;
+    private int nextSeq;
+    private ScheduledFuture<?> timer;
+
+    private final byte[][] buffered;
+    private int expected;
+    private int nakSentFor = -1;
+    private boolean ackPending;
+
+    private byte[] stream = new byte[2 * (HEADER_SIZE + MAX_PAYLOAD + CRC_SIZE)];
+    private int streamLength;
+
+    private volatile long srtt = -1;
+    private long rttvar;
+    private volatile long rto = INITIAL_RTO;
+    private volatile long retransmissions;
+    private volatile long timeouts;
+    private volatile long droppedPackets;
+    private volatile boolean closed;
+
+    /**
+     * creating link over opened port
+     * @param port - the port
+     * @param hemming - is Hemming code used by port
+     * @param mode - what to send again after loss
+     * @param window - the max count of not acknowledged packets (1..MAX_WINDOW)
+     * @param listener - the receiver of messages
+     * @deprecated - use the constructor with Coding
+     */
+    @Deprecated
+    public ReliableLink(SerialInterface port, boolean hemming, Mode mode, int window, MessageListener listener) {
+        this(port, port.getCoding(hemming), mode, window, listener);
+    }
+
+    /**
+     * creating link over opened port
+     * @param port - the port
+     * @param coding - the coding of bytes on line
+     * @param mode - what to send again after loss
+     * @param window - the max count of not acknowledged packets (1..MAX_WINDOW)
+     * @param listener - the receiver of messages
+     */
+    public ReliableLink(SerialInterface port, Coding coding, Mode mode, int window, MessageListener listener) {
+        if (window < 1 || window > MAX_WINDOW) {
+            throw new IllegalArgumentException("window out of range: " + window);
+        }
+        this.port = port;
+        this.coding = coding;
+        this.mode = mode;
+        this.window = window;
+        this.listener = listener;
+        this.sent = new Outstanding[MAX_WINDOW];
+        this.buffered = new byte[MAX_WINDOW][];
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "arq");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        port.addListener(new SerialPortEventListener() {
+            public void serialEvent(SerialPortEvent event) {
+                if (event.isRXCHAR() && event.getEventValue() > 0) {
+                    final byte[] bytes = ReliableLink.this.port.read(event.getEventValue(), ReliableLink.this.coding);
+                    if (bytes != null && bytes.length > 0) {
+                        execute(new Runnable() {
+                            public void run() {
+                                feed(bytes);
+                            }
+                        });
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * adding message for sending, it is sent, when window has place
+     * @param message - the bytes of message (not more than MAX_PAYLOAD)
+     * @return - the future, that is completed with true, when receiver acknowledged message
+     *         - and with false, when link was closed before it
+     */
+    public CompletableFuture<Boolean> send(byte[] message) {
+        if (message.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("message is longer than " + MAX_PAYLOAD + ": " + message.length);
+        }
+        Outstanding packet = new Outstanding(message);
+        if (closed) {
+            packet.future.complete(false);
+            return packet.future;
+        }
+        waiting.add(packet);
+        execute(new Runnable() {
+            public void run() {
+                fillWindow();
+            }
+        });
+        return packet.future;
+    }
+
+    /**
+     * stopping link, messages without acknowledgment are completed with false
+     */
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (Outstanding packet : sent) {
+            if (packet != null) {
+                packet.future.complete(false);
+            }
+        }
+        for (Outstanding packet : waiting) {
+            packet.future.complete(false);
+        }
+    }
+
+    /**
+     * running task in thread of link
+     * @param task - the task
+     */
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException ex) {
+            // link is closed
+        }
+    }
+
+    /**
+     * sending messages from queue, while window has place
+     */
+    private void fillWindow() {
+        while (!waiting.isEmpty() && seqDiff(nextSeq, base) < window) {
+            Outstanding packet = waiting.poll();
+            packet.seq = nextSeq;
+            sent[nextSeq & (MAX_WINDOW - 1)] = packet;
+            nextSeq = (nextSeq + 1) & 0xffff;
+            transmit(packet, false);
+        }
+        armTimer();
+    }
+
+    /**
+     * sending DATA packet
+     * @param packet - the packet
+     * @param again - is it retransmission
+     */
+    private void transmit(final Outstanding packet, boolean again) {
+        if (again) {
+            packet.retransmitted = true;
+            retransmissions++;
+        }
+        // timer waits for the end of writing, the packet can stay in queue behind the other packets
+        packet.deadline = Long.MAX_VALUE;
+        port.sendAsync(packet(DATA, packet.seq, expected, packet.message, 0, packet.message.length), coding)
+                .whenComplete(new BiConsumer<Boolean, Throwable>() {
+                    public void accept(Boolean res, Throwable ex) {
+                        execute(new Runnable() {
+                            public void run() {
+                                written(packet);
+                            }
+                        });
+                    }
+                });
+    }
+
+    /**
+     * starting timer of packet after its writing (or failed writing, then packet is sent again after timeout)
+     * @param packet - the packet
+     */
+    private void written(Outstanding packet) {
+        if (packet.acked) {
+            return;
+        }
+        packet.sentAt = System.nanoTime();
+        packet.deadline = packet.sentAt + rto;
+        armTimer();
+    }
+
+    /**
+     * starting timer for the earliest deadline of not acknowledged packets
+     */
+    private void armTimer() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (int seq = base; seq != nextSeq; seq = (seq + 1) & 0xffff) {
+            Outstanding packet = sent[seq & (MAX_WINDOW - 1)];
+            if (!packet.acked && packet.deadline < earliest) {
+                earliest = packet.deadline;
+            }
+        }
+        if (earliest == Long.MAX_VALUE || closed) {
+            return;
+        }
+        timer = executor.schedule(new Runnable() {
+            public void run() {
+                timeout();
+            }
+        }, earliest - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * sending again packets, that were not acknowledged in time
+     */
+    private void timeout() {
+        timer = null;
+        long now = System.nanoTime();
+        boolean expired = false;
+        for (int seq = base; seq != nextSeq; seq = (seq + 1) & 0xffff) {
+            Outstanding packet = sent[seq & (MAX_WINDOW - 1)];
+            if (!packet.acked && packet.deadline <= now) {
+                expired = true;
+                break;
+            }
+        }
+        if (expired) {
+            timeouts++;
+            rto = Math.min(MAX_RTO, rto * 2);
+            for (int seq = base; seq != nextSeq; seq = (seq + 1) & 0xffff) {
+                Outstanding packet = sent[seq & (MAX_WINDOW - 1)];
+                if (!packet.acked && (mode == Mode.GO_BACK_N || packet.deadline <= now)) {
+                    transmit(packet, true);
+                }
+            }
+        }
+        armTimer();
+    }
+
+    /**
+     * processing acknowledgment from receiver
+     * @param ack - the next sequence number, that receiver waits
+     * @param payload - the bytes with bitmap of received packets after ack
+     * @param off - the offset of bitmap
+     * @param len - the count of bytes of bitmap (0 - without bitmap)
+     */
+    private void acknowledged(int ack, byte[] payload, int off, int len) {
+        int count = seqDiff(ack, base);
+        if (count < 0 || count > seqDiff(nextSeq, base)) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            complete(sent[(base + i) & (MAX_WINDOW - 1)], now);
+        }
+        base = ack;
+        if (count > 0 && srtt >= 0) {
+            // line works again, so backoff of timeout is not needed
+            rto = Math.max(MIN_RTO, Math.min(MAX_RTO, srtt + 4 * rttvar));
+        }
+        if (len == Long.SIZE / Byte.SIZE) {
+            long bitmap = 0;
+            for (int i = 0; i < len; i++) {
+                bitmap = bitmap << 8 | (payload[off + i] & 0xff);
+            }
+            int outstanding = seqDiff(nextSeq, base);
+            for (int i = 0; i < Long.SIZE && i + 1 < outstanding; i++) {
+                if ((bitmap >>> i & 1) != 0) {
+                    complete(sent[(base + 1 + i) & (MAX_WINDOW - 1)], now);
+                }
+            }
+        }
+        fillWindow();
+    }
+
+    /**
+     * marking packet as acknowledged
+     * @param packet - the packet
+     * @param now - the time of acknowledgment
+     */
+    private void complete(Outstanding packet, long now) {
+        if (packet.acked) {
+            return;
+        }
+        packet.acked = true;
+        if (!packet.retransmitted && packet.deadline != Long.MAX_VALUE) {
+            // Karn's algorithm: time of retransmitted packet can be time of any of its copies,
+            // packet acknowledged before the end of its writing was written together with other packets
+            updateRto(now - packet.sentAt);
+        }
+        packet.future.complete(true);
+    }
+
+    /**
+     * updating retransmit timeout by new round trip time
+     * @param rtt - the time from sending to acknowledgment
+     */
+    private void updateRto(long rtt) {
+        if (srtt < 0) {
+            srtt = rtt;
+            rttvar = rtt / 2;
+        }
+        else {
+            rttvar = (3 * rttvar + Math.abs(srtt - rtt)) / 4;
+            srtt = (7 * srtt + rtt) / 8;
+        }
+        rto = Math.max(MIN_RTO, Math.min(MAX_RTO, srtt + 4 * rttvar));
+    }
+
+    /**
+     * sending again packets after NAK without waiting for timeout
+     * @param seq - the sequence number of lost packet
+     */
+    private void negativeAcknowledged(int seq) {
+        int index = seqDiff(seq, base);
+        int outstanding = seqDiff(nextSeq, base);
+        if (index < 0 || index >= outstanding) {
+            return;
+        }
+        int last = mode == Mode.GO_BACK_N ? outstanding : index + 1;
+        for (int i = index; i < last; i++) {
+            Outstanding packet = sent[(base + i) & (MAX_WINDOW - 1)];
+            if (!packet.acked) {
+                transmit(packet, true);
+            }
+        }
+        armTimer();
+    }
+
+    /**
+     * processing DATA packet
+     * @param seq - the sequence number of packet
+     * @param payload - the buffer with message
+     * @param off - the offset of message
+     * @param len - the count of bytes of message
+     */
+    private void dataReceived(int seq, byte[] payload, int off, int len) {
+        int index = seqDiff(seq, expected);
+        ackPending = true;
+        if (index < 0 || index >= window) {
+            // old copy, ACK is sent again, because the last ACK can be lost
+            return;
+        }
+        if (index > 0) {
+            if (mode == Mode.SELECTIVE_REPEAT && buffered[seq & (MAX_WINDOW - 1)] == null) {
+                buffered[seq & (MAX_WINDOW - 1)] = copy(payload, off, len);
+            }
+            if (nakSentFor != expected) {
+                nakSentFor = expected;
+                sendControl(NAK, expected, null);
+            }
+            return;
+        }
+        listener.messageReceived(copy(payload, off, len));
+        expected = (expected + 1) & 0xffff;
+        while (buffered[expected & (MAX_WINDOW - 1)] != null) {
+            byte[] message = buffered[expected & (MAX_WINDOW - 1)];
+            buffered[expected & (MAX_WINDOW - 1)] = null;
+            listener.messageReceived(message);
+            expected = (expected + 1) & 0xffff;
+        }
+    }
+
+    /**
+     * sending cumulative ACK (with bitmap in Selective Repeat mode)
+     */
+    private void sendAck() {
+        ackPending = false;
+        byte[] bitmap = null;
+        if (mode == Mode.SELECTIVE_REPEAT) {
+            long bits = 0;
+            for (int i = 0; i + 1 < window; i++) {
+                if (buffered[(expected + 1 + i) & (MAX_WINDOW - 1)] != null) {
+                    bits |= 1L << i;
+                }
+            }
+            bitmap = new byte[Long.SIZE / Byte.SIZE];
+            for (int i = 0; i < bitmap.length; i++) {
+                bitmap[i] = (byte) (bits >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+            }
+        }
+        sendControl(ACK, expected, bitmap);
+    }
+
+    /**
+     * sending ACK or NAK packet
+     * @param type - the type of packet
+     * @param ack - the sequence number
+     * @param payload - the payload (null - without payload)
+     */
+    private void sendControl(int type, int ack, byte[] payload) {
+        port.sendAsync(packet(type, 0, ack, payload, 0, payload == null ? 0 : payload.length), coding);
+    }
+
+    /**
+     * adding decoded bytes from port and processing all full packets
+     * @param bytes - the bytes from port
+     */
+    private void feed(byte[] bytes) {
+        if (streamLength + bytes.length > stream.length) {
+            byte[] bigger = new byte[Math.max(stream.length * 2, streamLength + bytes.length)];
+            System.arraycopy(stream, 0, bigger, 0, streamLength);
+            stream = bigger;
+        }
+        System.arraycopy(bytes, 0, stream, streamLength, bytes.length);
+        streamLength += bytes.length;
+        int pos = 0;
+        while (streamLength - pos >= HEADER_SIZE + CRC_SIZE) {
+            if (((stream[pos] & 0xff) << 8 | (stream[pos + 1] & 0xff)) != MAGIC) {
+                pos++;
+                continue;
+            }
+            int len = (stream[pos + 7] & 0xff) << 8 | (stream[pos + 8] & 0xff);
+            if (len > MAX_PAYLOAD) {
+                pos++;
+                continue;
+            }
+            int size = HEADER_SIZE + len + CRC_SIZE;
+            if (streamLength - pos < size) {
+                break;
+            }
+            int crc = CrcEngine.CRC32.compute(stream, pos, HEADER_SIZE + len);
+            int received = (stream[pos + size - 4] & 0xff) << 24 | (stream[pos + size - 3] & 0xff) << 16
+                    | (stream[pos + size - 2] & 0xff) << 8 | (stream[pos + size - 1] & 0xff);
+            if (crc != received) {
+                droppedPackets++;
+                pos++;
+                continue;
+            }
+            int type = stream[pos + 2];
+            int seq = (stream[pos + 3] & 0xff) << 8 | (stream[pos + 4] & 0xff);
+            int ack = (stream[pos + 5] & 0xff) << 8 | (stream[pos + 6] & 0xff);
+            if (type == DATA) {
+                acknowledged(ack, null, 0, 0);
+                dataReceived(seq, stream, pos + HEADER_SIZE, len);
+            }
+            else if (type == ACK) {
+                acknowledged(ack, stream, pos + HEADER_SIZE, len);
+            }
+            else if (type == NAK) {
+                negativeAcknowledged(ack);
+            }
+            pos += size;
+        }
+        System.arraycopy(stream, pos, stream, 0, streamLength - pos);
+        streamLength -= pos;
+        // one ACK for all packets of chunk
+        if (ackPending) {
+            sendAck();
+        }
+    }
+
+    /**
+     * building packet
+     * @param type - the type of packet
+     * @param seq - the sequence number
+     * @param ack - the acknowledgment number
+     * @param payload - the payload
+     * @param off - the offset of payload
+     * @param len - the count of bytes of payload
+     * @return - the bytes of packet
+     */
+    private static byte[] packet(int type, int seq, int ack, byte[] payload, int off, int len) {
+        byte[] res = new byte[HEADER_SIZE + len + CRC_SIZE];
+        res[0] = (byte) (MAGIC >>> 8);
+        res[1] = (byte) MAGIC;
+        res[2] = (byte) type;
+        res[3] = (byte) (seq >>> 8);
+        res[4] = (byte) seq;
+        res[5] = (byte) (ack >>> 8);
+        res[6] = (byte) ack;
+        res[7] = (byte) (len >>> 8);
+        res[8] = (byte) len;
+        if (len > 0) {
+            System.arraycopy(payload, off, res, HEADER_SIZE, len);
+        }
+        int crc = CrcEngine.CRC32.compute(res, 0, HEADER_SIZE + len);
+        for (int i = 0; i < CRC_SIZE; i++) {
+            res[HEADER_SIZE + len + i] = (byte) (crc >>> (Byte.SIZE * (CRC_SIZE - 1 - i)));
+        }
+        return res;
+    }
+
+    /**
+     * getting distance between sequence numbers
+     * @param a - the first number
+     * @param b - the second number
+     * @return - a - b in the range -32768..32767
+     */
+    private static int seqDiff(int a, int b) {
+        return (short) (a - b);
+    }
+
+    private static byte[] copy(byte[] bytes, int off, int len) {
+        byte[] res = new byte[len];
+        System.arraycopy(bytes, off, res, 0, len);
+        return res;
+    }
+
+    /**
+     * the count of packets, that were sent again
+     * @return - the count of packets
+     */
+    public long getRetransmissions() {
+        return retransmissions;
+    }
+
+    /**
+     * the count of expired retransmit timers
+     * @return - the count of timeouts
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * the count of received packets with wrong CRC
+     * @return - the count of packets
+     */
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    /**
+     * the current retransmit timeout
+     * @return - the time in nanoseconds
+     */
+    public long getRto() {
+        return rto;
+    }
+
+    /**
+     * the smoothed round trip time
+     * @return - the time in nanoseconds (-1 - was not measured yet)
+     */
+    public long getSrtt() {
+        return srtt;
+    }
+
+    /**
+     * Message, that is waiting for sending or acknowledgment
+     */
+    private static final class Outstanding {
+        final byte[] message;
+        final CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+        int seq;
+        long sentAt;
+        long deadline;
+        boolean retransmitted;
+        boolean acked;
+
+        Outstanding(byte[] message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com;
+
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import jssc.SerialPortException;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Port, that gives again bytes, that was read by port in CaptureLog.
+ * Decoding, framing and link layers work over it like over real port, so problem of line
+ * can be reproduced many times. Bytes are given with the original pauses or as fast as possible.
+ * Written bytes are dropped.
+ */
+public class ReplaySerial extends AbstractSerial {
+    /** the size of input buffer, replay waits, while reader doesn't take bytes */
+    public static final int INPUT_BUFFER = 4096;
+
+    private final File capture;
+    private final String name;
+    private final boolean originalTiming;
+    private final ReceiveBuffer input = new ReceiveBuffer(INPUT_BUFFER);
+    private volatile boolean opened;
+    private volatile boolean finished;
+    private volatile SerialPortEventListener listener;
+    private Thread replay;
+    private long replayedBytes;
+
+    /**
+     * creating replay of port
+     * @param capture - the file of log
+     * @param portName - the name of port in log, which received bytes are given
+     * @param originalTiming - give bytes with the pauses of log (false - as fast as possible)
+     */
+    public ReplaySerial(File capture, String portName, boolean originalTiming) {
+        this.capture = capture;
+        this.name = portName;
+        this.originalTiming = originalTiming;
+    }
+
+    /**
+     * the name of port
+     * @return - the name of port
+     */
+    public String getPortName() {
+        return name;
+    }
+
+    /**
+     * reading bytes from input buffer
+     * @param count - the count of bytes for reading
+     * @return - the bytes (not more than count of bytes in buffer)
+     */
+    protected byte[] readRaw(int count) throws SerialPortException {
+        checkOpened("readBytes");
+        synchronized (input) {
+            byte[] res = new byte[Math.min(count, input.size())];
+            input.readBlocks(res, 0, 1, res.length);
+            input.notifyAll();
+            return res;
+        }
+    }
+
+    /**
+     * reading bytes from input buffer into buffer of caller
+     * @param dst - the buffer for bytes
+     * @param off - the offset in dst
+     * @param count - the max count of bytes
+     * @return - the count of read bytes
+     */
+    protected int readRaw(byte[] dst, int off, int count) throws SerialPortException {
+        checkOpened("readBytes");
+        synchronized (input) {
+            int n = input.readBlocks(dst, off, 1, count);
+            input.notifyAll();
+            return n;
+        }
+    }
+
+    /**
+     * dropping bytes, replay has no line for sending
+     * @param bytes - the buffer with bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes for writing
+     * @return - is writing finish successfully
+     */
+    protected boolean writeRaw(byte[] bytes, int off, int len) throws SerialPortException {
+        checkOpened("writeBytes");
+        return true;
+    }
+
+    /**
+     * the count of bytes, that are not sent on line yet
+     * @return - always 0
+     */
+    protected int outputQueued() {
+        return 0;
+    }
+
+    /**
+     * the state of CTS line
+     * @return - always true
+     */
+    protected boolean isClearToSend() {
+        return true;
+    }
+
+    /**
+     * giving received bytes of port from log
+     */
+    private void replay() {
+        try {
+            CaptureLog.Reader reader = new CaptureLog.Reader(capture);
+            try {
+                long start = System.nanoTime();
+                long first = -1;
+                CaptureLog.Record record;
+                while (opened && (record = reader.next()) != null) {
+                    if (record.direction != CaptureLog.RX || !name.equals(record.port)) {
+                        continue;
+                    }
+                    if (first < 0) {
+                        first = record.nanos;
+                    }
+                    if (originalTiming) {
+                        long wait = record.nanos - first - (System.nanoTime() - start);
+                        if (wait > 0) {
+                            Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+                        }
+                    }
+                    deliver(record.bytes);
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        catch (InterruptedException ex) {
+            // closing of port
+        }
+        synchronized (this) {
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * putting bytes into input buffer and calling listener
+     * @param bytes - the bytes from log
+     * @throws InterruptedException - if port is closed while waiting for reader
+     */
+    private void deliver(byte[] bytes) throws InterruptedException {
+        int count;
+        synchronized (input) {
+            // reader must take bytes, otherwise fast replay fills memory
+            while (opened && input.size() >= INPUT_BUFFER) {
+                input.wait(10);
+            }
+            input.write(bytes, 0, bytes.length);
+            count = input.size();
+        }
+        synchronized (this) {
+            replayedBytes += bytes.length;
+        }
+        SerialPortEventListener current = listener;
+        if (current != null) {
+            current.serialEvent(new SerialPortEvent(name, SerialPortEvent.RXCHAR, count));
+        }
+    }
+
+    /**
+     * waiting for the end of log
+     * @param millis - the max time of waiting in milliseconds
+     * @return - are all bytes given
+     * @throws InterruptedException - if waiting was interrupted
+     */
+    public synchronized boolean awaitEnd(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        while (!finished) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                return false;
+            }
+            wait(wait);
+        }
+        return true;
+    }
+
+    /**
+     * the count of bytes, that was given from log
+     * @return - the count of bytes
+     */
+    public synchronized long getReplayedBytes() {
+        return replayedBytes;
+    }
+
+    /**
+     * checking, that port is opened
+     * @param method - the name of method for exception
+     * @throws SerialPortException - if port is not opened
+     */
+    private void checkOpened(String method) throws SerialPortException {
+        if (!opened) {
+            throw new SerialPortException(name, method, SerialPortException.TYPE_PORT_NOT_OPENED);
+        }
+    }
+
+    /**
+     * starting replay, listener should be added before opening
+     * @return is opening was successfully
+     */
+    public synchronized boolean open() {
+        if (opened || !capture.isFile()) {
+            return false;
+        }
+        opened = true;
+        finished = false;
+        getMetrics().register(name);
+        replay = new Thread(new Runnable() {
+            public void run() {
+                replay();
+            }
+        }, "replay-" + name);
+        replay.setDaemon(true);
+        replay.start();
+        return true;
+    }
+
+    /**
+     * stopping replay
+     * @return is closing was successfully
+     */
+    public boolean close() {
+        closeQueue();
+        getMetrics().unregister();
+        Thread thread;
+        synchronized (this) {
+            if (!opened) {
+                return false;
+            }
+            opened = false;
+            thread = replay;
+        }
+        thread.interrupt();
+        return true;
+    }
+
+    /**
+     * setting parameters to port, speed of replay is given by log
+     * @param baudRate - the speed of port in bauds
+     * @param dataBits - the count of bits for data
+     * @param stopBits - the count of stop bits
+     * @param parity - the settings of the parity bit
+     */
+    public void setParams(int baudRate, int dataBits, int stopBits, int parity) {
+        pacer.setParams(baudRate, dataBits, stopBits, parity);
+    }
+
+    /**
+     * adding listener to port, it is called from the thread of replay
+     * @param listener - the listener of read event for adding
+     */
+    public void addListener(SerialPortEventListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * setting parameters for flow control
+     * @param mask - the mask of parameters
+     */
+    public void setFlowControl(int mask) {
+        flowControl = mask;
+    }
+
+    /**
+     * is port opened?
+     * @return the current status of port
+     */
+    public boolean isOpen() {
+        return opened;
+    }
+}
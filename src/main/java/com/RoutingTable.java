@@ -0,0 +1,259 @@
+package com;
+
+import java.util.Arrays;
+
+/**
+ * Table of local ports for numeric addresses of frames.
+ * Addresses are kept in hash table with open addressing in arrays of int, so lookup for every
+ * frame is one hash and usually one compare without boxing of address.
+ * Address of port has one port (the segment, where the port with this address is),
+ * group has array of ports with members of group.
+ */
+public final class RoutingTable {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * creating empty table
+     */
+    public RoutingTable() {
+        this(16);
+    }
+
+    /**
+     * creating empty table
+     * @param capacity - the expected count of addresses
+     */
+    public RoutingTable(int capacity) {
+        int length = 4;
+        while (length < capacity * 2) {
+            length <<= 1;
+        }
+        keys = new int[length];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[length];
+    }
+
+    /**
+     * mixing bits of address, near addresses must not be in near slots
+     * @param address - the address
+     * @return - the hash
+     */
+    private static int hash(int address) {
+        int h = address * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * finding slot of address
+     * @param address - the address
+     * @return - the slot with address or the empty slot, where it can be added
+     */
+    private int slot(int address) {
+        int mask = keys.length - 1;
+        int i = hash(address) & mask;
+        while (keys[i] != EMPTY && keys[i] != address) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * setting port for address of port
+     * @param address - the address of port
+     * @param port - the local port, where frames for address are sent
+     * @return - the previous port of address (null - address was unknown)
+     */
+    public synchronized AbstractSerial put(int address, AbstractSerial port) {
+        LinkAddress.checkUnicast(address);
+        return (AbstractSerial) set(address, port);
+    }
+
+    /**
+     * getting port for address of port
+     * @param address - the address of port
+     * @return - the port or null, if address is unknown
+     */
+    public synchronized AbstractSerial get(int address) {
+        if (LinkAddress.isGroup(address)) {
+            return null;
+        }
+        return (AbstractSerial) values[slot(address)];
+    }
+
+    /**
+     * adding port into group
+     * @param group - the address of group
+     * @param port - the local port, where frames for group are sent
+     */
+    public synchronized void addMember(int group, AbstractSerial port) {
+        LinkAddress.checkGroup(group);
+        AbstractSerial[] members = (AbstractSerial[]) values[slot(group)];
+        if (members == null) {
+            set(group, new AbstractSerial[] {port});
+        }
+        else if (!Arrays.asList(members).contains(port)) {
+            AbstractSerial[] res = Arrays.copyOf(members, members.length + 1);
+            res[members.length] = port;
+            set(group, res);
+        }
+    }
+
+    /**
+     * removing port from group
+     * @param group - the address of group
+     * @param port - the port
+     */
+    public synchronized void removeMember(int group, AbstractSerial port) {
+        LinkAddress.checkGroup(group);
+        int i = slot(group);
+        if (values[i] != null) {
+            AbstractSerial[] members = without((AbstractSerial[]) values[i], port);
+            if (members == null) {
+                delete(i);
+            }
+            else {
+                values[i] = members;
+            }
+        }
+    }
+
+    /**
+     * getting ports of group, array must not be changed
+     * @param group - the address of group
+     * @return - the ports or null, if group is unknown
+     */
+    public synchronized AbstractSerial[] getMembers(int group) {
+        if (!LinkAddress.isGroup(group)) {
+            return null;
+        }
+        return (AbstractSerial[]) values[slot(group)];
+    }
+
+    /**
+     * removing address of port or group
+     * @param address - the address
+     * @return - was address in table
+     */
+    public synchronized boolean remove(int address) {
+        int i = slot(address);
+        if (keys[i] == EMPTY) {
+            return false;
+        }
+        delete(i);
+        return true;
+    }
+
+    /**
+     * removing all addresses and memberships of port, for example when port is closed
+     * @param port - the port
+     */
+    public synchronized void removePort(AbstractSerial port) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[oldKeys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object value = oldValues[i];
+            if (value instanceof AbstractSerial[]) {
+                value = without((AbstractSerial[]) value, port);
+            }
+            if (value != null && value != port) {
+                set(oldKeys[i], value);
+            }
+        }
+    }
+
+    /**
+     * the count of addresses and groups
+     * @return - the count of entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * setting value of address, table grows, when it is half full
+     * @param address - the address
+     * @param value - the port or ports of group
+     * @return - the previous value
+     */
+    private Object set(int address, Object value) {
+        int i = slot(address);
+        Object previous = values[i];
+        if (keys[i] == EMPTY) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                i = slot(address);
+            }
+            keys[i] = address;
+            size++;
+        }
+        values[i] = value;
+        return previous;
+    }
+
+    /**
+     * doubling arrays of table
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * removing entry and moving next entries of its chain back into hole
+     * @param slot - the slot of entry
+     */
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            // entry can be moved, if hole is between its home slot and its slot
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        size--;
+    }
+
+    /**
+     * copying ports of group without port
+     * @param members - the ports of group
+     * @param port - the port for removing
+     * @return - the ports or null, if group became empty
+     */
+    private static AbstractSerial[] without(AbstractSerial[] members, AbstractSerial port) {
+        int index = Arrays.asList(members).indexOf(port);
+        if (index < 0) {
+            return members;
+        }
+        if (members.length == 1) {
+            return null;
+        }
+        AbstractSerial[] res = new AbstractSerial[members.length - 1];
+        System.arraycopy(members, 0, res, 0, index);
+        System.arraycopy(members, index + 1, res, index, res.length - index);
+        return res;
+    }
+}
@@ -3,9 +3,10 @@ import jssc.SerialPort;
 import jssc.SerialPortEventListener;
 import jssc.SerialPortException;
 
+import java.util.Arrays;
 import java.util.Random;
 
-public class Serial implements SerialInterface {
+public class Serial extends AbstractSerial {
     private SerialPort port;
     private boolean opened;
 
@@ -19,44 +20,42 @@ public class Serial implements SerialInterface {
     }
 
     /**
-     * writing all bytes to COM port
-     * @param bytes - the bytes for writing
-     * @return is writing finish successfully
+     * the name of COM port
+     * @return - the name of port
      */
-    public boolean write(byte[] bytes, boolean hemming) {
-        try {
-            if (hemming) {
-                return port.writeBytes(hemingCoding(bytes, 5));
-            }
-            else {
-                return port.writeBytes(crcCoding(bytes));
-            }
-        }
-        catch (SerialPortException ex) {
-            ex.printStackTrace();
-            return  false;
-        }
+    public String getPortName() {
+        return port.getPortName();
     }
 
     /**
-     * reading some bytes from port
-     * @param byteCount - the count of bytes for reading
-     * @return the bytes, that was readied
+     * reading bytes from COM port
      */
-    public byte[] read(int byteCount, boolean hemming) {
-        try {
-            byte[] in = port.readBytes(byteCount);
-            if (hemming) {
-                return hemingDecode(in);
-            }
-            else {
-                return crcDecoding(in);
-            }
-        }
-        catch (SerialPortException ex) {
-            ex.printStackTrace();
-            return null;
-        }
+    protected byte[] readRaw(int count) throws SerialPortException {
+        // event can be older than reading, when it is done in other thread, so part of bytes can be read already
+        int available = Math.min(count, port.getInputBufferBytesCount());
+        return available > 0 ? port.readBytes(available) : new byte[0];
+    }
+
+    /**
+     * writing bytes to COM port
+     */
+    protected boolean writeRaw(byte[] bytes, int off, int len) throws SerialPortException {
+        // jssc writes only the whole array
+        return port.writeBytes(off == 0 && len == bytes.length ? bytes : Arrays.copyOfRange(bytes, off, off + len));
+    }
+
+    /**
+     * the count of bytes in output buffer of COM port
+     */
+    protected int outputQueued() throws SerialPortException {
+        return port.getOutputBufferBytesCount();
+    }
+
+    /**
+     * the state of CTS line of COM port
+     */
+    protected boolean isClearToSend() throws SerialPortException {
+        return port.isCTS();
     }
 
     /**
@@ -66,6 +65,9 @@ public class Serial implements SerialInterface {
     public boolean open() {
         try {
             opened = port.openPort();
+            if (opened) {
+                getMetrics().register(getPortName());
+            }
             return opened;
         }
         catch (SerialPortException ex)
@@ -80,6 +82,8 @@ public class Serial implements SerialInterface {
      * @return is closing was successfully
      */
     public boolean close() {
+        closeQueue();
+        getMetrics().unregister();
         try {
             if (opened) {
                 opened = false;
@@ -104,6 +108,7 @@ public class Serial implements SerialInterface {
     public void setParams(int baudRate, int dataBits, int stopBits, int parity) {
         try {
             port.setParams(baudRate, dataBits, stopBits, parity);
+            pacer.setParams(baudRate, dataBits, stopBits, parity);
         }
         catch (SerialPortException ex){
             ex.printStackTrace();
@@ -131,6 +136,7 @@ public class Serial implements SerialInterface {
     public void setFlowControl(int mask) {
         try {
             port.setFlowControlMode(mask);
+            flowControl = mask;
         } catch (SerialPortException ex) {
             ex.printStackTrace();
         }
@@ -173,65 +179,6 @@ public class Serial implements SerialInterface {
         return toReturn;
     }
 
-    /**
-     * incapsulate bytes into package for sending
-     * @param raw - raw bytes
-     * @param address - the address for sending
-     * @param source - the source of sending
-     * @return - incapsulated package
-     */
-    private byte[] incapsulate(byte[] raw, String address, String source) {
-        String resString = toBinary(raw).replaceAll("11111","111110");
-        resString = "01111110" + toBinary(address.getBytes()).replaceAll("11111","111110") + "01111110" + toBinary(source.getBytes()).replaceAll("11111","111110") + "01111110" + resString;
-        boolean parity = false;
-        for (int i = 0; i < resString.length(); i++) {
-            if (resString.charAt(i) == '1') {
-                parity = !parity;
-            }
-        }
-        if (parity) {
-            resString = resString + "1";
-        }
-        else {
-            resString = resString + "0";
-        }
-        return fromBinary(resString);
-    }
-
-    /**
-     * getting bytes from incapsulated package
-     * @param complex - incapsulated package
-     * @return - the message from package
-     */
-    private byte[] decapsulate(byte[] complex) {
-        String temp = toBinary(complex);
-        boolean parity = false;
-        for (int i = 0; i < temp.length(); i++) {
-            if (temp.charAt(i) == '1') {
-                parity = !parity;
-            }
-        }
-        if (!parity) {
-            temp = temp.substring(0,temp.length() - Byte.SIZE);
-            int start = temp.indexOf("01111110");
-            if (start >= 0) {
-                temp = temp.substring(start + 8);
-                String[] reading = temp.split("01111110");
-                if (reading.length > 1) {
-                    reading[0] = reading[0].replaceAll("111110", "11111");
-                    String address = new String(fromBinary(reading[0]));
-                    reading[1] = reading[1].replaceAll("111110", "11111");
-                    String source = new String(fromBinary(reading[1]));
-                    if (address.equals(port.getPortName())) {
-                        return fromBinary(reading[2].replaceAll("111110", "11111"));
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
-
     /**
      * incapsulating bytes with Hemming code for repair error bit
      * @param raw - raw bytes
@@ -1,14 +1,88 @@
 package com;
 
+import jssc.SerialPortEventListener;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
 public interface SerialInterface {
 
-    boolean write(byte[] bytes, boolean hemming);
+    boolean write(byte[] bytes, Coding coding);
+
+    int write(ByteBuffer message, Coding coding);
+
+    boolean send(byte[] message, Coding coding);
+
+    CompletableFuture<Boolean> sendAsync(byte[] message, Coding coding);
+
+    byte[] read(int bytesCount, Coding coding);
+
+    int read(int bytesCount, ByteBuffer dst, Coding coding);
+
+    /**
+     * getting the coding of port for methods with flag of Hemming code
+     * @param hemming - is Hemming code used
+     * @return - Hemming codec or CRC codec of port
+     */
+    Coding getCoding(boolean hemming);
 
-    byte[] read(int bytesCount, boolean hemming);
+    /**
+     * @deprecated - use write(byte[], Coding)
+     */
+    @Deprecated
+    default boolean write(byte[] bytes, boolean hemming) {
+        return write(bytes, getCoding(hemming));
+    }
+
+    /**
+     * @deprecated - use write(ByteBuffer, Coding)
+     */
+    @Deprecated
+    default int write(ByteBuffer message, boolean hemming) {
+        return write(message, getCoding(hemming));
+    }
+
+    /**
+     * @deprecated - use send(byte[], Coding)
+     */
+    @Deprecated
+    default boolean send(byte[] message, boolean hemming) {
+        return send(message, getCoding(hemming));
+    }
+
+    /**
+     * @deprecated - use sendAsync(byte[], Coding)
+     */
+    @Deprecated
+    default CompletableFuture<Boolean> sendAsync(byte[] message, boolean hemming) {
+        return sendAsync(message, getCoding(hemming));
+    }
+
+    /**
+     * @deprecated - use read(int, Coding)
+     */
+    @Deprecated
+    default byte[] read(int bytesCount, boolean hemming) {
+        return read(bytesCount, getCoding(hemming));
+    }
+
+    /**
+     * @deprecated - use read(int, ByteBuffer, Coding)
+     */
+    @Deprecated
+    default int read(int bytesCount, ByteBuffer dst, boolean hemming) {
+        return read(bytesCount, dst, getCoding(hemming));
+    }
 
     boolean open();
 
     boolean close();
 
     void setParams(int baudRate, int dataBits, int stopBits, int parity);
+
+    void addListener(SerialPortEventListener listener);
+
+    void setFlowControl(int mask);
+
+    boolean isOpen();
 }
@@ -0,0 +1,100 @@
+package com;
+
+import jssc.SerialPort;
+
+/**
+ * Pacing of output by the speed of port.
+ * Coded message is written in chunks, so that output queue of driver
+ * keeps not more than window bytes (about 100 ms of line time),
+ * and waiting time is got from baud rate instead of fixed sleeps.
+ */
+public final class TransmitPacer {
+    private static final long NANOS_IN_SECOND = 1000000000L;
+    private static final int MIN_WINDOW = 64;
+
+    private int baudRate = SerialPort.BAUDRATE_9600;
+    private int bitsPerByte = 10;
+    private int window;
+
+    /**
+     * creating pacer for 9600 bauds, 8 data bits, 1 stop bit, without parity
+     */
+    public TransmitPacer() {
+        setParams(SerialPort.BAUDRATE_9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+    }
+
+    /**
+     * setting parameters of port
+     * @param baudRate - the speed of COM port in bauds
+     * @param dataBits - the count of bits for data
+     * @param stopBits - the count of stop bits (constant of SerialPort)
+     * @param parity - the settings of the parity bit
+     */
+    public void setParams(int baudRate, int dataBits, int stopBits, int parity) {
+        this.baudRate = baudRate;
+        this.bitsPerByte = 1 + dataBits + (parity == SerialPort.PARITY_NONE ? 0 : 1)
+                + (stopBits == SerialPort.STOPBITS_1 ? 1 : 2);
+        this.window = Math.max(MIN_WINDOW, baudRate / bitsPerByte / 10);
+    }
+
+    /**
+     * getting time of sending bytes on line
+     * @param bytes - the count of bytes
+     * @return - the time in nanoseconds
+     */
+    public long nanosFor(long bytes) {
+        return bytes * bitsPerByte * NANOS_IN_SECOND / baudRate;
+    }
+
+    /**
+     * getting the count of bytes, that are sent on line in time
+     * @param nanos - the time in nanoseconds
+     * @return - the count of bytes
+     */
+    public long bytesIn(long nanos) {
+        return nanos * baudRate / bitsPerByte / NANOS_IN_SECOND;
+    }
+
+    /**
+     * getting the count of bytes, that can be written now
+     * @param queued - the count of bytes in output queue of driver
+     * @return - the count of bytes for writing (0 - need to wait)
+     */
+    public int room(int queued) {
+        return Math.max(0, window - Math.max(0, queued));
+    }
+
+    /**
+     * getting time for waiting, when output queue is full
+     * @param queued - the count of bytes in output queue of driver
+     * @return - the time in nanoseconds, when half of window will be free
+     */
+    public long waitNanos(int queued) {
+        return nanosFor(Math.max(1, queued - window / 2));
+    }
+
+    /**
+     * the max count of bytes in output queue
+     * @return - the size of window
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * the speed of port
+     * @return - the speed in bauds
+     */
+    public int getBaudRate() {
+        return baudRate;
+    }
+
+    /**
+     * sleeping for nanoseconds
+     * @param nanos - the time for sleeping
+     * @throws InterruptedException - if thread was interrupted
+     */
+    public static void sleepNanos(long nanos) throws InterruptedException {
+        Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+    }
+}
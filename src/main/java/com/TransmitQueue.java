@@ -0,0 +1,212 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded queue of messages for sending with dedicated writer thread.
+ * Writer takes all messages, that are in queue, codes them
+ * and writes the coded bytes of all of them with one paced writing.
+ */
+public final class TransmitQueue {
+    /** the max count of coded bytes in one writing */
+    public static final int MAX_BATCH_BYTES = 65536;
+
+    /**
+     * What to do with new message, when queue is full
+     */
+    public enum OverflowPolicy {
+        /** producer waits for free place */
+        BLOCK,
+        /** future of message is completed with RejectedExecutionException */
+        REJECT
+    }
+
+    /**
+     * Coding and writing of messages for writer thread
+     */
+    public interface Sink {
+        /**
+         * getting the max count of coded bytes for message
+         * @param message - the bytes of message
+         * @param coding - the coding of bytes on line
+         * @return - the count of bytes
+         */
+        int maxEncodedLength(byte[] message, Coding coding);
+
+        /**
+         * coding message into bytes for line
+         * @param message - the bytes of message
+         * @param coding - the coding of bytes on line
+         * @param dst - the buffer for coded bytes (maxEncodedLength bytes)
+         * @param dstOff - the offset in dst
+         * @return - the count of coded bytes
+         */
+        int encode(byte[] message, Coding coding, byte[] dst, int dstOff);
+
+        /**
+         * writing coded bytes to line
+         * @param coded - the coded bytes
+         * @param off - the offset of bytes
+         * @param len - the count of bytes
+         * @return - is writing finish successfully
+         */
+        boolean writeCoded(byte[] coded, int off, int len);
+    }
+
+    private final Sink sink;
+    private final BlockingQueue<Pending> queue;
+    private final OverflowPolicy policy;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * creating queue and starting writer thread
+     * @param name - the name of writer thread
+     * @param sink - the coding and writing of messages
+     * @param capacity - the max count of messages in queue
+     * @param policy - what to do, when queue is full
+     */
+    public TransmitQueue(String name, Sink sink, int capacity, OverflowPolicy policy) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<Pending>(capacity);
+        this.policy = policy;
+        this.writer = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * adding message into queue
+     * @param message - the bytes of message
+     * @param coding - the coding of bytes on line
+     * @return - the future with result of writing
+     */
+    public CompletableFuture<Boolean> submit(byte[] message, Coding coding) {
+        Pending pending = new Pending(message, coding);
+        if (closed) {
+            pending.future.completeExceptionally(new RejectedExecutionException("queue is closed"));
+            return pending.future;
+        }
+        if (policy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(pending);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                pending.future.completeExceptionally(ex);
+            }
+        }
+        else if (!queue.offer(pending)) {
+            pending.future.completeExceptionally(new RejectedExecutionException("transmit queue is full"));
+        }
+        // queue can be closed while waiting in put or just after checking of closed,
+        // then nobody takes the message after draining of queue
+        if (closed && queue.remove(pending)) {
+            pending.future.complete(false);
+        }
+        return pending.future;
+    }
+
+    /**
+     * the count of messages in queue
+     * @return - the count of waiting messages
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * stopping writer thread, waiting messages are completed with false
+     */
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        completeRest(new ArrayList<Pending>());
+    }
+
+    /**
+     * completing messages of batch, that are not written, and messages of queue with false
+     * @param batch - the messages taken by writer (items can be null)
+     */
+    private void completeRest(List<Pending> batch) {
+        queue.drainTo(batch);
+        for (Pending pending : batch) {
+            if (pending != null) {
+                pending.future.complete(false);
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * taking messages from queue and writing them by batches
+     */
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<Pending>();
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(4096);
+        try {
+            while (!closed) {
+                try {
+                    batch.add(queue.take());
+                }
+                catch (InterruptedException ex) {
+                    break;
+                }
+                queue.drainTo(batch);
+                int i = 0;
+                while (i < batch.size()) {
+                    int length = 0;
+                    int first = i;
+                    while (i < batch.size() && (i == first || length < MAX_BATCH_BYTES)) {
+                        Pending pending = batch.get(i);
+                        try {
+                            buffer = pool.grow(buffer, length + sink.maxEncodedLength(pending.message, pending.coding), length);
+                            length += sink.encode(pending.message, pending.coding, buffer, length);
+                        }
+                        catch (RuntimeException ex) {
+                            pending.future.completeExceptionally(ex);
+                            batch.set(i, null);
+                        }
+                        i++;
+                    }
+                    boolean res = length == 0 || sink.writeCoded(buffer, 0, length);
+                    for (int k = first; k < i; k++) {
+                        if (batch.get(k) != null) {
+                            batch.get(k).future.complete(res);
+                        }
+                    }
+                }
+                batch.clear();
+            }
+        }
+        finally {
+            // messages, that are added after closing or are in batch on error, must not wait forever
+            completeRest(batch);
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Message in queue
+     */
+    private static final class Pending {
+        final byte[] message;
+        final Coding coding;
+        final CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+
+        Pending(byte[] message, Coding coding) {
+            this.message = message;
+            this.coding = coding;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com;
+
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import jssc.SerialPortException;
+
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory port, that is connected with other virtual port like with null modem cable.
+ * Bytes are delivered after the time of sending on line with baud rate of port and latency,
+ * in chunks with RXCHAR events like in jssc. Errors of line are added by FaultInjector,
+ * other errors can be set for speeds above the limit of cable.
+ * If ports have different baud rates, receiver gets random bytes.
+ */
+public class VirtualSerial extends AbstractSerial {
+    /** the size of input buffer, CTS of peer is off, when buffer is full */
+    public static final int INPUT_BUFFER = 4096;
+
+    private final String name;
+    private final ReceiveBuffer input = new ReceiveBuffer(INPUT_BUFFER);
+    private final Random garbage = new Random();
+    private VirtualSerial peer;
+    private volatile boolean opened;
+    private volatile SerialPortEventListener listener;
+    private volatile int baudRate = SerialPort.BAUDRATE_9600;
+    private volatile FaultInjector faults;
+    private volatile int cableLimit = Integer.MAX_VALUE;
+    private volatile FaultInjector cableFaults;
+    private long latency;
+    private int chunkSize = 32;
+    private long lineFreeAt;
+    private ScheduledExecutorService line;
+    private final Queue<byte[]> inFlight = new ConcurrentLinkedQueue<byte[]>();
+
+    /**
+     * creating virtual port without connection
+     * @param name - the name of port
+     */
+    public VirtualSerial(String name) {
+        this.name = name;
+    }
+
+    /**
+     * creating two connected ports
+     * @param name1 - the name of the first port
+     * @param name2 - the name of the second port
+     * @return - the array with two ports
+     */
+    public static VirtualSerial[] pair(String name1, String name2) {
+        VirtualSerial port1 = new VirtualSerial(name1);
+        VirtualSerial port2 = new VirtualSerial(name2);
+        port1.peer = port2;
+        port2.peer = port1;
+        return new VirtualSerial[] {port1, port2};
+    }
+
+    /**
+     * the name of port
+     * @return - the name of port
+     */
+    public String getPortName() {
+        return name;
+    }
+
+    /**
+     * setting delay of line between end of sending and receiving
+     * @param micros - the delay in microseconds
+     */
+    public void setLatency(long micros) {
+        this.latency = micros * 1000L;
+    }
+
+    /**
+     * setting the count of bytes in one RXCHAR event of peer
+     * @param chunkSize - the max count of bytes in one delivery
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * setting errors of line from this port to peer
+     * @param faults - the errors (null - without errors)
+     */
+    public void setFaults(FaultInjector faults) {
+        this.faults = faults;
+    }
+
+    /**
+     * setting errors of line from this port to peer on speeds, that cable can't sustain
+     * they are used instead of errors of setFaults, when baud rate is higher than limit
+     * @param maxBaudRate - the max speed of cable without these errors
+     * @param faults - the errors on higher speeds
+     */
+    public void setCableLimit(int maxBaudRate, FaultInjector faults) {
+        this.cableLimit = maxBaudRate;
+        this.cableFaults = faults;
+    }
+
+    /**
+     * reading bytes from input buffer
+     * @param count - the count of bytes for reading
+     * @return - the bytes (not more than count of bytes in buffer)
+     */
+    protected byte[] readRaw(int count) throws SerialPortException {
+        checkOpened("readBytes");
+        synchronized (input) {
+            byte[] res = new byte[Math.min(count, input.size())];
+            input.readBlocks(res, 0, 1, res.length);
+            return res;
+        }
+    }
+
+    /**
+     * reading bytes from input buffer into buffer of caller
+     * @param dst - the buffer for bytes
+     * @param off - the offset in dst
+     * @param count - the max count of bytes
+     * @return - the count of read bytes
+     */
+    protected int readRaw(byte[] dst, int off, int count) throws SerialPortException {
+        checkOpened("readBytes");
+        synchronized (input) {
+            return input.readBlocks(dst, off, 1, count);
+        }
+    }
+
+    /**
+     * sending bytes to peer with the time of line
+     * @param bytes - the buffer with bytes
+     * @param off - the offset of bytes
+     * @param len - the count of bytes for writing
+     * @return - is writing finish successfully
+     */
+    protected synchronized boolean writeRaw(byte[] bytes, int off, int len) throws SerialPortException {
+        checkOpened("writeBytes");
+        if (peer == null) {
+            return false;
+        }
+        byte[] out = bytes;
+        int from = off;
+        FaultInjector injector = baudRate > cableLimit ? cableFaults : faults;
+        if (injector != null) {
+            out = new byte[len * 2];
+            len = injector.apply(bytes, off, len, out);
+            from = 0;
+        }
+        if (peer.baudRate != baudRate) {
+            out = new byte[len];
+            garbage.nextBytes(out);
+            from = 0;
+        }
+        long now = System.nanoTime();
+        long start = Math.max(now, lineFreeAt);
+        for (int i = 0; i < len; i += chunkSize) {
+            int n = Math.min(chunkSize, len - i);
+            byte[] chunk = new byte[n];
+            System.arraycopy(out, from + i, chunk, 0, n);
+            start += pacer.nanosFor(n);
+            inFlight.add(chunk);
+            // every task delivers the oldest chunk, so jitter of timer can't change the order of bytes
+            line.schedule(new Runnable() {
+                public void run() {
+                    peer.deliver(inFlight.poll());
+                }
+            }, start + latency - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        lineFreeAt = start;
+        return true;
+    }
+
+    /**
+     * the count of bytes, that are not sent on line yet
+     * @return - the count of bytes
+     */
+    protected synchronized int outputQueued() {
+        return (int) pacer.bytesIn(Math.max(0, lineFreeAt - System.nanoTime()));
+    }
+
+    /**
+     * the state of CTS line, it is off, when input buffer of peer is full
+     * @return - can bytes be sent now
+     */
+    protected boolean isClearToSend() {
+        return peer != null && peer.available() < INPUT_BUFFER;
+    }
+
+    /**
+     * getting bytes from line
+     * @param chunk - the bytes
+     */
+    private void deliver(byte[] chunk) {
+        if (!opened) {
+            return;
+        }
+        int count;
+        synchronized (input) {
+            input.write(chunk, 0, chunk.length);
+            count = input.size();
+        }
+        SerialPortEventListener current = listener;
+        if (current != null) {
+            current.serialEvent(new SerialPortEvent(name, SerialPortEvent.RXCHAR, count));
+        }
+    }
+
+    /**
+     * the count of bytes in input buffer
+     * @return - the count of bytes
+     */
+    public int available() {
+        synchronized (input) {
+            return input.size();
+        }
+    }
+
+    /**
+     * checking, that port is opened
+     * @param method - the name of method for exception
+     * @throws SerialPortException - if port is not opened
+     */
+    private void checkOpened(String method) throws SerialPortException {
+        if (!opened) {
+            throw new SerialPortException(name, method, SerialPortException.TYPE_PORT_NOT_OPENED);
+        }
+    }
+
+    /**
+     * connecting to port
+     * @return is connecting was successfully
+     */
+    public synchronized boolean open() {
+        if (opened) {
+            return false;
+        }
+        line = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "virtual-line-" + name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        opened = true;
+        getMetrics().register(name);
+        return true;
+    }
+
+    /**
+     * closing connection
+     * @return is closing was successfully
+     */
+    public boolean close() {
+        closeQueue();
+        getMetrics().unregister();
+        synchronized (this) {
+            if (!opened) {
+                return false;
+            }
+            opened = false;
+            line.shutdownNow();
+            inFlight.clear();
+            return true;
+        }
+    }
+
+    /**
+     * setting parameters to port
+     * @param baudRate - the speed of port in bauds
+     * @param dataBits - the count of bits for data
+     * @param stopBits - the count of stop bits
+     * @param parity - the settings of the parity bit
+     */
+    public void setParams(int baudRate, int dataBits, int stopBits, int parity) {
+        this.baudRate = baudRate;
+        pacer.setParams(baudRate, dataBits, stopBits, parity);
+    }
+
+    /**
+     * adding listener to port, it is called from the thread of line
+     * @param listener - the listener of read event for adding
+     */
+    public void addListener(SerialPortEventListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * setting parameters for flow control
+     * @param mask - the mask of parameters
+     */
+    public void setFlowControl(int mask) {
+        flowControl = mask;
+    }
+
+    /**
+     * is port opened?
+     * @return the current status of port
+     */
+    public boolean isOpen() {
+        return opened;
+    }
+}
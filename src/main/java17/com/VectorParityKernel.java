@@ -0,0 +1,63 @@
+package com;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Syndromes of Hamming blocks with Vector API, one block in every lane.
+ * Bit k of syndrome is parity of word and HammingCodec.PARITY_MASKS[k], parity is computed
+ * by xor of halves of lane (Vector API of JDK 17 has no count of bits in lanes).
+ * The class is compiled only by the profile "vector", it is loaded by ParityKernels.
+ */
+final class VectorParityKernel implements ParityKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private final int[] masks = HammingCodec.PARITY_MASKS.clone();
+
+    /**
+     * the name of kernel
+     * @return - vector and the count of bits in vector
+     */
+    public String getName() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+
+    /**
+     * computing syndromes of coded blocks by vectors, the tail is computed with mask
+     * @param words - the coded blocks as 24 bits words
+     * @param count - the count of blocks
+     * @param syndromes - the buffer for syndromes
+     */
+    public void syndromes(int[] words, int count, int[] syndromes) {
+        int i = 0;
+        int bound = SPECIES.loopBound(count);
+        for (; i < bound; i += SPECIES.length()) {
+            syndromes(IntVector.fromArray(SPECIES, words, i)).intoArray(syndromes, i);
+        }
+        if (i < count) {
+            VectorMask<Integer> tail = SPECIES.indexInRange(i, count);
+            syndromes(IntVector.fromArray(SPECIES, words, i, tail)).intoArray(syndromes, i, tail);
+        }
+    }
+
+    /**
+     * computing syndromes of words in lanes
+     * @param words - the words
+     * @return - the syndromes
+     */
+    private IntVector syndromes(IntVector words) {
+        IntVector res = IntVector.zero(SPECIES);
+        for (int k = 0; k < masks.length; k++) {
+            IntVector x = words.and(masks[k]);
+            x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 16));
+            x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 8));
+            x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 4));
+            x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 2));
+            x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 1));
+            res = res.or(x.and(1).lanewise(VectorOperators.LSHL, k));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,94 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+public class AdaptiveCodingTest extends TestCase {
+    private PortPair pair;
+    private VirtualSerial port1;
+    private AdaptiveCoding coding1;
+    private AdaptiveCoding coding2;
+    private ByteArrayOutputStream received;
+
+    public void setUp() throws Exception {
+        pair = new PortPair();
+        port1 = pair.port1;
+        coding1 = new AdaptiveCoding(port1, 256);
+        coding2 = new AdaptiveCoding(pair.port2, 256);
+        // port1 only reads proposals of port2
+        PortPair.collect(port1, coding1);
+        received = PortPair.collect(pair.port2, coding2);
+    }
+
+    public void tearDown() throws Exception {
+        pair.close();
+    }
+
+    public void testEveryLevel() throws Exception {
+        AdaptiveCoding sender = new AdaptiveCoding(null);
+        AdaptiveCoding receiver = new AdaptiveCoding(null);
+        for (int level = AdaptiveCoding.NONE; level <= AdaptiveCoding.STRONG; level++) {
+            sender.setLevel(level);
+            byte[] raw = PortPair.message(100 + level, level);
+            byte[] coded = new byte[sender.codedLength(raw.length)];
+            int len = sender.encode(raw, 0, raw.length, coded, 0);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            // bytes come by small chunks, the rest of segment is kept in codec
+            for (int i = 0; i < len; i += 7) {
+                int n = Math.min(7, len - i);
+                byte[] decoded = new byte[receiver.payloadLength(n)];
+                out.write(decoded, 0, receiver.decode(coded, i, n, decoded, 0));
+            }
+            assertTrue(sender.getLevelName(level), Arrays.equals(out.toByteArray(), raw));
+            assertEquals(receiver.getReceivedLevel(), level);
+        }
+    }
+
+    public void testResynchronization() throws Exception {
+        AdaptiveCoding sender = new AdaptiveCoding(null);
+        AdaptiveCoding receiver = new AdaptiveCoding(null);
+        byte[] raw = PortPair.message(50, 1);
+        byte[] coded = new byte[5 + sender.codedLength(raw.length)];
+        for (int i = 0; i < 5; i++) {
+            coded[i] = (byte) (i * 51 + 1);
+        }
+        int len = 5 + sender.encode(raw, 0, raw.length, coded, 5);
+        byte[] decoded = new byte[receiver.payloadLength(len)];
+        int count = receiver.decode(coded, 0, len, decoded, 0);
+        assertTrue(Arrays.equals(Arrays.copyOf(decoded, count), raw));
+        assertTrue(receiver.getUncorrectableBlocks() > 0);
+    }
+
+    private ByteArrayOutputStream sendAll(int messages) throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        for (int i = 0; i < messages; i++) {
+            byte[] bytes = PortPair.message(64, i);
+            assertTrue(port1.send(bytes, coding1));
+            sent.write(bytes, 0, bytes.length);
+        }
+        PortPair.await(received, sent.size());
+        return sent;
+    }
+
+    public void testCleanLinkGoesDown() throws Exception {
+        coding1.setLevel(AdaptiveCoding.STRONG);
+        ByteArrayOutputStream sent = sendAll(150);
+        assertEquals(coding1.getLevel(), AdaptiveCoding.NONE);
+        assertEquals(coding1.getSwitches(), 3);
+        assertTrue(Arrays.equals(PortPair.await(received, sent.size()), sent.toByteArray()));
+    }
+
+    public void testNoisyLinkGoesUp() throws Exception {
+        FaultInjector faults = new FaultInjector(7);
+        faults.setBitErrorRate(0.002);
+        port1.setFaults(faults);
+        coding1.setLevel(AdaptiveCoding.NONE);
+        sendAll(200);
+        assertTrue(faults.getInjectedBits() > 0);
+        assertTrue(coding1.getLevel() >= AdaptiveCoding.HAMMING);
+        assertTrue(coding1.getSwitches() >= 2);
+        assertTrue(coding2.getCorrectedBits() > 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class BaudNegotiatorTest extends TestCase {
+    private static final int[] RATES = {38400, 57600, 115200, 230400};
+
+    private PortPair pair;
+    private VirtualSerial port1;
+    private VirtualSerial port2;
+    private BaudNegotiator master;
+    private BaudNegotiator slave;
+    private final Queue<byte[]> received = new ConcurrentLinkedQueue<byte[]>();
+
+    public void setUp() throws Exception {
+        pair = new PortPair();
+        port1 = pair.port1;
+        port2 = pair.port2;
+        limit(115200);
+        master = new BaudNegotiator(port1, new HammingCodec(), true, RATES, 0.1, null);
+        slave = new BaudNegotiator(port2, new HammingCodec(), false, RATES, 0.1, new ReliableLink.MessageListener() {
+            public void messageReceived(byte[] message) {
+                received.add(message);
+            }
+        });
+    }
+
+    public void tearDown() throws Exception {
+        master.close();
+        slave.close();
+        pair.close();
+    }
+
+    private void limit(int maxBaudRate) {
+        FaultInjector faults1 = new FaultInjector(1);
+        faults1.setBitErrorRate(0.02);
+        port1.setCableLimit(maxBaudRate, faults1);
+        FaultInjector faults2 = new FaultInjector(2);
+        faults2.setBitErrorRate(0.02);
+        port2.setCableLimit(maxBaudRate, faults2);
+    }
+
+    public void testHighestSustainedRate() throws Exception {
+        assertEquals(master.negotiate(), 115200);
+        assertEquals(master.getRate(), 115200);
+        Thread.sleep(100);
+        assertEquals(slave.getRate(), 115200);
+        assertTrue(master.send("after negotiation".getBytes()));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(new String(received.poll()), "after negotiation");
+    }
+
+    public void testFallbackWhenErrorsRise() throws Exception {
+        assertEquals(master.negotiate(), 115200);
+        // cable gets worse, the current speed gives errors
+        limit(38400);
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((master.getRate() != 38400 || slave.getRate() != 38400) && System.currentTimeMillis() < deadline) {
+            master.send(new byte[100]);
+            Thread.sleep(20);
+        }
+        assertEquals(master.getRate(), 38400);
+        assertEquals(slave.getRate(), 38400);
+        assertTrue(master.getFallbacks() + slave.getFallbacks() > 0);
+    }
+}
@@ -0,0 +1,117 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class BerEvaluatorTest extends TestCase {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    public void tearDown() throws Exception {
+        pool.shutdown();
+    }
+
+    private BerEvaluator evaluator(String... codings) {
+        BerEvaluator evaluator = new BerEvaluator().setFrames(300).setFrameLength(64).setSeed(7).setPool(pool);
+        for (String coding : codings) {
+            evaluator.addCoding(coding);
+        }
+        return evaluator;
+    }
+
+    public void testCleanChannel() throws Exception {
+        List<BerEvaluator.Result> results = evaluator(HammingCodec.NAME, "CRC-16", "RS(255,223)")
+                .addChannel(BerEvaluator.Channel.binarySymmetric(0)).evaluate();
+        assertEquals(results.size(), 3);
+        for (BerEvaluator.Result result : results) {
+            assertEquals(result.getFrames(), 300);
+            assertEquals(result.getFrameErrors(), 0);
+            assertEquals(result.getResidualBits(), 0);
+            assertEquals(result.getInjectedBits(), 0);
+        }
+        assertEquals(results.get(0).getOverhead(), 1.5, 1e-9);
+        assertEquals(results.get(0).getGoodput(), 2.0 / 3, 1e-9);
+    }
+
+    public void testSameSeedSameResults() throws Exception {
+        BerEvaluator.Channel[] channels = {
+                BerEvaluator.Channel.binarySymmetric(1e-3),
+                BerEvaluator.Channel.gilbertElliott(1e-3, 0.1, 0, 0.3),
+                BerEvaluator.Channel.slip(1e-3, 1e-3, 1e-4)
+        };
+        BerEvaluator parallel = evaluator(HammingCodec.NAME, "CRC-8");
+        ForkJoinPool single = new ForkJoinPool(1);
+        BerEvaluator serial = evaluator(HammingCodec.NAME, "CRC-8").setPool(single);
+        for (BerEvaluator.Channel channel : channels) {
+            parallel.addChannel(channel);
+            serial.addChannel(channel);
+        }
+        List<BerEvaluator.Result> first = parallel.evaluate();
+        assertEquals(parallel.evaluate(), first);
+        assertEquals(serial.evaluate(), first);
+        single.shutdown();
+        assertFalse(evaluator(HammingCodec.NAME, "CRC-8").setSeed(8).addChannel(channels[0]).evaluate()
+                .get(0).equals(first.get(0)));
+    }
+
+    public void testCorrectingCodingsRepairErrors() throws Exception {
+        List<BerEvaluator.Result> results = evaluator(HammingCodec.NAME, "CRC-16", "RS(255,223)")
+                .addChannel(BerEvaluator.Channel.binarySymmetric(1e-3)).evaluate();
+        BerEvaluator.Result hamming = results.get(0);
+        BerEvaluator.Result crc = results.get(1);
+        BerEvaluator.Result rs = results.get(2);
+        assertEquals(hamming.getLineBitErrorRate(), 1e-3, 3e-4);
+        // two wrong bits in one block of Hamming can't be repaired
+        assertTrue(hamming.getCorrectionRate() > 0.75);
+        assertTrue(hamming.getResidualBitErrorRate() < hamming.getLineBitErrorRate());
+        assertTrue(crc.getCorrectedBits() > 0);
+        assertTrue(crc.getUncorrectableBlocks() > 0);
+        assertEquals(rs.getFrameErrors(), 0);
+        assertTrue(rs.getResidualBitErrorRate() < crc.getResidualBitErrorRate());
+        // short frame is padded to the full block of 223 bytes
+        assertTrue(rs.getOverhead() > 3);
+        assertTrue(rs.getGoodput() < hamming.getGoodput());
+    }
+
+    public void testGilbertElliottMeanRate() throws Exception {
+        BerEvaluator.Channel channel = BerEvaluator.Channel.gilbertElliott(1e-3, 0.05, 1e-5, 0.25);
+        BerEvaluator.Result result = evaluator(HammingCodec.NAME).setFrames(2000).addChannel(channel)
+                .evaluate().get(0);
+        assertEquals(result.getLineBitErrorRate(), channel.getBitErrorRate(), channel.getBitErrorRate() * 0.25);
+        // the same mean rate without bursts is repaired much better by Hamming
+        BerEvaluator.Result bsc = evaluator(HammingCodec.NAME).setFrames(2000)
+                .addChannel(BerEvaluator.Channel.binarySymmetric(channel.getBitErrorRate())).evaluate().get(0);
+        assertTrue(result.getFrameErrorRate() > bsc.getFrameErrorRate());
+    }
+
+    public void testSlipBreaksFrames() throws Exception {
+        BerEvaluator.Result result = evaluator(HammingCodec.NAME)
+                .addChannel(BerEvaluator.Channel.slip(1e-3, 1e-3, 0)).evaluate().get(0);
+        assertTrue(result.getSlippedBytes() > 0);
+        assertTrue(result.getFrameErrors() > 0);
+        assertTrue(result.getFrameErrors() < result.getFrames());
+    }
+
+    public void testParse() throws Exception {
+        BerEvaluator.Channel channel = BerEvaluator.Channel.parse("ge:1e-4,0.1,0,0.2");
+        assertEquals(channel, BerEvaluator.Channel.gilbertElliott(1e-4, 0.1, 0, 0.2));
+        assertEquals(BerEvaluator.Channel.parse(channel.getName()), channel);
+        assertEquals(BerEvaluator.Channel.parse("slip:0.001,0.002").getName(), "slip:0.001,0.002,0");
+        try {
+            BerEvaluator.Channel.parse("bsc:2");
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            // probability out of range
+        }
+        try {
+            BerEvaluator.parse(new String[] {"--evaluate", "--coding", "Hemming;unknown"});
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            // unknown coding
+        }
+        assertNotNull(BerEvaluator.parse(new String[] {"--evaluate", "--coding", "RS(32,24);CRC", "--frames", "10"}));
+    }
+}
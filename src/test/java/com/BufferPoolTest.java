@@ -0,0 +1,71 @@
+package com;
+import junit.framework.TestCase;
+
+public class BufferPoolTest extends TestCase {
+
+    public void testSizeClasses() throws Exception {
+        BufferPool pool = new BufferPool(false);
+        assertEquals(pool.acquire(1).length, BufferPool.MIN_SIZE);
+        assertEquals(pool.acquire(64).length, 64);
+        assertEquals(pool.acquire(65).length, 128);
+        assertEquals(pool.acquire(1000).length, 1024);
+        assertEquals(pool.acquire(BufferPool.MAX_SIZE).length, BufferPool.MAX_SIZE);
+        assertEquals(pool.acquire(BufferPool.MAX_SIZE + 1).length, BufferPool.MAX_SIZE + 1);
+    }
+
+    public void testReuse() throws Exception {
+        BufferPool pool = new BufferPool(false);
+        byte[] first = pool.acquire(300);
+        pool.release(first);
+        assertSame(pool.acquire(500), first);
+        long allocated = pool.getAllocated();
+        for (int i = 0; i < 1000; i++) {
+            byte[] buffer = pool.acquire(4000);
+            pool.release(buffer);
+        }
+        assertTrue(pool.getAllocated() - allocated <= 16);
+        assertEquals(pool.getAcquired(), 1002);
+    }
+
+    public void testGrow() throws Exception {
+        BufferPool pool = new BufferPool(true);
+        byte[] buffer = pool.acquire(64);
+        buffer[10] = 42;
+        assertSame(pool.grow(buffer, 64, 11), buffer);
+        byte[] bigger = pool.grow(buffer, 100, 11);
+        assertEquals(bigger.length, 128);
+        assertEquals(bigger[10], 42);
+        assertEquals(buffer[10], (byte) 0xDB);
+        pool.release(bigger);
+        assertTrue(pool.leaks().isEmpty());
+    }
+
+    public void testDoubleRelease() throws Exception {
+        BufferPool pool = new BufferPool(true);
+        byte[] buffer = pool.acquire(256);
+        pool.release(buffer);
+        try {
+            pool.release(buffer);
+            fail("second release must fail");
+        }
+        catch (IllegalStateException ex) {
+            // expected
+        }
+        try {
+            pool.release(new byte[256]);
+            fail("foreign buffer must fail");
+        }
+        catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    public void testLeaks() throws Exception {
+        BufferPool pool = new BufferPool(true);
+        pool.release(pool.acquire(100));
+        pool.acquire(2000);
+        assertEquals(pool.leaks().size(), 1);
+        assertTrue(pool.leaks().get(0).getMessage().contains("2048"));
+        assertTrue(new BufferPool(false).leaks().isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BulkCoderTest extends TestCase {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    public void tearDown() throws Exception {
+        pool.shutdown();
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static BulkCoder.Factory[] factories() {
+        return new BulkCoder.Factory[] {
+                new BulkCoder.Factory() {
+                    public Coding create() {
+                        return new HammingCodec();
+                    }
+                },
+                new BulkCoder.Factory() {
+                    public Coding create() {
+                        return new CrcCodec(CrcEngine.CRC16_CCITT, 64, false);
+                    }
+                },
+                new BulkCoder.Factory() {
+                    public Coding create() {
+                        return new ReedSolomonCodec(255, 223);
+                    }
+                }
+        };
+    }
+
+    public void testSameBytesAsOneThread() throws Exception {
+        for (BulkCoder.Factory factory : factories()) {
+            BulkCoder bulk = new BulkCoder(factory, pool, 10000, 20000);
+            Coding single = factory.create();
+            for (int len : new int[] {0, 1, 15000, 100000, 100001, 333333}) {
+                byte[] raw = random(len);
+                byte[] expected = new byte[single.codedLength(len)];
+                single.encode(raw, 0, len, expected, 0);
+                byte[] coded = bulk.encode(raw);
+                assertTrue(bulk.getName() + " " + len, Arrays.equals(coded, expected));
+                assertTrue(bulk.getName() + " " + len, Arrays.equals(bulk.decode(coded), raw));
+            }
+            assertEquals(bulk.getParallelCalls(), 6);
+            assertEquals(bulk.getCorrectedBits(), 0);
+        }
+    }
+
+    public void testErrorsAreCountedAndDropped() throws Exception {
+        for (BulkCoder.Factory factory : factories()) {
+            BulkCoder bulk = new BulkCoder(factory, pool, 4096, 4096);
+            Coding single = factory.create();
+            byte[] coded = bulk.encode(random(200000));
+            Random random = new Random(3);
+            for (int i = 0; i < 300; i++) {
+                coded[random.nextInt(coded.length)] ^= 1 << random.nextInt(8);
+            }
+            // broken CRC blocks are dropped, the rest must stay in order like in one thread
+            byte[] expected = new byte[single.payloadLength(coded.length)];
+            expected = Arrays.copyOf(expected, single.decode(coded, 0, coded.length, expected, 0));
+            assertTrue(bulk.getName(), Arrays.equals(bulk.decode(coded), expected));
+            assertEquals(bulk.getCorrectedBits(), single.getCorrectedBits());
+            assertEquals(bulk.getUncorrectableBlocks(), single.getUncorrectableBlocks());
+            assertTrue(bulk.getCorrectedBits() + bulk.getUncorrectableBlocks() > 0);
+        }
+    }
+
+    public void testChunkOfFullBlocks() throws Exception {
+        BulkCoder bulk = new BulkCoder(factories()[2], pool, 1000, 0);
+        assertEquals(bulk.getChunk(), 4 * 222);
+        assertNotNull(BulkCoder.forName("CRC-32"));
+        assertNull(BulkCoder.forName("unknown"));
+        try {
+            new BulkCoder(new BulkCoder.Factory() {
+                public Coding create() {
+                    return new AdaptiveCoding(null);
+                }
+            });
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            // segments of adaptive coding depend on previous calls
+        }
+    }
+}
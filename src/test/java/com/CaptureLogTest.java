@@ -0,0 +1,132 @@
+package com;
+
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+public class CaptureLogTest extends TestCase {
+    private File path;
+
+    public void setUp() throws Exception {
+        path = File.createTempFile("capture", ".log");
+    }
+
+    public void tearDown() throws Exception {
+        path.delete();
+    }
+
+    public void testRecordsOverRegions() throws Exception {
+        CaptureLog log = new CaptureLog(path, CaptureLog.MIN_REGION);
+        ByteArrayOutputStream tx = new ByteArrayOutputStream();
+        ByteArrayOutputStream rx = new ByteArrayOutputStream();
+        for (int i = 0; i < 500; i++) {
+            byte[] bytes = PortPair.message(1 + i % 50, i);
+            log.record(CaptureLog.TX, "COM1", bytes, 0, bytes.length);
+            tx.write(bytes, 0, bytes.length);
+            log.record(CaptureLog.RX, "COM2", bytes, 1, bytes.length - 1);
+            rx.write(bytes, 1, bytes.length - 1);
+        }
+        // longer than region, it is split into several records
+        byte[] big = PortPair.message(10000, 3);
+        log.record(CaptureLog.TX, "COM1", big, 0, big.length);
+        tx.write(big, 0, big.length);
+        log.close();
+        assertEquals(log.getBytes(), tx.size() + rx.size());
+        assertTrue(path.length() > 3 * CaptureLog.MIN_REGION);
+
+        List<CaptureLog.Record> records = CaptureLog.read(path);
+        assertEquals(records.size(), log.getRecords());
+        ByteArrayOutputStream readTx = new ByteArrayOutputStream();
+        ByteArrayOutputStream readRx = new ByteArrayOutputStream();
+        long nanos = 0;
+        for (CaptureLog.Record record : records) {
+            assertTrue(record.nanos >= nanos);
+            nanos = record.nanos;
+            if (record.direction == CaptureLog.TX) {
+                assertEquals(record.port, "COM1");
+                readTx.write(record.bytes, 0, record.bytes.length);
+            }
+            else {
+                assertEquals(record.port, "COM2");
+                readRx.write(record.bytes, 0, record.bytes.length);
+            }
+        }
+        assertTrue(Arrays.equals(readTx.toByteArray(), tx.toByteArray()));
+        assertTrue(Arrays.equals(readRx.toByteArray(), rx.toByteArray()));
+    }
+
+    public void testReplayOfCapturedTransfer() throws Exception {
+        PortPair pair = new PortPair();
+        VirtualSerial port1 = pair.port1;
+        VirtualSerial port2 = pair.port2;
+        FaultInjector faults = new FaultInjector(5);
+        faults.setBitErrorRate(0.0005);
+        port1.setFaults(faults);
+        port1.setHemmingError(-1);
+        CaptureLog log = new CaptureLog(path, 1 << 16);
+        port1.setCapture(log);
+        port2.setCapture(log);
+        HammingCodec codec = new HammingCodec();
+        ByteArrayOutputStream received = PortPair.collect(port2, codec);
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        for (int i = 0; i < 40; i++) {
+            byte[] bytes = PortPair.message(100, i);
+            assertTrue(port1.write(bytes, codec));
+            sent.write(bytes, 0, bytes.length);
+        }
+        PortPair.await(received, sent.size());
+        pair.close();
+        log.close();
+        assertTrue(faults.getInjectedBits() > 0);
+        assertEquals(log.getBytes(), 2 * codec.codedLength(sent.size()));
+
+        // the same errors are corrected again without line
+        final ReplaySerial replay = new ReplaySerial(path, "VCOM2", false);
+        final HammingCodec replayCodec = new HammingCodec();
+        final ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+        replay.addListener(new SerialPortEventListener() {
+            public void serialEvent(SerialPortEvent event) {
+                byte[] bytes = replay.read(event.getEventValue(), replayCodec);
+                replayed.write(bytes, 0, bytes.length);
+            }
+        });
+        assertTrue(replay.open());
+        assertTrue(replay.awaitEnd(5000));
+        replay.close();
+        assertEquals(replay.getReplayedBytes(), codec.codedLength(sent.size()));
+        assertTrue(Arrays.equals(replayed.toByteArray(), received.toByteArray()));
+        assertEquals(replayCodec.getCorrectedBits(), codec.getCorrectedBits());
+        assertTrue(replayCodec.getCorrectedBits() > 0);
+    }
+
+    public void testOriginalTiming() throws Exception {
+        CaptureLog log = new CaptureLog(path, CaptureLog.MIN_REGION);
+        byte[] bytes = PortPair.message(10, 1);
+        log.record(CaptureLog.RX, "COM1", bytes, 0, bytes.length);
+        Thread.sleep(500);
+        log.record(CaptureLog.RX, "COM1", bytes, 0, bytes.length);
+        log.close();
+
+        ReplaySerial fast = new ReplaySerial(path, "COM1", false);
+        long start = System.nanoTime();
+        assertTrue(fast.open());
+        assertTrue(fast.awaitEnd(1000));
+        long fastMillis = (System.nanoTime() - start) / 1000000L;
+        fast.close();
+
+        ReplaySerial timed = new ReplaySerial(path, "COM1", true);
+        start = System.nanoTime();
+        assertTrue(timed.open());
+        assertTrue(timed.awaitEnd(2000));
+        long timedMillis = (System.nanoTime() - start) / 1000000L;
+        timed.close();
+        assertEquals(timed.getReplayedBytes(), 20);
+        assertTrue(String.valueOf(fastMillis), fastMillis < 300);
+        assertTrue(String.valueOf(timedMillis), timedMillis >= 490);
+    }
+}
@@ -0,0 +1,114 @@
+package com;
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class CrcCodecTest extends TestCase {
+    private static final byte[] CHECK = "123456789".getBytes();
+
+    public void testCheckValues() throws Exception {
+        assertEquals(CrcEngine.CRC8.compute(CHECK), 0xF4);
+        assertEquals(CrcEngine.CRC16_CCITT.compute(CHECK), 0x29B1);
+        assertEquals(CrcEngine.CRC32.compute(CHECK), 0xCBF43926);
+    }
+
+    public void testSlicing() throws Exception {
+        byte[] raw = new byte[1000];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) (i * 31 + 7);
+        }
+        java.util.zip.CRC32 expected = new java.util.zip.CRC32();
+        expected.update(raw, 3, 997);
+        assertEquals(CrcEngine.CRC32.compute(raw, 3, 997), (int) expected.getValue());
+        int register = CrcEngine.CRC16_CCITT.update(CrcEngine.CRC16_CCITT.start(), raw, 0, 13);
+        register = CrcEngine.CRC16_CCITT.update(register, raw, 13, 987);
+        assertEquals(CrcEngine.CRC16_CCITT.finish(register), CrcEngine.CRC16_CCITT.compute(raw));
+    }
+
+    public void testLegacyFormat() throws Exception {
+        CrcCodec codec = new CrcCodec(CrcEngine.CRC3, 1);
+        assertTrue(Arrays.equals(codec.encode("f".getBytes()), Serial.crcCoding("f".getBytes())));
+        assertEquals(Serial.getMod(Serial.toBinary("f".getBytes()) + "000", "1101"),
+                Serial.toBinary(new byte[] {(byte) (CrcEngine.CRC3.compute("f".getBytes()) << 5)}).substring(0, 3));
+    }
+
+    public void testRepairEveryBit() throws Exception {
+        CrcEngine[] engines = {CrcEngine.CRC8, CrcEngine.CRC16_CCITT, CrcEngine.CRC32};
+        byte[] raw = "Test String\nTest String2".getBytes();
+        for (CrcEngine crc : engines) {
+            CrcCodec codec = new CrcCodec(crc, CrcCodec.defaultBlockSize(crc));
+            byte[] coded = codec.encode(raw);
+            for (int bit = 0; bit < coded.length * Byte.SIZE; bit++) {
+                byte[] broken = coded.clone();
+                broken[bit / Byte.SIZE] ^= 0x80 >>> (bit % Byte.SIZE);
+                assertTrue(crc.getName(), Arrays.equals(codec.decode(broken), raw));
+            }
+            assertEquals(codec.getCorrectedBits(), coded.length * Byte.SIZE);
+        }
+    }
+
+    public void testCrc3OnlyDetects() throws Exception {
+        // syndromes of CRC-3 repeat every 7 bits, codeword of 1 byte has 11 bits
+        CrcCodec codec = new CrcCodec(CrcEngine.CRC3, 1);
+        assertFalse(codec.isCorrecting());
+        assertTrue(new CrcCodec(CrcEngine.CRC8, CrcCodec.defaultBlockSize(CrcEngine.CRC8)).isCorrecting());
+        byte[] coded = codec.encode("f".getBytes());
+        for (int bit = 0; bit < coded.length * Byte.SIZE - 5; bit++) {
+            byte[] broken = coded.clone();
+            broken[bit / Byte.SIZE] ^= 0x80 >>> (bit % Byte.SIZE);
+            assertEquals(codec.decode(broken).length, 0);
+        }
+        assertEquals(codec.getCorrectedBits(), 0);
+        assertEquals(codec.getUncorrectableBlocks(), 11);
+    }
+
+    public void testPaddedBlocks() throws Exception {
+        CrcCodec codec = new CrcCodec(CrcEngine.CRC16_CCITT, 16, true, true);
+        byte[] raw = "Test String\nTest String2".getBytes();
+        byte[] coded = codec.encode(raw);
+        assertEquals(coded.length, 2 * codec.blockLength());
+        assertEquals(codec.decodedLength(coded.length), 30);
+        assertTrue(Arrays.equals(codec.decode(coded), raw));
+        // blocks of two messages follow one after another without shift
+        byte[] two = Arrays.copyOf(coded, 2 * coded.length);
+        System.arraycopy(codec.encode("abc".getBytes()), 0, two, coded.length, codec.blockLength());
+        two = Arrays.copyOf(two, coded.length + codec.blockLength());
+        assertEquals(new String(codec.decode(two)), new String(raw) + "abc");
+        for (int bit = 0; bit < coded.length * Byte.SIZE; bit++) {
+            byte[] broken = coded.clone();
+            broken[bit / Byte.SIZE] ^= 0x80 >>> (bit % Byte.SIZE);
+            assertTrue(Arrays.equals(codec.decode(broken), raw));
+        }
+        assertEquals(codec.getCorrectedBits(), coded.length * Byte.SIZE);
+        assertTrue(Coding.forName("CRC-32").codedLength(1000) < 1100);
+    }
+
+    public void testDetectOnly() throws Exception {
+        CrcCodec codec = new CrcCodec(CrcEngine.CRC16_CCITT, 4, false);
+        byte[] coded = codec.encode("abcdefgh".getBytes());
+        coded[0] ^= 1;
+        assertEquals(new String(codec.decode(coded)), "efgh");
+        assertEquals(codec.getUncorrectableBlocks(), 1);
+    }
+
+    public void testByteBuffers() throws Exception {
+        CrcCodec codec = new CrcCodec(CrcEngine.CRC16_CCITT, 8);
+        byte[] raw = "direct and heap buffers".getBytes();
+        ByteBuffer coded = ByteBuffer.allocateDirect(codec.encodedLength(raw.length));
+        assertEquals(codec.encodedLength(raw.length), codec.encode(ByteBuffer.wrap(raw), coded));
+        coded.flip();
+        byte[] copy = new byte[coded.remaining()];
+        coded.duplicate().get(copy);
+        assertTrue(Arrays.equals(codec.encode(raw), copy));
+
+        ByteBuffer dst = ByteBuffer.allocate(raw.length + 10);
+        dst.position(10);
+        ByteBuffer first = ByteBuffer.allocate(10);
+        assertEquals(8, codec.decode(coded, first));
+        assertEquals(codec.blockLength(), coded.position());
+        assertEquals(raw.length - 8, codec.decode(coded, dst));
+        assertFalse(coded.hasRemaining());
+        assertTrue(Arrays.equals(Arrays.copyOfRange(raw, 8, raw.length), Arrays.copyOfRange(dst.array(), 10, 10 + raw.length - 8)));
+    }
+}
@@ -0,0 +1,141 @@
+package com;
+
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class FrameBridgeTest extends TestCase {
+    private static final int GROUP = LinkAddress.FIRST_GROUP + 1;
+
+    private final List<VirtualSerial> opened = new ArrayList<VirtualSerial>();
+    private final HammingCodec coding = new HammingCodec();
+    private FrameBridge bridge;
+    private Node nodeA;
+    private Node nodeB;
+    private Node nodeC;
+
+    public void setUp() throws Exception {
+        bridge = new FrameBridge();
+        nodeA = segment("A", 1);
+        nodeB = segment("B", 2);
+        nodeC = segment("C", 3);
+    }
+
+    public void tearDown() throws Exception {
+        bridge.close();
+        for (VirtualSerial port : opened) {
+            port.close();
+        }
+    }
+
+    private VirtualSerial open(VirtualSerial port) {
+        port.open();
+        port.setParams(SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+        port.setHemmingError(-1);
+        opened.add(port);
+        return port;
+    }
+
+    private Node segment(String name, int address) {
+        VirtualSerial[] pair = VirtualSerial.pair(name, "BRIDGE-" + name);
+        bridge.addPort(open(pair[1]));
+        return new Node(open(pair[0]), address);
+    }
+
+    private final class Node {
+        final VirtualSerial port;
+        final BlockingQueue<String> received = new LinkedBlockingQueue<String>();
+
+        Node(final VirtualSerial port, int address) {
+            this.port = port;
+            port.setAddress(address);
+            // framed mode is needed for receiving too
+            port.setFraming(LinkAddress.BROADCAST);
+            port.addListener(new SerialPortEventListener() {
+                public void serialEvent(SerialPortEvent event) {
+                    byte[] bytes = port.read(event.getEventValue(), coding);
+                    if (bytes != null && bytes.length > 0) {
+                        received.add(new String(bytes) + " from " + port.getLastSource());
+                    }
+                }
+            });
+        }
+
+        void send(int destination, String message) {
+            port.setFraming(destination);
+            assertTrue(port.write(message.getBytes(), coding));
+        }
+
+        String take() throws InterruptedException {
+            return received.poll(2, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void assertMismatches(Node node, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (node.port.getMetrics().getAddressMismatches() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(node.port.getMetrics().getAddressMismatches(), expected);
+    }
+
+    public void testLearningAndForwarding() throws Exception {
+        nodeA.send(2, "hello");
+        assertEquals(nodeB.take(), "hello from 1");
+        // address 2 was unknown, C got frame too and dropped it
+        assertEquals(bridge.getFlooded(), 1);
+        assertMismatches(nodeC, 1);
+
+        nodeB.send(1, "answer");
+        assertEquals(nodeA.take(), "answer from 2");
+        nodeA.send(2, "again");
+        assertEquals(nodeB.take(), "again from 1");
+        assertEquals(bridge.getForwarded(), 2);
+        assertEquals(bridge.getFlooded(), 1);
+        assertEquals(nodeC.port.getMetrics().getAddressMismatches(), 1);
+        assertEquals(bridge.getRoutingTable().get(1).getPortName(), "BRIDGE-A");
+        assertEquals(bridge.getRoutingTable().get(2).getPortName(), "BRIDGE-B");
+    }
+
+    public void testBroadcastAndGroups() throws Exception {
+        nodeA.send(LinkAddress.BROADCAST, "everybody");
+        assertEquals(nodeB.take(), "everybody from 1");
+        assertEquals(nodeC.take(), "everybody from 1");
+
+        // only segment C has members of group
+        nodeB.port.joinGroup(GROUP);
+        nodeC.port.joinGroup(GROUP);
+        for (VirtualSerial port : opened) {
+            if (port.getPortName().equals("BRIDGE-C")) {
+                bridge.getRoutingTable().addMember(GROUP, port);
+            }
+        }
+        nodeA.send(GROUP, "group");
+        assertEquals(nodeC.take(), "group from 1");
+        nodeA.send(2, "direct");
+        assertEquals(nodeB.take(), "direct from 1");
+        assertTrue(nodeB.received.isEmpty());
+        assertEquals(nodeB.port.getMetrics().getAddressMismatches(), 0);
+
+        nodeC.port.leaveGroup(GROUP);
+        nodeA.send(GROUP, "left");
+        assertMismatches(nodeC, 2);
+        assertTrue(nodeC.received.isEmpty());
+    }
+
+    public void testNamesAreNotRouted() throws Exception {
+        nodeA.port.setAddress(LinkAddress.NONE);
+        nodeA.port.setFraming("B");
+        assertTrue(nodeA.port.write("by name".getBytes(), coding));
+        Thread.sleep(200);
+        assertEquals(bridge.getDropped(), 1);
+        assertTrue(nodeB.received.isEmpty());
+    }
+}
@@ -0,0 +1,120 @@
+package com;
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HammingCodecTest extends TestCase {
+
+    public void testEvenLength() throws Exception {
+        HammingCodec codec = new HammingCodec();
+        String test = "Test String\nTest String2";
+        byte[] coded = codec.encode(test.getBytes());
+        assertEquals(coded.length, HammingCodec.encodedLength(test.length()));
+        assertEquals(new String(codec.decode(coded)), test);
+    }
+
+    public void testOddLength() throws Exception {
+        HammingCodec codec = new HammingCodec();
+        for (int len = 0; len < 10; len++) {
+            byte[] raw = new byte[len];
+            for (int i = 0; i < len; i++) {
+                raw[i] = (byte) (i * 37 + 1);
+            }
+            assertTrue(Arrays.equals(codec.decode(codec.encode(raw)), raw));
+        }
+    }
+
+    public void testLegacyFormat() throws Exception {
+        HammingCodec codec = new HammingCodec();
+        assertTrue(Arrays.equals(codec.encode("12".getBytes()), Serial.hemingCoding("12".getBytes(), -1)));
+        assertEquals(new String(Serial.hemingDecode(codec.encode("ab".getBytes()))), "ab");
+    }
+
+    public void testRepairEveryBit() throws Exception {
+        HammingCodec codec = new HammingCodec();
+        byte[] raw = "hemming".getBytes();
+        byte[] coded = codec.encode(raw);
+        for (int bit = 0; bit < coded.length * Byte.SIZE; bit++) {
+            byte[] broken = coded.clone();
+            broken[bit / Byte.SIZE] ^= 0x80 >>> (bit % Byte.SIZE);
+            assertTrue(Arrays.equals(codec.decode(broken), raw));
+        }
+        assertEquals(codec.getUncorrectableBlocks(), 0);
+    }
+
+    public void testUncorrectable() throws Exception {
+        HammingCodec codec = new HammingCodec();
+        byte[] coded = codec.encode("12".getBytes());
+        coded[0] ^= 0x20;
+        coded[2] ^= 0x10;
+        codec.decode(coded);
+        assertEquals(codec.getUncorrectableBlocks(), 1);
+    }
+
+    public void testByteBuffers() throws Exception {
+        HammingCodec codec = new HammingCodec();
+        byte[] raw = "byte buffers".getBytes();
+        ByteBuffer src = ByteBuffer.allocateDirect(raw.length);
+        src.put(raw).flip();
+        ByteBuffer coded = ByteBuffer.allocate(64);
+        assertEquals(HammingCodec.encodedLength(raw.length), codec.encode(src, coded));
+        assertFalse(src.hasRemaining());
+        coded.flip();
+        assertTrue(Arrays.equals(codec.encode(raw), Arrays.copyOf(coded.array(), coded.limit())));
+
+        ByteBuffer small = ByteBuffer.allocateDirect(5);
+        assertEquals(4, codec.decode(coded, small));
+        assertEquals(6, coded.position());
+        ByteBuffer rest = ByteBuffer.allocate(64);
+        assertEquals(raw.length - 4, codec.decode(coded, rest));
+        small.flip();
+        rest.flip();
+        byte[] res = new byte[raw.length];
+        small.get(res, 0, 4);
+        rest.get(res, 4, raw.length - 4);
+        assertTrue(Arrays.equals(raw, res));
+    }
+
+    public void testEncodeAndDecodeInTwoThreads() throws Exception {
+        final HammingCodec codec = new HammingCodec();
+        final byte[][] raws = new byte[8][];
+        final byte[][] codeds = new byte[raws.length][];
+        for (int i = 0; i < raws.length; i++) {
+            raws[i] = new byte[100 << i];
+            Arrays.fill(raws[i], (byte) (i + 1));
+            codeds[i] = new HammingCodec().encode(raws[i]);
+        }
+        final AtomicInteger errors = new AtomicInteger();
+        Thread encoder = new Thread(new Runnable() {
+            public void run() {
+                for (int n = 0; n < 2000; n++) {
+                    int i = n % raws.length;
+                    ByteBuffer src = ByteBuffer.allocateDirect(raws[i].length);
+                    src.put(raws[i]).flip();
+                    ByteBuffer dst = ByteBuffer.allocateDirect(codeds[i].length);
+                    codec.encode(src, dst);
+                    dst.flip();
+                    if (!dst.equals(ByteBuffer.wrap(codeds[i]))) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }
+        });
+        encoder.start();
+        for (int n = 0; n < 2000; n++) {
+            int i = (n + 3) % raws.length;
+            ByteBuffer src = ByteBuffer.allocateDirect(codeds[i].length);
+            src.put(codeds[i]).flip();
+            ByteBuffer dst = ByteBuffer.allocateDirect(raws[i].length);
+            codec.decode(src, dst);
+            dst.flip();
+            if (!dst.equals(ByteBuffer.wrap(raws[i]))) {
+                errors.incrementAndGet();
+            }
+        }
+        encoder.join();
+        assertEquals(errors.get(), 0);
+    }
+}
@@ -0,0 +1,116 @@
+package com;
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class HammingInterleaverTest extends TestCase {
+
+    private static byte[] transfer(byte[] raw, HammingInterleaver interleaver, HammingCodec codec, int burstAt, int burst) {
+        byte[] coded = new HammingCodec().encode(raw);
+        byte[] line = new byte[interleaver.interleavedLength(coded.length)];
+        assertEquals(interleaver.interleave(coded, 0, coded.length, line, 0), line.length);
+        for (int bit = burstAt; bit < burstAt + burst && bit < line.length * Byte.SIZE; bit++) {
+            line[bit / Byte.SIZE] ^= 0x80 >>> (bit % Byte.SIZE);
+        }
+        byte[] blocks = new byte[line.length];
+        assertEquals(interleaver.deinterleave(line, 0, line.length, blocks, 0), line.length);
+        return codec.decode(blocks);
+    }
+
+    public void testRoundTrip() throws Exception {
+        Random random = new Random(1);
+        for (int depth : new int[] {1, 2, 5, 8, 16, HammingInterleaver.MAX_DEPTH}) {
+            HammingInterleaver interleaver = new HammingInterleaver(depth);
+            for (int len = 0; len < 60; len++) {
+                byte[] raw = new byte[len];
+                random.nextBytes(raw);
+                byte[] res = transfer(raw, interleaver, new HammingCodec(), 0, 0);
+                assertTrue(Arrays.equals(res, raw));
+            }
+        }
+    }
+
+    public void testBurst() throws Exception {
+        byte[] raw = new byte[201];
+        new Random(2).nextBytes(raw);
+        HammingInterleaver interleaver = new HammingInterleaver(12);
+        for (int at = 0; at < 300; at += 7) {
+            HammingCodec codec = new HammingCodec();
+            assertTrue(Arrays.equals(transfer(raw, interleaver, codec, at, 12), raw));
+            // errors in spare bits are not counted
+            assertTrue(codec.getCorrectedBits() <= 12);
+            assertEquals(codec.getUncorrectableBlocks(), 0);
+        }
+        assertFalse(Arrays.equals(transfer(raw, new HammingInterleaver(1), new HammingCodec(), 5, 12), raw));
+    }
+
+    public void testDepth() throws Exception {
+        try {
+            new HammingInterleaver(0);
+            fail("depth must be positive");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+        assertEquals(new HammingInterleaver(4).interleavedLength(HammingCodec.encodedLength(9)), 2 * 4 * 3);
+    }
+
+    private static byte[] sendWithBursts(int depth) throws Exception {
+        VirtualSerial[] pair = VirtualSerial.pair("VCOM1", "VCOM2");
+        final VirtualSerial port1 = pair[0];
+        final VirtualSerial port2 = pair[1];
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            for (VirtualSerial port : pair) {
+                port.open();
+                port.setParams(SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+                port.setHemmingError(-1);
+                port.setInterleaving(depth);
+            }
+            FaultInjector faults = new FaultInjector(4);
+            faults.setBurst(0.003, 8);
+            port1.setFaults(faults);
+            port1.setChunkSize(7);
+            port2.addListener(new SerialPortEventListener() {
+                public void serialEvent(SerialPortEvent event) {
+                    byte[] bytes = port2.read(event.getEventValue(), port2.getHammingCodec());
+                    if (bytes != null) {
+                        synchronized (out) {
+                            out.write(bytes, 0, bytes.length);
+                        }
+                    }
+                }
+            });
+            byte[] test = new byte[3001];
+            new Random(3).nextBytes(test);
+            assertTrue(port1.send(test, port1.getHammingCodec()));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (System.currentTimeMillis() < deadline) {
+                synchronized (out) {
+                    if (out.size() >= test.length) {
+                        break;
+                    }
+                }
+                Thread.sleep(5);
+            }
+            assertTrue(faults.getInjectedBits() > 0);
+            synchronized (out) {
+                return Arrays.equals(out.toByteArray(), test) ? null : out.toByteArray();
+            }
+        }
+        finally {
+            port1.close();
+            port2.close();
+        }
+    }
+
+    public void testPortWithBursts() throws Exception {
+        assertNull(sendWithBursts(8));
+        assertNotNull(sendWithBursts(0));
+    }
+}
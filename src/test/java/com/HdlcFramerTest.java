@@ -0,0 +1,86 @@
+package com;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HdlcFramerTest extends TestCase {
+    private final List<byte[]> payloads = new ArrayList<byte[]>();
+    private final List<String> sources = new ArrayList<String>();
+    private final HdlcDeframer deframer = new HdlcDeframer(new HdlcFrame.FrameListener() {
+        public void frameReceived(HdlcFrame frame) {
+            if (frame.isAddressedTo("COM2".getBytes())) {
+                payloads.add(frame.copyPayload());
+                sources.add(new String(frame.getBuffer(), frame.getSourceOffset(), frame.getSourceLength()));
+            }
+        }
+    });
+
+    private static byte[] flags() {
+        byte[] raw = new byte[300];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) (i % 3 == 0 ? 0x7E : i % 3 == 1 ? 0xFF : i);
+        }
+        return raw;
+    }
+
+    public void testStuffing() throws Exception {
+        byte[] frame = new HdlcFramer().encode("COM2".getBytes(), "COM1".getBytes(), flags());
+        for (int i = 1; i < frame.length - 2; i++) {
+            assertTrue(frame[i] != 0x7E);
+        }
+        deframer.feed(frame, 0, frame.length);
+        assertEquals(payloads.size(), 1);
+        assertTrue(Arrays.equals(payloads.get(0), flags()));
+        assertEquals(sources.get(0), "COM1");
+    }
+
+    public void testChunks() throws Exception {
+        HdlcFramer framer = new HdlcFramer();
+        byte[] f1 = framer.encode("COM2".getBytes(), "COM1".getBytes(), "Test String".getBytes());
+        byte[] f2 = framer.encode("COM3".getBytes(), "COM1".getBytes(), "other".getBytes());
+        byte[] f3 = framer.encode("COM2".getBytes(), "COM1".getBytes(), flags());
+        byte[] line = new byte[f1.length + f2.length + f3.length + 3];
+        line[0] = (byte) 0xFF;
+        line[1] = 0x12;
+        line[2] = (byte) 0xFF;
+        System.arraycopy(f1, 0, line, 3, f1.length);
+        System.arraycopy(f2, 0, line, 3 + f1.length, f2.length);
+        System.arraycopy(f3, 0, line, 3 + f1.length + f2.length, f3.length);
+        for (int i = 0; i < line.length; i += 7) {
+            deframer.feed(line, i, Math.min(7, line.length - i));
+        }
+        assertEquals(payloads.size(), 2);
+        assertEquals(new String(payloads.get(0)), "Test String");
+        assertTrue(Arrays.equals(payloads.get(1), flags()));
+        assertEquals(deframer.getFrames(), 3);
+    }
+
+    public void testBadFrame() throws Exception {
+        byte[] frame = new HdlcFramer().encode("COM2".getBytes(), "COM1".getBytes(), "Test String".getBytes());
+        frame[5] ^= 0x04;
+        deframer.feed(frame, 0, frame.length);
+        assertEquals(payloads.size(), 0);
+        assertEquals(deframer.getFrames(), 0);
+    }
+
+    public void testBackToBackFrames() throws Exception {
+        HdlcFramer framer = new HdlcFramer();
+        byte[] line = new byte[0];
+        for (int i = 0; i < 16; i++) {
+            // payloads of different lengths give every count of padding bits
+            byte[] frame = framer.encode("COM2".getBytes(), "COM1".getBytes(), Arrays.copyOf(flags(), i));
+            byte[] next = Arrays.copyOf(line, line.length + frame.length);
+            System.arraycopy(frame, 0, next, line.length, frame.length);
+            line = next;
+        }
+        deframer.feed(line, 0, line.length);
+        assertEquals(deframer.getFrames(), 16);
+        assertEquals(deframer.getBadFrames(), 0);
+        assertEquals(deframer.getAbortedFrames(), 0);
+        for (int i = 0; i < 16; i++) {
+            assertTrue(Arrays.equals(payloads.get(i), Arrays.copyOf(flags(), i)));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com;
+
+import jssc.SerialPort;
+import junit.framework.TestCase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+public class LinkMetricsTest extends TestCase {
+
+    public void testHistogramBuckets() throws Exception {
+        for (long v = 0; v < 1000000; v = v * 3 / 2 + 1) {
+            int bucket = LatencyHistogram.bucket(v);
+            assertTrue(LatencyHistogram.highestValue(bucket) >= v);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < v);
+        }
+        assertTrue(LatencyHistogram.bucket(Long.MAX_VALUE) >= 0);
+    }
+
+    public void testPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMaxNanos());
+        long p50 = histogram.getP50Nanos();
+        assertTrue("p50 " + p50, p50 >= 500000 && p50 <= 500000 * 103 / 100);
+        long p99 = histogram.getP99Nanos();
+        assertTrue("p99 " + p99, p99 >= 990000 && p99 <= 1000000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getP99Nanos());
+    }
+
+    public void testLinkCounters() throws Exception {
+        VirtualSerial[] pair = VirtualSerial.pair("METRICS1", "METRICS2");
+        VirtualSerial port1 = pair[0];
+        VirtualSerial port2 = pair[1];
+        port1.open();
+        port2.open();
+        try {
+            port1.setParams(SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+            port2.setParams(SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+            port1.setFraming("METRICS2");
+            port2.setFraming("METRICS2");
+            port1.setHemmingError(5);
+            byte[] test = new byte[100];
+            assertTrue(port1.write(test, port1.getHammingCodec()));
+            port1.setFraming("OTHER");
+            assertTrue(port1.write(test, port1.getHammingCodec()));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (port2.available() < port1.getMetrics().getBytesSent() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            byte[] res = port2.read(port2.available(), port2.getHammingCodec());
+            assertEquals(test.length, res.length);
+
+            LinkMetrics sent = port1.getMetrics();
+            LinkMetrics received = port2.getMetrics();
+            assertEquals(2, sent.getWriteCalls());
+            assertEquals(2, sent.getFramesSent());
+            assertEquals(200, sent.getPayloadBytesSent());
+            assertEquals(sent.getBytesSent(), received.getBytesReceived());
+            assertEquals(1, received.getReadCalls());
+            assertEquals(1, received.getFramesReceived());
+            assertEquals(1, received.getAddressMismatches());
+            assertEquals(100, received.getPayloadBytesReceived());
+            assertEquals(50, received.getCodewordsDecoded());
+            // every Hamming block has one demonstration error
+            assertEquals(50, received.getCorrectedBits());
+            assertEquals(2, sent.getEncodeLatency().getCount());
+            assertEquals(1, received.getDecodeLatency().getCount());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com:type=Serial,port=" + ObjectName.quote("METRICS2"));
+            assertEquals(1L, server.getAttribute(name, "FramesReceived"));
+            ObjectName latency = new ObjectName("com:type=Serial,port=" + ObjectName.quote("METRICS1") + ",latency=write");
+            assertEquals(2L, server.getAttribute(latency, "Count"));
+        }
+        finally {
+            port1.close();
+            port2.close();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName("com:type=Serial,port=" + ObjectName.quote("METRICS1"))));
+    }
+}
@@ -0,0 +1,50 @@
+package com;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class LoadGeneratorTest extends TestCase {
+
+    public void testParse() throws Exception {
+        LoadGenerator.parse(new String[] {"--tx", "COM1", "--rx", "COM2", "--coding", "CRC-16", "--rate", "10"});
+        String[][] wrong = {
+                {},
+                {"--virtual", "--rate"},
+                {"--virtual", "--rate", "fast"},
+                {"--virtual", "--coding", "CRC-7"},
+                {"--virtual", "--duration", "0"},
+                {"--virtual", "--speed", "1"}
+        };
+        for (String[] args : wrong) {
+            try {
+                LoadGenerator.parse(args);
+                fail("arguments must be wrong");
+            }
+            catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testVirtual() throws Exception {
+        LoadGenerator generator = LoadGenerator.parse(new String[] {"--virtual", "--duration", "1",
+                "--interval", "0.5", "--rate", "40", "--size", "33"});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(generator.run(new PrintStream(out, true)));
+        assertTrue(generator.getSent() >= 35);
+        assertEquals(generator.getReceived(), generator.getSent());
+        assertEquals(generator.getBadMessages(), 0);
+        assertEquals(generator.getLatency().getCount(), generator.getSent());
+        assertTrue(out.toString().contains("total:"));
+    }
+
+    public void testVirtualWithErrors() throws Exception {
+        LoadGenerator generator = LoadGenerator.parse(new String[] {"--virtual", "--duration", "1",
+                "--rate", "40", "--coding", "CRC-8", "--ber", "0.002", "--seed", "5"});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(generator.run(new PrintStream(out, true)));
+        assertTrue(generator.getBadMessages() > 0);
+        assertTrue(generator.getReceived() > 0);
+    }
+}
@@ -0,0 +1,65 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class ParityKernelTest extends TestCase {
+
+    public void testSameSyndromesAsTables() throws Exception {
+        Random random = new Random(2);
+        for (ParityKernel kernel : new ParityKernel[] {ParityKernels.scalar(), ParityKernels.best()}) {
+            for (int count : new int[] {0, 1, 7, 8, 9, 255, 256}) {
+                int[] words = new int[count];
+                int[] expected = new int[count];
+                for (int i = 0; i < count; i++) {
+                    words[i] = random.nextInt(1 << 24);
+                    expected[i] = HammingCodec.syndrome(words[i]);
+                }
+                int[] syndromes = new int[count];
+                kernel.syndromes(words, count, syndromes);
+                assertTrue(kernel.getName() + " " + count, Arrays.equals(syndromes, expected));
+            }
+        }
+    }
+
+    public void testSingleErrorGivesPosition() throws Exception {
+        ParityKernel kernel = ParityKernels.best();
+        HammingCodec codec = new HammingCodec();
+        byte[] coded = codec.encode(new byte[] {0x12, 0x34});
+        int word = (coded[0] & 0xff) << 16 | (coded[1] & 0xff) << 8 | (coded[2] & 0xff);
+        int[] words = new int[21];
+        for (int p = 1; p <= 21; p++) {
+            words[p - 1] = word ^ 1 << (24 - p);
+        }
+        int[] syndromes = new int[words.length];
+        kernel.syndromes(words, words.length, syndromes);
+        for (int p = 1; p <= 21; p++) {
+            assertEquals(syndromes[p - 1], p);
+        }
+    }
+
+    public void testCodecWithKernel() throws Exception {
+        byte[] raw = new byte[10001];
+        new Random(3).nextBytes(raw);
+        HammingCodec plain = new HammingCodec();
+        HammingCodec fast = new HammingCodec(ParityKernels.best());
+        byte[] coded = plain.encode(raw);
+        FaultInjector faults = new FaultInjector(4);
+        faults.setBitErrorRate(0.002);
+        byte[] damaged = new byte[coded.length * 2];
+        int len = faults.apply(coded, 0, coded.length, damaged);
+        damaged = Arrays.copyOf(damaged, len - len % HammingCodec.BLOCK_SIZE);
+        assertTrue(Arrays.equals(fast.decode(damaged), plain.decode(damaged)));
+        assertEquals(fast.getCorrectedBits(), plain.getCorrectedBits());
+        assertEquals(fast.getUncorrectableBlocks(), plain.getUncorrectableBlocks());
+        assertTrue(fast.getCorrectedBits() > 0);
+        assertTrue(Arrays.equals(fast.decode(coded), raw));
+    }
+
+    public void testFallback() throws Exception {
+        assertNull(ParityKernels.load("com.NoSuchKernel"));
+        assertNotNull(ParityKernels.best().getName());
+    }
+}
@@ -0,0 +1,196 @@
+package com;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+public class PayloadCompressorTest extends TestCase {
+
+    private static byte[] telemetry(int i) {
+        return ("{\"id\":" + i + ",\"time\":" + (1000 + i) + ",\"value\":\"temperature=" + (20 + i % 5)
+                + " voltage=" + (12 + i % 3) + " status=OK\"}\r\n").getBytes();
+    }
+
+    /**
+     * compressing messages with sender and decompressing them with receiver in chunks of random size
+     */
+    private static byte[] transfer(PayloadCompressor sender, PayloadCompressor receiver, List<byte[]> messages,
+                                   ByteArrayOutputStream line) {
+        byte[] buffer = new byte[0];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Random random = new Random(7);
+        for (byte[] message : messages) {
+            buffer = new byte[sender.maxCompressedLength(message.length)];
+            int n = sender.compress(message, 0, message.length, buffer, 0);
+            line.write(buffer, 0, n);
+            for (int i = 0; i < n; ) {
+                int chunk = Math.min(n - i, 1 + random.nextInt(20));
+                int count = receiver.feed(buffer, i, chunk);
+                out.write(receiver.output(), 0, count);
+                i += chunk;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(List<byte[]> messages) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] message : messages) {
+            out.write(message, 0, message.length);
+        }
+        return out.toByteArray();
+    }
+
+    public void testNegotiation() throws Exception {
+        PayloadCompressor a = new PayloadCompressor();
+        PayloadCompressor b = new PayloadCompressor();
+        List<byte[]> messages = new ArrayList<byte[]>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(telemetry(i));
+        }
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        assertTrue(Arrays.equals(transfer(a, b, messages, line), concat(messages)));
+        assertEquals(a.getCompressedMessages(), 0);
+        assertFalse(a.isPeerCapable());
+        assertTrue(b.isPeerCapable());
+        // the answer of b says, that it has the same dictionary
+        transfer(b, a, messages.subList(0, 1), new ByteArrayOutputStream());
+        assertTrue(a.isPeerCapable());
+        line.reset();
+        assertTrue(Arrays.equals(transfer(a, b, messages, line), concat(messages)));
+        assertEquals(a.getCompressedMessages(), messages.size());
+        assertTrue(line.size() < concat(messages).length * 0.6);
+        assertEquals(b.getBadMessages(), 0);
+    }
+
+    public void testIncompressible() throws Exception {
+        PayloadCompressor a = new PayloadCompressor();
+        PayloadCompressor b = new PayloadCompressor();
+        transfer(b, a, Arrays.asList(telemetry(0)), new ByteArrayOutputStream());
+        List<byte[]> messages = new ArrayList<byte[]>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = new byte[100];
+            random.nextBytes(bytes);
+            messages.add(bytes);
+        }
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        assertTrue(Arrays.equals(transfer(a, b, messages, line), concat(messages)));
+        assertEquals(line.size(), 100 * (100 + PayloadCompressor.HEADER_SIZE));
+        assertEquals(a.getStoredMessages(), 100);
+        // compression is tried rarely after incompressible messages
+        assertTrue(a.getCompressedMessages() == 0);
+    }
+
+    public void testLongAndBroken() throws Exception {
+        PayloadCompressor a = new PayloadCompressor();
+        PayloadCompressor b = new PayloadCompressor();
+        transfer(b, a, Arrays.asList(telemetry(0)), new ByteArrayOutputStream());
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 3 * PayloadCompressor.MAX_MESSAGE; i++) {
+            sb.append(new String(telemetry(i)));
+        }
+        byte[] big = sb.toString().getBytes();
+        List<byte[]> messages = Arrays.asList(big);
+        assertTrue(Arrays.equals(transfer(a, b, messages, new ByteArrayOutputStream()), big));
+
+        byte[] message = telemetry(1);
+        byte[] buffer = new byte[a.maxCompressedLength(message.length)];
+        int n = a.compress(message, 0, message.length, buffer, 0);
+        buffer[PayloadCompressor.HEADER_SIZE + 2] ^= 0x55;
+        b.feed(buffer, 0, n);
+        n = a.compress(message, 0, message.length, buffer, 0);
+        int count = b.feed(buffer, 0, n);
+        assertTrue(Arrays.equals(Arrays.copyOf(b.output(), count), message));
+    }
+
+    public void testBrokenLength() throws Exception {
+        PayloadCompressor a = new PayloadCompressor();
+        PayloadCompressor b = new PayloadCompressor();
+        byte[] message = telemetry(2);
+        byte[] buffer = new byte[a.maxCompressedLength(message.length)];
+        int n = a.compress(message, 0, message.length, buffer, 0);
+        // wrong length must not make receiver wait for 65535 bytes
+        buffer[2] ^= 0x7F;
+        assertEquals(b.feed(buffer, 0, n), 0);
+        n = a.compress(message, 0, message.length, buffer, 0);
+        int count = b.feed(buffer, 0, n);
+        assertTrue(Arrays.equals(Arrays.copyOf(b.output(), count), message));
+        assertTrue(b.getBadMessages() > 0);
+    }
+
+    public void testTrain() throws Exception {
+        List<byte[]> samples = new ArrayList<byte[]>();
+        for (int i = 0; i < 50; i++) {
+            samples.add(("node=" + i % 4 + ";pump_pressure_kpa=" + (100 + i) + ";valve_state=open;").getBytes());
+        }
+        byte[] dictionary = PayloadCompressor.train(samples, 256);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 256);
+        PayloadCompressor trained = new PayloadCompressor(dictionary, Deflater.BEST_SPEED);
+        PayloadCompressor peer = new PayloadCompressor(dictionary, Deflater.BEST_SPEED);
+        PayloadCompressor plain = new PayloadCompressor();
+        transfer(peer, trained, samples.subList(0, 1), new ByteArrayOutputStream());
+        transfer(peer, plain, samples.subList(0, 1), new ByteArrayOutputStream());
+        assertFalse(plain.isPeerCapable());
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        assertTrue(Arrays.equals(transfer(trained, peer, samples, line), concat(samples)));
+        assertTrue(line.size() < concat(samples).length / 2);
+    }
+
+    public void testPorts() throws Exception {
+        PortPair pair = new PortPair();
+        AbstractSerial port1 = pair.port1;
+        AbstractSerial port2 = pair.port2;
+        try {
+            port1.setCompression(new PayloadCompressor());
+            port2.setCompression(new PayloadCompressor());
+            port1.setFraming("VCOM2");
+            port2.setFraming("VCOM1");
+            ByteArrayOutputStream out1 = PortPair.collect(port1, port1.getHammingCodec());
+            ByteArrayOutputStream out2 = PortPair.collect(port2, port2.getHammingCodec());
+            byte[] hello = "hello".getBytes();
+            assertTrue(port2.send(hello, port2.getHammingCodec()));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!port1.getCompression().isPeerCapable() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(port1.getCompression().isPeerCapable());
+            List<byte[]> messages = new ArrayList<byte[]>();
+            for (int i = 0; i < 10; i++) {
+                messages.add(telemetry(i));
+                assertTrue(port1.send(telemetry(i), port1.getHammingCodec()));
+            }
+            byte[] expected = concat(messages);
+            assertTrue(Arrays.equals(PortPair.await(out2, expected.length), expected));
+            assertTrue(Arrays.equals(PortPair.await(out1, hello.length), hello));
+            assertEquals(port1.getCompression().getCompressedMessages(), 10);
+            assertTrue(port1.getMetrics().getPayloadBytesSent() > port1.getCompression().getBytesOut());
+        }
+        finally {
+            pair.close();
+        }
+    }
+
+    public void testOneWayLink() throws Exception {
+        PortPair pair = new PortPair();
+        AbstractSerial port1 = pair.port1;
+        try {
+            port1.setCompression(new PayloadCompressor());
+            PortPair.collect(port1, new HammingCodec());
+            // receiver sends nothing but the header of turning on
+            pair.port2.setCompression(new PayloadCompressor(), new HammingCodec());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!port1.getCompression().isPeerCapable() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(port1.getCompression().isPeerCapable());
+        }
+        finally {
+            pair.close();
+        }
+    }
+}
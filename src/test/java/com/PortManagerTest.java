@@ -0,0 +1,171 @@
+package com;
+
+import jssc.SerialPort;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+public class PortManagerTest extends TestCase {
+    private static final int PAIRS = 4;
+    private static final int MESSAGES = 50;
+
+    private final Map<String, ByteArrayOutputStream> received = new ConcurrentHashMap<String, ByteArrayOutputStream>();
+    private PortManager manager;
+
+    public void setUp() throws Exception {
+        manager = new PortManager(2, new PortManager.PortListener() {
+            public void messageReceived(AbstractSerial port, byte[] message, int length) {
+                ByteArrayOutputStream out = received.get(port.getPortName());
+                synchronized (out) {
+                    out.write(message, 0, length);
+                }
+            }
+        });
+    }
+
+    public void tearDown() throws Exception {
+        manager.close();
+    }
+
+    private void openPair(String name1, String name2) {
+        VirtualSerial[] pair = VirtualSerial.pair(name1, name2);
+        for (VirtualSerial port : pair) {
+            received.put(port.getPortName(), new ByteArrayOutputStream());
+            assertTrue(manager.open(port, SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8,
+                    SerialPort.STOPBITS_1, SerialPort.PARITY_NONE, new HammingCodec()));
+        }
+    }
+
+    private byte[] await(String name, int length) throws InterruptedException {
+        ByteArrayOutputStream out = received.get(name);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (out) {
+                if (out.size() >= length) {
+                    return out.toByteArray();
+                }
+            }
+            Thread.sleep(5);
+        }
+        synchronized (out) {
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] message(int pair, int number) {
+        return String.format("pair %d message %04d;", pair, number).getBytes();
+    }
+
+    public void testOrderPerPort() throws Exception {
+        for (int p = 0; p < PAIRS; p++) {
+            openPair("PA" + p, "PB" + p);
+        }
+        assertEquals(manager.getPortNames().size(), 2 * PAIRS);
+        ByteArrayOutputStream[] expected = new ByteArrayOutputStream[PAIRS];
+        for (int p = 0; p < PAIRS; p++) {
+            expected[p] = new ByteArrayOutputStream();
+        }
+        for (int m = 0; m < MESSAGES; m++) {
+            for (int p = 0; p < PAIRS; p++) {
+                byte[] bytes = message(p, m);
+                expected[p].write(bytes, 0, bytes.length);
+                manager.send("PA" + p, bytes);
+            }
+        }
+        for (int p = 0; p < PAIRS; p++) {
+            byte[] res = await("PB" + p, expected[p].size());
+            assertTrue(Arrays.equals(res, expected[p].toByteArray()));
+        }
+        assertTrue(manager.getDispatched() > 0);
+    }
+
+    public void testLongerThanBuffer() throws Exception {
+        openPair("LA", "LB");
+        byte[] bytes = new byte[3 * PortManager.RECEIVE_BUFFER + 17];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        assertTrue(manager.send("LA", bytes).get());
+        assertTrue(Arrays.equals(await("LB", bytes.length), bytes));
+    }
+
+    public void testBuffersReturned() throws Exception {
+        BufferPool pool = new BufferPool(true);
+        PortManager own = new PortManager(2, new PortManager.PortListener() {
+            public void messageReceived(AbstractSerial port, byte[] message, int length) {
+            }
+        }, pool);
+        VirtualSerial[] pair = VirtualSerial.pair("BA", "BB");
+        try {
+            for (VirtualSerial port : pair) {
+                assertTrue(own.open(port, SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8,
+                        SerialPort.STOPBITS_1, SerialPort.PARITY_NONE, new HammingCodec()));
+            }
+            try {
+                own.open(pair[0], SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8,
+                        SerialPort.STOPBITS_1, SerialPort.PARITY_NONE, new HammingCodec());
+                fail();
+            }
+            catch (IllegalArgumentException ex) {
+                // opened already
+            }
+            for (int m = 0; m < MESSAGES; m++) {
+                assertTrue(own.send("BA", message(0, m)).get());
+                assertTrue(own.send("BB", message(1, m)).get());
+            }
+            assertTrue(own.close("BA"));
+        }
+        finally {
+            own.close();
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!pool.leaks().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(pool.leaks().size(), 0);
+        assertTrue(pool.getAcquired() > 0);
+    }
+
+    public void testSetCoding() throws Exception {
+        openPair("CA", "CB");
+        assertTrue(manager.setCoding("CA", Coding.forName("CRC-16")));
+        assertTrue(manager.setCoding("CB", Coding.forName("CRC-16")));
+        assertFalse(manager.setCoding("NOPORT", new HammingCodec()));
+        byte[] bytes = message(0, 2);
+        assertTrue(manager.send("CA", bytes).get());
+        assertTrue(Arrays.equals(await("CB", bytes.length), bytes));
+        // bytes on line are coded by the new coding
+        assertEquals(manager.getPort("CA").getMetrics().getBytesSent(), Coding.forName("CRC-16").codedLength(bytes.length));
+    }
+
+    public void testUnknownPort() throws Exception {
+        try {
+            manager.send("NOPORT", new byte[] {1, 2}).get();
+            fail("unknown port must fail");
+        }
+        catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+        assertNull(manager.getPort("NOPORT"));
+    }
+
+    public void testReopen() throws Exception {
+        openPair("RA", "RB");
+        manager.getPort("RB").close();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!manager.getPort("RB").isOpen() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(manager.getPort("RB").isOpen());
+        assertTrue(manager.getReopens() >= 1);
+        byte[] bytes = message(0, 1);
+        assertTrue(manager.send("RA", bytes).get());
+        assertTrue(Arrays.equals(await("RB", bytes.length), bytes));
+        assertTrue(manager.close("RA"));
+        assertNull(manager.getPort("RA"));
+    }
+}
@@ -0,0 +1,123 @@
+package com;
+
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Fixture of tests: two open virtual ports, that are connected by line,
+ * and helpers for messages and collecting of received bytes.
+ */
+final class PortPair {
+    /** the time of waiting for received bytes in milliseconds */
+    static final long AWAIT_MILLIS = 5000;
+
+    final VirtualSerial port1;
+    final VirtualSerial port2;
+
+    /**
+     * opening ports VCOM1 and VCOM2 with 115200 bauds
+     */
+    PortPair() {
+        this("VCOM1", "VCOM2");
+    }
+
+    /**
+     * opening pair of ports with 115200 bauds, 8 data bits, 1 stop bit and without parity
+     * @param name1 - the name of the first port
+     * @param name2 - the name of the second port
+     */
+    PortPair(String name1, String name2) {
+        VirtualSerial[] pair = VirtualSerial.pair(name1, name2);
+        port1 = pair[0];
+        port2 = pair[1];
+        port1.open();
+        port2.open();
+        setBaudRate(SerialPort.BAUDRATE_115200);
+    }
+
+    /**
+     * setting the same speed for both ports
+     * @param baudRate - the speed in bauds
+     */
+    void setBaudRate(int baudRate) {
+        port1.setParams(baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+        port2.setParams(baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+    }
+
+    /**
+     * closing both ports
+     */
+    void close() {
+        port1.close();
+        port2.close();
+    }
+
+    /**
+     * making message with bytes, that are not the same
+     * @param length - the count of bytes
+     * @return - the message
+     */
+    static byte[] message(int length) {
+        return message(length, 3);
+    }
+
+    /**
+     * making message, messages with different seeds differ
+     * @param length - the count of bytes
+     * @param seed - the value of the first byte
+     * @return - the message
+     */
+    static byte[] message(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 7 + seed);
+        }
+        return bytes;
+    }
+
+    /**
+     * reading and decoding all bytes, that come to port
+     * @param port - the port
+     * @param coding - the coding of bytes on line
+     * @return - the stream of decoded bytes, it is used under its own lock
+     */
+    static ByteArrayOutputStream collect(final AbstractSerial port, final Coding coding) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        port.addListener(new SerialPortEventListener() {
+            public void serialEvent(SerialPortEvent event) {
+                byte[] bytes = port.read(event.getEventValue(), coding);
+                if (bytes != null) {
+                    synchronized (out) {
+                        out.write(bytes, 0, bytes.length);
+                    }
+                }
+            }
+        });
+        return out;
+    }
+
+    /**
+     * waiting, till stream has enough bytes, but not longer than AWAIT_MILLIS
+     * @param out - the stream from collect
+     * @param length - the expected count of bytes
+     * @return - the bytes of stream
+     * @throws InterruptedException - if waiting was interrupted
+     */
+    static byte[] await(ByteArrayOutputStream out, int length) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (out) {
+                if (out.size() >= length) {
+                    return out.toByteArray();
+                }
+            }
+            Thread.sleep(5);
+        }
+        synchronized (out) {
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class ReceiveBufferTest extends TestCase {
+
+    public void testChunks() throws Exception {
+        HammingCodec codec = new HammingCodec();
+        byte[] raw = "Test String\nTest String2 with odd length".getBytes();
+        byte[] coded = codec.encode(raw);
+        ReceiveBuffer buffer = new ReceiveBuffer(16);
+        byte[] batch = new byte[coded.length];
+        byte[] out = new byte[raw.length];
+        int outLength = 0;
+        int[] chunks = {1, 4, 2, 7, 5, 11, 3};
+        for (int i = 0, c = 0; i < coded.length; c++) {
+            int n = Math.min(chunks[c % chunks.length], coded.length - i);
+            buffer.write(coded, i, n);
+            i += n;
+            int len = buffer.readBlocks(batch, 0, HammingCodec.BLOCK_SIZE, batch.length);
+            assertEquals(len % HammingCodec.BLOCK_SIZE, 0);
+            outLength += codec.decode(batch, 0, len, out, outLength);
+        }
+        assertEquals(buffer.size(), 0);
+        assertTrue(Arrays.equals(Arrays.copyOf(out, outLength), raw));
+    }
+
+    public void testWrap() throws Exception {
+        ReceiveBuffer buffer = new ReceiveBuffer(16);
+        byte[] chunk = new byte[40];
+        byte[] dst = new byte[64];
+        int written = 0;
+        int read = 0;
+        for (int round = 0; round < 20; round++) {
+            int n = round % 5 == 4 ? 40 : 7;
+            for (int i = 0; i < n; i++) {
+                chunk[i] = (byte) written++;
+            }
+            buffer.write(chunk, 0, n);
+            int len = buffer.readBlocks(dst, 0, 3, dst.length);
+            assertEquals(buffer.size(), (written - read) % 3);
+            for (int i = 0; i < len; i++) {
+                assertEquals(dst[i], (byte) read++);
+            }
+        }
+    }
+}
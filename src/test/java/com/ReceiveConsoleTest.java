@@ -0,0 +1,45 @@
+package com;
+
+import junit.framework.TestCase;
+
+public class ReceiveConsoleTest extends TestCase {
+
+    public void testLinesAcrossMessages() throws Exception {
+        ReceiveConsole console = new ReceiveConsole(10);
+        console.append("first li".getBytes());
+        console.append("ne\r\nsecond".getBytes());
+        assertEquals(console.getText(), "first line\nsecond");
+        assertEquals(console.getLineCount(), 1);
+        assertEquals(console.getReceivedBytes(), 18);
+        assertEquals(console.getMessages(), 2);
+    }
+
+    public void testOldLinesAreDropped() throws Exception {
+        ReceiveConsole console = new ReceiveConsole(3);
+        for (int i = 0; i < 1000; i++) {
+            console.append(("line " + i + "\n").getBytes());
+        }
+        assertEquals(console.getText(), "line 997\nline 998\nline 999\n");
+        assertEquals(console.getLineCount(), 3);
+        assertEquals(console.getDroppedLines(), 997);
+    }
+
+    public void testLongLineIsBroken() throws Exception {
+        ReceiveConsole console = new ReceiveConsole(10);
+        console.append(new byte[ReceiveConsole.MAX_LINE * 2 + 5]);
+        assertEquals(console.getLineCount(), 2);
+        assertEquals(console.getText().length(), ReceiveConsole.MAX_LINE * 2 + 2 + 5);
+    }
+
+    public void testChangesAreTakenOnce() throws Exception {
+        ReceiveConsole console = new ReceiveConsole(10);
+        assertFalse(console.takeChanges());
+        console.append("a".getBytes());
+        console.append("b".getBytes());
+        assertTrue(console.takeChanges());
+        assertFalse(console.takeChanges());
+        console.clear();
+        assertTrue(console.takeChanges());
+        assertEquals(console.getText(), "");
+    }
+}
@@ -0,0 +1,105 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ReedSolomonCodecTest extends TestCase {
+
+    public void testRoundTrip() throws Exception {
+        ReedSolomonCodec codec = new ReedSolomonCodec(255, 223);
+        for (int len : new int[] {0, 1, 221, 222, 223, 500, 2000}) {
+            byte[] raw = PortPair.message(len);
+            byte[] coded = codec.encode(raw);
+            assertEquals(coded.length, codec.codedLength(len));
+            assertEquals(coded.length % codec.blockLength(), 0);
+            assertTrue(Arrays.equals(codec.decode(coded), raw));
+        }
+        assertEquals(codec.getCorrectedBits(), 0);
+        assertEquals(codec.getUncorrectableBlocks(), 0);
+    }
+
+    public void testRepairHalfOfParity() throws Exception {
+        Random random = new Random(1);
+        for (int[] nk : new int[][] {{255, 223}, {32, 24}, {10, 4}}) {
+            ReedSolomonCodec codec = new ReedSolomonCodec(nk[0], nk[1]);
+            int t = (nk[0] - nk[1]) / 2;
+            byte[] raw = PortPair.message(nk[1] * 5);
+            byte[] coded = codec.encode(raw);
+            for (int round = 0; round < 50; round++) {
+                byte[] broken = coded.clone();
+                for (int block = 0; block < broken.length; block += nk[0]) {
+                    int errors = random.nextInt(t + 1);
+                    for (int e = 0; e < errors; e++) {
+                        broken[block + random.nextInt(nk[0])] ^= 1 + random.nextInt(255);
+                    }
+                }
+                assertTrue(codec.getName(), Arrays.equals(codec.decode(broken), raw));
+            }
+            assertEquals(codec.getUncorrectableBlocks(), 0);
+            assertTrue(codec.getCorrectedBits() > 0);
+        }
+    }
+
+    public void testBurstInOneBlock() throws Exception {
+        ReedSolomonCodec codec = new ReedSolomonCodec(255, 223);
+        byte[] raw = PortPair.message(1000);
+        byte[] coded = codec.encode(raw);
+        // 16 bytes of burst are 128 wrong bits, but only 16 wrong symbols
+        for (int i = 300; i < 316; i++) {
+            coded[i] = (byte) ~coded[i];
+        }
+        assertTrue(Arrays.equals(codec.decode(coded), raw));
+        assertEquals(codec.getCorrectedBits(), 128);
+    }
+
+    public void testTooManyErrors() throws Exception {
+        ReedSolomonCodec codec = new ReedSolomonCodec(32, 24);
+        Random random = new Random(2);
+        byte[] coded = codec.encode(PortPair.message(23));
+        int detected = 0;
+        for (int round = 0; round < 100; round++) {
+            byte[] broken = coded.clone();
+            for (int i = 0; i < 8; i++) {
+                broken[i * 4 + random.nextInt(4)] ^= 1 + random.nextInt(255);
+            }
+            long before = codec.getUncorrectableBlocks();
+            codec.decode(broken);
+            detected += (int) (codec.getUncorrectableBlocks() - before);
+        }
+        // 8 errors are found by 8 parity symbols almost always, but can't be repaired
+        assertTrue(detected > 80);
+    }
+
+    public void testForName() throws Exception {
+        assertTrue(Coding.forName("Hemming") instanceof HammingCodec);
+        assertEquals(Coding.forName("CRC-16").getName(), "CRC-16");
+        assertEquals(Coding.forName("RS").getName(), "RS(255,223)");
+        assertEquals(Coding.forName("RS(32, 24)").blockLength(), 32);
+        assertNull(Coding.forName("RS(300,200)"));
+        assertNull(Coding.forName("RS(x)"));
+        assertNull(Coding.forName("unknown"));
+    }
+
+    public void testVirtualPortsWithBursts() throws Exception {
+        PortPair pair = new PortPair();
+        try {
+            FaultInjector faults = new FaultInjector(5);
+            faults.setBurst(0.005, 12);
+            pair.port1.setFaults(faults);
+            pair.port1.setChunkSize(7);
+            Coding rxCoding = Coding.forName("RS");
+            ByteArrayOutputStream out = PortPair.collect(pair.port2, rxCoding);
+            byte[] test = PortPair.message(3000);
+            assertTrue(pair.port1.send(test, Coding.forName("RS")));
+            assertTrue(Arrays.equals(PortPair.await(out, test.length), test));
+            assertTrue(faults.getInjectedBits() > 0);
+            assertEquals(rxCoding.getUncorrectableBlocks(), 0);
+        }
+        finally {
+            pair.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ReliableLinkTest extends TestCase {
+    private PortPair pair;
+    private VirtualSerial port1;
+    private VirtualSerial port2;
+
+    public void setUp() throws Exception {
+        pair = new PortPair("ARQ1", "ARQ2");
+        port1 = pair.port1;
+        port2 = pair.port2;
+        port1.setCrcCodec(new CrcCodec(CrcEngine.CRC16_CCITT, 64));
+        port2.setCrcCodec(new CrcCodec(CrcEngine.CRC16_CCITT, 64));
+        port1.setFraming("ARQ2");
+        port2.setFraming("ARQ1");
+    }
+
+    public void tearDown() throws Exception {
+        pair.close();
+    }
+
+    private void transfer(ReliableLink.Mode mode, double bitErrorRate) throws Exception {
+        FaultInjector faults = new FaultInjector(7);
+        faults.setBitErrorRate(bitErrorRate);
+        port1.setFaults(faults);
+        FaultInjector back = new FaultInjector(8);
+        back.setBitErrorRate(bitErrorRate);
+        port2.setFaults(back);
+
+        final List<byte[]> received = Collections.synchronizedList(new ArrayList<byte[]>());
+        ReliableLink sender = new ReliableLink(port1, port1.getCrcCodec(), mode, 8, new ReliableLink.MessageListener() {
+            public void messageReceived(byte[] message) {
+            }
+        });
+        ReliableLink receiver = new ReliableLink(port2, port2.getCrcCodec(), mode, 8, new ReliableLink.MessageListener() {
+            public void messageReceived(byte[] message) {
+                received.add(message);
+            }
+        });
+        try {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<CompletableFuture<Boolean>>();
+            List<byte[]> messages = new ArrayList<byte[]>();
+            for (int i = 0; i < 60; i++) {
+                byte[] message = new byte[100 + i];
+                Arrays.fill(message, (byte) i);
+                messages.add(message);
+                futures.add(sender.send(message));
+            }
+            for (CompletableFuture<Boolean> future : futures) {
+                assertTrue(future.get(30, TimeUnit.SECONDS));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < messages.size() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(messages.size(), received.size());
+            for (int i = 0; i < messages.size(); i++) {
+                assertTrue("message " + i, Arrays.equals(messages.get(i), received.get(i)));
+            }
+            if (bitErrorRate > 0) {
+                assertTrue(sender.getRetransmissions() > 0);
+            }
+            assertTrue(sender.getSrtt() > 0);
+        }
+        finally {
+            sender.close();
+            receiver.close();
+        }
+    }
+
+    public void testGoBackN() throws Exception {
+        transfer(ReliableLink.Mode.GO_BACK_N, 0);
+    }
+
+    public void testGoBackNWithErrors() throws Exception {
+        transfer(ReliableLink.Mode.GO_BACK_N, 0.0002);
+    }
+
+    public void testSelectiveRepeatWithErrors() throws Exception {
+        transfer(ReliableLink.Mode.SELECTIVE_REPEAT, 0.0002);
+    }
+
+    public void testAcksWhileWindowIsWritten() throws Exception {
+        ReliableLink sender = new ReliableLink(port1, port1.getCrcCodec(), ReliableLink.Mode.GO_BACK_N, 8,
+                new ReliableLink.MessageListener() {
+                    public void messageReceived(byte[] message) {
+                    }
+                });
+        ReliableLink receiver = new ReliableLink(port2, port2.getCrcCodec(), ReliableLink.Mode.GO_BACK_N, 8,
+                new ReliableLink.MessageListener() {
+                    public void messageReceived(byte[] message) {
+                    }
+                });
+        try {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<CompletableFuture<Boolean>>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(sender.send(new byte[500]));
+            }
+            for (CompletableFuture<Boolean> future : futures) {
+                assertTrue(future.get(30, TimeUnit.SECONDS));
+            }
+            // window of 8 packets is written about 350 ms, ACK of one packet must not wait for it
+            assertTrue(sender.getSrtt() > 0);
+            assertTrue("srtt " + sender.getSrtt() / 1000000 + " ms", sender.getSrtt() < 150000000L);
+        }
+        finally {
+            sender.close();
+            receiver.close();
+        }
+    }
+
+    public void testWindowRange() throws Exception {
+        try {
+            new ReliableLink(port1, port1.getCrcCodec(), ReliableLink.Mode.GO_BACK_N, ReliableLink.MAX_WINDOW + 1, null);
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
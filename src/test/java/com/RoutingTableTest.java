@@ -0,0 +1,86 @@
+package com;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class RoutingTableTest extends TestCase {
+    private final AbstractSerial[] ports = {
+            new VirtualSerial("A"), new VirtualSerial("B"), new VirtualSerial("C")
+    };
+
+    public void testSameAsMap() throws Exception {
+        RoutingTable table = new RoutingTable(4);
+        Map<Integer, AbstractSerial> expected = new HashMap<Integer, AbstractSerial>();
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            // small range of addresses, so chains are often removed from the middle
+            int address = random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                assertEquals(table.remove(address), expected.remove(address) != null);
+            }
+            else {
+                AbstractSerial port = ports[random.nextInt(ports.length)];
+                assertSame(table.put(address, port), expected.put(address, port));
+            }
+            assertEquals(table.size(), expected.size());
+        }
+        for (int address = 0; address < 300; address++) {
+            assertSame(table.get(address), expected.get(address));
+        }
+    }
+
+    public void testGroups() throws Exception {
+        RoutingTable table = new RoutingTable();
+        int group = LinkAddress.FIRST_GROUP + 5;
+        assertNull(table.getMembers(group));
+        table.addMember(group, ports[0]);
+        table.addMember(group, ports[1]);
+        table.addMember(group, ports[1]);
+        assertTrue(Arrays.equals(table.getMembers(group), new AbstractSerial[] {ports[0], ports[1]}));
+        assertNull(table.get(group));
+        table.removeMember(group, ports[0]);
+        assertTrue(Arrays.equals(table.getMembers(group), new AbstractSerial[] {ports[1]}));
+        table.removeMember(group, ports[1]);
+        assertNull(table.getMembers(group));
+        assertEquals(table.size(), 0);
+    }
+
+    public void testRemovePort() throws Exception {
+        RoutingTable table = new RoutingTable();
+        for (int address = 0; address < 100; address++) {
+            table.put(address, ports[address % 3]);
+        }
+        table.addMember(LinkAddress.FIRST_GROUP, ports[0]);
+        table.addMember(LinkAddress.FIRST_GROUP, ports[2]);
+        table.addMember(LinkAddress.FIRST_GROUP + 1, ports[2]);
+        table.removePort(ports[2]);
+        assertEquals(table.size(), 67 + 1);
+        for (int address = 0; address < 100; address++) {
+            assertSame(table.get(address), address % 3 == 2 ? null : ports[address % 3]);
+        }
+        assertTrue(Arrays.equals(table.getMembers(LinkAddress.FIRST_GROUP), new AbstractSerial[] {ports[0]}));
+        assertNull(table.getMembers(LinkAddress.FIRST_GROUP + 1));
+    }
+
+    public void testWrongAddresses() throws Exception {
+        RoutingTable table = new RoutingTable();
+        try {
+            table.put(LinkAddress.BROADCAST, ports[0]);
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            // group can't be address of one port
+        }
+        try {
+            table.addMember(5, ports[0]);
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            // address of port is not group
+        }
+    }
+}
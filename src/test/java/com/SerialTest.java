@@ -4,54 +4,53 @@ import jssc.SerialPortList;
 import junit.framework.TestCase;
 
 public class SerialTest extends TestCase {
-    static Serial serialPort1 = null;
-    static Serial serialPort2 = null;
-    static boolean start;
+    static AbstractSerial serialPort1 = null;
+    static AbstractSerial serialPort2 = null;
 
     public void setUp() throws Exception {
         String[] names = SerialPortList.getPortNames();
         if (names.length >= 2) {
-            start = true;
             serialPort1 = new Serial(names[0]);
             serialPort2 = new Serial(names[1]);
         }
         else {
-            start = false;
+            VirtualSerial[] pair = VirtualSerial.pair("VCOM1", "VCOM2");
+            serialPort1 = pair[0];
+            serialPort2 = pair[1];
         }
 
-        if (start) {
-            if (!serialPort1.isOpen()) {
-                serialPort1.open();
-            }
-            if (!serialPort2.isOpen()) {
-                serialPort2.open();
-            }
-            serialPort1.setParams(SerialPort.BAUDRATE_9600,
-                    SerialPort.DATABITS_8,
-                    SerialPort.STOPBITS_1,
-                    SerialPort.PARITY_NONE);
-
-            serialPort1.setFlowControl(SerialPort.FLOWCONTROL_RTSCTS_IN |
-                    SerialPort.FLOWCONTROL_RTSCTS_OUT);
-
-            serialPort2.setParams(SerialPort.BAUDRATE_9600,
-                    SerialPort.DATABITS_8,
-                    SerialPort.STOPBITS_1,
-                    SerialPort.PARITY_NONE);
-
-            serialPort2.setFlowControl(SerialPort.FLOWCONTROL_RTSCTS_IN |
-                    SerialPort.FLOWCONTROL_RTSCTS_OUT);
+        if (!serialPort1.isOpen()) {
+            serialPort1.open();
+        }
+        if (!serialPort2.isOpen()) {
+            serialPort2.open();
         }
+        serialPort1.setParams(SerialPort.BAUDRATE_9600,
+                SerialPort.DATABITS_8,
+                SerialPort.STOPBITS_1,
+                SerialPort.PARITY_NONE);
+
+        serialPort1.setFlowControl(SerialPort.FLOWCONTROL_RTSCTS_IN |
+                SerialPort.FLOWCONTROL_RTSCTS_OUT);
+
+        serialPort2.setParams(SerialPort.BAUDRATE_9600,
+                SerialPort.DATABITS_8,
+                SerialPort.STOPBITS_1,
+                SerialPort.PARITY_NONE);
+
+        serialPort2.setFlowControl(SerialPort.FLOWCONTROL_RTSCTS_IN |
+                SerialPort.FLOWCONTROL_RTSCTS_OUT);
         super.setUp();
     }
 
     public void tearDown() throws Exception {
-        //serialPort1.close();
-        //serialPort2.close();
+        serialPort1.close();
+        serialPort2.close();
     }
 
     public void testStart() throws Exception {
-        assertTrue(start);
+        assertTrue(serialPort1.isOpen());
+        assertTrue(serialPort2.isOpen());
     }
 /*
     public void testWrite() throws Exception {
@@ -89,7 +88,7 @@ public class SerialTest extends TestCase {
 
     public void testHeming() throws Exception {
         for (int i = 0; i < 19; i++) {
-            assertEquals(new String(serialPort1.hemingDecode(serialPort1.hemingCoding("12".getBytes(), i))),"12");
+            assertEquals(new String(Serial.hemingDecode(Serial.hemingCoding("12".getBytes(), i))),"12");
         }
     }
 
@@ -0,0 +1,24 @@
+package com;
+import jssc.SerialPort;
+import junit.framework.TestCase;
+
+public class TransmitPacerTest extends TestCase {
+
+    public void testTime() throws Exception {
+        TransmitPacer pacer = new TransmitPacer();
+        pacer.setParams(SerialPort.BAUDRATE_9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+        assertEquals(pacer.nanosFor(960), 1000000000L);
+        pacer.setParams(SerialPort.BAUDRATE_9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_2, SerialPort.PARITY_EVEN);
+        assertEquals(pacer.nanosFor(800), 1000000000L);
+    }
+
+    public void testWindow() throws Exception {
+        TransmitPacer pacer = new TransmitPacer();
+        pacer.setParams(SerialPort.BAUDRATE_115200, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+        assertEquals(pacer.getWindow(), 1152);
+        assertEquals(pacer.room(0), 1152);
+        assertEquals(pacer.room(1000), 152);
+        assertEquals(pacer.room(2000), 0);
+        assertTrue(pacer.waitNanos(2000) > 0);
+    }
+}
@@ -0,0 +1,109 @@
+package com;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class TransmitQueueTest extends TestCase {
+
+    private static class Line implements TransmitQueue.Sink {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final CountDownLatch open = new CountDownLatch(1);
+        int writings;
+
+        public int maxEncodedLength(byte[] message, Coding coding) {
+            return HammingCodec.encodedLength(message.length);
+        }
+
+        public int encode(byte[] message, Coding coding, byte[] dst, int dstOff) {
+            return new HammingCodec().encode(message, 0, message.length, dst, dstOff);
+        }
+
+        public synchronized boolean writeCoded(byte[] coded, int off, int len) {
+            try {
+                open.await();
+            }
+            catch (InterruptedException ex) {
+                return false;
+            }
+            writings++;
+            written.write(coded, off, len);
+            return true;
+        }
+    }
+
+    public void testCoalescing() throws Exception {
+        Line line = new Line();
+        TransmitQueue queue = new TransmitQueue("test-writer", line, 100, TransmitQueue.OverflowPolicy.BLOCK);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<CompletableFuture<Boolean>>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(queue.submit(("message " + i + "\n").getBytes(), new HammingCodec()));
+        }
+        line.open.countDown();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(futures.get(i).get(5, TimeUnit.SECONDS));
+            expected.append("message ").append(i).append('\n');
+        }
+        assertTrue(line.writings < 50);
+        String decoded = new String(new HammingCodec().decode(line.written.toByteArray()));
+        assertEquals(decoded, expected.toString());
+        queue.close();
+    }
+
+    public void testReject() throws Exception {
+        Line line = new Line();
+        TransmitQueue queue = new TransmitQueue("test-writer", line, 2, TransmitQueue.OverflowPolicy.REJECT);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<CompletableFuture<Boolean>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(queue.submit("12".getBytes(), new HammingCodec()));
+        }
+        CompletableFuture<Boolean> last = futures.get(futures.size() - 1);
+        try {
+            last.get(1, TimeUnit.SECONDS);
+            fail();
+        }
+        catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        line.open.countDown();
+        queue.close();
+    }
+
+    public void testCloseCompletesBlockedProducers() throws Exception {
+        Line line = new Line();
+        final TransmitQueue queue = new TransmitQueue("test-writer", line, 1, TransmitQueue.OverflowPolicy.BLOCK);
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<CompletableFuture<Boolean>>();
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread producer = new Thread(new Runnable() {
+                public void run() {
+                    CompletableFuture<Boolean> future = queue.submit("12".getBytes(), new HammingCodec());
+                    synchronized (futures) {
+                        futures.add(future);
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        // writer waits on closed line with one message, the next one is in queue, the rest wait in put
+        Thread.sleep(200);
+        queue.close();
+        for (Thread producer : producers) {
+            producer.join(5000);
+            assertFalse(producer.isAlive());
+        }
+        assertEquals(futures.size(), 8);
+        for (CompletableFuture<Boolean> future : futures) {
+            assertFalse(future.get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(queue.submit("12".getBytes(), new HammingCodec()).isCompletedExceptionally());
+    }
+}
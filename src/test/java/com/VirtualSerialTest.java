@@ -0,0 +1,165 @@
+package com;
+
+import jssc.SerialPort;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualSerialTest extends TestCase {
+    private PortPair pair;
+    private VirtualSerial port1;
+    private VirtualSerial port2;
+
+    public void setUp() throws Exception {
+        pair = new PortPair();
+        port1 = pair.port1;
+        port2 = pair.port2;
+    }
+
+    public void tearDown() throws Exception {
+        pair.close();
+    }
+
+    public void testHammingWithBitErrors() throws Exception {
+        FaultInjector faults = new FaultInjector(3);
+        faults.setBitErrorRate(0.001);
+        port1.setFaults(faults);
+        port1.setHemmingError(-1);
+        port1.setChunkSize(5);
+        ByteArrayOutputStream out = PortPair.collect(port2, port2.getHammingCodec());
+        byte[] test = PortPair.message(1000);
+        assertTrue(port1.send(test, port1.getHammingCodec()));
+        byte[] res = PortPair.await(out, test.length);
+        assertTrue(faults.getInjectedBits() > 0);
+        // errors in spare bits are not counted, they are fixed by majority vote
+        assertTrue(port2.getHammingCodec().getCorrectedBits() > 0);
+        assertTrue(port2.getHammingCodec().getCorrectedBits() <= faults.getInjectedBits());
+        assertTrue(Arrays.equals(test, res));
+    }
+
+    public void testFramedCrc() throws Exception {
+        port1.setFraming("VCOM2");
+        port2.setFraming("VCOM2");
+        port1.setCrcCodec(new CrcCodec(CrcEngine.CRC16_CCITT, 64));
+        port2.setCrcCodec(new CrcCodec(CrcEngine.CRC16_CCITT, 64));
+        port1.setChunkSize(7);
+        ByteArrayOutputStream out = PortPair.collect(port2, port2.getCrcCodec());
+        byte[] test = PortPair.message(3000);
+        assertTrue(port1.send(test, port1.getCrcCodec()));
+        assertTrue(Arrays.equals(test, PortPair.await(out, test.length)));
+    }
+
+    public void testUnframedPaddedCrc() throws Exception {
+        Coding coding = Coding.forName("CRC-16");
+        port1.setChunkSize(7);
+        ByteArrayOutputStream out = PortPair.collect(port2, Coding.forName("CRC-16"));
+        // short last blocks of messages must not shift the next messages
+        byte[] first = PortPair.message(100);
+        byte[] second = PortPair.message(37);
+        assertTrue(port1.send(first, coding));
+        assertTrue(port1.send(second, coding));
+        byte[] res = PortPair.await(out, first.length + second.length);
+        assertTrue(Arrays.equals(Arrays.copyOf(res, first.length), first));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(res, first.length, res.length), second));
+        try {
+            port1.send(first, new CrcCodec(CrcEngine.CRC16_CCITT, 64));
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            // short last block without padding needs frames
+        }
+    }
+
+    public void testDropAndDuplicate() throws Exception {
+        FaultInjector faults = new FaultInjector(2);
+        faults.setDropRate(0.01);
+        faults.setDuplicateRate(0.01);
+        byte[] test = PortPair.message(10000);
+        byte[] dst = new byte[2 * test.length];
+        int len = faults.apply(test, 0, test.length, dst);
+        assertTrue(faults.getDroppedBytes() > 0);
+        assertTrue(faults.getDuplicatedBytes() > 0);
+        assertEquals(test.length - faults.getDroppedBytes() + faults.getDuplicatedBytes(), len);
+    }
+
+    public void testLineTime() throws Exception {
+        pair.setBaudRate(SerialPort.BAUDRATE_9600);
+        long start = System.nanoTime();
+        assertTrue(port1.write(new byte[200], port1.getCrcCodec()));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (port2.available() < 400 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        long millis = (System.nanoTime() - start) / 1000000L;
+        assertEquals(400, port2.available());
+        assertTrue("too fast: " + millis, millis >= 350);
+    }
+
+    public void testSendAsyncWhileWriting() throws Exception {
+        pair.setBaudRate(SerialPort.BAUDRATE_9600);
+        // about 1.5 seconds of paced writing by writer thread
+        CompletableFuture<Boolean> first = port1.sendAsync(new byte[700], port1.getCrcCodec());
+        Thread.sleep(100);
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> second = port1.sendAsync(new byte[10], port1.getCrcCodec());
+        long millis = (System.nanoTime() - start) / 1000000L;
+        assertTrue("producer waited for line: " + millis, millis < 100);
+        assertFalse(first.isDone());
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertTrue(second.get(10, TimeUnit.SECONDS));
+    }
+
+    public void testHemmingErrorRange() throws Exception {
+        for (int error : new int[] {-2, HammingCodec.CODE_BITS, HammingCodec.BLOCK_SIZE * Byte.SIZE - 1}) {
+            try {
+                port1.setHemmingError(error);
+                fail("position " + error);
+            }
+            catch (IllegalArgumentException ex) {
+                // spare bits are not protected by Hamming code
+            }
+        }
+        port1.setHemmingError(HammingCodec.CODE_BITS - 1);
+        ByteArrayOutputStream out = PortPair.collect(port2, port2.getHammingCodec());
+        byte[] test = PortPair.message(301);
+        assertTrue(port1.send(test, port1.getHammingCodec()));
+        assertTrue(Arrays.equals(test, PortPair.await(out, test.length)));
+    }
+
+    public void testBaudMismatch() throws Exception {
+        port2.setParams(SerialPort.BAUDRATE_57600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+        port1.setHemmingError(-1);
+        ByteArrayOutputStream out = PortPair.collect(port2, port2.getHammingCodec());
+        byte[] test = PortPair.message(300);
+        assertTrue(port1.send(test, port1.getHammingCodec()));
+        assertFalse(Arrays.equals(test, PortPair.await(out, test.length)));
+    }
+
+    public void testByteBuffers() throws Exception {
+        port1.setFraming("VCOM2");
+        port2.setFraming("VCOM2");
+        byte[] test = PortPair.message(500);
+        ByteBuffer message = ByteBuffer.allocateDirect(test.length);
+        message.put(test).flip();
+        assertTrue(port1.write(message, port1.getHammingCodec()) > test.length);
+        assertFalse(message.hasRemaining());
+        ByteBuffer dst = ByteBuffer.allocateDirect(test.length);
+        ByteBuffer small = ByteBuffer.allocate(100);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dst.hasRemaining() && System.currentTimeMillis() < deadline) {
+            small.clear();
+            port2.read(port2.available(), small, port2.getHammingCodec());
+            small.flip();
+            dst.put(small);
+            Thread.sleep(5);
+        }
+        dst.flip();
+        byte[] res = new byte[dst.remaining()];
+        dst.get(res);
+        assertTrue(Arrays.equals(test, res));
+    }
+}